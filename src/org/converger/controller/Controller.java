@@ -6,15 +6,17 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Set;
 
 import org.converger.controller.exception.NoElementSelectedException;
 import org.converger.framework.CasFramework;
 import org.converger.framework.CasManager;
+import org.converger.framework.EvaluationBackend;
 import org.converger.framework.Expression;
+import org.converger.framework.PreparedExpression;
 import org.converger.framework.SyntaxErrorException;
 import org.converger.userinterface.UserInterface;
 import org.converger.userinterface.gui.GUI;
@@ -256,10 +258,14 @@ public final class Controller {
 			if (vars.size() > 1) { //NOPMD
 				throw new IllegalArgumentException("The expression has too many variables");
 			}
-			final Map<String, Double> map = new HashMap<>();
-			this.ui.showGraph(x-> {
-				vars.forEach(v->map.put(v, x)); // only one variable or no variable
-				return this.framework.evaluate(exp, map);
+			final PreparedExpression function = this.framework.prepare(exp, new ArrayList<>(vars),
+					EvaluationBackend.PROGRAM);
+			this.ui.showGraph(xs -> {
+				final double[] ys = new double[xs.length];
+				final double[][] columns = new double[vars.size()][];
+				Arrays.fill(columns, xs); // only one variable or no variable
+				function.applyBatch(columns, ys);
+				return ys;
 			});
 			
 		} catch (NoElementSelectedException | IllegalArgumentException e) {
@@ -1,9 +1,13 @@
 package org.converger.framework;
 
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
 
+import org.converger.framework.polynomials.Polynomial;
+
 /**
  * This interface defines the operations which can be done on this CAS.
  * @author Dario Pavllo
@@ -25,6 +29,28 @@ public interface CasFramework {
 	 */
 	Expression simplify(Expression input);
 	
+	/**
+	 * Simplifies (algebraically) the supplied expression, using the given strategy.
+	 * @param input the expression to simplify
+	 * @param mode the simplification strategy
+	 * @return the simplified expression
+	 */
+	Expression simplify(Expression input, SimplificationMode mode);
+	
+	/**
+	 * Simplifies the supplied expression by equality saturation: the rewrite rules are
+	 * applied without discarding the previous forms, until nothing new can be derived
+	 * or a budget is exhausted, and then the smallest equivalent form is returned.
+	 * This is slower than {@link #simplify(Expression)}, but it can find simplifications
+	 * which depend on the order of the rewritings (like x*(y/x) = y).
+	 * @param input the expression to simplify
+	 * @param nodeBudget the maximum number of nodes of the e-graph
+	 * @param timeBudgetMillis the maximum duration, in milliseconds
+	 * @return the simplified expression
+	 * @throws IllegalArgumentException if a budget is not positive
+	 */
+	Expression simplifyBySaturation(Expression input, int nodeBudget, long timeBudgetMillis);
+	
 	/**
 	 * Substitutes the supplied variables with the corresponding subexpressions.
 	 * @param input the target expression
@@ -48,6 +74,28 @@ public interface CasFramework {
 	 */
 	Expression differentiate(Expression input, String variable);
 	
+	/**
+	 * Converts the supplied expression to a univariate polynomial with rational coefficients,
+	 * which can be evaluated with Horner's method, differentiated and converted
+	 * back to an expression without any symbolic simplification.
+	 * @param input the expression to convert
+	 * @param variable the variable of the polynomial
+	 * @return the polynomial, or an empty optional if the expression is not a polynomial
+	 * in the given variable or if its coefficients do not fit in a long
+	 */
+	Optional<Polynomial> toPolynomial(Expression input, String variable);
+	
+	/**
+	 * Expands the supplied expression: products and natural powers of sums are
+	 * distributed, and like terms are collected. The subexpressions which are not
+	 * polynomial (functions, powers with other exponents, divisions by non-constant terms)
+	 * are treated as symbols, and their operands are expanded separately.
+	 * If the coefficients do not fit in a long, the expression is returned unchanged.
+	 * @param input the expression to expand
+	 * @return the expanded expression
+	 */
+	Expression expand(Expression input);
+	
 	/**
 	 * Evaluates (numerically) a function, using the supplied map of values.
 	 * @param input the function to evaluate
@@ -57,6 +105,84 @@ public interface CasFramework {
 	 */
 	double evaluate(Expression input, Map<String, Double> values);
 	
+	/**
+	 * Evaluates (numerically) a function and its derivative with respect to
+	 * the supplied variable, in a single pass. The derivative is not calculated
+	 * symbolically, but propagated numerically along with the value.
+	 * @param input the function to evaluate
+	 * @param variable the independent variable
+	 * @param values a map containing correspondences between variables and values
+	 * (it must include the independent variable)
+	 * @return the value of the function and of its derivative
+	 * @throws NoSuchElementException if a mapping is not found for a certain variable
+	 */
+	DualNumber evaluateWithDerivative(Expression input, String variable, Map<String, Double> values);
+	
+	/**
+	 * Evaluates (numerically) a function and its gradient, in a single forward
+	 * and backward sweep (the cost does not grow with the number of variables).
+	 * In order to evaluate gradients at many points, the expression should be prepared
+	 * with {@link EvaluationBackend#PROGRAM}, and evaluated with
+	 * {@link org.converger.framework.compiler.Program#applyWithGradient}.
+	 * @param input the function to evaluate
+	 * @param variables the variables of the gradient
+	 * @param point the values of the variables, in the same order
+	 * @return the value of the function and its partial derivatives
+	 * @throws NoSuchElementException if the function contains other variables
+	 * @throws IllegalArgumentException if the number of values does not match
+	 * the number of variables
+	 */
+	Gradient gradient(Expression input, List<String> variables, double[] point);
+	
+	/**
+	 * Prepares a function for repeated numerical evaluation.
+	 * Each variable is bound to a positional slot, so that the returned handle
+	 * can be evaluated many times without building any map of values.
+	 * @param input the function to prepare
+	 * @param variableOrder the variables of the function, in the order in which
+	 * their values will be supplied
+	 * @return a reusable evaluation handle
+	 * @throws NoSuchElementException if a variable of the function is not listed
+	 * @throws IllegalArgumentException if a variable is listed more than once
+	 */
+	PreparedExpression prepare(Expression input, List<String> variableOrder);
+	
+	/**
+	 * Prepares a function for repeated numerical evaluation, using the given backend.
+	 * @param input the function to prepare
+	 * @param variableOrder the variables of the function, in the order in which
+	 * their values will be supplied
+	 * @param backend the evaluation strategy
+	 * @return a reusable evaluation handle
+	 * @throws NoSuchElementException if a variable of the function is not listed
+	 * @throws IllegalArgumentException if a variable is listed more than once
+	 */
+	PreparedExpression prepare(Expression input, List<String> variableOrder,
+			EvaluationBackend backend);
+	
+	/**
+	 * Evaluates (numerically) a function of one variable at many points.
+	 * @param input the function to evaluate
+	 * @param variable the variable of the function
+	 * @param xs the values of the variable
+	 * @param out the array which receives the results (one for each of the first out.length values)
+	 * @throws NoSuchElementException if the function contains other variables
+	 * @throws IllegalArgumentException if xs is shorter than out
+	 */
+	void evaluateBatch(Expression input, String variable, double[] xs, double[] out);
+	
+	/**
+	 * Evaluates (numerically) a function at many points, supplied column-wise.
+	 * @param input the function to evaluate
+	 * @param variables the variables of the function
+	 * @param columns the values of the variables: the i-th column contains
+	 * the values of the i-th variable
+	 * @param out the array which receives the results (one for each row)
+	 * @throws NoSuchElementException if a variable of the function is not listed
+	 * @throws IllegalArgumentException if the columns do not match the variables,
+	 * or if a column is shorter than out
+	 */
+	void evaluateBatch(Expression input, List<String> variables, double[][] columns, double[] out);
 	
 	/**
 	 * Solves numerically the given equation. It must contain
@@ -68,9 +194,25 @@ public interface CasFramework {
 	 */
 	Set<Double> solveNumerically(Expression input);
 	
+	/**
+	 * Solves numerically the given equation in the given interval. It must contain
+	 * only one variable, and it is deduced automatically.
+	 * The interval is sampled in parallel by the common fork-join pool to find the sign
+	 * changes of the function, and each of them is refined with Brent's method.
+	 * Poles are rejected, while roots of even multiplicity may be missed.
+	 * @param input the equation to solve
+	 * @param lowerBound the lower bound of the interval
+	 * @param upperBound the upper bound of the interval
+	 * @return a set containing the solutions of the equation in the interval
+	 * @throws IllegalArgumentException either if the expression is not an equation,
+	 * if it does not contain only one variable or if the interval is not valid
+	 */
+	Set<Double> solveNumerically(Expression input, double lowerBound, double upperBound);
+	
 	/**
 	 * Integrates numerically the given function. It must contain
 	 * only one variable, and it is deduced automatically.
+	 * The default algorithm and tolerances are used; the bounds may be infinite.
 	 * @param input the function to integrate
 	 * @param lowerBound the lower bound of the integral
 	 * @param upperBound the upper bound of the integral
@@ -79,6 +221,43 @@ public interface CasFramework {
 	 */
 	double integrateNumerically(Expression input, double lowerBound, double upperBound);
 	
+	/**
+	 * Integrates numerically the given function, using the given algorithm. It must contain
+	 * only one variable, and it is deduced automatically. The algorithm stops when the
+	 * estimated error is below the largest of the two tolerances (adaptive algorithms only).
+	 * @param input the function to integrate
+	 * @param lowerBound the lower bound of the integral
+	 * @param upperBound the upper bound of the integral
+	 * @param method the integration algorithm
+	 * @param absoluteTolerance the requested absolute error
+	 * @param relativeTolerance the requested error, relative to the value of the integral
+	 * @return the approximate definite integral, with an estimate of its error
+	 * @throws IllegalArgumentException if the function does not contain only one variable,
+	 * if a tolerance is negative or if a bound is infinite and the algorithm
+	 * supports only finite bounds
+	 */
+	IntegrationResult integrateNumerically(Expression input, double lowerBound, double upperBound,
+			IntegrationMethod method, double absoluteTolerance, double relativeTolerance);
+	
+	/**
+	 * Integrates numerically the given function in parallel: the interval is split into
+	 * chunks, which are integrated by the common fork-join pool with the given algorithm.
+	 * The result is reproducible, as it does not depend on the scheduling of the chunks.
+	 * @param input the function to integrate
+	 * @param lowerBound the lower bound of the integral
+	 * @param upperBound the upper bound of the integral
+	 * @param method the integration algorithm
+	 * @param absoluteTolerance the requested absolute error
+	 * @param relativeTolerance the requested error, relative to the value of the integral
+	 * @param chunks the number of chunks
+	 * @return the approximate definite integral, with an estimate of its error
+	 * @throws IllegalArgumentException if the function does not contain only one variable,
+	 * if a tolerance is negative, if a bound is not finite or if the number of chunks
+	 * is not positive
+	 */
+	IntegrationResult integrateInParallel(Expression input, double lowerBound, double upperBound,
+			IntegrationMethod method, double absoluteTolerance, double relativeTolerance, int chunks);
+	
 	/**
 	 * Computes the Taylor series of the given function.
 	 * @param input the input function
@@ -90,6 +269,21 @@ public interface CasFramework {
 	 */
 	Expression taylorSeries(Expression input, String variable, Expression point, int order);
 	
+	/**
+	 * Computes (numerically) the coefficients of the Taylor series of a function
+	 * of one variable, by propagating truncated power series through the operators
+	 * (no derivative is calculated symbolically). The k-th coefficient is the k-th
+	 * derivative at the point of expansion, divided by k!.
+	 * @param input the input function
+	 * @param variable the independent variable
+	 * @param point the point of expansion
+	 * @param order the order of expansion
+	 * @return the order + 1 coefficients, starting from the constant term
+	 * @throws NoSuchElementException if the function contains other variables
+	 * @throws IllegalArgumentException if the order is negative
+	 */
+	double[] taylorCoefficients(Expression input, String variable, double point, int order);
+	
 	/**
 	 * Converts an expression to simple plain text.
 	 * @param input the expression to convert
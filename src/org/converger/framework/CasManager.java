@@ -1,6 +1,7 @@
 package org.converger.framework;
 
 import org.converger.framework.core.CasFrameworkImpl;
+import org.converger.framework.core.SimplificationCache;
 
 /**
  * This class manages the framework instances. The Converger framework
@@ -11,6 +12,9 @@ public final class CasManager {
 
 	private static final CasManager SINGLETON = new CasManager();
 	
+	/** The simplification cache is shared by all the framework instances */
+	private final SimplificationCache simplificationCache = new SimplificationCache();
+	
 	private CasManager() {
 	}
 	
@@ -27,7 +31,16 @@ public final class CasManager {
 	 * @return a Converger framework object
 	 */
 	public CasFramework createFramework() {
-		return new CasFrameworkImpl();
+		return new CasFrameworkImpl(this.simplificationCache);
+	}
+	
+	/**
+	 * Returns the simplification cache shared by the framework instances,
+	 * which also exposes the hit/miss statistics.
+	 * @return the shared cache
+	 */
+	public SimplificationCache getSimplificationCache() {
+		return this.simplificationCache;
 	}
 
 }
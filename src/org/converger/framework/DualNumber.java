@@ -0,0 +1,57 @@
+package org.converger.framework;
+
+/**
+ * Represents the value of a function at a point, together with the value
+ * of its derivative with respect to one variable.
+ * Both values are calculated in the same numerical evaluation
+ * (forward-mode automatic differentiation).
+ * @author Dario Pavllo
+ */
+public final class DualNumber {
+	
+	private final double value;
+	private final double derivative;
+	
+	/**
+	 * @param functionValue the value of the function
+	 * @param derivativeValue the value of the derivative
+	 */
+	public DualNumber(final double functionValue, final double derivativeValue) {
+		this.value = functionValue;
+		this.derivative = derivativeValue;
+	}
+	
+	/**
+	 * @return the value of the function
+	 */
+	public double getValue() {
+		return this.value;
+	}
+	
+	/**
+	 * @return the value of the derivative
+	 */
+	public double getDerivative() {
+		return this.derivative;
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof DualNumber)) {
+			return false;
+		}
+		final DualNumber other = (DualNumber) obj;
+		return Double.compare(this.value, other.value) == 0
+			&& Double.compare(this.derivative, other.derivative) == 0;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Double.hashCode(this.value) * 31 + Double.hashCode(this.derivative);
+	}
+	
+	@Override
+	public String toString() {
+		return "(" + this.value + ", " + this.derivative + ")";
+	}
+}
@@ -0,0 +1,24 @@
+package org.converger.framework;
+
+/**
+ * Represents the strategies which can be used to prepare an expression
+ * for repeated numerical evaluation.
+ * @author Dario Pavllo
+ */
+public enum EvaluationBackend {
+	
+	/** The expression is compiled to a tree of primitive closures. */
+	CLOSURES,
+	/**
+	 * The expression is compiled to JVM bytecode and loaded as a new class.
+	 * Compilation is slower, but evaluation is usually the fastest.
+	 */
+	BYTECODE,
+	/**
+	 * The expression is flattened to a postfix program, run by an interpreter.
+	 * It does not require runtime class generation, but the resulting handle
+	 * is not thread-safe.
+	 */
+	PROGRAM;
+	
+}
@@ -22,6 +22,16 @@ public interface Expression {
 	 */
 	<X> X accept(Visitor<X> v);
 	
+	/**
+	 * Returns the structural fingerprint of this expression: a 64-bit hash
+	 * which depends on the whole tree, including the order of the operands.
+	 * Equal expressions have the same fingerprint, and it is the same across
+	 * different runs, thus it can be used as a cache key.
+	 * It is calculated once, when the node is built.
+	 * @return the fingerprint of this expression
+	 */
+	long getFingerprint();
+	
 	/**
 	 * This interface contains the possible actions that can be done on an expression.
 	 * Each class must implement the visitor pattern to traverse the syntax tree.
@@ -0,0 +1,66 @@
+package org.converger.framework;
+
+import java.util.Arrays;
+
+/**
+ * Represents the value of a function at a point, together with its gradient,
+ * i.e. the partial derivatives with respect to a list of variables.
+ * @author Dario Pavllo
+ */
+public final class Gradient {
+	
+	private final double value;
+	private final double[] derivatives;
+	
+	/**
+	 * @param functionValue the value of the function
+	 * @param partialDerivatives the partial derivatives, in the order of the variables
+	 */
+	public Gradient(final double functionValue, final double... partialDerivatives) {
+		this.value = functionValue;
+		this.derivatives = partialDerivatives.clone();
+	}
+	
+	/**
+	 * @return the value of the function
+	 */
+	public double getValue() {
+		return this.value;
+	}
+	
+	/**
+	 * Returns a partial derivative.
+	 * @param index the index of the variable
+	 * @return the partial derivative with respect to the variable
+	 */
+	public double getDerivative(final int index) {
+		return this.derivatives[index];
+	}
+	
+	/**
+	 * @return a copy of the partial derivatives, in the order of the variables
+	 */
+	public double[] getDerivatives() {
+		return this.derivatives.clone();
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof Gradient)) {
+			return false;
+		}
+		final Gradient other = (Gradient) obj;
+		return Double.compare(this.value, other.value) == 0
+			&& Arrays.equals(this.derivatives, other.derivatives);
+	}
+	
+	@Override
+	public int hashCode() {
+		return Double.hashCode(this.value) * 31 + Arrays.hashCode(this.derivatives);
+	}
+	
+	@Override
+	public String toString() {
+		return "(" + this.value + ", " + Arrays.toString(this.derivatives) + ")";
+	}
+}
@@ -0,0 +1,37 @@
+package org.converger.framework;
+
+/**
+ * Represents the algorithms which can be used to integrate a function numerically.
+ * @author Dario Pavllo
+ */
+public enum IntegrationMethod {
+	
+	/**
+	 * The trapezoidal rule, with a fixed step. The number of evaluations grows
+	 * with the length of the interval, and no error estimate is available.
+	 */
+	TRAPEZOID,
+	/**
+	 * Adaptive Gauss-Kronrod quadrature (7-point Gauss rule, 15-point Kronrod rule):
+	 * the subinterval with the largest error estimate is bisected, until the tolerance is met.
+	 */
+	GAUSS_KRONROD,
+	/**
+	 * Double exponential quadrature (tanh-sinh, exp-sinh or sinh-sinh): it handles
+	 * singularities at the bounds, and infinite bounds.
+	 */
+	DOUBLE_EXPONENTIAL,
+	/**
+	 * Romberg integration: the step of the trapezoidal rule is halved, reusing all the
+	 * previous evaluations, and the estimates are improved by Richardson extrapolation,
+	 * until two successive ones agree within the tolerance.
+	 */
+	ROMBERG,
+	/**
+	 * The double exponential rule is chosen if a bound is infinite or if the function
+	 * is not finite at a bound, otherwise the Gauss-Kronrod rule.
+	 * This is the default algorithm.
+	 */
+	AUTOMATIC;
+	
+}
@@ -0,0 +1,52 @@
+package org.converger.framework;
+
+/**
+ * Represents the outcome of a numerical integration: the approximate value
+ * of the integral, an estimate of its absolute error and the number
+ * of evaluations of the integrand.
+ * @author Dario Pavllo
+ */
+public final class IntegrationResult {
+	
+	private final double value;
+	private final double errorEstimate;
+	private final int evaluations;
+	
+	/**
+	 * @param integral the approximate value of the integral
+	 * @param error the estimated absolute error (NaN if unknown)
+	 * @param evaluationCount the number of evaluations of the integrand
+	 */
+	public IntegrationResult(final double integral, final double error, final int evaluationCount) {
+		this.value = integral;
+		this.errorEstimate = error;
+		this.evaluations = evaluationCount;
+	}
+	
+	/**
+	 * @return the approximate value of the integral
+	 */
+	public double getValue() {
+		return this.value;
+	}
+	
+	/**
+	 * @return the estimated absolute error, or NaN if the algorithm does not provide it
+	 */
+	public double getErrorEstimate() {
+		return this.errorEstimate;
+	}
+	
+	/**
+	 * @return the number of evaluations of the integrand
+	 */
+	public int getEvaluations() {
+		return this.evaluations;
+	}
+	
+	@Override
+	public String toString() {
+		return this.value + " (error " + this.errorEstimate + ", "
+			+ this.evaluations + " evaluations)";
+	}
+}
@@ -0,0 +1,47 @@
+package org.converger.framework;
+
+/**
+ * This interface represents an expression which has been prepared for
+ * repeated numerical evaluation. The variables are bound to positional slots,
+ * which are determined when the expression is prepared.
+ * @author Dario Pavllo
+ */
+@FunctionalInterface
+public interface PreparedExpression {
+	
+	/**
+	 * Evaluates (numerically) the prepared expression.
+	 * @param values the values of the variables, in the order in which
+	 * they were supplied when this expression was prepared
+	 * @return a real number representing the final result
+	 * @throws IllegalArgumentException if the number of values does not match
+	 * the number of variables
+	 */
+	double apply(double... values);
+	
+	/**
+	 * Evaluates (numerically) the prepared expression at many points at once.
+	 * The values are supplied column-wise: the i-th column contains the values
+	 * of the i-th variable, and the j-th row is the j-th point.
+	 * The default implementation evaluates each point separately.
+	 * @param columns the values of the variables, one column per variable
+	 * @param out the array which receives the results; its length determines
+	 * the number of points to evaluate
+	 * @throws IllegalArgumentException if the number of columns does not match
+	 * the number of variables, or if a column is shorter than the output
+	 */
+	default void applyBatch(final double[][] columns, final double[] out) {
+		final double[] point = new double[columns.length];
+		for (final double[] column : columns) {
+			if (column.length < out.length) {
+				throw new IllegalArgumentException("Column shorter than the output");
+			}
+		}
+		for (int i = 0; i < out.length; i++) {
+			for (int j = 0; j < columns.length; j++) {
+				point[j] = columns[j][i];
+			}
+			out[i] = this.apply(point);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.converger.framework;
+
+/**
+ * Represents the strategies which can be used to simplify an expression.
+ * They apply the same rules and they give equivalent expressions, but since the
+ * rules are applied in a different order, the results are not always written
+ * in the same form.
+ * @author Dario Pavllo
+ */
+public enum SimplificationMode {
+	
+	/**
+	 * The simplification passes are applied one after another
+	 * to the whole tree, until it no longer changes.
+	 * This is the default strategy.
+	 */
+	PIPELINE,
+	/**
+	 * The tree is normalized in bottom-up traversals: each node is simplified
+	 * once, after its children, and the traversals are repeated until the
+	 * tree no longer changes.
+	 */
+	FUSED;
+	
+}
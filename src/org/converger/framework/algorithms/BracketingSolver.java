@@ -0,0 +1,259 @@
+package org.converger.framework.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.Expression;
+import org.converger.framework.compiler.Program;
+import org.converger.framework.compiler.ProgramCompiler;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.ExpressionFactory;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+
+/**
+ * This class approximates the solutions of an equation in a given interval.
+ * The interval is sampled in parallel to find the sign changes of the function,
+ * and each of them is refined with Brent's method, which does not need the derivative.
+ * The function is never transformed, thus no symbolic work is done after the compilation.
+ * The roots of even multiplicity (where the function touches zero without
+ * crossing it) are found only if they are hit exactly by a sample.
+ * @author Dario Pavllo
+ */
+public class BracketingSolver {
+	
+	/** The default number of subintervals in which the interval is sampled */
+	public static final int DEFAULT_SAMPLES = 4096;
+	/** The number of points which are sampled by a single task */
+	private static final int CHUNK_SIZE = 512;
+	/** The absolute tolerance of Brent's method */
+	private static final double TOLERANCE = 1e-12;
+	/** The maximum iteration count of Brent's method */
+	private static final int MAX_ITERATIONS = 200;
+	
+	private final Program function;
+	
+	/**
+	 * Initializes this solver.
+	 * @param framework the framework instance
+	 * @param e the equation to solve
+	 */
+	public BracketingSolver(final CasFramework framework, final Expression e) {
+		if (!(e instanceof Equation)) {
+			throw new IllegalArgumentException("The input expression is not an equation");
+		}
+		
+		//The equation has to be in one variable
+		final Set<String> variables = framework.enumerateVariables(e);
+		if (variables.size() != 1) { //NOPMD
+			throw new IllegalArgumentException("The input equation should have only one variable");
+		}
+		
+		//Given the equation f = g, we need to find the roots of f - g = 0
+		final Equation equation = (Equation) e;
+		final Expression f = framework.simplify(new NAryOperation(
+			NAryOperator.ADDITION,
+			equation.getFirstMember(),
+			ExpressionFactory.negate(equation.getSecondMember())
+		));
+		this.function = new ProgramCompiler(Collections.singletonList(variables.iterator().next()))
+			.compile(f);
+	}
+	
+	/**
+	 * Solves numerically the equation contained in this object, in the given interval.
+	 * @param lowerBound the lower bound of the interval
+	 * @param upperBound the upper bound of the interval
+	 * @param samples the number of subintervals in which the interval is sampled:
+	 * at most one root is found in each of them
+	 * @param pool the pool which samples the interval
+	 * @return a set of real solutions
+	 * @throws IllegalArgumentException if a bound is not finite, if the lower bound
+	 * is greater than the upper bound or if the number of samples is not positive
+	 */
+	public Set<Double> solve(final double lowerBound, final double upperBound,
+			final int samples, final ForkJoinPool pool) {
+		if (Double.isNaN(lowerBound) || Double.isNaN(upperBound)
+				|| Double.isInfinite(lowerBound) || Double.isInfinite(upperBound)) {
+			throw new IllegalArgumentException("The bounds must be finite");
+		}
+		if (lowerBound > upperBound) {
+			throw new IllegalArgumentException("The lower bound is greater than the upper bound");
+		}
+		if (samples < 1) {
+			throw new IllegalArgumentException("The number of samples must be positive");
+		}
+		final List<Double> roots = pool.invoke(new ScanTask(this.function,
+			new double[] {lowerBound, upperBound}, samples, 0, samples));
+		return new TreeSet<>(roots);
+	}
+	
+	/**
+	 * Finds a root of the function in the interval [a, b] with Brent's method,
+	 * which combines bisection, the secant method and inverse quadratic interpolation.
+	 * The values of the function at the bounds must have opposite signs.
+	 * @return the root, or NaN if the sign change is a discontinuity (e.g. a pole)
+	 */
+	private static double brent(final Program f, final double lowerBound,
+			final double upperBound, final double lowerValue, final double upperValue) { //NOPMD
+		double a = lowerBound;
+		double b = upperBound;
+		double fa = lowerValue;
+		double fb = upperValue;
+		double c = b;
+		double fc = fb;
+		double d = b - a;
+		double e = d;
+		for (int i = 0; i < MAX_ITERATIONS; i++) {
+			if (fb > 0 == fc > 0) {
+				//The root is between a and b
+				c = a;
+				fc = fa;
+				d = b - a;
+				e = d;
+			}
+			if (Math.abs(fc) < Math.abs(fb)) {
+				//b must be the best approximation
+				a = b;
+				b = c;
+				c = a;
+				fa = fb;
+				fb = fc;
+				fc = fa;
+			}
+			final double tolerance = 2 * Math.ulp(b) + TOLERANCE / 2;
+			final double m = (c - b) / 2;
+			if (Math.abs(m) <= tolerance || fb == 0) {
+				break;
+			}
+			if (Math.abs(e) >= tolerance && Math.abs(fa) > Math.abs(fb)) {
+				//Interpolation: secant if there are two points, inverse quadratic otherwise
+				final double s = fb / fa;
+				double p;
+				double q;
+				if (a == c) {
+					p = 2 * m * s;
+					q = 1 - s;
+				} else {
+					final double r = fb / fc;
+					q = fa / fc;
+					p = s * (2 * m * q * (q - r) - (b - a) * (r - 1));
+					q = (q - 1) * (r - 1) * (s - 1);
+				}
+				if (p > 0) {
+					q = -q;
+				} else {
+					p = -p;
+				}
+				if (2 * p < Math.min(3 * m * q - Math.abs(tolerance * q), Math.abs(e * q))) {
+					e = d;
+					d = p / q;
+				} else {
+					//The interpolation is not good enough, falls back to bisection
+					d = m;
+					e = m;
+				}
+			} else {
+				d = m;
+				e = m;
+			}
+			a = b;
+			fa = fb;
+			b += Math.abs(d) > tolerance ? d : Math.copySign(tolerance, m);
+			fb = f.apply(b);
+		}
+		//At a pole, the function grows while the bracket shrinks
+		if (!(Math.abs(fb) <= Math.min(Math.abs(lowerValue), Math.abs(upperValue)))) {
+			return Double.NaN;
+		}
+		return b;
+	}
+	
+	/**
+	 * Samples a range of subintervals and refines the sign changes which are found.
+	 * Each leaf task has its own copy of the compiled function, and the results
+	 * are concatenated in order, thus they do not depend on the scheduling.
+	 */
+	private static final class ScanTask extends RecursiveTask<List<Double>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final transient Program function;
+		/** The bounds of the whole interval */
+		private final double[] bounds;
+		private final int samples;
+		private final int first;
+		private final int end;
+		
+		ScanTask(final Program function, final double[] bounds,
+				final int samples, final int first, final int end) {
+			super();
+			this.function = function;
+			this.bounds = bounds;
+			this.samples = samples;
+			this.first = first;
+			this.end = end;
+		}
+		
+		@Override
+		protected List<Double> compute() {
+			if (this.end - this.first <= CHUNK_SIZE) {
+				return this.scan(this.function.copy());
+			}
+			final int middle = (this.first + this.end) >>> 1;
+			final ScanTask left = new ScanTask(this.function, this.bounds, this.samples,
+				this.first, middle);
+			final ScanTask right = new ScanTask(this.function, this.bounds, this.samples,
+				middle, this.end);
+			right.fork();
+			final List<Double> roots = left.compute();
+			roots.addAll(right.join());
+			return roots;
+		}
+		
+		/*
+		 * Samples the subintervals [first, end] (the last point is shared with the next task).
+		 */
+		private List<Double> scan(final Program f) {
+			final int count = this.end - this.first + 1;
+			final double[] xs = new double[count];
+			final double[] ys = new double[count];
+			for (int i = 0; i < count; i++) {
+				xs[i] = this.getPoint(this.first + i);
+			}
+			f.applyBatch(new double[][] {xs}, ys);
+			
+			final List<Double> roots = new ArrayList<>();
+			for (int i = 0; i + 1 < count; i++) {
+				if (ys[i] == 0) {
+					roots.add(xs[i]);
+				} else if (ys[i] < 0 && ys[i + 1] > 0 || ys[i] > 0 && ys[i + 1] < 0) {
+					final double root = BracketingSolver.brent(f, xs[i], xs[i + 1], ys[i], ys[i + 1]);
+					if (!Double.isNaN(root)) {
+						roots.add(root);
+					}
+				}
+			}
+			if (this.end == this.samples && ys[count - 1] == 0) {
+				roots.add(xs[count - 1]);
+			}
+			return roots;
+		}
+		
+		/*
+		 * Returns the given sample point (the last one is exact).
+		 */
+		private double getPoint(final int index) {
+			if (index == this.samples) {
+				return this.bounds[1];
+			}
+			return this.bounds[0] + (this.bounds[1] - this.bounds[0]) * index / this.samples;
+		}
+	}
+}
@@ -1,15 +1,24 @@
 package org.converger.framework.algorithms;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.converger.framework.CasFramework;
 import org.converger.framework.Expression;
+import org.converger.framework.IntegrationMethod;
+import org.converger.framework.IntegrationResult;
+import org.converger.framework.compiler.Program;
+import org.converger.framework.compiler.ProgramCompiler;
 
 /**
  * This class represents a numerical integrator, which
  * calculates approximately the definite integral of a function.
+ * It implements the trapezoidal rule, adaptive Gauss-Kronrod quadrature,
+ * double exponential (tanh-sinh) quadrature and Romberg integration.
  * @author Dario Pavllo
  * @author Gabriele Graffieti
  */
@@ -17,10 +26,44 @@ public class NumericalIntegrator {
 
 	/** The infinitesimal increment h. A lower value means more precision, but also more time */
 	private static final double H = 1e-4;
+	/** The number of points which are evaluated at once */
+	private static final int CHUNK_SIZE = 1024;
+	/** The default tolerance (both absolute and relative) of the adaptive algorithms */
+	private static final double DEFAULT_TOLERANCE = 1e-10;
+	/** The maximum number of subintervals of the adaptive Gauss-Kronrod algorithm */
+	private static final int MAX_SUBINTERVALS = 10000;
+	/** The range [-T, T] of the double exponential transformations (the tails are negligible) */
+	private static final double DE_RANGE = 4;
+	/** The minimum and maximum number of times the step of the double exponential rule is halved */
+	private static final int DE_MIN_LEVELS = 3;
+	private static final int DE_MAX_LEVELS = 12;
+	/** The minimum and maximum number of times the step of the Romberg algorithm is halved */
+	private static final int ROMBERG_MIN_LEVELS = 4;
+	private static final int ROMBERG_MAX_LEVELS = 20;
 	
-	private final Expression function;
-	private final CasFramework cas;
-	private final String variable;
+	/* The 15-point Kronrod rule on [-1, 1]: the nodes are symmetric,
+	 * and the odd ones are also the nodes of the embedded 7-point Gauss rule */
+	private static final double[] KRONROD_NODES = {
+		0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+		0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+		0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+		0.207784955007898467600689403773245, 0.0,
+	};
+	private static final double[] KRONROD_WEIGHTS = {
+		0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+		0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+		0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+		0.204432940075298892414161999234649, 0.209482141084727828012999174891714,
+	};
+	private static final double[] GAUSS_WEIGHTS = {
+		0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+		0.381830050505118944950369775488975, 0.417959183673469387755102040816327,
+	};
+	private static final int KRONROD_POINTS = 15;
+	private static final double ERROR_SCALE = 200;
+	
+	private final Program function;
+	private final Runnable interruptionCheck;
 	
 	/**
 	 * Initializes this integrator.
@@ -28,24 +71,146 @@ public class NumericalIntegrator {
 	 * @param f the function to integrate
 	 */
 	public NumericalIntegrator(final CasFramework framework, final Expression f) {
-		this.cas = framework;
-		
+		this(framework, f, () -> { });
+	}
+	
+	/**
+	 * Initializes this integrator.
+	 * @param framework the framework instance
+	 * @param f the function to integrate
+	 * @param interruptionCheck called between the steps of the algorithms, it may abort
+	 * the computation by throwing an exception
+	 */
+	public NumericalIntegrator(final CasFramework framework, final Expression f,
+			final Runnable interruptionCheck) {
+		this.interruptionCheck = interruptionCheck;
 		//The function has to be in one variable
-		final Set<String> variables = this.cas.enumerateVariables(f);
+		final Set<String> variables = framework.enumerateVariables(f);
 		if (variables.size() != 1) { //NOPMD
 			throw new IllegalArgumentException("The input function should have only one variable");
 		}
-		this.variable = variables.iterator().next();
-		this.function = framework.simplify(f);
+		final String variable = variables.iterator().next();
+		this.function = new ProgramCompiler(Collections.singletonList(variable))
+			.compile(framework.simplify(f));
+	}
+	
+	/**
+	 * Initializes an integrator which shares the function of another one,
+	 * but not its evaluation state.
+	 */
+	private NumericalIntegrator(final NumericalIntegrator other) {
+		this.function = other.function.copy();
+		this.interruptionCheck = other.interruptionCheck;
 	}
 	
 	/**
-	 * Integrates the function contained in this object using the trapezoidal rule.
+	 * Integrates the function contained in this object using the default
+	 * algorithm and tolerances.
 	 * @param lowerBound the lower bound of the integral
 	 * @param upperBound the upper bound of the integral
 	 * @return the approximate definite integral of the function
 	 */
 	public double integrate(final double lowerBound, final double upperBound) {
+		return this.integrate(lowerBound, upperBound, IntegrationMethod.AUTOMATIC,
+			DEFAULT_TOLERANCE, DEFAULT_TOLERANCE).getValue();
+	}
+	
+	/**
+	 * Integrates the function contained in this object using the given algorithm.
+	 * @param lowerBound the lower bound of the integral
+	 * @param upperBound the upper bound of the integral
+	 * @param method the integration algorithm
+	 * @param absoluteTolerance the requested absolute error (adaptive algorithms only)
+	 * @param relativeTolerance the requested relative error (adaptive algorithms only)
+	 * @return the approximate definite integral of the function, with an estimate of its error
+	 * @throws IllegalArgumentException if a tolerance is negative or if a bound is infinite
+	 * and the algorithm supports only finite bounds
+	 */
+	public IntegrationResult integrate(final double lowerBound, final double upperBound,
+			final IntegrationMethod method, final double absoluteTolerance,
+			final double relativeTolerance) {
+		NumericalIntegrator.checkArguments(lowerBound, upperBound,
+			absoluteTolerance, relativeTolerance);
+		final boolean finite = !Double.isInfinite(lowerBound) && !Double.isInfinite(upperBound);
+		switch (method) {
+		case TRAPEZOID:
+			NumericalIntegrator.checkFinite(finite);
+			return this.trapezoid(lowerBound, upperBound);
+		case GAUSS_KRONROD:
+			NumericalIntegrator.checkFinite(finite);
+			return this.gaussKronrod(lowerBound, upperBound, absoluteTolerance, relativeTolerance);
+		case DOUBLE_EXPONENTIAL:
+			return this.doubleExponential(lowerBound, upperBound,
+				absoluteTolerance, relativeTolerance);
+		case ROMBERG:
+			NumericalIntegrator.checkFinite(finite);
+			return this.romberg(lowerBound, upperBound, absoluteTolerance, relativeTolerance);
+		case AUTOMATIC:
+		default:
+			//Infinite ranges and singularities at the bounds are handled by the DE rule
+			if (finite && Double.isFinite(this.function.apply(lowerBound))
+					&& Double.isFinite(this.function.apply(upperBound))) {
+				return this.gaussKronrod(lowerBound, upperBound,
+					absoluteTolerance, relativeTolerance);
+			}
+			return this.doubleExponential(lowerBound, upperBound,
+				absoluteTolerance, relativeTolerance);
+		}
+	}
+	
+	/**
+	 * Integrates the function contained in this object in parallel: the interval is split
+	 * into chunks of the same length, which are integrated by the given pool with the
+	 * given algorithm. Each chunk is integrated with its own copy of the function,
+	 * and the absolute tolerance is divided among the chunks.
+	 * The partial results are always combined in the same order, thus the result
+	 * does not depend on the scheduling of the tasks.
+	 * @param lowerBound the lower bound of the integral
+	 * @param upperBound the upper bound of the integral
+	 * @param method the integration algorithm
+	 * @param absoluteTolerance the requested absolute error (adaptive algorithms only)
+	 * @param relativeTolerance the requested relative error (adaptive algorithms only)
+	 * @param chunks the number of chunks
+	 * @param pool the pool which runs the tasks
+	 * @return the approximate definite integral of the function, with an estimate of its error
+	 * @throws IllegalArgumentException if a tolerance is negative, if a bound is not finite
+	 * or if the number of chunks is not positive
+	 */
+	public IntegrationResult integrateInParallel(final double lowerBound, final double upperBound,
+			final IntegrationMethod method, final double absoluteTolerance,
+			final double relativeTolerance, final int chunks, final ForkJoinPool pool) {
+		NumericalIntegrator.checkArguments(lowerBound, upperBound,
+			absoluteTolerance, relativeTolerance);
+		//Infinite intervals cannot be split into chunks of the same length
+		NumericalIntegrator.checkFinite(!Double.isInfinite(lowerBound)
+			&& !Double.isInfinite(upperBound));
+		if (chunks < 1) {
+			throw new IllegalArgumentException("The number of chunks must be positive");
+		}
+		return pool.invoke(new ChunkTask(this, new double[] {lowerBound, upperBound}, chunks,
+			0, chunks, method, absoluteTolerance / chunks, relativeTolerance));
+	}
+	
+	private static void checkArguments(final double lowerBound, final double upperBound,
+			final double absoluteTolerance, final double relativeTolerance) {
+		if (!(absoluteTolerance >= 0 && relativeTolerance >= 0)) {
+			throw new IllegalArgumentException("The tolerances must not be negative");
+		}
+		if (Double.isNaN(lowerBound) || Double.isNaN(upperBound)) {
+			throw new IllegalArgumentException("The bounds must be numbers");
+		}
+	}
+	
+	private static void checkFinite(final boolean finite) {
+		if (!finite) {
+			throw new IllegalArgumentException("The bounds must be finite");
+		}
+	}
+	
+	/**
+	 * Integrates the function using the trapezoidal rule, with a fixed step.
+	 */
+	private IntegrationResult trapezoid(final double lowerBound, final double upperBound) {
 		//The number of subdivisions is rounded to a whole number
 		final int subdivisions = (int) ((upperBound - lowerBound) / H);
 		
@@ -54,24 +219,375 @@ public class NumericalIntegrator {
 		
 		//Integrates
 		double integral = 0;
-		final Map<String, Double> values = new HashMap<>();
+		double[] xs = new double[CHUNK_SIZE];
+		double[] ys = new double[CHUNK_SIZE];
 		
 		//First evaluation
-		values.put(this.variable, lowerBound);
-		double fA = this.cas.evaluate(this.function, values);
+		double fA = this.function.apply(lowerBound);
 		
-		for (int i = 1; i <= subdivisions; i++) {
-			//Optimized trapezoidal rule
-			final double b = lowerBound + i * increment;
-			
-			values.put(this.variable, b);
-			final double fB = this.cas.evaluate(this.function, values);
+		//The points are evaluated in chunks
+		for (int first = 1; first <= subdivisions; first += CHUNK_SIZE) {
+			this.interruptionCheck.run();
+			final int count = Math.min(CHUNK_SIZE, subdivisions - first + 1);
+			if (count < xs.length) {
+				//Last chunk
+				xs = new double[count];
+				ys = new double[count];
+			}
+			for (int i = 0; i < count; i++) {
+				xs[i] = lowerBound + (first + i) * increment;
+			}
+			this.function.applyBatch(new double[][] {xs}, ys);
 			
-			integral += fA + fB;
-			fA = fB;
+			for (final double fB : ys) {
+				//Optimized trapezoidal rule
+				integral += fA + fB;
+				fA = fB;
+			}
 		}
 		
 		integral *= increment / 2;
-		return integral;
+		return new IntegrationResult(integral, Double.NaN, subdivisions + 1);
+	}
+	
+	/**
+	 * Integrates the function using adaptive Gauss-Kronrod quadrature.
+	 * The subinterval with the largest error is bisected, until the total error
+	 * is within the tolerance or the maximum number of subintervals is reached.
+	 * The error of each subinterval is estimated from the difference between
+	 * the Kronrod and the Gauss rules, scaled as in QUADPACK.
+	 */
+	private IntegrationResult gaussKronrod(final double lowerBound, final double upperBound,
+			final double absoluteTolerance, final double relativeTolerance) {
+		final double[][] xs = {new double[KRONROD_POINTS]};
+		final double[] ys = new double[KRONROD_POINTS];
+		final PriorityQueue<Subinterval> queue = new PriorityQueue<>(
+			Comparator.comparingDouble((Subinterval s) -> s.error).reversed());
+		
+		Subinterval whole = this.kronrod(lowerBound, upperBound, xs, ys);
+		queue.add(whole);
+		double integral = whole.value;
+		double error = whole.error;
+		while (queue.size() < MAX_SUBINTERVALS
+				&& error > Math.max(absoluteTolerance, relativeTolerance * Math.abs(integral))) {
+			this.interruptionCheck.run();
+			//Bisects the worst subinterval
+			whole = queue.poll();
+			final double middle = (whole.lower + whole.upper) / 2;
+			final Subinterval left = this.kronrod(whole.lower, middle, xs, ys);
+			final Subinterval right = this.kronrod(middle, whole.upper, xs, ys);
+			queue.add(left);
+			queue.add(right);
+			integral += left.value + right.value - whole.value;
+			error += left.error + right.error - whole.error;
+			if (Double.isNaN(integral)) {
+				break;
+			}
+		}
+		
+		//The sums are recalculated, to avoid the accumulation of rounding errors
+		integral = 0;
+		error = 0;
+		for (final Subinterval s : queue) {
+			integral += s.value;
+			error += s.error;
+		}
+		return new IntegrationResult(integral, error, (2 * queue.size() - 1) * KRONROD_POINTS);
+	}
+	
+	/**
+	 * Applies the Gauss-Kronrod rule to a subinterval. The 15 points are evaluated at once.
+	 */
+	private Subinterval kronrod(final double lower, final double upper,
+			final double[][] xs, final double[] ys) {
+		final double center = (lower + upper) / 2;
+		final double halfLength = (upper - lower) / 2;
+		final int last = KRONROD_NODES.length - 1;
+		for (int i = 0; i < last; i++) {
+			xs[0][2 * i] = center - halfLength * KRONROD_NODES[i];
+			xs[0][2 * i + 1] = center + halfLength * KRONROD_NODES[i];
+		}
+		xs[0][2 * last] = center;
+		this.function.applyBatch(xs, ys);
+		
+		double kronrod = KRONROD_WEIGHTS[last] * ys[2 * last];
+		double gauss = GAUSS_WEIGHTS[GAUSS_WEIGHTS.length - 1] * ys[2 * last];
+		for (int i = 0; i < last; i++) {
+			final double pair = ys[2 * i] + ys[2 * i + 1];
+			kronrod += KRONROD_WEIGHTS[i] * pair;
+			if (i % 2 == 1) {
+				gauss += GAUSS_WEIGHTS[i / 2] * pair;
+			}
+		}
+		
+		//The difference is scaled by the variation of the function around its mean
+		final double mean = kronrod / 2;
+		double variation = KRONROD_WEIGHTS[last] * Math.abs(ys[2 * last] - mean);
+		for (int i = 0; i < last; i++) {
+			variation += KRONROD_WEIGHTS[i]
+				* (Math.abs(ys[2 * i] - mean) + Math.abs(ys[2 * i + 1] - mean));
+		}
+		double error = Math.abs(kronrod - gauss);
+		if (variation != 0 && error != 0) {
+			error = variation * Math.min(1, Math.pow(ERROR_SCALE * error / variation, 1.5));
+		}
+		return new Subinterval(lower, upper, kronrod * halfLength,
+			error * Math.abs(halfLength));
+	}
+	
+	/**
+	 * Integrates the function using Romberg's method. At each level the step of the
+	 * trapezoidal rule is halved: only the new midpoints are evaluated, as the previous
+	 * sum is reused. The row of the Richardson extrapolation table is then updated,
+	 * and the algorithm stops when two successive diagonal entries agree within the tolerance.
+	 */
+	private IntegrationResult romberg(final double lowerBound, final double upperBound,
+			final double absoluteTolerance, final double relativeTolerance) {
+		final double length = upperBound - lowerBound;
+		final double[] ends = new double[2];
+		this.function.applyBatch(new double[][] {{lowerBound, upperBound}}, ends);
+		double[] row = {length * (ends[0] + ends[1]) / 2};
+		int evaluations = 2;
+		double error = Double.POSITIVE_INFINITY;
+		for (int level = 1; level <= ROMBERG_MAX_LEVELS; level++) {
+			this.interruptionCheck.run();
+			//The trapezoidal rule with half the step: T(h/2) = T(h)/2 + h/2 * (sum of the midpoints)
+			final int midpoints = 1 << (level - 1);
+			final double step = length / (2 * midpoints);
+			final double[] next = new double[level + 1];
+			next[0] = row[0] / 2 + step * this.sumMidpoints(lowerBound, 2 * step, midpoints);
+			evaluations += midpoints;
+			
+			//Richardson extrapolation: R(k, j) = R(k, j-1) + (R(k, j-1) - R(k-1, j-1))/(4^j - 1)
+			double factor = 1;
+			for (int j = 1; j <= level; j++) {
+				factor *= 4;
+				next[j] = next[j - 1] + (next[j - 1] - row[j - 1]) / (factor - 1);
+			}
+			error = Math.abs(next[level] - row[level - 1]);
+			row = next;
+			if (level >= ROMBERG_MIN_LEVELS
+					&& error <= Math.max(absoluteTolerance, relativeTolerance * Math.abs(row[level]))
+					|| Double.isNaN(row[level])) {
+				break;
+			}
+		}
+		return new IntegrationResult(row[row.length - 1], error, evaluations);
+	}
+	
+	/**
+	 * Returns the sum of f(a + (i + 1/2)*h), for i = 0 ... count - 1.
+	 * The points are evaluated in chunks.
+	 */
+	private double sumMidpoints(final double start, final double step, final int count) {
+		final double[] xs = new double[Math.min(count, CHUNK_SIZE)];
+		final double[] ys = new double[xs.length];
+		double sum = 0;
+		for (int first = 0; first < count; first += CHUNK_SIZE) {
+			final int size = Math.min(CHUNK_SIZE, count - first);
+			for (int i = 0; i < size; i++) {
+				xs[i] = start + (first + i + 0.5) * step;
+			}
+			this.function.applyBatch(new double[][] {xs}, ys);
+			for (int i = 0; i < size; i++) {
+				sum += ys[i];
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * Integrates the function using the double exponential rule. The interval is mapped
+	 * to the whole real line by a change of variable x = g(t) whose derivative decays
+	 * double exponentially, so that the trapezoidal rule on t converges very quickly,
+	 * even with singularities at the bounds:
+	 * tanh-sinh for finite intervals, exp-sinh for half-infinite ones
+	 * and sinh-sinh for the whole real line.
+	 * The step is halved until two successive estimates agree within the tolerance;
+	 * the points of the previous levels are reused.
+	 */
+	private IntegrationResult doubleExponential(final double lowerBound, final double upperBound,
+			final double absoluteTolerance, final double relativeTolerance) {
+		if (lowerBound == upperBound) {
+			return new IntegrationResult(0, 0, 0);
+		}
+		if (lowerBound > upperBound) {
+			final IntegrationResult r = this.doubleExponential(upperBound, lowerBound,
+				absoluteTolerance, relativeTolerance);
+			return new IntegrationResult(-r.getValue(), r.getErrorEstimate(), r.getEvaluations());
+		}
+		//Level 0 contains the integer points, the next levels only the odd multiples of the step
+		final int range = (int) DE_RANGE;
+		double[] ts = new double[2 * range + 1];
+		for (int k = -range; k <= range; k++) {
+			ts[k + range] = k;
+		}
+		double sum = this.sampleTransformed(lowerBound, upperBound, ts);
+		int evaluations = ts.length;
+		double integral = sum;
+		double error = Double.POSITIVE_INFINITY;
+		for (int level = 1; level <= DE_MAX_LEVELS; level++) {
+			this.interruptionCheck.run();
+			final double step = Math.scalb(1.0, -level);
+			final int points = range << level;
+			ts = new double[points];
+			for (int k = 1; k < points; k += 2) {
+				ts[k - 1] = k * step;
+				ts[k] = -k * step;
+			}
+			sum += this.sampleTransformed(lowerBound, upperBound, ts);
+			evaluations += points;
+			final double previous = integral;
+			integral = sum * step;
+			error = Math.abs(integral - previous);
+			if (level >= DE_MIN_LEVELS
+					&& error <= Math.max(absoluteTolerance, relativeTolerance * Math.abs(integral))
+					|| Double.isNaN(integral)) {
+				break;
+			}
+		}
+		return new IntegrationResult(integral, error, evaluations);
+	}
+	
+	/**
+	 * Evaluates the sum of w(t)*f(g(t)) for the given values of t, where g is
+	 * the double exponential transformation and w its derivative.
+	 * The points which coincide with a bound are skipped, since their weight is negligible.
+	 */
+	private double sampleTransformed(final double lowerBound, final double upperBound,
+			final double[] ts) {
+		final int count = ts.length;
+		final double[] xs = new double[count];
+		final double[] weights = new double[count];
+		for (int i = 0; i < count; i++) {
+			final double t = ts[i];
+			final double u = Math.PI / 2 * Math.sinh(t);
+			final double du = Math.PI / 2 * Math.cosh(t);
+			double x;
+			double w;
+			if (Double.isInfinite(lowerBound) && Double.isInfinite(upperBound)) {
+				//sinh-sinh
+				x = Math.sinh(u);
+				w = Math.cosh(u) * du;
+			} else if (Double.isInfinite(upperBound)) {
+				//exp-sinh
+				x = lowerBound + Math.exp(u);
+				w = Math.exp(u) * du;
+			} else if (Double.isInfinite(lowerBound)) {
+				x = upperBound - Math.exp(u);
+				w = Math.exp(u) * du;
+			} else {
+				//tanh-sinh: the distance from the nearest bound is calculated directly
+				final double halfLength = (upperBound - lowerBound) / 2;
+				final double distance = halfLength / (Math.exp(Math.abs(u)) * Math.cosh(u));
+				x = u >= 0 ? upperBound - distance : lowerBound + distance;
+				w = halfLength * du / (Math.cosh(u) * Math.cosh(u));
+			}
+			if (x <= lowerBound || x >= upperBound || Double.isInfinite(x)) {
+				w = 0;
+				x = (lowerBound + upperBound) / 2;
+				if (Double.isInfinite(x)) {
+					x = 0;
+				}
+			}
+			xs[i] = x;
+			weights[i] = w;
+		}
+		final double[] ys = new double[count];
+		this.function.applyBatch(new double[][] {xs}, ys);
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			if (weights[i] != 0) {
+				sum += weights[i] * ys[i];
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * Integrates a range of chunks, by splitting it in two halves until a single
+	 * chunk is left. The results of the halves are summed in a fixed order.
+	 */
+	private static final class ChunkTask extends RecursiveTask<IntegrationResult> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final transient NumericalIntegrator integrator;
+		/** The bounds of the whole interval */
+		private final double[] bounds;
+		private final int chunks;
+		private final int first;
+		private final int end;
+		private final IntegrationMethod method;
+		private final double absoluteTolerance;
+		private final double relativeTolerance;
+		
+		ChunkTask(final NumericalIntegrator integrator, final double[] bounds,
+				final int chunks, final int first, final int end,
+				final IntegrationMethod method, final double absoluteTolerance,
+				final double relativeTolerance) {
+			super();
+			this.integrator = integrator;
+			this.bounds = bounds;
+			this.chunks = chunks;
+			this.first = first;
+			this.end = end;
+			this.method = method;
+			this.absoluteTolerance = absoluteTolerance;
+			this.relativeTolerance = relativeTolerance;
+		}
+		
+		@Override
+		protected IntegrationResult compute() {
+			this.integrator.interruptionCheck.run();
+			if (this.end - this.first == 1) {
+				//Each chunk has its own evaluation state
+				final NumericalIntegrator worker = new NumericalIntegrator(this.integrator);
+				return worker.integrate(this.getBound(this.first), this.getBound(this.end),
+					this.method, this.absoluteTolerance, this.relativeTolerance);
+			}
+			final int middle = (this.first + this.end) >>> 1;
+			final ChunkTask left = this.split(this.first, middle);
+			final ChunkTask right = this.split(middle, this.end);
+			right.fork();
+			final IntegrationResult a = left.compute();
+			final IntegrationResult b = right.join();
+			return new IntegrationResult(a.getValue() + b.getValue(),
+				a.getErrorEstimate() + b.getErrorEstimate(),
+				a.getEvaluations() + b.getEvaluations());
+		}
+		
+		private ChunkTask split(final int from, final int to) {
+			return new ChunkTask(this.integrator, this.bounds, this.chunks, from, to,
+				this.method, this.absoluteTolerance, this.relativeTolerance);
+		}
+		
+		/*
+		 * Returns the lower bound of the given chunk (the last bound is exact).
+		 */
+		private double getBound(final int chunk) {
+			if (chunk == this.chunks) {
+				return this.bounds[1];
+			}
+			return this.bounds[0] + (this.bounds[1] - this.bounds[0]) * chunk / this.chunks;
+		}
+	}
+	
+	/**
+	 * A subinterval of the adaptive algorithm, with its integral and error estimate.
+	 */
+	private static final class Subinterval {
+		private final double lower;
+		private final double upper;
+		private final double value;
+		private final double error;
+		
+		Subinterval(final double lowerBound, final double upperBound,
+				final double integral, final double errorEstimate) {
+			this.lower = lowerBound;
+			this.upper = upperBound;
+			this.value = integral;
+			this.error = errorEstimate;
+		}
 	}
 }
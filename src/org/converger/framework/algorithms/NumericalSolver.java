@@ -1,12 +1,17 @@
 package org.converger.framework.algorithms;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 
 import org.converger.framework.CasFramework;
+import org.converger.framework.DualNumber;
 import org.converger.framework.Expression;
+import org.converger.framework.compiler.Program;
+import org.converger.framework.compiler.ProgramCompiler;
 import org.converger.framework.core.BinaryOperation;
 import org.converger.framework.core.BinaryOperator;
 import org.converger.framework.core.Equation;
@@ -14,9 +19,15 @@ import org.converger.framework.core.ExpressionFactory;
 import org.converger.framework.core.NAryOperation;
 import org.converger.framework.core.NAryOperator;
 import org.converger.framework.core.Variable;
+import org.converger.framework.polynomials.Polynomial;
+import org.converger.framework.polynomials.PolynomialRoots;
 
 /**
  * This class approximates the solutions of an equation using Newton's method.
+ * The function and its derivative are evaluated together, in a single pass
+ * of the compiled function (forward-mode automatic differentiation).
+ * If the equation is polynomial and its degree is not too high, all its real
+ * roots are found at once (see {@link PolynomialRoots}).
  * @author Dario Pavllo
  * @author Gabriele Graffieti
  */
@@ -34,12 +45,18 @@ public class NumericalSolver {
 	private static final int MAX_DIVERGENCE_COUNT = 20;
 	/** The maximum range of a solution [-x, x], to prevent floating-point errors */
 	private static final double MAX_RANGE = 1e10;
+	/** The maximum degree of the polynomials whose roots are found all at once,
+	 * since each iteration takes a time proportional to the square of the degree */
+	private static final int MAX_POLYNOMIAL_DEGREE = 1000;
 	
 	private final CasFramework cas;
+	private final Runnable interruptionCheck;
 	private final String variable;
 	private Expression function;
-	private Expression derivative;
-	private Map<String, Double> values;
+	private Program program;
+	/** The variable order of the compiled function: the unknown, followed by the found roots */
+	private final List<String> variableOrder;
+	private double[] values;
 
 	/**
 	 * Initializes this numerical solver.
@@ -47,11 +64,24 @@ public class NumericalSolver {
 	 * @param e the equation to solve
 	 */
 	public NumericalSolver(final CasFramework framework, final Expression e) {
+		this(framework, e, () -> { });
+	}
+	
+	/**
+	 * Initializes this numerical solver.
+	 * @param framework the framework instance
+	 * @param e the equation to solve
+	 * @param interruptionCheck called between the iterations, it may abort
+	 * the computation by throwing an exception
+	 */
+	public NumericalSolver(final CasFramework framework, final Expression e,
+			final Runnable interruptionCheck) {
 		if (!(e instanceof Equation)) {
 			throw new IllegalArgumentException("The input expression is not an equation");
 		}
 		
 		this.cas = framework;
+		this.interruptionCheck = interruptionCheck;
 		
 		//The equation has to be in one variable
 		final Set<String> variables = this.cas.enumerateVariables(e);
@@ -59,6 +89,8 @@ public class NumericalSolver {
 			throw new IllegalArgumentException("The input equation should have only one variable");
 		}
 		this.variable = variables.iterator().next();
+		this.variableOrder = new ArrayList<>();
+		this.variableOrder.add(this.variable);
 		
 		//Setups the algorithm
 		this.setup((Equation) e);
@@ -72,7 +104,14 @@ public class NumericalSolver {
 			ExpressionFactory.negate(equation.getSecondMember())
 		));
 		
-		this.derivative = this.cas.differentiate(this.function, this.variable);
+		this.compileFunction();
+	}
+	
+	/**
+	 * Compiles the current function for numerical evaluation.
+	 */
+	private void compileFunction() {
+		this.program = new ProgramCompiler(this.variableOrder).compile(this.function);
 	}
 	
 	/**
@@ -83,7 +122,9 @@ public class NumericalSolver {
 	 */
 	private void addSolution(final double value, final int index) {
 		final String varName = "_" + index; //Solution variable name
-		this.values.put(varName, value);
+		this.variableOrder.add(varName);
+		this.values = Arrays.copyOf(this.values, this.variableOrder.size());
+		this.values[this.variableOrder.size() - 1] = value;
 		
 		/* Eliminates the found root from the function.
 		 * This is achieved by dividing the function by (x - x0), where x0 is the root. */
@@ -97,7 +138,7 @@ public class NumericalSolver {
 			)
 		);
 		
-		this.derivative = this.cas.differentiate(this.function, this.variable);
+		this.compileFunction();
 	}
 	
 	/**
@@ -105,22 +146,38 @@ public class NumericalSolver {
 	 * @return a set of real solutions
 	 */
 	public Set<Double> solve() {
-		this.values = new HashMap<>();
+		final Set<Double> solutions = new TreeSet<>();
+		final Optional<Polynomial> polynomial = Polynomial.fromExpression(this.function, this.variable);
+		if (polynomial.isPresent() && polynomial.get().getDegree() > 0
+			&& polynomial.get().getDegree() <= NumericalSolver.MAX_POLYNOMIAL_DEGREE) {
+			//If the roots cannot be isolated, Newton's method is used instead
+			final Optional<double[]> roots = PolynomialRoots.realRoots(polynomial.get(),
+				this.interruptionCheck);
+			if (roots.isPresent()) {
+				for (final double root : roots.get()) {
+					solutions.add(root);
+				}
+				return solutions;
+			}
+		}
+		
+		this.values = new double[this.variableOrder.size()];
 		int divergenceCount = 0;
 		boolean diverged = false;
 		int currentSolutionIndex = 0;
 		
 		while (!diverged) {
+			this.interruptionCheck.run();
 			//Setups the initial condition for the current solution
 			double x0 = NumericalSolver.STARTING_POINT;
 			double prevError = Double.POSITIVE_INFINITY; //Previous error
 			
 			for (int i = 0; i < NumericalSolver.MAX_ITERATIONS; i++) {
-				values.put(this.variable, x0);
+				this.values[0] = x0;
 				
 				//Newton-Raphson iteration: x1 = x0 - f(x0)/f'(x0)
-				final double x1 = x0 - this.cas.evaluate(this.function, this.values)
-					/ this.cas.evaluate(this.derivative, this.values);
+				final DualNumber y = this.program.applyWithDerivative(0, this.values);
+				final double x1 = x0 - y.getValue() / y.getDerivative();
 				
 				//If the current iteration yields NaN, the algorithm has obviously diverged
 				if (Double.isNaN(x1) || Double.isInfinite(x1)) {
@@ -157,7 +214,10 @@ public class NumericalSolver {
 				
 			}
 		}
-		this.values.remove(this.variable); //Removes the temporary variable x0
-		return new TreeSet<>(this.values.values());
+		//The first slot contains the temporary variable x0
+		for (int i = 1; i < this.values.length; i++) {
+			solutions.add(this.values[i]);
+		}
+		return solutions;
 	}
 }
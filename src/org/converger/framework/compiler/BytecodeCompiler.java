@@ -0,0 +1,375 @@
+package org.converger.framework.compiler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Collectors;
+
+import org.converger.framework.Environment;
+import org.converger.framework.Expression;
+import org.converger.framework.PreparedExpression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.Function;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+
+/**
+ * This visitor compiles an expression to JVM bytecode, and loads it as a new class.
+ * The whole expression becomes a single straight-line method, which the JIT compiler
+ * can optimize as if it had been written by hand.
+ * The generated class implements {@link PreparedExpression}; moreover, functions
+ * of one or two variables also implement {@link DoubleUnaryOperator} or
+ * {@link DoubleBinaryOperator} respectively.
+ * Each class is defined by its own class loader, so that it can be unloaded
+ * as soon as it is no longer referenced.
+ * Subexpressions which appear more than once are calculated only once,
+ * and then loaded from a local variable.
+ * Throws {@link java.util.NoSuchElementException} if a variable with no slot is found.
+ * @author Dario Pavllo
+ */
+public class BytecodeCompiler implements
+	Expression.Visitor<Void>,
+	BinaryOperator.Visitor<Void>,
+	NAryOperator.Visitor<Void>,
+	Function.Visitor<Void> {
+	
+	private static final String CLASS_PREFIX = "org/converger/framework/compiler/Generated$";
+	private static final String MATH = "java/lang/Math";
+	private static final String UNARY_DESCRIPTOR = "(D)D";
+	private static final String BINARY_DESCRIPTOR = "(DD)D";
+	private static final AtomicLong COUNTER = new AtomicLong();
+	private static final int MAX_SHORT_INDEX = 0xff;
+	
+	private final Map<String, Integer> slots;
+	private final int arity;
+	private ClassFileWriter writer;
+	private ClassFileWriter.Code code;
+	/** Whether the variables are read from the array argument, or from primitive arguments */
+	private boolean fromArray;
+	private SharedSubexpressions shared;
+	/** The local variable of the first register (each register occupies two slots) */
+	private int firstRegister;
+	private boolean[] stored;
+	
+	/**
+	 * @param variableOrder the variables, in the order of their slots
+	 * @throws IllegalArgumentException if a variable appears more than once
+	 */
+	public BytecodeCompiler(final List<String> variableOrder) {
+		this.slots = ClosureCompiler.buildSlots(variableOrder);
+		this.arity = variableOrder.size();
+	}
+	
+	/**
+	 * Checks the number of values supplied to a compiled expression.
+	 * This method is called by the generated code, and it is not meant to be used directly.
+	 * @param length the number of supplied values
+	 * @param expected the number of variables of the expression
+	 * @throws IllegalArgumentException if the two numbers differ
+	 */
+	public static void checkArity(final int length, final int expected) {
+		if (length != expected) {
+			throw new IllegalArgumentException("Expected " + expected + " values");
+		}
+	}
+	
+	/**
+	 * Compiles the given expression and instantiates the generated class.
+	 * @param e the expression to compile
+	 * @return a prepared expression backed by the generated class
+	 * @throws IllegalArgumentException if the expression is too large to be compiled
+	 */
+	public PreparedExpression compile(final Expression e) {
+		final String name = CLASS_PREFIX + COUNTER.incrementAndGet();
+		final List<String> interfaces = new ArrayList<>();
+		interfaces.add(PreparedExpression.class.getName().replace('.', '/'));
+		if (this.arity == 1) {
+			interfaces.add(DoubleUnaryOperator.class.getName().replace('.', '/'));
+		} else if (this.arity == 2) { //NOPMD
+			interfaces.add(DoubleBinaryOperator.class.getName().replace('.', '/'));
+		}
+		this.writer = new ClassFileWriter(name, interfaces);
+		this.shared = new SharedSubexpressions(e);
+		final int registerSlots = 2 * this.shared.getRegisterCount();
+		
+		//Default constructor
+		final ClassFileWriter.Code init = new ClassFileWriter.Code(1);
+		init.emit(ClassFileWriter.ALOAD_0, 1);
+		init.emitWide(ClassFileWriter.INVOKESPECIAL, -1,
+			this.writer.methodRef("java/lang/Object", "<init>", "()V"));
+		init.emit(ClassFileWriter.RETURN, 0);
+		this.writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", init);
+		
+		//double apply(double... values)
+		this.code = new ClassFileWriter.Code(2 + registerSlots);
+		this.fromArray = true;
+		this.firstRegister = 2;
+		this.code.emit(ClassFileWriter.ALOAD_1, 1);
+		this.code.emit(ClassFileWriter.ARRAYLENGTH, 0);
+		this.pushInt(this.arity);
+		this.code.emitWide(ClassFileWriter.INVOKESTATIC, -2, this.writer.methodRef(
+			BytecodeCompiler.class.getName().replace('.', '/'), "checkArity", "(II)V"));
+		this.emitBody(e);
+		this.writer.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_VARARGS,
+			"apply", "([D)D", this.code);
+		
+		//double applyAsDouble(double x) or double applyAsDouble(double x, double y)
+		if (this.arity == 1 || this.arity == 2) {
+			this.code = new ClassFileWriter.Code(1 + 2 * this.arity + registerSlots);
+			this.fromArray = false;
+			this.firstRegister = 1 + 2 * this.arity;
+			this.emitBody(e);
+			this.writer.addMethod(ClassFileWriter.ACC_PUBLIC, "applyAsDouble",
+				this.arity == 1 ? UNARY_DESCRIPTOR : BINARY_DESCRIPTOR, this.code);
+		}
+		
+		final byte[] bytes = this.writer.toByteArray();
+		try {
+			return (PreparedExpression) new GeneratedClassLoader()
+				.define(name.replace('/', '.'), bytes)
+				.getConstructor()
+				.newInstance();
+		} catch (final InstantiationException | IllegalAccessException
+				| InvocationTargetException | NoSuchMethodException ex) {
+			//Should never happen (the generated class is public and has a public constructor)
+			throw new IllegalStateException(ex);
+		}
+	}
+	
+	private void emitBody(final Expression e) {
+		this.stored = new boolean[this.shared.getRegisterCount()];
+		this.visit(e);
+		this.code.emit(ClassFileWriter.DRETURN, -2);
+	}
+	
+	private void pushInt(final int value) {
+		if (value >= 0 && value <= 5) {
+			this.code.emit(ClassFileWriter.ICONST_0 + value, 1);
+		} else if (value <= Byte.MAX_VALUE) {
+			this.code.emit(ClassFileWriter.BIPUSH, 1, value);
+		} else if (value <= Short.MAX_VALUE) {
+			this.code.emitWide(ClassFileWriter.SIPUSH, 1, value);
+		} else {
+			this.code.emitWide(ClassFileWriter.LDC_W, 1, this.writer.integer(value));
+		}
+	}
+	
+	private void pushDouble(final double value) {
+		if (Double.doubleToRawLongBits(value) == 0L) {
+			this.code.emit(ClassFileWriter.DCONST_0, 2);
+		} else if (value == 1.0) {
+			this.code.emit(ClassFileWriter.DCONST_1, 2);
+		} else {
+			this.code.emitWide(ClassFileWriter.LDC2_W, 2, this.writer.doubleConstant(value));
+		}
+	}
+	
+	private void invokeMath(final String name, final String descriptor, final int stackDelta) {
+		this.code.emitWide(ClassFileWriter.INVOKESTATIC, stackDelta,
+			this.writer.methodRef(MATH, name, descriptor));
+	}
+	
+	private void accessLocal(final int opcode, final int stackDelta, final int index) {
+		if (index > MAX_SHORT_INDEX) {
+			this.code.emit(ClassFileWriter.WIDE, 0);
+			this.code.emitWide(opcode, stackDelta, index);
+		} else {
+			this.code.emit(opcode, stackDelta, index);
+		}
+	}
+	
+	@Override
+	public Void visit(final Expression v) {
+		final int register = this.shared.getRegister(v);
+		if (register < 0) {
+			return v.accept(this);
+		}
+		final int local = this.firstRegister + 2 * register;
+		if (this.stored[register]) {
+			this.accessLocal(ClassFileWriter.DLOAD, 2, local);
+		} else {
+			v.accept(this);
+			//The value is kept on the stack
+			this.code.emit(ClassFileWriter.DUP2, 2);
+			this.accessLocal(ClassFileWriter.DSTORE, -2, local);
+			this.stored[register] = true;
+		}
+		return null;
+	}
+	
+	@Override
+	public Void visit(final Variable v) {
+		final Environment env = Environment.getSingleton();
+		if (env.hasConstant(v.getName())) {
+			//Mathematical constants (like e or pi) are folded directly
+			this.pushDouble(env.getConstant(v.getName()).getValue());
+			return null;
+		}
+		if (!this.slots.containsKey(v.getName())) {
+			throw new NoSuchElementException("No value set for variable " + v.getName());
+		}
+		final int slot = this.slots.get(v.getName());
+		if (this.fromArray) {
+			this.code.emit(ClassFileWriter.ALOAD_1, 1);
+			this.pushInt(slot);
+			this.code.emit(ClassFileWriter.DALOAD, 0);
+		} else {
+			//Each double argument occupies two local variable slots
+			this.accessLocal(ClassFileWriter.DLOAD, 2, 1 + 2 * slot);
+		}
+		return null;
+	}
+	
+	@Override
+	public Void visit(final Constant v) {
+		this.pushDouble(v.getValue());
+		return null;
+	}
+	
+	@Override
+	public Void visit(final BinaryOperation v) {
+		return v.getOperator().accept(this,
+				this.visit(v.getFirstOperand()),
+				this.visit(v.getSecondOperand()));
+	}
+	
+	@Override
+	public Void visit(final NAryOperation v) {
+		//Every operand is pushed on the stack before the operation is applied
+		final List<Void> operands = v.getOperands()
+			.stream()
+			.map(x -> this.visit(x))
+			.collect(Collectors.toList());
+		
+		return v.getOperator().accept(this, operands);
+	}
+	
+	@Override
+	public Void visit(final FunctionOperation v) {
+		return v.getFunction().accept(this,
+				this.visit(v.getArgument()));
+	}
+	
+	@Override
+	public Void visit(final Equation v) {
+		throw new UnsupportedOperationException("Cannot evaluate an equation");
+	}
+	
+	/*------------------
+	 * Binary operators
+	 *-----------------*/
+	
+	@Override
+	public Void visitDivision(final Void o1, final Void o2) {
+		this.code.emit(ClassFileWriter.DDIV, -2);
+		return null;
+	}
+	
+	@Override
+	public Void visitPower(final Void o1, final Void o2) {
+		this.invokeMath("pow", BINARY_DESCRIPTOR, -2);
+		return null;
+	}
+	
+	/*-----------------
+	 * N-ary operators
+	 *-----------------*/
+	
+	@Override
+	public Void visitAddition(final List<Void> operands) {
+		for (int i = 1; i < operands.size(); i++) {
+			this.code.emit(ClassFileWriter.DADD, -2);
+		}
+		return null;
+	}
+	
+	@Override
+	public Void visitProduct(final List<Void> operands) {
+		for (int i = 1; i < operands.size(); i++) {
+			this.code.emit(ClassFileWriter.DMUL, -2);
+		}
+		return null;
+	}
+	
+	/*-----------
+	 * Functions
+	 *-----------*/
+	
+	@Override
+	public Void visitSin(final Void arg) {
+		this.invokeMath("sin", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitArcsin(final Void arg) {
+		this.invokeMath("asin", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitCos(final Void arg) {
+		this.invokeMath("cos", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitArccos(final Void arg) {
+		this.invokeMath("acos", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitTan(final Void arg) {
+		this.invokeMath("tan", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitArctan(final Void arg) {
+		this.invokeMath("atan", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitLn(final Void arg) {
+		this.invokeMath("log", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitAbs(final Void arg) {
+		this.invokeMath("abs", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	@Override
+	public Void visitSqrt(final Void arg) {
+		this.invokeMath("sqrt", UNARY_DESCRIPTOR, 0);
+		return null;
+	}
+	
+	/**
+	 * A class loader which defines a single generated class.
+	 */
+	private static final class GeneratedClassLoader extends ClassLoader {
+		
+		GeneratedClassLoader() {
+			super(BytecodeCompiler.class.getClassLoader());
+		}
+		
+		Class<?> define(final String name, final byte[] bytes) {
+			return this.defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
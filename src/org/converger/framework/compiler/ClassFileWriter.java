@@ -0,0 +1,313 @@
+package org.converger.framework.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer of Java class files (version 52, Java 8).
+ * It supports only what is needed by the expression compiler: a constant pool,
+ * and public methods made of straight-line code (no branches, hence
+ * no stack map frames are required).
+ * @author Dario Pavllo
+ */
+final class ClassFileWriter {
+	
+	/* Opcodes */
+	static final int ICONST_0 = 0x03;
+	static final int DCONST_0 = 0x0e;
+	static final int DCONST_1 = 0x0f;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC_W = 0x13;
+	static final int LDC2_W = 0x14;
+	static final int DLOAD = 0x18;
+	static final int DSTORE = 0x39;
+	static final int DUP2 = 0x5c;
+	static final int ALOAD_0 = 0x2a;
+	static final int ALOAD_1 = 0x2b;
+	static final int DALOAD = 0x31;
+	static final int DADD = 0x63;
+	static final int DMUL = 0x6b;
+	static final int DDIV = 0x6f;
+	static final int DRETURN = 0xaf;
+	static final int RETURN = 0xb1;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKESTATIC = 0xb8;
+	static final int ARRAYLENGTH = 0xbe;
+	static final int WIDE = 0xc4;
+	
+	/* Access flags */
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+	static final int ACC_VARARGS = 0x0080;
+	
+	/* Constant pool tags */
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final int MAJOR_VERSION = 52;
+	private static final int MAX_CODE_LENGTH = 65535;
+	
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(this.poolBytes);
+	private final Map<String, Integer> poolIndices = new HashMap<>();
+	private int poolCount = 1;
+	
+	private final String className;
+	private final List<String> interfaces;
+	private final List<byte[]> methods = new ArrayList<>();
+	
+	/**
+	 * @param internalName the internal name of the class (e.g. a/b/C)
+	 * @param interfaceNames the internal names of the implemented interfaces
+	 */
+	ClassFileWriter(final String internalName, final List<String> interfaceNames) {
+		this.className = internalName;
+		this.interfaces = new ArrayList<>(interfaceNames);
+	}
+	
+	/*---------------
+	 * Constant pool
+	 *---------------*/
+	
+	private int entry(final String key, final int slots, final PoolWriter writer) {
+		final Integer existing = this.poolIndices.get(key);
+		if (existing != null) {
+			return existing;
+		}
+		final int index = this.poolCount;
+		try {
+			writer.write(this.pool);
+		} catch (final IOException e) {
+			//Should never happen (in-memory stream)
+			throw new IllegalStateException(e);
+		}
+		this.poolCount += slots;
+		this.poolIndices.put(key, index);
+		return index;
+	}
+	
+	/**
+	 * Adds a string to the constant pool.
+	 * @param value the string
+	 * @return the index of the entry
+	 */
+	int utf8(final String value) {
+		return this.entry("U" + value, 1, out -> {
+			out.writeByte(CONSTANT_UTF8);
+			out.writeUTF(value);
+		});
+	}
+	
+	/**
+	 * Adds an integer to the constant pool.
+	 * @param value the integer
+	 * @return the index of the entry
+	 */
+	int integer(final int value) {
+		return this.entry("I" + value, 1, out -> {
+			out.writeByte(CONSTANT_INTEGER);
+			out.writeInt(value);
+		});
+	}
+	
+	/**
+	 * Adds a double to the constant pool.
+	 * @param value the double
+	 * @return the index of the entry
+	 */
+	int doubleConstant(final double value) {
+		//Doubles occupy two slots of the constant pool
+		return this.entry("D" + Double.doubleToRawLongBits(value), 2, out -> {
+			out.writeByte(CONSTANT_DOUBLE);
+			out.writeDouble(value);
+		});
+	}
+	
+	/**
+	 * Adds a class reference to the constant pool.
+	 * @param internalName the internal name of the class
+	 * @return the index of the entry
+	 */
+	int classRef(final String internalName) {
+		final int name = this.utf8(internalName);
+		return this.entry("C" + internalName, 1, out -> {
+			out.writeByte(CONSTANT_CLASS);
+			out.writeShort(name);
+		});
+	}
+	
+	/**
+	 * Adds a method reference to the constant pool.
+	 * @param owner the internal name of the class declaring the method
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @return the index of the entry
+	 */
+	int methodRef(final String owner, final String name, final String descriptor) {
+		final int ownerIndex = this.classRef(owner);
+		final int nameIndex = this.utf8(name);
+		final int descriptorIndex = this.utf8(descriptor);
+		final int nameAndType = this.entry("N" + name + descriptor, 1, out -> {
+			out.writeByte(CONSTANT_NAME_AND_TYPE);
+			out.writeShort(nameIndex);
+			out.writeShort(descriptorIndex);
+		});
+		return this.entry("M" + owner + "." + name + descriptor, 1, out -> {
+			out.writeByte(CONSTANT_METHODREF);
+			out.writeShort(ownerIndex);
+			out.writeShort(nameAndType);
+		});
+	}
+	
+	/*---------
+	 * Methods
+	 *---------*/
+	
+	/**
+	 * Adds a method to this class.
+	 * @param access the access flags
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @param code the body of the method
+	 */
+	void addMethod(final int access, final String name, final String descriptor, final Code code) {
+		final byte[] body = code.toByteArray();
+		if (body.length > MAX_CODE_LENGTH) {
+			throw new IllegalArgumentException("The expression is too large to be compiled");
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeShort(access);
+			out.writeShort(this.utf8(name));
+			out.writeShort(this.utf8(descriptor));
+			out.writeShort(1); //Attribute count
+			out.writeShort(this.utf8("Code"));
+			out.writeInt(body.length + 12);
+			out.writeShort(code.getMaxStack());
+			out.writeShort(code.getMaxLocals());
+			out.writeInt(body.length);
+			out.write(body);
+			out.writeShort(0); //Exception table length
+			out.writeShort(0); //Attribute count
+		} catch (final IOException e) {
+			//Should never happen (in-memory stream)
+			throw new IllegalStateException(e);
+		}
+		this.methods.add(bytes.toByteArray());
+	}
+	
+	/**
+	 * Returns the binary representation of the class.
+	 * @return the content of the class file
+	 */
+	byte[] toByteArray() {
+		final int thisClass = this.classRef(this.className);
+		final int superClass = this.classRef("java/lang/Object");
+		final List<Integer> interfaceIndices = new ArrayList<>();
+		this.interfaces.forEach(i -> interfaceIndices.add(this.classRef(i)));
+		
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(MAJOR_VERSION);
+			out.writeShort(this.poolCount);
+			out.write(this.poolBytes.toByteArray());
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaceIndices.size());
+			for (final int i : interfaceIndices) {
+				out.writeShort(i);
+			}
+			out.writeShort(0); //Field count
+			out.writeShort(this.methods.size());
+			for (final byte[] m : this.methods) {
+				out.write(m);
+			}
+			out.writeShort(0); //Attribute count
+		} catch (final IOException e) {
+			//Should never happen (in-memory stream)
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Writes a single entry of the constant pool.
+	 */
+	@FunctionalInterface
+	private interface PoolWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+	
+	/**
+	 * The body of a method. It keeps track of the operand stack depth
+	 * in order to compute the maximum stack size.
+	 */
+	static final class Code {
+		
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final int maxLocals;
+		private int depth;
+		private int maxStack;
+		
+		/**
+		 * @param locals the number of local variable slots (including arguments)
+		 */
+		Code(final int locals) {
+			this.maxLocals = locals;
+		}
+		
+		/**
+		 * Emits an instruction.
+		 * @param opcode the opcode of the instruction
+		 * @param stackDelta the variation of the operand stack (in slots)
+		 * @param operands the operand bytes of the instruction
+		 */
+		void emit(final int opcode, final int stackDelta, final int... operands) {
+			this.bytes.write(opcode);
+			for (final int o : operands) {
+				this.bytes.write(o);
+			}
+			this.depth += stackDelta;
+			this.maxStack = Math.max(this.maxStack, this.depth);
+		}
+		
+		/**
+		 * Emits an instruction having a 16-bit operand.
+		 * @param opcode the opcode of the instruction
+		 * @param stackDelta the variation of the operand stack (in slots)
+		 * @param operand the 16-bit operand
+		 */
+		void emitWide(final int opcode, final int stackDelta, final int operand) {
+			this.emit(opcode, stackDelta, (operand >> 8) & 0xff, operand & 0xff);
+		}
+		
+		int getMaxStack() {
+			return this.maxStack;
+		}
+		
+		int getMaxLocals() {
+			return this.maxLocals;
+		}
+		
+		byte[] toByteArray() {
+			return this.bytes.toByteArray();
+		}
+	}
+}
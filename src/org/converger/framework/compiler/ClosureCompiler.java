@@ -0,0 +1,271 @@
+package org.converger.framework.compiler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import org.converger.framework.Environment;
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.Function;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+
+/**
+ * This visitor compiles an expression to a tree of primitive closures,
+ * which can be evaluated repeatedly without any allocation.
+ * Each variable is bound to a slot of the input array, whose position
+ * is given by the supplied variable order.
+ * Subexpressions which appear more than once are calculated only once:
+ * their values are kept in a frame which extends the input array,
+ * allocated once for each thread which evaluates the function.
+ * Throws {@link java.util.NoSuchElementException} if a variable with no slot is found.
+ * @author Dario Pavllo
+ */
+public class ClosureCompiler implements
+	Expression.Visitor<ToDoubleFunction<double[]>>,
+	BinaryOperator.Visitor<ToDoubleFunction<double[]>>,
+	NAryOperator.Visitor<ToDoubleFunction<double[]>>,
+	Function.Visitor<ToDoubleFunction<double[]>> {
+	private final Map<String, Integer> slots;
+	private final int arity;
+	private SharedSubexpressions shared;
+	private boolean[] stored;
+	
+	/**
+	 * @param variableOrder the variables, in the order of their slots
+	 * @throws IllegalArgumentException if a variable appears more than once
+	 */
+	public ClosureCompiler(final List<String> variableOrder) {
+		this.slots = ClosureCompiler.buildSlots(variableOrder);
+		this.arity = variableOrder.size();
+	}
+	
+	/**
+	 * Compiles the given expression, sharing the repeated subexpressions.
+	 * The returned function expects an array containing the values
+	 * of the variables, and it does not modify it.
+	 * @param e the expression to compile
+	 * @return a function which evaluates the expression
+	 */
+	public ToDoubleFunction<double[]> compile(final Expression e) {
+		this.shared = new SharedSubexpressions(e);
+		this.stored = new boolean[this.shared.getRegisterCount()];
+		final ToDoubleFunction<double[]> body = this.visit(e);
+		this.shared = null;
+		if (this.stored.length == 0) {
+			return body;
+		}
+		final int arity = this.arity;
+		final int frameSize = arity + this.stored.length;
+		//Each thread has its own frame, hence the function is thread-safe
+		final ThreadLocal<double[]> frames = ThreadLocal.withInitial(() -> new double[frameSize]);
+		return values -> {
+			final double[] frame = frames.get();
+			System.arraycopy(values, 0, frame, 0, arity);
+			return body.applyAsDouble(frame);
+		};
+	}
+	
+	/**
+	 * Builds the variable-slot map associated with the given variable order.
+	 * @param variableOrder the variables, in the order of their slots
+	 * @return a map containing the slot of each variable
+	 * @throws IllegalArgumentException if a variable appears more than once
+	 */
+	static Map<String, Integer> buildSlots(final List<String> variableOrder) {
+		final Map<String, Integer> result = new HashMap<>();
+		for (int i = 0; i < variableOrder.size(); i++) {
+			if (result.put(variableOrder.get(i), i) != null) {
+				throw new IllegalArgumentException("Duplicate variable " + variableOrder.get(i));
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final Expression v) {
+		final int register = this.shared == null ? -1 : this.shared.getRegister(v);
+		if (register < 0) {
+			return v.accept(this);
+		}
+		final int slot = this.arity + register;
+		if (this.stored[register]) {
+			return x -> x[slot];
+		}
+		this.stored[register] = true;
+		final ToDoubleFunction<double[]> value = v.accept(this);
+		return x -> {
+			x[slot] = value.applyAsDouble(x);
+			return x[slot];
+		};
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final Variable v) {
+		final Environment env = Environment.getSingleton();
+		if (env.hasConstant(v.getName())) {
+			//Mathematical constants (like e or pi) are folded directly
+			final double value = env.getConstant(v.getName()).getValue();
+			return x -> value;
+		}
+		if (!this.slots.containsKey(v.getName())) {
+			throw new NoSuchElementException("No value set for variable " + v.getName());
+		}
+		final int slot = this.slots.get(v.getName());
+		return x -> x[slot];
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final Constant v) {
+		final double value = v.getValue();
+		return x -> value;
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final BinaryOperation v) {
+		return v.getOperator().accept(this,
+				this.visit(v.getFirstOperand()),
+				this.visit(v.getSecondOperand()));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final NAryOperation v) {
+		final List<ToDoubleFunction<double[]>> operands = v.getOperands()
+			.stream()
+			.map(x -> this.visit(x))
+			.collect(Collectors.toList());
+		
+		return v.getOperator().accept(this, operands);
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final FunctionOperation v) {
+		return v.getFunction().accept(this,
+				this.visit(v.getArgument()));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visit(final Equation v) {
+		throw new UnsupportedOperationException("Cannot evaluate an equation");
+	}
+	
+	/*------------------
+	 * Binary operators
+	 *-----------------*/
+	
+	@Override
+	public ToDoubleFunction<double[]> visitDivision(final ToDoubleFunction<double[]> o1,
+			final ToDoubleFunction<double[]> o2) {
+		return x -> o1.applyAsDouble(x) / o2.applyAsDouble(x);
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitPower(final ToDoubleFunction<double[]> o1,
+			final ToDoubleFunction<double[]> o2) {
+		return x -> Math.pow(o1.applyAsDouble(x), o2.applyAsDouble(x));
+	}
+	
+	/*-----------------
+	 * N-ary operators
+	 *-----------------*/
+	
+	@Override
+	public ToDoubleFunction<double[]> visitAddition(final List<ToDoubleFunction<double[]>> operands) {
+		if (operands.size() == 2) { //NOPMD
+			//Most common case
+			final ToDoubleFunction<double[]> o1 = operands.get(0);
+			final ToDoubleFunction<double[]> o2 = operands.get(1);
+			return x -> o1.applyAsDouble(x) + o2.applyAsDouble(x);
+		}
+		final ToDoubleFunction<double[]>[] array = ClosureCompiler.toArray(operands);
+		return x -> {
+			double sum = 0.0;
+			for (final ToDoubleFunction<double[]> o : array) {
+				sum += o.applyAsDouble(x);
+			}
+			return sum;
+		};
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitProduct(final List<ToDoubleFunction<double[]>> operands) {
+		if (operands.size() == 2) { //NOPMD
+			//Most common case
+			final ToDoubleFunction<double[]> o1 = operands.get(0);
+			final ToDoubleFunction<double[]> o2 = operands.get(1);
+			return x -> o1.applyAsDouble(x) * o2.applyAsDouble(x);
+		}
+		final ToDoubleFunction<double[]>[] array = ClosureCompiler.toArray(operands);
+		return x -> {
+			double product = 1.0;
+			for (final ToDoubleFunction<double[]> o : array) {
+				product *= o.applyAsDouble(x);
+			}
+			return product;
+		};
+	}
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static ToDoubleFunction<double[]>[] toArray(
+			final List<ToDoubleFunction<double[]>> operands) {
+		return operands.toArray(new ToDoubleFunction[operands.size()]);
+	}
+	
+	/*-----------
+	 * Functions
+	 *-----------*/
+	
+	@Override
+	public ToDoubleFunction<double[]> visitSin(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.sin(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitArcsin(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.asin(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitCos(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.cos(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitArccos(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.acos(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitTan(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.tan(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitArctan(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.atan(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitLn(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.log(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitAbs(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.abs(arg.applyAsDouble(x));
+	}
+	
+	@Override
+	public ToDoubleFunction<double[]> visitSqrt(final ToDoubleFunction<double[]> arg) {
+		return x -> Math.sqrt(arg.applyAsDouble(x));
+	}
+}
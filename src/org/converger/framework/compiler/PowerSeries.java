@@ -0,0 +1,220 @@
+package org.converger.framework.compiler;
+
+/**
+ * Arithmetic of truncated power series, used by the Taylor mode of {@link Program}.
+ * A series is represented by the array of its coefficients:
+ * a[k] is the coefficient of t^k, and all the arrays of an operation have the same length.
+ * Every operation runs in quadratic time with respect to the length,
+ * by means of the usual recurrences (no derivative is built symbolically).
+ * @author Dario Pavllo
+ */
+final class PowerSeries {
+	
+	private PowerSeries() {
+	}
+	
+	/**
+	 * Builds a constant series.
+	 * @param value the constant
+	 * @param length the number of coefficients
+	 * @return the series
+	 */
+	static double[] constant(final double value, final int length) {
+		final double[] c = new double[length];
+		c[0] = value;
+		return c;
+	}
+	
+	static double[] add(final double[] a, final double[] b) {
+		final double[] c = a.clone();
+		for (int k = 0; k < c.length; k++) {
+			c[k] += b[k];
+		}
+		return c;
+	}
+	
+	static double[] multiply(final double[] a, final double[] b) {
+		final double[] c = new double[a.length];
+		for (int k = 0; k < c.length; k++) {
+			double sum = 0;
+			for (int j = 0; j <= k; j++) {
+				sum += a[j] * b[k - j];
+			}
+			c[k] = sum;
+		}
+		return c;
+	}
+	
+	static double[] divide(final double[] a, final double[] b) {
+		//a = b*c, solved for c one coefficient at a time
+		final double[] c = new double[a.length];
+		for (int k = 0; k < c.length; k++) {
+			double sum = a[k];
+			for (int j = 1; j <= k; j++) {
+				sum -= b[j] * c[k - j];
+			}
+			c[k] = sum / b[0];
+		}
+		return c;
+	}
+	
+	static double[] power(final double[] a, final double[] b) {
+		for (int k = 1; k < b.length; k++) {
+			if (b[k] != 0) {
+				//a^b = e^(b*ln(a))
+				return PowerSeries.exp(PowerSeries.multiply(b, PowerSeries.ln(a)));
+			}
+		}
+		final double p = b[0];
+		if (a[0] == 0 && p >= 0 && p == Math.rint(p)) {
+			//The recurrence is not defined, but integer powers can be calculated by squaring
+			return PowerSeries.integerPower(a, (long) p);
+		}
+		//If c = a^p, then a*c' = p*a'*c
+		final double[] c = new double[a.length];
+		c[0] = Math.pow(a[0], p);
+		for (int k = 1; k < c.length; k++) {
+			double sum = 0;
+			for (int j = 1; j <= k; j++) {
+				sum += ((p + 1) * j - k) * a[j] * c[k - j];
+			}
+			c[k] = sum / (k * a[0]);
+		}
+		return c;
+	}
+	
+	private static double[] integerPower(final double[] a, final long exponent) {
+		double[] result = PowerSeries.constant(1, a.length);
+		double[] base = a;
+		for (long e = exponent; e > 0; e >>= 1) {
+			if ((e & 1) != 0) {
+				result = PowerSeries.multiply(result, base);
+			}
+			if (e > 1) {
+				base = PowerSeries.multiply(base, base);
+			}
+		}
+		return result;
+	}
+	
+	static double[] exp(final double[] a) {
+		//If c = e^a, then c' = a'*c
+		final double[] c = new double[a.length];
+		c[0] = Math.exp(a[0]);
+		for (int k = 1; k < c.length; k++) {
+			double sum = 0;
+			for (int j = 1; j <= k; j++) {
+				sum += j * a[j] * c[k - j];
+			}
+			c[k] = sum / k;
+		}
+		return c;
+	}
+	
+	static double[] ln(final double[] a) {
+		return PowerSeries.integrate(Math.log(a[0]),
+			PowerSeries.divide(PowerSeries.derivative(a), a));
+	}
+	
+	static double[] sin(final double[] a) {
+		return PowerSeries.sinCos(a, true);
+	}
+	
+	static double[] cos(final double[] a) {
+		return PowerSeries.sinCos(a, false);
+	}
+	
+	/*
+	 * Sine and cosine are calculated together: s' = a'*c and c' = -a'*s.
+	 */
+	private static double[] sinCos(final double[] a, final boolean sine) {
+		final double[] s = new double[a.length];
+		final double[] c = new double[a.length];
+		s[0] = Math.sin(a[0]);
+		c[0] = Math.cos(a[0]);
+		for (int k = 1; k < a.length; k++) {
+			double sumS = 0;
+			double sumC = 0;
+			for (int j = 1; j <= k; j++) {
+				sumS += j * a[j] * c[k - j];
+				sumC -= j * a[j] * s[k - j];
+			}
+			s[k] = sumS / k;
+			c[k] = sumC / k;
+		}
+		return sine ? s : c;
+	}
+	
+	static double[] tan(final double[] a) {
+		return PowerSeries.divide(PowerSeries.sin(a), PowerSeries.cos(a));
+	}
+	
+	static double[] asin(final double[] a) {
+		//asin' = a'/sqrt(1 - a^2)
+		return PowerSeries.integrate(Math.asin(a[0]), PowerSeries.divide(
+			PowerSeries.derivative(a), PowerSeries.sqrt(PowerSeries.oneMinusSquare(a))));
+	}
+	
+	static double[] acos(final double[] a) {
+		//acos' = -asin'
+		final double[] c = PowerSeries.asin(a);
+		for (int k = 1; k < c.length; k++) {
+			c[k] = -c[k];
+		}
+		c[0] = Math.acos(a[0]);
+		return c;
+	}
+	
+	static double[] atan(final double[] a) {
+		//atan' = a'/(1 + a^2)
+		final double[] onePlusSquare = PowerSeries.multiply(a, a);
+		onePlusSquare[0] += 1;
+		return PowerSeries.integrate(Math.atan(a[0]),
+			PowerSeries.divide(PowerSeries.derivative(a), onePlusSquare));
+	}
+	
+	static double[] abs(final double[] a) {
+		final double sign = Math.signum(a[0]);
+		final double[] c = new double[a.length];
+		for (int k = 0; k < c.length; k++) {
+			c[k] = sign * a[k];
+		}
+		return c;
+	}
+	
+	static double[] sqrt(final double[] a) {
+		return PowerSeries.power(a, PowerSeries.constant(0.5, a.length));
+	}
+	
+	private static double[] oneMinusSquare(final double[] a) {
+		final double[] c = PowerSeries.multiply(a, a);
+		for (int k = 0; k < c.length; k++) {
+			c[k] = -c[k];
+		}
+		c[0] += 1;
+		return c;
+	}
+	
+	/*
+	 * The derivative with respect to t; the last coefficient is unknown, and set to 0.
+	 */
+	private static double[] derivative(final double[] a) {
+		final double[] c = new double[a.length];
+		for (int k = 0; k + 1 < a.length; k++) {
+			c[k] = (k + 1) * a[k + 1];
+		}
+		return c;
+	}
+	
+	/*
+	 * The integral with respect to t (the last coefficient of the argument is ignored).
+	 */
+	private static double[] integrate(final double constant, final double[] a) {
+		final double[] c = new double[a.length];
+		c[0] = constant;
+		for (int k = 1; k < c.length; k++) {
+			c[k] = a[k - 1] / k;
+		}
+		return c;
+	}
+}
@@ -0,0 +1,804 @@
+package org.converger.framework.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.converger.framework.DualNumber;
+import org.converger.framework.PreparedExpression;
+
+/**
+ * Represents an expression compiled to a linear postfix program:
+ * an array of instructions and a pool of constants.
+ * The program is run by a tight interpreter loop over a reusable stack,
+ * thus the evaluation does not allocate any object.
+ * Batches of points are evaluated column-wise, one block of rows at a time:
+ * each instruction becomes a simple loop over arrays, which the JIT compiler
+ * can vectorize.
+ * A program can also propagate the derivative with respect to one variable
+ * along with the value (forward-mode automatic differentiation), on a parallel stack,
+ * or compute the whole gradient with a forward and a backward sweep over a {@link Tape}
+ * (reverse-mode automatic differentiation).
+ * Finally, the Taylor coefficients with respect to one variable can be propagated
+ * as truncated {@link PowerSeries}.
+ * A program can be converted to bytes and restored afterwards, even by another process.
+ * Note that this class is not thread-safe, as the stack is shared among the evaluations:
+ * each thread should use its own {@link #copy()}.
+ * @author Dario Pavllo
+ */
+public final class Program implements PreparedExpression {
+	
+	/* Instruction set: each opcode is followed by its operands (if any) */
+	/** Pushes a constant of the pool (operand: constant index). */
+	static final int CONST = 0;
+	/** Pushes the value of a variable (operand: variable slot). */
+	static final int LOAD = 1;
+	/** Replaces the top n values with their sum (operand: n). */
+	static final int ADD = 2;
+	/** Replaces the top n values with their product (operand: n). */
+	static final int MUL = 3;
+	/** Replaces the top two values with their quotient. */
+	static final int DIV = 4;
+	/** Replaces the top two values with the power. */
+	static final int POW = 5;
+	/* Functions: they replace the top value with the function result */
+	static final int SIN = 6;
+	static final int ASIN = 7;
+	static final int COS = 8;
+	static final int ACOS = 9;
+	static final int TAN = 10;
+	static final int ATAN = 11;
+	static final int LN = 12;
+	static final int ABS = 13;
+	static final int SQRT = 14;
+	/** Copies the top value to a register, without removing it (operand: register). */
+	static final int STORE = 15;
+	/** Pushes the value of a register (operand: register). */
+	static final int RECALL = 16;
+	
+	private static final int OPCODE_COUNT = 17;
+	/** The header of the binary representation ("CVGP") */
+	private static final int MAGIC = 0x43564750;
+	private static final int FORMAT_VERSION = 1;
+	/** The number of rows evaluated at once by the batch interpreter */
+	private static final int BLOCK_SIZE = 256;
+	
+	private final List<String> variables;
+	private final int[] code;
+	private final double[] constants;
+	private final double[] stack;
+	/** The registers which hold the shared subexpressions */
+	private final double[] registers;
+	/** The stack of the batch interpreter: each entry is a block of rows (allocated lazily) */
+	private double[][] blockStack;
+	private double[][] blockRegisters;
+	/** The derivatives of the stack entries and of the registers (allocated lazily) */
+	private double[] tangents;
+	private double[] tangentRegisters;
+	/** The tape of the reverse mode (built lazily) */
+	private Tape tape;
+	
+	/**
+	 * Builds a program and verifies its consistency.
+	 * @param variableOrder the variables, in the order of their slots
+	 * @param instructions the instructions and their operands
+	 * @param constantPool the constant pool
+	 * @throws IllegalArgumentException if the program is malformed
+	 */
+	Program(final List<String> variableOrder, final int[] instructions, final double[] constantPool) {
+		this.variables = Collections.unmodifiableList(new ArrayList<>(variableOrder));
+		this.code = instructions.clone();
+		this.constants = constantPool.clone();
+		this.stack = new double[this.verify()];
+		this.registers = new double[Program.countRegisters(this.code)];
+	}
+	
+	/*
+	 * Simulates the execution of the program, checking the operands and the stack depth.
+	 * Each register must be stored before it is recalled.
+	 * Returns the maximum stack size.
+	 */
+	private int verify() {
+		int depth = 0;
+		int maxDepth = 0;
+		int pc = 0;
+		final Set<Integer> stored = new HashSet<>();
+		while (pc < this.code.length) {
+			final int opcode = this.code[pc++];
+			if (opcode < 0 || opcode >= OPCODE_COUNT) {
+				throw new IllegalArgumentException("Invalid opcode " + opcode);
+			}
+			if (Program.hasOperand(opcode) && pc >= this.code.length) {
+				throw new IllegalArgumentException("Missing operand");
+			}
+			switch (opcode) {
+			case CONST:
+				Program.checkIndex(this.code[pc++], this.constants.length);
+				depth++;
+				break;
+			case LOAD:
+				Program.checkIndex(this.code[pc++], this.variables.size());
+				depth++;
+				break;
+			case ADD:
+			case MUL:
+				final int n = this.code[pc++];
+				if (n < 1 || n > depth) {
+					throw new IllegalArgumentException("Stack underflow");
+				}
+				depth -= n - 1;
+				break;
+			case DIV:
+			case POW:
+				if (depth < 2) { //NOPMD
+					throw new IllegalArgumentException("Stack underflow");
+				}
+				depth--;
+				break;
+			case STORE:
+				if (depth < 1) {
+					throw new IllegalArgumentException("Stack underflow");
+				}
+				//There cannot be more registers than instructions
+				Program.checkIndex(this.code[pc], this.code.length);
+				stored.add(this.code[pc++]);
+				break;
+			case RECALL:
+				if (!stored.contains(this.code[pc++])) {
+					throw new IllegalArgumentException("Register recalled before being stored");
+				}
+				depth++;
+				break;
+			default:
+				//Functions
+				if (depth < 1) {
+					throw new IllegalArgumentException("Stack underflow");
+				}
+			}
+			maxDepth = Math.max(maxDepth, depth);
+		}
+		if (depth != 1) {
+			throw new IllegalArgumentException("The program must leave exactly one value");
+		}
+		return maxDepth;
+	}
+	
+	private static boolean hasOperand(final int opcode) {
+		return opcode <= MUL || opcode == STORE || opcode == RECALL;
+	}
+	
+	/*
+	 * Returns the number of registers used by a verified program.
+	 */
+	private static int countRegisters(final int[] instructions) {
+		int count = 0;
+		int pc = 0;
+		while (pc < instructions.length) {
+			final int opcode = instructions[pc++];
+			if (opcode == STORE) {
+				count = Math.max(count, instructions[pc] + 1);
+			}
+			if (Program.hasOperand(opcode)) {
+				pc++;
+			}
+		}
+		return count;
+	}
+	
+	private static void checkIndex(final int index, final int size) {
+		if (index < 0 || index >= size) {
+			throw new IllegalArgumentException("Operand out of range: " + index);
+		}
+	}
+	
+	/**
+	 * Returns the variables of this program, in the order of their slots.
+	 * @return an unmodifiable list of variable names
+	 */
+	public List<String> getVariables() {
+		return this.variables;
+	}
+	
+	/**
+	 * Returns a copy of this program, with its own stack.
+	 * @return a program which can be used by another thread
+	 */
+	public Program copy() {
+		return new Program(this.variables, this.code, this.constants);
+	}
+	
+	@Override
+	public double apply(final double... values) {
+		if (values.length != this.variables.size()) {
+			throw new IllegalArgumentException("Expected " + this.variables.size() + " values");
+		}
+		final int[] c = this.code;
+		final double[] s = this.stack;
+		int sp = -1;
+		int pc = 0;
+		while (pc < c.length) {
+			switch (c[pc++]) {
+			case CONST:
+				s[++sp] = this.constants[c[pc++]];
+				break;
+			case LOAD:
+				s[++sp] = values[c[pc++]];
+				break;
+			case ADD: {
+				final int base = sp - c[pc++] + 1;
+				double sum = s[base];
+				for (int i = base + 1; i <= sp; i++) {
+					sum += s[i];
+				}
+				sp = base;
+				s[sp] = sum;
+				break;
+			}
+			case MUL: {
+				final int base = sp - c[pc++] + 1;
+				double product = s[base];
+				for (int i = base + 1; i <= sp; i++) {
+					product *= s[i];
+				}
+				sp = base;
+				s[sp] = product;
+				break;
+			}
+			case DIV:
+				sp--;
+				s[sp] /= s[sp + 1];
+				break;
+			case POW:
+				sp--;
+				s[sp] = Math.pow(s[sp], s[sp + 1]);
+				break;
+			case SIN:
+				s[sp] = Math.sin(s[sp]);
+				break;
+			case ASIN:
+				s[sp] = Math.asin(s[sp]);
+				break;
+			case COS:
+				s[sp] = Math.cos(s[sp]);
+				break;
+			case ACOS:
+				s[sp] = Math.acos(s[sp]);
+				break;
+			case TAN:
+				s[sp] = Math.tan(s[sp]);
+				break;
+			case ATAN:
+				s[sp] = Math.atan(s[sp]);
+				break;
+			case LN:
+				s[sp] = Math.log(s[sp]);
+				break;
+			case ABS:
+				s[sp] = Math.abs(s[sp]);
+				break;
+			case SQRT:
+				s[sp] = Math.sqrt(s[sp]);
+				break;
+			case STORE:
+				this.registers[c[pc++]] = s[sp];
+				break;
+			case RECALL:
+				s[++sp] = this.registers[c[pc++]];
+				break;
+			default:
+				//Cannot happen (the program has been verified)
+				throw new IllegalStateException();
+			}
+		}
+		return s[0];
+	}
+	
+	/**
+	 * Evaluates the program and its derivative with respect to one of the variables,
+	 * in a single pass. Each value on the stack is paired with its derivative
+	 * (a dual number), which is propagated through the instructions with
+	 * the usual differentiation rules; no symbolic derivative is built.
+	 * @param slot the slot of the independent variable
+	 * @param values the values of the variables, in the order of their slots
+	 * @return the value of the program and of its derivative
+	 * @throws IllegalArgumentException if the number of values does not match
+	 * the number of variables, or if the slot is out of range
+	 */
+	public DualNumber applyWithDerivative(final int slot, final double... values) { //NOPMD
+		if (values.length != this.variables.size()) {
+			throw new IllegalArgumentException("Expected " + this.variables.size() + " values");
+		}
+		Program.checkIndex(slot, values.length);
+		if (this.tangents == null) {
+			this.tangents = new double[this.stack.length];
+			this.tangentRegisters = new double[this.registers.length];
+		}
+		final int[] c = this.code;
+		final double[] s = this.stack;
+		final double[] t = this.tangents;
+		int sp = -1;
+		int pc = 0;
+		while (pc < c.length) {
+			switch (c[pc++]) {
+			case CONST:
+				s[++sp] = this.constants[c[pc++]];
+				t[sp] = 0;
+				break;
+			case LOAD: {
+				final int index = c[pc++];
+				s[++sp] = values[index];
+				t[sp] = index == slot ? 1 : 0;
+				break;
+			}
+			case ADD: {
+				final int base = sp - c[pc++] + 1;
+				for (int i = base + 1; i <= sp; i++) {
+					s[base] += s[i];
+					t[base] += t[i];
+				}
+				sp = base;
+				break;
+			}
+			case MUL: {
+				//(a*b)' = a'*b + a*b', applied pairwise
+				final int base = sp - c[pc++] + 1;
+				for (int i = base + 1; i <= sp; i++) {
+					t[base] = t[base] * s[i] + s[base] * t[i];
+					s[base] *= s[i];
+				}
+				sp = base;
+				break;
+			}
+			case DIV: {
+				//(a/b)' = (a' - (a/b)*b')/b
+				sp--;
+				final double quotient = s[sp] / s[sp + 1];
+				t[sp] = (t[sp] - quotient * t[sp + 1]) / s[sp + 1];
+				s[sp] = quotient;
+				break;
+			}
+			case POW: {
+				//(a^b)' = b*a^(b-1)*a' + a^b*ln(a)*b'
+				sp--;
+				final double base = s[sp];
+				final double exponent = s[sp + 1];
+				final double power = Math.pow(base, exponent);
+				double derivative = 0;
+				if (t[sp] != 0) {
+					//The terms are skipped when they vanish, so that negative bases are allowed
+					derivative += exponent * Math.pow(base, exponent - 1) * t[sp];
+				}
+				if (t[sp + 1] != 0) {
+					derivative += power * Math.log(base) * t[sp + 1];
+				}
+				s[sp] = power;
+				t[sp] = derivative;
+				break;
+			}
+			case SIN:
+				t[sp] *= Math.cos(s[sp]);
+				s[sp] = Math.sin(s[sp]);
+				break;
+			case ASIN:
+				t[sp] /= Math.sqrt(1 - s[sp] * s[sp]);
+				s[sp] = Math.asin(s[sp]);
+				break;
+			case COS:
+				t[sp] *= -Math.sin(s[sp]);
+				s[sp] = Math.cos(s[sp]);
+				break;
+			case ACOS:
+				t[sp] /= -Math.sqrt(1 - s[sp] * s[sp]);
+				s[sp] = Math.acos(s[sp]);
+				break;
+			case TAN: {
+				final double tan = Math.tan(s[sp]);
+				t[sp] *= 1 + tan * tan;
+				s[sp] = tan;
+				break;
+			}
+			case ATAN:
+				t[sp] /= 1 + s[sp] * s[sp];
+				s[sp] = Math.atan(s[sp]);
+				break;
+			case LN:
+				t[sp] /= s[sp];
+				s[sp] = Math.log(s[sp]);
+				break;
+			case ABS:
+				t[sp] *= Math.signum(s[sp]);
+				s[sp] = Math.abs(s[sp]);
+				break;
+			case SQRT:
+				s[sp] = Math.sqrt(s[sp]);
+				t[sp] /= 2 * s[sp];
+				break;
+			case STORE: {
+				final int register = c[pc++];
+				this.registers[register] = s[sp];
+				this.tangentRegisters[register] = t[sp];
+				break;
+			}
+			case RECALL: {
+				final int register = c[pc++];
+				s[++sp] = this.registers[register];
+				t[sp] = this.tangentRegisters[register];
+				break;
+			}
+			default:
+				//Cannot happen (the program has been verified)
+				throw new IllegalStateException();
+			}
+		}
+		return new DualNumber(s[0], t[0]);
+	}
+	
+	/**
+	 * Evaluates the program and its gradient, in a single forward and backward sweep.
+	 * The cost does not depend on the number of variables, and no object is allocated,
+	 * thus it is suitable for evaluating gradients at many points.
+	 * @param values the values of the variables, in the order of their slots
+	 * @param gradient the array which receives the partial derivatives, in the same order
+	 * @return the value of the program
+	 * @throws IllegalArgumentException if the number of values does not match
+	 * the number of variables, or if the gradient array is too short
+	 */
+	public double applyWithGradient(final double[] values, final double[] gradient) {
+		if (values.length != this.variables.size()) {
+			throw new IllegalArgumentException("Expected " + this.variables.size() + " values");
+		}
+		if (gradient.length < values.length) {
+			throw new IllegalArgumentException("The gradient array is too short");
+		}
+		if (this.tape == null) {
+			this.tape = new Tape(this.code, this.constants, this.registers.length);
+		}
+		return this.tape.run(values, gradient);
+	}
+	
+	/**
+	 * Computes the Taylor coefficients of the program with respect to one of the variables,
+	 * in a single pass: each value on the stack is replaced by a truncated power series.
+	 * The k-th coefficient is the k-th derivative divided by k!.
+	 * @param slot the slot of the independent variable
+	 * @param order the order of the expansion
+	 * @param values the values of the variables (the point of expansion)
+	 * @return the coefficients, from the constant term to the one of degree order
+	 * @throws IllegalArgumentException if the number of values does not match
+	 * the number of variables, if the slot is out of range or if the order is negative
+	 */
+	public double[] applyTaylor(final int slot, final int order, final double... values) { //NOPMD
+		if (values.length != this.variables.size()) {
+			throw new IllegalArgumentException("Expected " + this.variables.size() + " values");
+		}
+		Program.checkIndex(slot, values.length);
+		if (order < 0) {
+			throw new IllegalArgumentException("The order must not be negative");
+		}
+		final int length = order + 1;
+		final int[] c = this.code;
+		final double[][] s = new double[this.stack.length][];
+		final double[][] r = new double[this.registers.length][];
+		int sp = -1;
+		int pc = 0;
+		while (pc < c.length) {
+			switch (c[pc++]) {
+			case CONST:
+				s[++sp] = PowerSeries.constant(this.constants[c[pc++]], length);
+				break;
+			case LOAD: {
+				final int index = c[pc++];
+				s[++sp] = PowerSeries.constant(values[index], length);
+				if (index == slot && length > 1) {
+					//The independent variable is x0 + t
+					s[sp][1] = 1;
+				}
+				break;
+			}
+			case ADD: {
+				final int base = sp - c[pc++] + 1;
+				for (int i = base + 1; i <= sp; i++) {
+					s[base] = PowerSeries.add(s[base], s[i]);
+				}
+				sp = base;
+				break;
+			}
+			case MUL: {
+				final int base = sp - c[pc++] + 1;
+				for (int i = base + 1; i <= sp; i++) {
+					s[base] = PowerSeries.multiply(s[base], s[i]);
+				}
+				sp = base;
+				break;
+			}
+			case DIV:
+				sp--;
+				s[sp] = PowerSeries.divide(s[sp], s[sp + 1]);
+				break;
+			case POW:
+				sp--;
+				s[sp] = PowerSeries.power(s[sp], s[sp + 1]);
+				break;
+			case SIN:
+				s[sp] = PowerSeries.sin(s[sp]);
+				break;
+			case ASIN:
+				s[sp] = PowerSeries.asin(s[sp]);
+				break;
+			case COS:
+				s[sp] = PowerSeries.cos(s[sp]);
+				break;
+			case ACOS:
+				s[sp] = PowerSeries.acos(s[sp]);
+				break;
+			case TAN:
+				s[sp] = PowerSeries.tan(s[sp]);
+				break;
+			case ATAN:
+				s[sp] = PowerSeries.atan(s[sp]);
+				break;
+			case LN:
+				s[sp] = PowerSeries.ln(s[sp]);
+				break;
+			case ABS:
+				s[sp] = PowerSeries.abs(s[sp]);
+				break;
+			case SQRT:
+				s[sp] = PowerSeries.sqrt(s[sp]);
+				break;
+			case STORE:
+				//The series are never modified in place, thus they can be shared
+				r[c[pc++]] = s[sp];
+				break;
+			case RECALL:
+				s[++sp] = r[c[pc++]];
+				break;
+			default:
+				//Cannot happen (the program has been verified)
+				throw new IllegalStateException();
+			}
+		}
+		return s[0];
+	}
+	
+	@Override
+	public void applyBatch(final double[][] columns, final double[] out) {
+		if (columns.length != this.variables.size()) {
+			throw new IllegalArgumentException("Expected " + this.variables.size() + " columns");
+		}
+		for (final double[] column : columns) {
+			if (column.length < out.length) {
+				throw new IllegalArgumentException("Column shorter than the output");
+			}
+		}
+		if (this.blockStack == null) {
+			this.blockStack = new double[this.stack.length][BLOCK_SIZE];
+			this.blockRegisters = new double[this.registers.length][BLOCK_SIZE];
+		}
+		for (int start = 0; start < out.length; start += BLOCK_SIZE) {
+			final int rows = Math.min(BLOCK_SIZE, out.length - start);
+			this.runBlock(columns, start, rows);
+			System.arraycopy(this.blockStack[0], 0, out, start, rows);
+		}
+	}
+	
+	/*
+	 * Runs the program on the given rows. The result is left in the first block of the stack.
+	 * Every loop has the same shape (one array, or two arrays, indexed from 0 to rows),
+	 * so that it can be unrolled and vectorized.
+	 */
+	private void runBlock(final double[][] columns, final int start, final int rows) { //NOPMD
+		final int[] c = this.code;
+		final double[][] s = this.blockStack;
+		int sp = -1;
+		int pc = 0;
+		while (pc < c.length) {
+			switch (c[pc++]) {
+			case CONST:
+				Arrays.fill(s[++sp], 0, rows, this.constants[c[pc++]]);
+				break;
+			case LOAD:
+				System.arraycopy(columns[c[pc++]], start, s[++sp], 0, rows);
+				break;
+			case ADD: {
+				final int base = sp - c[pc++] + 1;
+				final double[] a = s[base];
+				for (int k = base + 1; k <= sp; k++) {
+					final double[] b = s[k];
+					for (int i = 0; i < rows; i++) {
+						a[i] += b[i];
+					}
+				}
+				sp = base;
+				break;
+			}
+			case MUL: {
+				final int base = sp - c[pc++] + 1;
+				final double[] a = s[base];
+				for (int k = base + 1; k <= sp; k++) {
+					final double[] b = s[k];
+					for (int i = 0; i < rows; i++) {
+						a[i] *= b[i];
+					}
+				}
+				sp = base;
+				break;
+			}
+			case DIV: {
+				sp--;
+				final double[] a = s[sp];
+				final double[] b = s[sp + 1];
+				for (int i = 0; i < rows; i++) {
+					a[i] /= b[i];
+				}
+				break;
+			}
+			case POW: {
+				sp--;
+				final double[] a = s[sp];
+				final double[] b = s[sp + 1];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.pow(a[i], b[i]);
+				}
+				break;
+			}
+			case SIN: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.sin(a[i]);
+				}
+				break;
+			}
+			case ASIN: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.asin(a[i]);
+				}
+				break;
+			}
+			case COS: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.cos(a[i]);
+				}
+				break;
+			}
+			case ACOS: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.acos(a[i]);
+				}
+				break;
+			}
+			case TAN: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.tan(a[i]);
+				}
+				break;
+			}
+			case ATAN: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.atan(a[i]);
+				}
+				break;
+			}
+			case LN: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.log(a[i]);
+				}
+				break;
+			}
+			case ABS: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.abs(a[i]);
+				}
+				break;
+			}
+			case SQRT: {
+				final double[] a = s[sp];
+				for (int i = 0; i < rows; i++) {
+					a[i] = Math.sqrt(a[i]);
+				}
+				break;
+			}
+			case STORE:
+				System.arraycopy(s[sp], 0, this.blockRegisters[c[pc++]], 0, rows);
+				break;
+			case RECALL:
+				System.arraycopy(this.blockRegisters[c[pc++]], 0, s[++sp], 0, rows);
+				break;
+			default:
+				//Cannot happen (the program has been verified)
+				throw new IllegalStateException();
+			}
+		}
+	}
+	
+	/**
+	 * Converts this program to its binary representation.
+	 * @return an array of bytes which can be restored with {@link #fromBytes(byte[])}
+	 */
+	public byte[] toBytes() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(FORMAT_VERSION);
+			out.writeInt(this.variables.size());
+			for (final String v : this.variables) {
+				out.writeUTF(v);
+			}
+			out.writeInt(this.constants.length);
+			for (final double c : this.constants) {
+				out.writeDouble(c);
+			}
+			out.writeInt(this.code.length);
+			for (final int i : this.code) {
+				out.writeInt(i);
+			}
+		} catch (final IOException e) {
+			//Should never happen (in-memory stream)
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Restores a program from its binary representation.
+	 * @param bytes the output of {@link #toBytes()}
+	 * @return the restored program
+	 * @throws IllegalArgumentException if the bytes do not represent a valid program
+	 */
+	public static Program fromBytes(final byte[] bytes) {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		try {
+			if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+				throw new IllegalArgumentException("Unknown program format");
+			}
+			final int variableCount = Program.readLength(in, bytes.length);
+			final List<String> variableOrder = new ArrayList<>(variableCount);
+			for (int i = 0; i < variableCount; i++) {
+				variableOrder.add(in.readUTF());
+			}
+			final double[] constantPool = new double[Program.readLength(in, bytes.length)];
+			for (int i = 0; i < constantPool.length; i++) {
+				constantPool[i] = in.readDouble();
+			}
+			final int[] instructions = new int[Program.readLength(in, bytes.length)];
+			for (int i = 0; i < instructions.length; i++) {
+				instructions[i] = in.readInt();
+			}
+			if (in.available() > 0) {
+				throw new IllegalArgumentException("Trailing bytes after the program");
+			}
+			return new Program(variableOrder, instructions, constantPool);
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("Truncated program", e);
+		}
+	}
+	
+	private static int readLength(final DataInputStream in, final int limit) throws IOException {
+		final int length = in.readInt();
+		if (length < 0 || length > limit) {
+			throw new IllegalArgumentException("Invalid length " + length);
+		}
+		return length;
+	}
+	
+	@Override
+	public String toString() {
+		return "Program" + this.variables + Arrays.toString(this.code);
+	}
+}
@@ -0,0 +1,251 @@
+package org.converger.framework.compiler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.converger.framework.Environment;
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.Function;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+
+/**
+ * This visitor flattens an expression to a postfix {@link Program}.
+ * The children of each node are emitted before the node itself.
+ * Subexpressions which appear more than once are calculated only once,
+ * and then recalled from a register.
+ * Throws {@link java.util.NoSuchElementException} if a variable with no slot is found.
+ * @author Dario Pavllo
+ */
+public class ProgramCompiler implements
+	Expression.Visitor<Void>,
+	BinaryOperator.Visitor<Void>,
+	NAryOperator.Visitor<Void>,
+	Function.Visitor<Void> {
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private final List<String> variables;
+	private final Map<String, Integer> slots;
+	private final Map<Long, Integer> constantIndices;
+	private double[] constants;
+	private int constantCount;
+	private int[] code;
+	private int length;
+	private SharedSubexpressions shared;
+	private boolean[] stored;
+	
+	/**
+	 * @param variableOrder the variables, in the order of their slots
+	 * @throws IllegalArgumentException if a variable appears more than once
+	 */
+	public ProgramCompiler(final List<String> variableOrder) {
+		this.variables = variableOrder;
+		this.slots = ClosureCompiler.buildSlots(variableOrder);
+		this.constantIndices = new HashMap<>();
+	}
+	
+	/**
+	 * Compiles the given expression.
+	 * @param e the expression to compile
+	 * @return a program which evaluates the expression
+	 */
+	public Program compile(final Expression e) {
+		this.constantIndices.clear();
+		this.constants = new double[INITIAL_CAPACITY];
+		this.constantCount = 0;
+		this.code = new int[INITIAL_CAPACITY];
+		this.length = 0;
+		this.shared = new SharedSubexpressions(e);
+		this.stored = new boolean[this.shared.getRegisterCount()];
+		this.visit(e);
+		return new Program(this.variables,
+			Arrays.copyOf(this.code, this.length),
+			Arrays.copyOf(this.constants, this.constantCount));
+	}
+	
+	private void emit(final int... words) {
+		if (this.length + words.length > this.code.length) {
+			this.code = Arrays.copyOf(this.code, Math.max(this.code.length * 2, this.length + words.length));
+		}
+		for (final int w : words) {
+			this.code[this.length++] = w;
+		}
+	}
+	
+	private void emitConstant(final double value) {
+		//Identical constants share the same entry of the pool
+		final Integer index = this.constantIndices.computeIfAbsent(Double.doubleToRawLongBits(value), x -> {
+			if (this.constantCount == this.constants.length) {
+				this.constants = Arrays.copyOf(this.constants, this.constants.length * 2);
+			}
+			this.constants[this.constantCount] = value;
+			return this.constantCount++;
+		});
+		this.emit(Program.CONST, index);
+	}
+	
+	@Override
+	public Void visit(final Expression v) {
+		final int register = this.shared.getRegister(v);
+		if (register < 0) {
+			return v.accept(this);
+		}
+		if (this.stored[register]) {
+			this.emit(Program.RECALL, register);
+		} else {
+			v.accept(this);
+			this.emit(Program.STORE, register);
+			this.stored[register] = true;
+		}
+		return null;
+	}
+	
+	@Override
+	public Void visit(final Variable v) {
+		final Environment env = Environment.getSingleton();
+		if (env.hasConstant(v.getName())) {
+			//Mathematical constants (like e or pi) are folded directly
+			this.emitConstant(env.getConstant(v.getName()).getValue());
+			return null;
+		}
+		if (!this.slots.containsKey(v.getName())) {
+			throw new NoSuchElementException("No value set for variable " + v.getName());
+		}
+		this.emit(Program.LOAD, this.slots.get(v.getName()));
+		return null;
+	}
+	
+	@Override
+	public Void visit(final Constant v) {
+		this.emitConstant(v.getValue());
+		return null;
+	}
+	
+	@Override
+	public Void visit(final BinaryOperation v) {
+		return v.getOperator().accept(this,
+				this.visit(v.getFirstOperand()),
+				this.visit(v.getSecondOperand()));
+	}
+	
+	@Override
+	public Void visit(final NAryOperation v) {
+		final List<Void> operands = v.getOperands()
+			.stream()
+			.map(x -> this.visit(x))
+			.collect(Collectors.toList());
+		
+		return v.getOperator().accept(this, operands);
+	}
+	
+	@Override
+	public Void visit(final FunctionOperation v) {
+		return v.getFunction().accept(this,
+				this.visit(v.getArgument()));
+	}
+	
+	@Override
+	public Void visit(final Equation v) {
+		throw new UnsupportedOperationException("Cannot evaluate an equation");
+	}
+	
+	/*------------------
+	 * Binary operators
+	 *-----------------*/
+	
+	@Override
+	public Void visitDivision(final Void o1, final Void o2) {
+		this.emit(Program.DIV);
+		return null;
+	}
+	
+	@Override
+	public Void visitPower(final Void o1, final Void o2) {
+		this.emit(Program.POW);
+		return null;
+	}
+	
+	/*-----------------
+	 * N-ary operators
+	 *-----------------*/
+	
+	@Override
+	public Void visitAddition(final List<Void> operands) {
+		this.emit(Program.ADD, operands.size());
+		return null;
+	}
+	
+	@Override
+	public Void visitProduct(final List<Void> operands) {
+		this.emit(Program.MUL, operands.size());
+		return null;
+	}
+	
+	/*-----------
+	 * Functions
+	 *-----------*/
+	
+	@Override
+	public Void visitSin(final Void arg) {
+		this.emit(Program.SIN);
+		return null;
+	}
+	
+	@Override
+	public Void visitArcsin(final Void arg) {
+		this.emit(Program.ASIN);
+		return null;
+	}
+	
+	@Override
+	public Void visitCos(final Void arg) {
+		this.emit(Program.COS);
+		return null;
+	}
+	
+	@Override
+	public Void visitArccos(final Void arg) {
+		this.emit(Program.ACOS);
+		return null;
+	}
+	
+	@Override
+	public Void visitTan(final Void arg) {
+		this.emit(Program.TAN);
+		return null;
+	}
+	
+	@Override
+	public Void visitArctan(final Void arg) {
+		this.emit(Program.ATAN);
+		return null;
+	}
+	
+	@Override
+	public Void visitLn(final Void arg) {
+		this.emit(Program.LN);
+		return null;
+	}
+	
+	@Override
+	public Void visitAbs(final Void arg) {
+		this.emit(Program.ABS);
+		return null;
+	}
+	
+	@Override
+	public Void visitSqrt(final Void arg) {
+		this.emit(Program.SQRT);
+		return null;
+	}
+}
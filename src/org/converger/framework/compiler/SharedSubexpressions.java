@@ -0,0 +1,115 @@
+package org.converger.framework.compiler;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.Variable;
+
+/**
+ * Finds the subexpressions which appear more than once in an expression,
+ * as if the tree were turned into a directed acyclic graph.
+ * Each of them is assigned a register, so that the compiled code can
+ * calculate it only once per evaluation: the first occurrence (in evaluation order)
+ * stores its value, and the following ones load it.
+ * Leaves are never shared, since loading them is as cheap as loading a register.
+ * @author Dario Pavllo
+ */
+final class SharedSubexpressions implements Expression.Visitor<Boolean> {
+	
+	private final Map<Expression, Integer> occurrences = new LinkedHashMap<>();
+	private final Map<Expression, Integer> registers = new HashMap<>();
+	
+	/**
+	 * Analyzes the given expression.
+	 * @param e the expression to analyze
+	 */
+	SharedSubexpressions(final Expression e) {
+		this.visit(e);
+		//Registers are numbered in order of first occurrence
+		this.occurrences.forEach((x, count) -> {
+			if (count > 1) {
+				this.registers.put(x, this.registers.size());
+			}
+		});
+	}
+	
+	/**
+	 * Returns the number of registers needed to evaluate the expression.
+	 * @return the number of shared subexpressions
+	 */
+	int getRegisterCount() {
+		return this.registers.size();
+	}
+	
+	/**
+	 * Returns the register assigned to the given subexpression.
+	 * @param e a subexpression of the analyzed expression
+	 * @return the register index, or -1 if the subexpression is not shared
+	 */
+	int getRegister(final Expression e) {
+		final Integer register = this.registers.get(e);
+		return register == null ? -1 : register;
+	}
+	
+	/*
+	 * Counts the occurrences of each subexpression. The children of a subexpression
+	 * which has already been seen are not visited again, since they will not be evaluated again.
+	 * Returns whether the visited subexpression can be shared.
+	 */
+	@Override
+	public Boolean visit(final Expression v) {
+		final Integer count = this.occurrences.get(v);
+		if (count != null) {
+			this.occurrences.put(v, count + 1);
+			return true;
+		}
+		if (v.accept(this)) {
+			this.occurrences.put(v, 1);
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public Boolean visit(final Variable v) {
+		return false;
+	}
+	
+	@Override
+	public Boolean visit(final Constant v) {
+		return false;
+	}
+	
+	@Override
+	public Boolean visit(final BinaryOperation v) {
+		this.visit(v.getFirstOperand());
+		this.visit(v.getSecondOperand());
+		return true;
+	}
+	
+	@Override
+	public Boolean visit(final FunctionOperation v) {
+		this.visit(v.getArgument());
+		return true;
+	}
+	
+	@Override
+	public Boolean visit(final NAryOperation v) {
+		v.getOperands().forEach(this::visit);
+		return true;
+	}
+	
+	@Override
+	public Boolean visit(final Equation v) {
+		this.visit(v.getFirstMember());
+		this.visit(v.getSecondMember());
+		return false;
+	}
+}
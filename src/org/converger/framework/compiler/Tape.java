@@ -0,0 +1,286 @@
+package org.converger.framework.compiler;
+
+import java.util.Arrays;
+
+/**
+ * The tape used by a {@link Program} to compute gradients (reverse-mode
+ * automatic differentiation).
+ * The program is unrolled once into a graph of nodes, one for each instruction
+ * which produces a value: a recalled register refers to the node which has been
+ * stored, thus shared subexpressions are evaluated and differentiated once.
+ * The gradient is computed by a forward sweep, which records the value of each node,
+ * followed by a backward sweep, which accumulates the adjoints from the root to the leaves.
+ * Only the nodes which depend on some variable receive an adjoint.
+ * @author Dario Pavllo
+ */
+final class Tape {
+	
+	private final double[] constants;
+	/* The nodes, in evaluation order (the last one is the root) */
+	private final int[] opcodes;
+	/** The operand of the instruction (constant index, variable slot or operand count) */
+	private final int[] arguments;
+	/** The position of the first operand of each node in the operand list */
+	private final int[] operandStarts;
+	private final int[] operands;
+	/** Whether the node depends on some variable */
+	private final boolean[] active;
+	/** The values of the nodes (forward sweep) */
+	private final double[] values;
+	/** The adjoints of the nodes (backward sweep) */
+	private final double[] adjoints;
+	/** Partial products of n-ary multiplications */
+	private final double[] scratch;
+	
+	/**
+	 * Unrolls a verified program.
+	 * @param code the instructions of the program
+	 * @param constantPool the constant pool of the program
+	 * @param registerCount the number of registers used by the program
+	 */
+	Tape(final int[] code, final double[] constantPool, final int registerCount) {
+		this.constants = constantPool;
+		final int[] ops = new int[code.length];
+		final int[] args = new int[code.length];
+		final int[] starts = new int[code.length + 1];
+		final int[] operandList = new int[code.length];
+		int operandCount = 0;
+		int count = 0;
+		
+		//The stack and the registers contain node indices
+		final int[] stack = new int[code.length];
+		final int[] registers = new int[registerCount];
+		int sp = -1;
+		int maxOperands = 0;
+		int pc = 0;
+		while (pc < code.length) {
+			final int opcode = code[pc++];
+			if (opcode == Program.STORE) {
+				registers[code[pc++]] = stack[sp];
+				continue;
+			}
+			if (opcode == Program.RECALL) {
+				stack[++sp] = registers[code[pc++]];
+				continue;
+			}
+			final int arity;
+			switch (opcode) {
+			case Program.CONST:
+			case Program.LOAD:
+				args[count] = code[pc++];
+				arity = 0;
+				break;
+			case Program.ADD:
+			case Program.MUL:
+				args[count] = code[pc++];
+				arity = args[count];
+				break;
+			case Program.DIV:
+			case Program.POW:
+				arity = 2;
+				break;
+			default:
+				//Functions
+				arity = 1;
+			}
+			maxOperands = Math.max(maxOperands, arity);
+			ops[count] = opcode;
+			starts[count] = operandCount;
+			sp -= arity;
+			for (int i = 1; i <= arity; i++) {
+				operandList[operandCount++] = stack[sp + i];
+			}
+			stack[++sp] = count++;
+		}
+		starts[count] = operandCount;
+		
+		this.opcodes = Arrays.copyOf(ops, count);
+		this.arguments = Arrays.copyOf(args, count);
+		this.operandStarts = Arrays.copyOf(starts, count + 1);
+		this.operands = Arrays.copyOf(operandList, operandCount);
+		this.active = new boolean[count];
+		for (int k = 0; k < count; k++) {
+			boolean a = this.opcodes[k] == Program.LOAD;
+			for (int i = this.operandStarts[k]; i < this.operandStarts[k + 1]; i++) {
+				a |= this.active[this.operands[i]];
+			}
+			this.active[k] = a;
+		}
+		this.values = new double[count];
+		this.adjoints = new double[count];
+		this.scratch = new double[maxOperands];
+	}
+	
+	/**
+	 * Evaluates the program and its gradient.
+	 * @param point the values of the variables
+	 * @param gradient the array which receives the partial derivatives,
+	 * in the order of the variables
+	 * @return the value of the program
+	 */
+	double run(final double[] point, final double[] gradient) {
+		this.forward(point);
+		Arrays.fill(gradient, 0, point.length, 0);
+		Arrays.fill(this.adjoints, 0);
+		final int root = this.opcodes.length - 1;
+		this.adjoints[root] = 1;
+		for (int k = root; k >= 0; k--) {
+			if (this.active[k] && this.adjoints[k] != 0) {
+				this.backward(k, gradient);
+			}
+		}
+		return this.values[root];
+	}
+	
+	private void forward(final double[] point) { //NOPMD
+		final double[] v = this.values;
+		for (int k = 0; k < this.opcodes.length; k++) {
+			final int first = this.operandStarts[k];
+			final int end = this.operandStarts[k + 1];
+			final double x = end > first ? v[this.operands[first]] : 0;
+			switch (this.opcodes[k]) {
+			case Program.CONST:
+				v[k] = this.constants[this.arguments[k]];
+				break;
+			case Program.LOAD:
+				v[k] = point[this.arguments[k]];
+				break;
+			case Program.ADD: {
+				double sum = x;
+				for (int i = first + 1; i < end; i++) {
+					sum += v[this.operands[i]];
+				}
+				v[k] = sum;
+				break;
+			}
+			case Program.MUL: {
+				double product = x;
+				for (int i = first + 1; i < end; i++) {
+					product *= v[this.operands[i]];
+				}
+				v[k] = product;
+				break;
+			}
+			case Program.DIV:
+				v[k] = x / v[this.operands[first + 1]];
+				break;
+			case Program.POW:
+				v[k] = Math.pow(x, v[this.operands[first + 1]]);
+				break;
+			case Program.SIN:
+				v[k] = Math.sin(x);
+				break;
+			case Program.ASIN:
+				v[k] = Math.asin(x);
+				break;
+			case Program.COS:
+				v[k] = Math.cos(x);
+				break;
+			case Program.ACOS:
+				v[k] = Math.acos(x);
+				break;
+			case Program.TAN:
+				v[k] = Math.tan(x);
+				break;
+			case Program.ATAN:
+				v[k] = Math.atan(x);
+				break;
+			case Program.LN:
+				v[k] = Math.log(x);
+				break;
+			case Program.ABS:
+				v[k] = Math.abs(x);
+				break;
+			case Program.SQRT:
+				v[k] = Math.sqrt(x);
+				break;
+			default:
+				//Cannot happen (the program has been verified)
+				throw new IllegalStateException();
+			}
+		}
+	}
+	
+	/*
+	 * Propagates the adjoint of a node to its operands.
+	 */
+	private void backward(final int k, final double[] gradient) { //NOPMD
+		final double[] v = this.values;
+		final double adjoint = this.adjoints[k];
+		final int first = this.operandStarts[k];
+		final int end = this.operandStarts[k + 1];
+		final int a = end > first ? this.operands[first] : -1;
+		switch (this.opcodes[k]) {
+		case Program.LOAD:
+			gradient[this.arguments[k]] += adjoint;
+			break;
+		case Program.ADD:
+			for (int i = first; i < end; i++) {
+				this.adjoints[this.operands[i]] += adjoint;
+			}
+			break;
+		case Program.MUL: {
+			//The partial derivative is the product of the other operands
+			double left = 1;
+			for (int i = first; i < end; i++) {
+				this.scratch[i - first] = left;
+				left *= v[this.operands[i]];
+			}
+			double right = 1;
+			for (int i = end - 1; i >= first; i--) {
+				this.adjoints[this.operands[i]] += adjoint * this.scratch[i - first] * right;
+				right *= v[this.operands[i]];
+			}
+			break;
+		}
+		case Program.DIV: {
+			final int b = this.operands[first + 1];
+			this.adjoints[a] += adjoint / v[b];
+			if (this.active[b]) {
+				this.adjoints[b] -= adjoint * v[k] / v[b];
+			}
+			break;
+		}
+		case Program.POW: {
+			//The terms are skipped when they are constant, so that negative bases are allowed
+			final int b = this.operands[first + 1];
+			if (this.active[a]) {
+				this.adjoints[a] += adjoint * v[b] * Math.pow(v[a], v[b] - 1);
+			}
+			if (this.active[b]) {
+				this.adjoints[b] += adjoint * v[k] * Math.log(v[a]);
+			}
+			break;
+		}
+		case Program.SIN:
+			this.adjoints[a] += adjoint * Math.cos(v[a]);
+			break;
+		case Program.ASIN:
+			this.adjoints[a] += adjoint / Math.sqrt(1 - v[a] * v[a]);
+			break;
+		case Program.COS:
+			this.adjoints[a] -= adjoint * Math.sin(v[a]);
+			break;
+		case Program.ACOS:
+			this.adjoints[a] -= adjoint / Math.sqrt(1 - v[a] * v[a]);
+			break;
+		case Program.TAN:
+			this.adjoints[a] += adjoint * (1 + v[k] * v[k]);
+			break;
+		case Program.ATAN:
+			this.adjoints[a] += adjoint / (1 + v[a] * v[a]);
+			break;
+		case Program.LN:
+			this.adjoints[a] += adjoint / v[a];
+			break;
+		case Program.ABS:
+			this.adjoints[a] += adjoint * Math.signum(v[a]);
+			break;
+		case Program.SQRT:
+			this.adjoints[a] += adjoint / (2 * v[k]);
+			break;
+		default:
+			//Constants have no operands
+		}
+	}
+}
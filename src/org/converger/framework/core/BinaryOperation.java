@@ -11,6 +11,8 @@ public class BinaryOperation implements Expression {
 	private final Expression firstOperand;
 	private final Expression secondOperand;
 	private final BinaryOperator operator;
+	/** The fingerprint is calculated once, since the tree is immutable */
+	private final long fingerprint;
 	
 	/**
 	 * @param op the operator of this binary operation
@@ -23,6 +25,9 @@ public class BinaryOperation implements Expression {
 		this.firstOperand = operand1;
 		this.secondOperand = operand2;
 		this.operator = op;
+		this.fingerprint = Fingerprints.combine(Fingerprints.combine(
+			Fingerprints.start(Fingerprints.BINARY, op.ordinal()),
+			operand1.getFingerprint()), operand2.getFingerprint());
 	}
 	
 	/**
@@ -54,6 +59,11 @@ public class BinaryOperation implements Expression {
 		return v.visit(this);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return "(" + this.firstOperand + this.operator.getSymbol() + this.secondOperand + ")";
@@ -61,9 +71,13 @@ public class BinaryOperation implements Expression {
 	
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BinaryOperation) {
 			final BinaryOperation o = (BinaryOperation) obj;
-			return this.operator == o.operator
+			return this.fingerprint == o.fingerprint
+				&& this.operator == o.operator
 				&& this.firstOperand.equals(o.firstOperand)
 				&& this.secondOperand.equals(o.secondOperand);
 		}
@@ -72,9 +86,7 @@ public class BinaryOperation implements Expression {
 	
 	@Override
 	public int hashCode() {
-		return this.firstOperand.hashCode()
-			^ this.secondOperand.hashCode()
-			^ this.operator.hashCode();
+		return Fingerprints.toHashCode(this.fingerprint);
 	}
 	
 }
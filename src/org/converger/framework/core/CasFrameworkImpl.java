@@ -1,24 +1,47 @@
 package org.converger.framework.core;
 
-
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EmptyStackException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
 
 import org.converger.framework.AbortedException;
 import org.converger.framework.CasFramework;
+import org.converger.framework.DualNumber;
+import org.converger.framework.EvaluationBackend;
 import org.converger.framework.Expression;
+import org.converger.framework.Gradient;
+import org.converger.framework.IntegrationMethod;
+import org.converger.framework.IntegrationResult;
+import org.converger.framework.PreparedExpression;
+import org.converger.framework.SimplificationMode;
 import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.algorithms.BracketingSolver;
 import org.converger.framework.algorithms.NumericalIntegrator;
 import org.converger.framework.algorithms.NumericalSolver;
 import org.converger.framework.algorithms.TaylorSeries;
+import org.converger.framework.compiler.BytecodeCompiler;
+import org.converger.framework.compiler.ClosureCompiler;
+import org.converger.framework.compiler.Program;
+import org.converger.framework.compiler.ProgramCompiler;
+import org.converger.framework.polynomials.Expander;
+import org.converger.framework.polynomials.Polynomial;
+import org.converger.framework.saturation.SaturationSimplifier;
 import org.converger.framework.visitors.BasicPrinter;
 import org.converger.framework.visitors.Collector;
 import org.converger.framework.visitors.ConstantFolder;
 import org.converger.framework.visitors.Differentiator;
 import org.converger.framework.visitors.Evaluator;
 import org.converger.framework.visitors.LatexPrinter;
+import org.converger.framework.visitors.Normalizer;
 import org.converger.framework.visitors.RationalSimplifier;
 import org.converger.framework.visitors.AlgebraicSimplifier;
 import org.converger.framework.visitors.Substitutor;
@@ -33,6 +56,16 @@ import org.converger.framework.visitors.VariableEnumerator;
 public final class CasFrameworkImpl implements CasFramework {
 
 	private volatile boolean aborted = false; //NOPMD
+	private final SimplificationCache cache;
+	private final ProgramCache programs = new ProgramCache();
+	
+	/**
+	 * Builds a framework instance.
+	 * @param simplificationCache the cache of the simplified expressions (it can be shared)
+	 */
+	public CasFrameworkImpl(final SimplificationCache simplificationCache) {
+		this.cache = simplificationCache;
+	}
 	
 	@Override
 	public Expression parse(final String input) throws SyntaxErrorException {
@@ -54,18 +87,72 @@ public final class CasFrameworkImpl implements CasFramework {
 
 	@Override
 	public Expression simplify(final Expression input) {
-		Expression current = input;
+		return this.simplify(input, SimplificationMode.PIPELINE);
+	}
+	
+	@Override
+	public Expression simplify(final Expression input, final SimplificationMode mode) {
+		final Optional<Expression> cached = this.cache.get(input, mode);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		final Expression result = mode == SimplificationMode.FUSED
+			? this.normalize(input)
+			: this.runPipeline(input);
+		this.cache.put(input, mode, result);
+		return result;
+	}
+	
+	@Override
+	public Expression simplifyBySaturation(final Expression input,
+			final int nodeBudget, final long timeBudgetMillis) {
+		//The results are not cached, since they depend on the budgets
+		final SaturationSimplifier simplifier = new SaturationSimplifier(nodeBudget, timeBudgetMillis);
+		final Expression result = simplifier.simplify(input);
+		this.interruptionCheck();
+		return ExpressionInterner.getSingleton().intern(result);
+	}
+	
+	private Expression normalize(final Expression input) {
+		final ExpressionInterner interner = ExpressionInterner.getSingleton();
+		Expression current = interner.intern(input);
+		Expression previous;
+		//Each traversal rewrites a node only once, thus a rewrite of an ancestor can
+		//enable new rewrites of its descendants: the traversals are repeated, with
+		//a new memory of normal forms, until the tree no longer changes
+		do {
+			previous = current;
+			current = interner.intern(new Normalizer().visit(current));
+			this.interruptionCheck();
+		} while (!previous.equals(current));
+		return current;
+	}
+	
+	private Expression runPipeline(final Expression input) {
+		final ExpressionInterner interner = ExpressionInterner.getSingleton();
+		Expression current = interner.intern(input);
 		Expression previous;
 		
-		//Iterative simplification: the process is repeated until the tree no longer changes
+		//The subtrees which are left unchanged by each pass: they are not visited again
+		//by that pass, so that only the rewritten parts of the tree (and their ancestors)
+		//are traversed in the following iterations
+		final Set<Expression> leveled = new HashSet<>();
+		final Set<Expression> simplified = new HashSet<>();
+		final Set<Expression> rationalized = new HashSet<>();
+		final Set<Expression> collected = new HashSet<>();
+		final Set<Expression> folded = new HashSet<>();
+		final Set<Expression> sorted = new HashSet<>();
+		
+		//Iterative simplification: the process is repeated until the tree no longer changes.
+		//The trees are interned, so that equal trees are usually the same object
 		do {
 			previous = current;
-			current = new TreeLeveler().visit(current);
-			current = new AlgebraicSimplifier().visit(current);
-			current = new RationalSimplifier().visit(current);
-			current = new Collector().visit(current);
-			current = new ConstantFolder().visit(current);
-			current = new TreeSorter().visit(current);
+			current = new TreeLeveler(leveled).visit(current);
+			current = new AlgebraicSimplifier(simplified).visit(current);
+			current = new RationalSimplifier(rationalized).visit(current);
+			current = new Collector(collected).visit(current);
+			current = new ConstantFolder(folded).visit(current);
+			current = interner.intern(new TreeSorter(sorted).visit(current));
 			this.interruptionCheck();
 		} while (!previous.equals(current));
 		
@@ -87,6 +174,16 @@ public final class CasFrameworkImpl implements CasFramework {
 		final Expression result = d.visit(this.simplify(input));
 		return this.simplify(result);
 	}
+	
+	@Override
+	public Optional<Polynomial> toPolynomial(final Expression input, final String variable) {
+		return Polynomial.fromExpression(input, variable);
+	}
+	
+	@Override
+	public Expression expand(final Expression input) {
+		return Expander.expand(input);
+	}
 
 	@Override
 	public double evaluate(final Expression input, final Map<String, Double> values) {
@@ -101,25 +198,129 @@ public final class CasFrameworkImpl implements CasFramework {
 		return new Evaluator(finalMap).visit(input);
 	}
 	
+	@Override
+	public DualNumber evaluateWithDerivative(final Expression input, final String variable,
+			final Map<String, Double> values) {
+		if (!values.containsKey(variable)) {
+			throw new NoSuchElementException("No value set for variable " + variable);
+		}
+		final List<String> order = new ArrayList<>(values.keySet());
+		final double[] point = order.stream().mapToDouble(values::get).toArray();
+		this.interruptionCheck();
+		final Program program = this.programs.acquire(input, order);
+		final DualNumber result = program.applyWithDerivative(order.indexOf(variable), point);
+		this.programs.release(input, program);
+		return result;
+	}
+	
+	@Override
+	public Gradient gradient(final Expression input, final List<String> variables,
+			final double[] point) {
+		this.interruptionCheck();
+		final double[] derivatives = new double[variables.size()];
+		final Program program = this.programs.acquire(input, variables);
+		final double value = program.applyWithGradient(point, derivatives);
+		this.programs.release(input, program);
+		return new Gradient(value, derivatives);
+	}
+	
+	@Override
+	public PreparedExpression prepare(final Expression input, final List<String> variableOrder) {
+		return this.prepare(input, variableOrder, EvaluationBackend.CLOSURES);
+	}
+	
+	@Override
+	public PreparedExpression prepare(final Expression input, final List<String> variableOrder,
+			final EvaluationBackend backend) {
+		switch (backend) {
+		case BYTECODE:
+			//The generated code checks the number of values by itself
+			return new BytecodeCompiler(variableOrder).compile(input);
+		case PROGRAM:
+			return new ProgramCompiler(variableOrder).compile(input);
+		case CLOSURES:
+		default:
+			final ToDoubleFunction<double[]> compiled = new ClosureCompiler(variableOrder).compile(input);
+			final int arity = variableOrder.size();
+			return values -> {
+				if (values.length != arity) {
+					throw new IllegalArgumentException("Expected " + arity + " values");
+				}
+				return compiled.applyAsDouble(values);
+			};
+		}
+	}
+	
+	@Override
+	public void evaluateBatch(final Expression input, final String variable,
+			final double[] xs, final double[] out) {
+		this.evaluateBatch(input, Collections.singletonList(variable), new double[][] {xs}, out);
+	}
+	
+	@Override
+	public void evaluateBatch(final Expression input, final List<String> variables,
+			final double[][] columns, final double[] out) {
+		final Program program = this.programs.acquire(input, variables);
+		program.applyBatch(columns, out);
+		this.programs.release(input, program);
+	}
+	
 	@Override
 	public Set<Double> solveNumerically(final Expression input) {
-		final NumericalSolver solver = new NumericalSolver(this, input);
+		final NumericalSolver solver = new NumericalSolver(this, input, this::interruptionCheck);
 		return solver.solve();
 	}
 	
+	@Override
+	public Set<Double> solveNumerically(final Expression input,
+			final double lowerBound, final double upperBound) {
+		final BracketingSolver solver = new BracketingSolver(this, input);
+		return solver.solve(lowerBound, upperBound, BracketingSolver.DEFAULT_SAMPLES,
+			ForkJoinPool.commonPool());
+	}
+	
 	@Override
 	public double integrateNumerically(final Expression input,
 			final double lowerBound, final double upperBound) {
-		final NumericalIntegrator integrator = new NumericalIntegrator(this, input);
+		final NumericalIntegrator integrator = new NumericalIntegrator(this, input,
+			this::interruptionCheck);
 		return integrator.integrate(lowerBound, upperBound);
 	}
 	
+	@Override
+	public IntegrationResult integrateNumerically(final Expression input,
+			final double lowerBound, final double upperBound, final IntegrationMethod method,
+			final double absoluteTolerance, final double relativeTolerance) {
+		final NumericalIntegrator integrator = new NumericalIntegrator(this, input,
+			this::interruptionCheck);
+		return integrator.integrate(lowerBound, upperBound, method,
+			absoluteTolerance, relativeTolerance);
+	}
+	
+	@Override
+	public IntegrationResult integrateInParallel(final Expression input,
+			final double lowerBound, final double upperBound, final IntegrationMethod method,
+			final double absoluteTolerance, final double relativeTolerance, final int chunks) {
+		final NumericalIntegrator integrator = new NumericalIntegrator(this, input,
+			this::interruptionCheck);
+		return integrator.integrateInParallel(lowerBound, upperBound, method,
+			absoluteTolerance, relativeTolerance, chunks, ForkJoinPool.commonPool());
+	}
+	
 	@Override
 	public Expression taylorSeries(final Expression input, final String variable,
 			final Expression point, final int order) {
 		final TaylorSeries taylor = new TaylorSeries(this, input);
 		return taylor.expand(variable, point, order);
 	}
+	
+	@Override
+	public double[] taylorCoefficients(final Expression input, final String variable,
+			final double point, final int order) {
+		this.interruptionCheck();
+		return new ProgramCompiler(Collections.singletonList(variable)).compile(input)
+			.applyTaylor(0, order, point);
+	}
 
 	@Override
 	public String toPlainText(final Expression input) {
@@ -15,6 +15,7 @@ public final class Constant implements Expression {
 	public static final Constant ONE = Constant.valueOf(1);
 	
 	private final long value;
+	private final long fingerprint;
 	
 	/**
 	 * Returns a constant with the supplied value.
@@ -22,11 +23,16 @@ public final class Constant implements Expression {
 	 * @return a Constant associated with the given value
 	 */
 	public static Constant valueOf(final long value) {
+		if (value >= Cache.LOW && value <= Cache.HIGH) {
+			return Cache.VALUES[(int) (value - Cache.LOW)];
+		}
 		return new Constant(value);
 	}
 	
 	private Constant(final long constantValue) {
 		this.value = constantValue;
+		this.fingerprint = Fingerprints.combine(
+			Fingerprints.start(Fingerprints.CONSTANT, 0), constantValue);
 	}
 	
 	/**
@@ -42,6 +48,11 @@ public final class Constant implements Expression {
 		return v.visit(this);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return Long.toString(this.value);
@@ -49,6 +60,9 @@ public final class Constant implements Expression {
 	
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof Constant) {
 			final Constant o = (Constant) obj;
 			return this.value == o.value;
@@ -58,8 +72,22 @@ public final class Constant implements Expression {
 	
 	@Override
 	public int hashCode() {
-		return Long.hashCode(this.value);
+		return Fingerprints.toHashCode(this.fingerprint);
 	}
 	
-	
+	/**
+	 * Contains the small constants, which are shared.
+	 * It is initialized lazily, since it must be built before ZERO and ONE.
+	 */
+	private static final class Cache {
+		private static final long LOW = -128;
+		private static final long HIGH = 1024;
+		private static final Constant[] VALUES = new Constant[(int) (HIGH - LOW) + 1];
+		
+		static {
+			for (int i = 0; i < VALUES.length; i++) {
+				VALUES[i] = new Constant(LOW + i);
+			}
+		}
+	}
 }
@@ -10,6 +10,7 @@ public class Equation implements Expression {
 
 	private final Expression firstMember;
 	private final Expression secondMember;
+	private final long fingerprint;
 	
 	/**
 	 * Instantiates an equation.
@@ -19,6 +20,9 @@ public class Equation implements Expression {
 	public Equation(final Expression left, final Expression right) {
 		this.firstMember = left;
 		this.secondMember = right;
+		this.fingerprint = Fingerprints.combine(Fingerprints.combine(
+			Fingerprints.start(Fingerprints.EQUATION, 0),
+			left.getFingerprint()), right.getFingerprint());
 	}
 	
 	/**
@@ -42,6 +46,11 @@ public class Equation implements Expression {
 		return v.visit(this);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return this.firstMember + " = " + this.secondMember;
@@ -49,9 +58,13 @@ public class Equation implements Expression {
 	
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof Equation) {
 			final Equation o = (Equation) obj;
-			return this.firstMember.equals(o.firstMember)
+			return this.fingerprint == o.fingerprint
+				&& this.firstMember.equals(o.firstMember)
 				&& this.secondMember.equals(o.secondMember);
 		}
 		return false;
@@ -59,7 +72,6 @@ public class Equation implements Expression {
 	
 	@Override
 	public int hashCode() {
-		return this.firstMember.hashCode()
-			^ this.secondMember.hashCode();
+		return Fingerprints.toHashCode(this.fingerprint);
 	}
 }
@@ -0,0 +1,129 @@
+package org.converger.framework.core;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import org.converger.framework.Expression;
+
+/**
+ * This class implements hash-consing of expressions: structurally equal
+ * trees are mapped to the same canonical instance, so that comparing
+ * canonical trees is (in most cases) a matter of comparing references.
+ * The children of a canonical node are canonical as well.
+ * The table is made of weak references, thus canonical trees which are
+ * no longer used elsewhere can be garbage collected.
+ * @author Dario Pavllo
+ */
+public final class ExpressionInterner implements Expression.Visitor<Expression> {
+	
+	private static final ExpressionInterner SINGLETON = new ExpressionInterner();
+	
+	private final Map<Expression, WeakReference<Expression>> table;
+	
+	/**
+	 * Returns the unique instance of this class.
+	 * @return an ExpressionInterner singleton
+	 */
+	public static ExpressionInterner getSingleton() {
+		return ExpressionInterner.SINGLETON;
+	}
+	
+	private ExpressionInterner() {
+		this.table = new WeakHashMap<>();
+	}
+	
+	/**
+	 * Returns the canonical instance of the given expression.
+	 * @param e the expression to intern
+	 * @return a tree which is equal to e, and shared by all the equal trees
+	 */
+	public Expression intern(final Expression e) {
+		synchronized (this.table) {
+			return this.visit(e);
+		}
+	}
+	
+	/**
+	 * Returns the number of canonical nodes which are currently alive.
+	 * @return the size of the table
+	 */
+	public int size() {
+		synchronized (this.table) {
+			return this.table.size();
+		}
+	}
+	
+	/*
+	 * If an equal tree has already been interned, it is returned directly.
+	 * Otherwise, the node is rebuilt with canonical children (unless they are already canonical)
+	 * and it becomes canonical itself.
+	 */
+	@Override
+	public Expression visit(final Expression v) {
+		final WeakReference<Expression> reference = this.table.get(v);
+		final Expression canonical = reference == null ? null : reference.get();
+		if (canonical != null) {
+			return canonical;
+		}
+		final Expression result = v.accept(this);
+		this.table.put(result, new WeakReference<>(result));
+		return result;
+	}
+	
+	@Override
+	public Expression visit(final Variable v) {
+		return v;
+	}
+	
+	@Override
+	public Expression visit(final Constant v) {
+		return v;
+	}
+	
+	@Override
+	public Expression visit(final BinaryOperation v) {
+		final Expression first = this.visit(v.getFirstOperand());
+		final Expression second = this.visit(v.getSecondOperand());
+		if (first == v.getFirstOperand() && second == v.getSecondOperand()) {
+			return v;
+		}
+		return new BinaryOperation(v.getOperator(), first, second);
+	}
+	
+	@Override
+	public Expression visit(final FunctionOperation v) {
+		final Expression argument = this.visit(v.getArgument());
+		if (argument == v.getArgument()) {
+			return v;
+		}
+		return new FunctionOperation(v.getFunction(), argument);
+	}
+	
+	@Override
+	public Expression visit(final NAryOperation v) {
+		final List<Expression> operands = v.getOperands()
+			.stream()
+			.map(x -> this.visit(x))
+			.collect(Collectors.toList());
+		
+		for (int i = 0; i < operands.size(); i++) {
+			if (operands.get(i) != v.getOperands().get(i)) {
+				return new NAryOperation(v.getOperator(), operands);
+			}
+		}
+		return v;
+	}
+	
+	@Override
+	public Expression visit(final Equation v) {
+		final Expression first = this.visit(v.getFirstMember());
+		final Expression second = this.visit(v.getSecondMember());
+		if (first == v.getFirstMember() && second == v.getSecondMember()) {
+			return v;
+		}
+		return new Equation(first, second);
+	}
+}
@@ -0,0 +1,85 @@
+package org.converger.framework.core;
+
+/**
+ * Utility methods to calculate the structural fingerprints of the expressions.
+ * A fingerprint is a 64-bit hash which depends on the whole subtree,
+ * including the order of the operands. It does not depend on the
+ * identity of any object, thus it is the same across different runs.
+ * @author Dario Pavllo
+ */
+final class Fingerprints {
+	
+	/* Salts which distinguish the node types */
+	static final long CONSTANT = 0x43L;
+	static final long VARIABLE = 0x56L;
+	static final long BINARY = 0x42L;
+	static final long NARY = 0x4EL;
+	static final long FUNCTION = 0x46L;
+	static final long EQUATION = 0x45L;
+	
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+	private static final long MIX_2 = 0x94D049BB133111EBL;
+	private static final int SHIFT_1 = 30;
+	private static final int SHIFT_2 = 27;
+	private static final int SHIFT_3 = 31;
+	private static final int INT_BITS = 32;
+	
+	private Fingerprints() {
+	}
+	
+	/**
+	 * Scrambles the bits of the given value (SplitMix64 finalizer).
+	 * @param value the value to mix
+	 * @return a well-distributed 64-bit value
+	 */
+	static long mix(final long value) {
+		long z = value;
+		z = (z ^ (z >>> SHIFT_1)) * MIX_1;
+		z = (z ^ (z >>> SHIFT_2)) * MIX_2;
+		return z ^ (z >>> SHIFT_3);
+	}
+	
+	/**
+	 * Combines a fingerprint with the one of the next child.
+	 * The combination is not commutative, so the order of the children matters.
+	 * @param seed the fingerprint calculated so far
+	 * @param child the fingerprint of the next child
+	 * @return the new fingerprint
+	 */
+	static long combine(final long seed, final long child) {
+		return Fingerprints.mix(seed * GOLDEN_GAMMA + child);
+	}
+	
+	/**
+	 * Returns the initial fingerprint of a node.
+	 * @param type the salt of the node type
+	 * @param operator the ordinal of the operator or function (0 if none)
+	 * @return the fingerprint of a node without children
+	 */
+	static long start(final long type, final int operator) {
+		return Fingerprints.mix(type * GOLDEN_GAMMA + operator);
+	}
+	
+	/**
+	 * Calculates the fingerprint of a string.
+	 * @param s the string
+	 * @return a 64-bit hash of the characters of s
+	 */
+	static long ofString(final String s) {
+		long h = Fingerprints.start(VARIABLE, s.length());
+		for (int i = 0; i < s.length(); i++) {
+			h = Fingerprints.combine(h, s.charAt(i));
+		}
+		return h;
+	}
+	
+	/**
+	 * Reduces a fingerprint to a hash code.
+	 * @param fingerprint the 64-bit fingerprint
+	 * @return a 32-bit hash code
+	 */
+	static int toHashCode(final long fingerprint) {
+		return (int) (fingerprint ^ (fingerprint >>> INT_BITS));
+	}
+}
@@ -10,6 +10,8 @@ public class FunctionOperation implements Expression {
 
 	private final Function function;
 	private final Expression argument;
+	/** The fingerprint is calculated once, since the tree is immutable */
+	private final long fingerprint;
 	
 	/**
 	 * @param func the function definition
@@ -18,6 +20,9 @@ public class FunctionOperation implements Expression {
 	public FunctionOperation(final Function func, final Expression arg) {
 		this.function = func;
 		this.argument = arg;
+		this.fingerprint = Fingerprints.combine(
+			Fingerprints.start(Fingerprints.FUNCTION, func.ordinal()),
+			arg.getFingerprint());
 	}
 	
 	/**
@@ -41,6 +46,11 @@ public class FunctionOperation implements Expression {
 		return v.visit(this);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return function.getName() + "(" + argument + ")";
@@ -48,9 +58,13 @@ public class FunctionOperation implements Expression {
 	
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof FunctionOperation) {
 			final FunctionOperation o = (FunctionOperation) obj;
-			return this.function == o.function
+			return this.fingerprint == o.fingerprint
+				&& this.function == o.function
 				&& this.argument.equals(o.argument);
 		}
 		return false;
@@ -58,8 +72,7 @@ public class FunctionOperation implements Expression {
 	
 	@Override
 	public int hashCode() {
-		return this.function.hashCode()
-			^ this.argument.hashCode();
+		return Fingerprints.toHashCode(this.fingerprint);
 	}
 	
 	
@@ -17,6 +17,8 @@ public class NAryOperation implements Expression {
 	
 	private final List<Expression> operands;
 	private final NAryOperator operator;
+	/** The fingerprint is calculated once, since the tree is immutable */
+	private final long fingerprint;
 	
 	/**
 	 * @param op the operator definition
@@ -29,6 +31,11 @@ public class NAryOperation implements Expression {
 		}
 		this.operands = new ArrayList<>(arguments);
 		this.operator = op;
+		long f = Fingerprints.start(Fingerprints.NARY, op.ordinal());
+		for (final Expression e : this.operands) {
+			f = Fingerprints.combine(f, e.getFingerprint());
+		}
+		this.fingerprint = f;
 	}
 	
 	/**
@@ -61,6 +68,11 @@ public class NAryOperation implements Expression {
 		return v.visit(this);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return this.operands.stream()
@@ -70,9 +82,13 @@ public class NAryOperation implements Expression {
 	
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof NAryOperation) {
 			final NAryOperation o = (NAryOperation) obj;
-			return this.operator == o.operator
+			return this.fingerprint == o.fingerprint
+				&& this.operator == o.operator
 				&& this.operands.equals(o.operands);
 		}
 		return false;
@@ -80,8 +96,7 @@ public class NAryOperation implements Expression {
 	
 	@Override
 	public int hashCode() {
-		return this.operator.hashCode()
-			^ this.operands.hashCode();
+		return Fingerprints.toHashCode(this.fingerprint);
 	}
 
 }
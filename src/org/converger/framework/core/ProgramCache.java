@@ -0,0 +1,96 @@
+package org.converger.framework.core;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.converger.framework.Expression;
+import org.converger.framework.compiler.Program;
+import org.converger.framework.compiler.ProgramCompiler;
+
+/**
+ * A small cache of the programs compiled by a framework instance, so that
+ * an expression which is evaluated at many points is compiled only once.
+ * Since a program has its own evaluation state, it is removed from the cache
+ * while it is used: a concurrent evaluation of the same expression compiles
+ * another program. When the cache is full, the least recently used program is evicted.
+ * @author Dario Pavllo
+ */
+final class ProgramCache {
+	
+	/** The maximum number of programs. */
+	private static final int CAPACITY = 64;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+	
+	private final Programs programs = new Programs();
+	
+	/**
+	 * Takes the program which evaluates an expression from the cache,
+	 * or compiles it if it is not cached (or it is being used).
+	 * @param input the expression to evaluate
+	 * @param variableOrder the variables, in the order of their slots
+	 * @return a program which is not used by anyone else
+	 */
+	Program acquire(final Expression input, final List<String> variableOrder) {
+		final Program cached;
+		synchronized (this.programs) {
+			cached = this.programs.remove(new Key(input, variableOrder));
+		}
+		return cached == null ? new ProgramCompiler(variableOrder).compile(input) : cached;
+	}
+	
+	/**
+	 * Puts a program back in the cache, after it has been used.
+	 * @param input the expression evaluated by the program
+	 * @param program a program returned by {@link #acquire}
+	 */
+	void release(final Expression input, final Program program) {
+		synchronized (this.programs) {
+			this.programs.put(new Key(input, program.getVariables()), program);
+		}
+	}
+	
+	/**
+	 * The programs in access order, whose first entry is the least recently used one.
+	 */
+	private static final class Programs extends LinkedHashMap<Key, Program> {
+		private static final long serialVersionUID = 5319240386625783541L;
+		
+		Programs() {
+			super(INITIAL_CAPACITY, LOAD_FACTOR, true);
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, Program> eldest) {
+			return this.size() > CAPACITY;
+		}
+	}
+	
+	/**
+	 * The key of an entry: the compiled expression and the variable order.
+	 */
+	private static final class Key {
+		private final Expression expression;
+		private final List<String> variables;
+		
+		Key(final Expression input, final List<String> variableOrder) {
+			this.expression = input;
+			this.variables = variableOrder;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof Key) {
+				final Key o = (Key) obj;
+				return this.expression.equals(o.expression) && this.variables.equals(o.variables);
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * this.expression.hashCode() + this.variables.hashCode();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package org.converger.framework.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.converger.framework.Expression;
+import org.converger.framework.SimplificationMode;
+
+/**
+ * A bounded cache which maps the input expressions to their simplified forms.
+ * It can be shared by different framework instances, since it is thread-safe.
+ * The entries are split among segments by hash, each one with its own lock, so that
+ * concurrent lookups rarely contend; the simplification itself is performed outside
+ * of the locks. When a segment is full, its least recently used entry is evicted.
+ * Small caches have a single segment, thus the eviction order is exact.
+ * @author Dario Pavllo
+ */
+public final class SimplificationCache {
+	
+	/** The default maximum number of entries. */
+	public static final int DEFAULT_CAPACITY = 4096;
+	
+	private static final int MAX_SEGMENTS = 16;
+	/** The minimum capacity of a segment, when there are more than one */
+	private static final int MIN_SEGMENT_CAPACITY = 256;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+	
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	/**
+	 * Builds a cache with the default capacity.
+	 */
+	public SimplificationCache() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Builds a cache with the given capacity.
+	 * @param capacity the maximum number of entries
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public SimplificationCache(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		//A power of two, so that the segment is selected by the low bits of the hash
+		final int count = Integer.highestOneBit(Math.max(1,
+			Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			//The capacity is divided evenly, the remainder going to the first segments
+			this.segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+		}
+	}
+	
+	private Segment segment(final Key key) {
+		final int h = key.hashCode();
+		return this.segments[(h ^ (h >>> 16)) & (this.segments.length - 1)];
+	}
+	
+	/**
+	 * Looks up the simplified form of an expression.
+	 * @param input the expression to simplify
+	 * @param mode the simplification strategy
+	 * @return the cached result, if any
+	 */
+	public Optional<Expression> get(final Expression input, final SimplificationMode mode) {
+		final Key key = new Key(input, mode);
+		final Segment segment = this.segment(key);
+		final Expression result;
+		synchronized (segment) {
+			result = segment.get(key);
+		}
+		if (result == null) {
+			this.misses.increment();
+		} else {
+			this.hits.increment();
+		}
+		return Optional.ofNullable(result);
+	}
+	
+	/**
+	 * Stores the simplified form of an expression.
+	 * @param input the expression which has been simplified
+	 * @param mode the simplification strategy
+	 * @param result the simplified expression
+	 */
+	public void put(final Expression input, final SimplificationMode mode,
+			final Expression result) {
+		final Key key = new Key(input, mode);
+		final Segment segment = this.segment(key);
+		synchronized (segment) {
+			segment.put(key, result);
+		}
+	}
+	
+	/**
+	 * Returns the number of lookups which found a result.
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups which did not find a result.
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+	
+	/**
+	 * Returns the number of cached expressions.
+	 * @return the number of entries
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Removes all the entries and resets the statistics.
+	 */
+	public void clear() {
+		for (final Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		this.hits.reset();
+		this.misses.reset();
+	}
+	
+	/**
+	 * A part of the cache: a map in access order, whose first entry is the least
+	 * recently used one. It is guarded by its own monitor.
+	 */
+	private static final class Segment extends LinkedHashMap<Key, Expression> {
+		private static final long serialVersionUID = -2406283927498574512L;
+		
+		private final int capacity;
+		
+		Segment(final int maxEntries) {
+			super(INITIAL_CAPACITY, LOAD_FACTOR, true);
+			this.capacity = maxEntries;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, Expression> eldest) {
+			return this.size() > this.capacity;
+		}
+	}
+	
+	/**
+	 * The key of an entry: the input expression and the strategy.
+	 */
+	private static final class Key {
+		private final Expression expression;
+		private final SimplificationMode mode;
+		
+		Key(final Expression input, final SimplificationMode simplificationMode) {
+			this.expression = input;
+			this.mode = simplificationMode;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof Key) {
+				final Key o = (Key) obj;
+				return this.mode == o.mode && this.expression.equals(o.expression);
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * this.expression.hashCode() + this.mode.ordinal();
+		}
+	}
+}
@@ -9,12 +9,14 @@ import org.converger.framework.Expression;
 public class Variable implements Expression {
 
 	private final String name;
+	private final long fingerprint;
 	
 	/**
 	 * @param variableName the variable name
 	 */
 	public Variable(final String variableName) {
 		this.name = variableName;
+		this.fingerprint = Fingerprints.ofString(variableName);
 	}
 	
 	/**
@@ -30,6 +32,11 @@ public class Variable implements Expression {
 		return v.visit(this);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return this.getName();
@@ -37,16 +44,20 @@ public class Variable implements Expression {
 	
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof Variable) {
 			final Variable o = (Variable) obj;
-			return this.name.equals(o.name);
+			return this.fingerprint == o.fingerprint
+				&& this.name.equals(o.name);
 		}
 		return false;
 	}
 	
 	@Override
 	public int hashCode() {
-		return this.name.hashCode();
+		return Fingerprints.toHashCode(this.fingerprint);
 	}
 	
 }
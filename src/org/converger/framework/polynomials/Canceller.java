@@ -0,0 +1,82 @@
+package org.converger.framework.polynomials;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.MathUtils;
+
+/**
+ * Reduces fractions of polynomials to their normal form, by cancelling the
+ * greatest common divisor of the numerator and the denominator.
+ * Both are converted to polynomials in their common atoms (see {@link Expander}),
+ * whose gcd is computed with the heuristic algorithm (see {@link HeuristicGcd}).
+ * In the normal form, the numerator and the denominator are expanded and coprime,
+ * and the denominator has integer coefficients and a positive leading coefficient.
+ * @author Dario Pavllo
+ */
+public final class Canceller {
+	
+	private Canceller() {
+	}
+	
+	/**
+	 * Cancels the common factors of a fraction.
+	 * @param numerator the numerator of the fraction
+	 * @param denominator the denominator of the fraction
+	 * @return the reduced fraction, or an empty optional if the numerator and the
+	 * denominator have no common factor (except constants), or if it cannot be found
+	 */
+	public static Optional<Expression> cancel(final Expression numerator, final Expression denominator) {
+		final List<Expression> atoms = new ArrayList<>();
+		try {
+			final List<MultivariatePolynomial> p = Expander.convert(Arrays.asList(numerator, denominator),
+				false, atoms);
+			if (p.get(0).isConstant() || p.get(1).isConstant()) {
+				return Optional.empty();
+			}
+			final MultivariatePolynomial a = p.get(0);
+			final MultivariatePolynomial b = p.get(1);
+			final MultivariatePolynomial gcd = HeuristicGcd.gcd(a, b);
+			if (gcd == null || gcd.isConstant()) {
+				return Optional.empty();
+			}
+			final MultivariatePolynomial qa = HeuristicGcd.divide(a, gcd);
+			final MultivariatePolynomial qb = HeuristicGcd.divide(b, gcd);
+			if (qa == null || qb == null) {
+				return Optional.empty();
+			}
+			
+			//(qa/da)/(qb/db) = (qa*db)/(qb*da), then the integer content of the denominator
+			//moves to the numerator
+			final MonomialLayout layout = a.getLayout();
+			final long content = Canceller.content(qb);
+			final MultivariatePolynomial reduced = qa.multiply(MultivariatePolynomial.constant(layout,
+				b.getDenominator(), Math.multiplyExact(a.getDenominator(), content)));
+			if (qb.isConstant()) {
+				return Optional.of(reduced.toExpression(atoms));
+			}
+			final MultivariatePolynomial primitive = qb.multiply(MultivariatePolynomial.constant(layout,
+				1, content));
+			return Optional.of(new BinaryOperation(BinaryOperator.DIVISION,
+				reduced.toExpression(atoms), primitive.toExpression(atoms)));
+		} catch (final ArithmeticException ex) {
+			return Optional.empty();
+		}
+	}
+	
+	/*
+	 * The gcd of the numerators, with the sign of the leading one.
+	 */
+	private static long content(final MultivariatePolynomial p) {
+		long gcd = 0;
+		for (int i = 0; i < p.getTermCount(); i++) {
+			gcd = MathUtils.gcd(gcd, p.getNumerator(i));
+		}
+		return p.getNumerator(0) < 0 ? Math.negateExact(gcd) : gcd;
+	}
+}
@@ -0,0 +1,90 @@
+package org.converger.framework.polynomials;
+
+/**
+ * A polynomial stored as the array of all its coefficients, up to the degree.
+ * @author Dario Pavllo
+ */
+final class DensePolynomial extends Polynomial {
+	
+	/** The numerators: the i-th one is the coefficient of x^i (the last one is not zero) */
+	private final long[] coefficients;
+	private final long denominator;
+	/** The exponents of the terms which are not zero */
+	private final int[] terms;
+	
+	DensePolynomial(final long[] numerators, final long commonDenominator) {
+		super();
+		this.coefficients = numerators;
+		this.denominator = commonDenominator;
+		int count = 0;
+		for (final long c : numerators) {
+			if (c != 0) {
+				count++;
+			}
+		}
+		this.terms = new int[count];
+		count = 0;
+		for (int i = 0; i < numerators.length; i++) {
+			if (numerators[i] != 0) {
+				this.terms[count++] = i;
+			}
+		}
+	}
+	
+	@Override
+	public int getDegree() {
+		return this.coefficients.length - 1;
+	}
+	
+	@Override
+	public long getNumerator(final int exponent) {
+		return exponent < this.coefficients.length ? this.coefficients[exponent] : 0;
+	}
+	
+	@Override
+	public long getDenominator() {
+		return this.denominator;
+	}
+	
+	@Override
+	public int getTermCount() {
+		return this.terms.length;
+	}
+	
+	@Override
+	public int getTermExponent(final int term) {
+		return this.terms[term];
+	}
+	
+	@Override
+	public long getTermNumerator(final int term) {
+		return this.coefficients[this.terms[term]];
+	}
+	
+	@Override
+	public double evaluate(final double x) {
+		//Horner's method: a0 + x*(a1 + x*(a2 + ...))
+		double result = 0;
+		for (int i = this.coefficients.length - 1; i >= 0; i--) {
+			result = result * x + this.coefficients[i];
+		}
+		return result / this.denominator;
+	}
+	
+	@Override
+	public Polynomial derivative() {
+		if (this.coefficients.length <= 1) {
+			return Polynomial.constant(0, 1);
+		}
+		final long[] c = new long[this.coefficients.length - 1];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = Math.multiplyExact(this.coefficients[i + 1], i + 1);
+		}
+		return Polynomial.of(c, this.denominator);
+	}
+	
+	@Override
+	public long[] toLongArray() {
+		return this.coefficients.clone();
+	}
+}
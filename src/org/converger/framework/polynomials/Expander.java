@@ -0,0 +1,364 @@
+package org.converger.framework.polynomials;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+
+/**
+ * Expands an expression: products and natural powers of sums are distributed,
+ * and like terms are collected.
+ * The subexpressions which are not polynomial (variables, functions, powers with
+ * other exponents and divisions by non-constant terms) are treated as atoms;
+ * their operands are expanded recursively.
+ * The expansion is done in three passes: the first one collects the atoms, the
+ * second one bounds their degrees, which determine the layout of the packed
+ * monomials, and the third one converts the expression to a {@link MultivariatePolynomial}.
+ * @author Dario Pavllo
+ */
+public final class Expander {
+	
+	/** The atoms of each node of the tree (by identity) */
+	private final Map<Expression, Integer> nodeAtoms;
+	/** The distinct atoms, in order of appearance */
+	private final Map<Expression, Integer> atomIndices;
+	private final List<Expression> atoms;
+	/** Whether the operands of the atoms are expanded */
+	private final boolean expandAtoms;
+	
+	private Expander(final boolean expandOperands) {
+		this.nodeAtoms = new IdentityHashMap<>();
+		this.atomIndices = new HashMap<>();
+		this.atoms = new ArrayList<>();
+		this.expandAtoms = expandOperands;
+	}
+	
+	/**
+	 * Expands the given expression. If it is an equation, both members are expanded.
+	 * If a coefficient does not fit in a long, or if the degree of an atom is 2^62
+	 * or more, the expression is returned unchanged.
+	 * @param e the expression to expand
+	 * @return the expanded expression
+	 */
+	public static Expression expand(final Expression e) {
+		if (e instanceof Equation) {
+			final Equation eq = (Equation) e;
+			return new Equation(Expander.expand(eq.getFirstMember()),
+				Expander.expand(eq.getSecondMember()));
+		}
+		final List<Expression> atoms = new ArrayList<>();
+		try {
+			return Expander.convert(Collections.singletonList(e), true, atoms).get(0).toExpression(atoms);
+		} catch (final ArithmeticException ex) {
+			return e;
+		}
+	}
+	
+	/**
+	 * Converts some expressions to polynomials in their common atoms.
+	 * @param expressions the expressions to convert
+	 * @param expandOperands whether the operands of the atoms are expanded
+	 * @param atoms the list which receives the atoms, in the order of the variables
+	 * @return the polynomials
+	 * @throws ArithmeticException if a coefficient does not fit in a long, or if a
+	 * degree is too high
+	 */
+	static List<MultivariatePolynomial> convert(final List<Expression> expressions,
+			final boolean expandOperands, final List<Expression> atoms) {
+		return new Expander(expandOperands).run(expressions, atoms);
+	}
+	
+	private List<MultivariatePolynomial> run(final List<Expression> expressions,
+			final List<Expression> sorted) {
+		final AtomCollector collector = new AtomCollector();
+		expressions.forEach(collector::visit);
+		
+		//The variables come first, sorted by name; the other atoms keep their order
+		final List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < this.atoms.size(); i++) {
+			order.add(i);
+		}
+		order.sort((i, j) -> {
+			final Expression a = this.atoms.get(i);
+			final Expression b = this.atoms.get(j);
+			if (a instanceof Variable && b instanceof Variable) {
+				return ((Variable) a).getName().compareTo(((Variable) b).getName());
+			}
+			return a instanceof Variable ? -1 : b instanceof Variable ? 1 : Integer.compare(i, j);
+		});
+		final int[] slots = new int[order.size()];
+		for (int k = 0; k < order.size(); k++) {
+			slots[order.get(k)] = k;
+			sorted.add(this.atoms.get(order.get(k)));
+		}
+		
+		final DegreeBounder bounder = new DegreeBounder();
+		expressions.forEach(bounder::visit);
+		final long[] degrees = new long[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			degrees[slots[i]] = bounder.maxDegrees[i];
+		}
+		final Converter converter = new Converter(new MonomialLayout(degrees), slots);
+		final List<MultivariatePolynomial> result = new ArrayList<>();
+		for (final Expression e : expressions) {
+			result.add(converter.visit(e));
+		}
+		return result;
+	}
+	
+	/*
+	 * Returns the exponent of a natural power, or -1 if it is not a natural constant.
+	 */
+	private static long naturalExponent(final Expression exponent) {
+		final Optional<Polynomial> p = Polynomial.fromExpression(exponent, null);
+		if (p.isPresent() && p.get().getDegree() <= 0 && p.get().getDenominator() == 1) {
+			return Math.max(p.get().getNumerator(0), -1);
+		}
+		return -1;
+	}
+	
+	/*
+	 * Returns the value of a non-zero rational constant, or null if it is not a constant.
+	 */
+	private static Polynomial constantValue(final Expression e) {
+		final Optional<Polynomial> p = Polynomial.fromExpression(e, null);
+		return p.isPresent() && p.get().getDegree() == 0 ? p.get() : null;
+	}
+	
+	/**
+	 * The first pass: finds the atoms of the expression.
+	 */
+	private final class AtomCollector implements Expression.Visitor<Void> {
+		
+		private void register(final Expression node, final Expression atom) {
+			Integer index = Expander.this.atomIndices.get(atom);
+			if (index == null) {
+				index = Expander.this.atoms.size();
+				Expander.this.atoms.add(atom);
+				Expander.this.atomIndices.put(atom, index);
+			}
+			Expander.this.nodeAtoms.put(node, index);
+		}
+		
+		@Override
+		public Void visit(final Variable v) {
+			this.register(v, v);
+			return null;
+		}
+		
+		@Override
+		public Void visit(final Constant v) {
+			return null;
+		}
+		
+		@Override
+		public Void visit(final BinaryOperation v) {
+			if (Expander.this.nodeAtoms.containsKey(v)) {
+				//A shared subtree, which has already been visited
+				return null;
+			}
+			final boolean polynomial = v.getOperator() == BinaryOperator.POWER
+				? Expander.naturalExponent(v.getSecondOperand()) >= 0
+				: Expander.constantValue(v.getSecondOperand()) != null;
+			if (polynomial) {
+				this.visit(v.getFirstOperand());
+			} else if (Expander.this.expandAtoms) {
+				this.register(v, new BinaryOperation(v.getOperator(),
+					Expander.expand(v.getFirstOperand()), Expander.expand(v.getSecondOperand())));
+			} else {
+				this.register(v, v);
+			}
+			return null;
+		}
+		
+		@Override
+		public Void visit(final FunctionOperation v) {
+			if (!Expander.this.nodeAtoms.containsKey(v)) {
+				this.register(v, Expander.this.expandAtoms
+					? new FunctionOperation(v.getFunction(), Expander.expand(v.getArgument()))
+					: v);
+			}
+			return null;
+		}
+		
+		@Override
+		public Void visit(final NAryOperation v) {
+			v.getOperands().forEach(this::visit);
+			return null;
+		}
+		
+		@Override
+		public Void visit(final Equation v) {
+			throw new UnsupportedOperationException("Nested equation");
+		}
+	}
+	
+	/**
+	 * The second pass: bounds the degree of each atom in every node of the tree.
+	 * The maximum over all the nodes is taken, since the intermediate results of the
+	 * conversion can have higher degrees than the final polynomial (e.g. the base of x^0).
+	 */
+	private final class DegreeBounder implements Expression.Visitor<long[]> {
+		
+		/** The bounds of each node (by identity) */
+		private final Map<Expression, long[]> bounds = new IdentityHashMap<>();
+		private final long[] maxDegrees = new long[Expander.this.atoms.size()];
+		
+		@Override
+		public long[] visit(final Expression v) {
+			long[] degrees = this.bounds.get(v);
+			if (degrees == null) {
+				final Integer atom = Expander.this.nodeAtoms.get(v);
+				if (atom == null) {
+					degrees = v.accept(this);
+				} else {
+					degrees = new long[this.maxDegrees.length];
+					degrees[atom] = 1;
+				}
+				this.bounds.put(v, degrees);
+				for (int i = 0; i < degrees.length; i++) {
+					this.maxDegrees[i] = Math.max(this.maxDegrees[i], degrees[i]);
+				}
+			}
+			return degrees;
+		}
+		
+		@Override
+		public long[] visit(final Variable v) {
+			//Variables are always atoms
+			throw new IllegalStateException();
+		}
+		
+		@Override
+		public long[] visit(final Constant v) {
+			return new long[this.maxDegrees.length];
+		}
+		
+		@Override
+		public long[] visit(final BinaryOperation v) {
+			final long[] base = this.visit(v.getFirstOperand());
+			if (v.getOperator() != BinaryOperator.POWER) {
+				//Division by a constant
+				return base;
+			}
+			final long exponent = Expander.naturalExponent(v.getSecondOperand());
+			final long[] degrees = new long[base.length];
+			for (int i = 0; i < degrees.length; i++) {
+				degrees[i] = Math.multiplyExact(base[i], exponent);
+			}
+			return degrees;
+		}
+		
+		@Override
+		public long[] visit(final FunctionOperation v) {
+			//Functions are always atoms
+			throw new IllegalStateException();
+		}
+		
+		@Override
+		public long[] visit(final NAryOperation v) {
+			final long[] degrees = new long[this.maxDegrees.length];
+			for (final Expression operand : v.getOperands()) {
+				final long[] d = this.visit(operand);
+				for (int i = 0; i < degrees.length; i++) {
+					degrees[i] = v.getOperator() == NAryOperator.ADDITION
+						? Math.max(degrees[i], d[i])
+						: Math.addExact(degrees[i], d[i]);
+				}
+			}
+			return degrees;
+		}
+		
+		@Override
+		public long[] visit(final Equation v) {
+			throw new UnsupportedOperationException("Nested equation");
+		}
+	}
+	
+	/**
+	 * The third pass: converts the expression to a polynomial in the atoms.
+	 */
+	private final class Converter implements Expression.Visitor<MultivariatePolynomial> {
+		
+		private final MonomialLayout layout;
+		/** The position of each atom in the layout */
+		private final int[] slots;
+		
+		Converter(final MonomialLayout monomialLayout, final int[] atomSlots) {
+			this.layout = monomialLayout;
+			this.slots = atomSlots;
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final Expression v) {
+			final Integer atom = Expander.this.nodeAtoms.get(v);
+			if (atom != null) {
+				return MultivariatePolynomial.variable(this.layout, this.slots[atom]);
+			}
+			return v.accept(this);
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final Variable v) {
+			//Variables are always atoms
+			throw new IllegalStateException();
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final Constant v) {
+			return MultivariatePolynomial.constant(this.layout, v.getValue(), 1);
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final BinaryOperation v) {
+			final MultivariatePolynomial base = this.visit(v.getFirstOperand());
+			if (v.getOperator() == BinaryOperator.POWER) {
+				return base.pow(Expander.naturalExponent(v.getSecondOperand()));
+			}
+			//Division by a constant
+			final Polynomial c = Expander.constantValue(v.getSecondOperand());
+			return base.multiply(MultivariatePolynomial.constant(this.layout,
+				c.getDenominator(), c.getNumerator(0)));
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final FunctionOperation v) {
+			//Functions are always atoms
+			throw new IllegalStateException();
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final NAryOperation v) {
+			final List<MultivariatePolynomial> operands = new ArrayList<>();
+			for (final Expression operand : v.getOperands()) {
+				operands.add(this.visit(operand));
+			}
+			if (v.getOperator() == NAryOperator.ADDITION) {
+				return MultivariatePolynomial.sum(this.layout, operands);
+			}
+			MultivariatePolynomial product = operands.get(0);
+			for (int i = 1; i < operands.size(); i++) {
+				product = product.multiply(operands.get(i));
+			}
+			return product;
+		}
+		
+		@Override
+		public MultivariatePolynomial visit(final Equation v) {
+			throw new UnsupportedOperationException("Nested equation");
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package org.converger.framework.polynomials;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The greatest common divisor of multivariate polynomials with integer coefficients,
+ * computed with the heuristic algorithm of Char, Geddes and Gonnet (GCDHEU).
+ * The last variable is replaced by an integer larger than the coefficients, the gcd of
+ * the resulting polynomials (in one variable less) is computed recursively, and a
+ * candidate is reconstructed from the digits of its coefficients in that base.
+ * The candidate is checked by trial division, and another point is tried if it fails.
+ * The intermediate coefficients are BigIntegers, but the computation gives up if
+ * they grow too large: the heuristic is fast when the gcd is small, which is the
+ * common case when simplifying expressions.
+ * The terms are kept in sorted maps from packed monomials to coefficients, thus
+ * the monomials must fit in a single word.
+ * @author Dario Pavllo
+ */
+final class HeuristicGcd {
+	
+	/** The maximum size of an evaluation point raised to the degree, in bits */
+	private static final int MAX_BITS = 4096;
+	/** The maximum number of evaluations, in all the levels of the recursion */
+	private static final int MAX_EVALUATIONS = 64;
+	private static final BigInteger MIN_POINT = BigInteger.valueOf(29);
+	/* The factor by which the evaluation point grows after a failure (from the paper) */
+	private static final BigInteger GROWTH_NUMERATOR = BigInteger.valueOf(73794);
+	private static final BigInteger GROWTH_DENOMINATOR = BigInteger.valueOf(27011);
+	
+	private final MonomialLayout layout;
+	private int evaluations;
+	
+	private HeuristicGcd(final MonomialLayout monomialLayout) {
+		this.layout = monomialLayout;
+	}
+	
+	/**
+	 * Computes the greatest common divisor of the numerators of two non-zero polynomials.
+	 * @return the gcd, with a positive leading coefficient, or null if the heuristic fails
+	 * or if the monomials have more than one word
+	 */
+	static MultivariatePolynomial gcd(final MultivariatePolynomial a, final MultivariatePolynomial b) {
+		if (a.getLayout().getWords() > 1) {
+			return null;
+		}
+		final HeuristicGcd h = new HeuristicGcd(a.getLayout());
+		try {
+			final TreeMap<Long, BigInteger> g = h.gcd(HeuristicGcd.terms(a), HeuristicGcd.terms(b),
+				a.getLayout().getVariables());
+			return g == null ? null : h.toPolynomial(g);
+		} catch (final ArithmeticException ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Divides the numerator of a polynomial by the numerator of a non-zero one.
+	 * @return the quotient, or null if the division is not exact or if the monomials
+	 * have more than one word
+	 */
+	static MultivariatePolynomial divide(final MultivariatePolynomial a, final MultivariatePolynomial b) {
+		if (a.getLayout().getWords() > 1) {
+			return null;
+		}
+		final HeuristicGcd h = new HeuristicGcd(a.getLayout());
+		try {
+			final TreeMap<Long, BigInteger> q = h.divide(HeuristicGcd.terms(a), HeuristicGcd.terms(b));
+			return q == null ? null : h.toPolynomial(q);
+		} catch (final ArithmeticException ex) {
+			return null;
+		}
+	}
+	
+	private static TreeMap<Long, BigInteger> terms(final MultivariatePolynomial p) {
+		final TreeMap<Long, BigInteger> t = new TreeMap<>();
+		for (int i = 0; i < p.getTermCount(); i++) {
+			t.put(p.getMonomial(i, 0), BigInteger.valueOf(p.getNumerator(i)));
+		}
+		return t;
+	}
+	
+	/*
+	 * Converts the terms to a polynomial.
+	 * @throws ArithmeticException if a coefficient does not fit in a long
+	 */
+	private MultivariatePolynomial toPolynomial(final TreeMap<Long, BigInteger> t) {
+		final long[] monomials = new long[t.size()];
+		final long[] numerators = new long[t.size()];
+		int count = 0;
+		for (final Map.Entry<Long, BigInteger> term : t.descendingMap().entrySet()) {
+			monomials[count] = term.getKey();
+			numerators[count++] = term.getValue().longValueExact();
+		}
+		return MultivariatePolynomial.fromTerms(this.layout, monomials, numerators, count, 1);
+	}
+	
+	/*
+	 * The gcd of two non-zero polynomials in the first given number of variables.
+	 */
+	private TreeMap<Long, BigInteger> gcd(final TreeMap<Long, BigInteger> a,
+			final TreeMap<Long, BigInteger> b, final int variables) {
+		if (variables == 0) {
+			final TreeMap<Long, BigInteger> c = new TreeMap<>();
+			c.put(0L, a.get(0L).gcd(b.get(0L)));
+			return c;
+		}
+		final int v = variables - 1;
+		final long degree = Math.max(this.degree(a, v), this.degree(b, v));
+		if (degree == 0) {
+			return this.gcd(a, b, v);
+		}
+		final BigInteger contentA = HeuristicGcd.content(a);
+		final BigInteger contentB = HeuristicGcd.content(b);
+		final TreeMap<Long, BigInteger> pa = HeuristicGcd.divideCoefficients(a, contentA);
+		final TreeMap<Long, BigInteger> pb = HeuristicGcd.divideCoefficients(b, contentB);
+		
+		BigInteger point = HeuristicGcd.norm(pa).min(HeuristicGcd.norm(pb)).shiftLeft(1).add(MIN_POINT);
+		while (this.evaluations < MAX_EVALUATIONS && point.bitLength() * degree <= MAX_BITS) {
+			this.evaluations++;
+			final TreeMap<Long, BigInteger> ea = this.evaluate(pa, v, point);
+			final TreeMap<Long, BigInteger> eb = this.evaluate(pb, v, point);
+			if (!ea.isEmpty() && !eb.isEmpty()) {
+				final TreeMap<Long, BigInteger> gamma = this.gcd(ea, eb, v);
+				if (gamma == null) {
+					return null;
+				}
+				final TreeMap<Long, BigInteger> candidate = this.interpolate(gamma, v, point);
+				if (!candidate.isEmpty()) {
+					final TreeMap<Long, BigInteger> g = HeuristicGcd.divideCoefficients(candidate,
+						HeuristicGcd.content(candidate));
+					if (this.divide(pa, g) != null && this.divide(pb, g) != null) {
+						return HeuristicGcd.multiplyCoefficients(g, contentA.gcd(contentB));
+					}
+				}
+			}
+			point = point.multiply(GROWTH_NUMERATOR).divide(GROWTH_DENOMINATOR);
+		}
+		return null;
+	}
+	
+	private long degree(final TreeMap<Long, BigInteger> t, final int variable) {
+		long degree = 0;
+		for (final long monomial : t.keySet()) {
+			degree = Math.max(degree, this.layout.exponent(monomial, variable));
+		}
+		return degree;
+	}
+	
+	/*
+	 * The gcd of the coefficients, with the sign of the leading coefficient.
+	 */
+	private static BigInteger content(final TreeMap<Long, BigInteger> t) {
+		BigInteger gcd = BigInteger.ZERO;
+		for (final BigInteger c : t.values()) {
+			gcd = gcd.gcd(c);
+		}
+		return t.lastEntry().getValue().signum() < 0 ? gcd.negate() : gcd;
+	}
+	
+	/*
+	 * The maximum absolute value of the coefficients.
+	 */
+	private static BigInteger norm(final TreeMap<Long, BigInteger> t) {
+		BigInteger max = BigInteger.ZERO;
+		for (final BigInteger c : t.values()) {
+			max = max.max(c.abs());
+		}
+		return max;
+	}
+	
+	private static TreeMap<Long, BigInteger> multiplyCoefficients(final TreeMap<Long, BigInteger> t,
+			final BigInteger c) {
+		final TreeMap<Long, BigInteger> r = new TreeMap<>();
+		t.forEach((m, x) -> r.put(m, x.multiply(c)));
+		return r;
+	}
+	
+	/*
+	 * Divides every coefficient by a divisor of the content.
+	 */
+	private static TreeMap<Long, BigInteger> divideCoefficients(final TreeMap<Long, BigInteger> t,
+			final BigInteger c) {
+		final TreeMap<Long, BigInteger> r = new TreeMap<>();
+		t.forEach((m, x) -> r.put(m, x.divide(c)));
+		return r;
+	}
+	
+	private static void add(final TreeMap<Long, BigInteger> t, final long monomial, final BigInteger c) {
+		final BigInteger sum = t.getOrDefault(monomial, BigInteger.ZERO).add(c);
+		if (sum.signum() == 0) {
+			t.remove(monomial);
+		} else {
+			t.put(monomial, sum);
+		}
+	}
+	
+	/*
+	 * Replaces a variable with an integer.
+	 */
+	private TreeMap<Long, BigInteger> evaluate(final TreeMap<Long, BigInteger> t, final int variable,
+			final BigInteger point) {
+		final BigInteger[] powers = new BigInteger[(int) this.degree(t, variable) + 1];
+		powers[0] = BigInteger.ONE;
+		for (int i = 1; i < powers.length; i++) {
+			powers[i] = powers[i - 1].multiply(point);
+		}
+		final TreeMap<Long, BigInteger> r = new TreeMap<>();
+		t.forEach((m, c) -> {
+			final long e = this.layout.exponent(m, variable);
+			HeuristicGcd.add(r, m - this.layout.pack(variable, e), c.multiply(powers[(int) e]));
+		});
+		return r;
+	}
+	
+	/*
+	 * The inverse of the evaluation: the coefficients are written in base point,
+	 * with digits in (-point/2, point/2], and each digit becomes the coefficient
+	 * of a power of the variable. The result is empty if a degree does not fit in
+	 * the layout, since such a candidate cannot divide the polynomials.
+	 */
+	private TreeMap<Long, BigInteger> interpolate(final TreeMap<Long, BigInteger> t, final int variable,
+			final BigInteger point) {
+		final TreeMap<Long, BigInteger> r = new TreeMap<>();
+		for (final Map.Entry<Long, BigInteger> term : t.entrySet()) {
+			BigInteger c = term.getValue();
+			for (long i = 0; c.signum() != 0; i++) {
+				BigInteger digit = c.mod(point);
+				if (digit.shiftLeft(1).compareTo(point) > 0) {
+					digit = digit.subtract(point);
+				}
+				if (digit.signum() != 0) {
+					try {
+						HeuristicGcd.add(r, term.getKey() + this.layout.pack(variable, i), digit);
+					} catch (final ArithmeticException ex) {
+						return new TreeMap<>();
+					}
+				}
+				c = c.subtract(digit).divide(point);
+			}
+		}
+		return r;
+	}
+	
+	/*
+	 * Exact division, or null if b does not divide a. The leading term of the remainder
+	 * is divided by the leading term of b, until the remainder is zero. The degree of the
+	 * quotient in each variable is bounded by the difference of the degrees, which also
+	 * keeps the exponents of the products within their fields.
+	 */
+	private TreeMap<Long, BigInteger> divide(final TreeMap<Long, BigInteger> a,
+			final TreeMap<Long, BigInteger> b) {
+		final int variables = this.layout.getVariables();
+		final long[] bounds = new long[variables];
+		for (int v = 0; v < variables; v++) {
+			bounds[v] = this.degree(a, v) - this.degree(b, v);
+		}
+		final long lead = b.lastKey();
+		final BigInteger leadCoefficient = b.get(lead);
+		final TreeMap<Long, BigInteger> remainder = new TreeMap<>(a);
+		final TreeMap<Long, BigInteger> quotient = new TreeMap<>();
+		while (!remainder.isEmpty()) {
+			final long monomial = remainder.lastKey();
+			if (!this.layout.divides(monomial, lead, 0)) {
+				return null;
+			}
+			final long q = monomial - lead;
+			for (int v = 0; v < variables; v++) {
+				if (this.layout.exponent(q, v) > bounds[v]) {
+					return null;
+				}
+			}
+			final BigInteger[] c = remainder.get(monomial).divideAndRemainder(leadCoefficient);
+			if (c[1].signum() != 0) {
+				return null;
+			}
+			quotient.put(q, c[0]);
+			for (final Map.Entry<Long, BigInteger> term : b.entrySet()) {
+				HeuristicGcd.add(remainder, term.getKey() + q, term.getValue().multiply(c[0]).negate());
+			}
+		}
+		return quotient;
+	}
+}
@@ -0,0 +1,149 @@
+package org.converger.framework.polynomials;
+
+/**
+ * A hash map from long keys to long values, with open addressing and linear probing.
+ * Each key is a tuple of a fixed number of longs (a packed monomial).
+ * Keys and values are stored in primitive arrays, thus no object is allocated per entry.
+ * It is used to collect the terms of polynomials (monomial to coefficient).
+ * @author Dario Pavllo
+ */
+final class LongLongMap {
+	
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/** The number of longs of a key */
+	private final int keyLength;
+	private long[] keys;
+	private long[] values;
+	private boolean[] used;
+	private int size;
+	
+	/**
+	 * Builds an empty map.
+	 * @param expectedSize the expected number of entries
+	 * @param length the number of longs of each key
+	 */
+	LongLongMap(final int expectedSize, final int length) {
+		this.keyLength = length;
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < 2 * expectedSize) {
+			capacity <<= 1;
+		}
+		this.allocate(capacity);
+	}
+	
+	private void allocate(final int capacity) {
+		this.keys = new long[capacity * this.keyLength];
+		this.values = new long[capacity];
+		this.used = new boolean[capacity];
+		this.size = 0;
+	}
+	
+	/**
+	 * Adds a value to the one associated with a key (0 if the key is not present).
+	 * @param key the array which contains the key
+	 * @param offset the position of the key in the array
+	 * @throws ArithmeticException if the sum overflows
+	 */
+	void add(final long[] key, final int offset, final long value) {
+		final int i = this.find(key, offset);
+		if (this.used[i]) {
+			this.values[i] = Math.addExact(this.values[i], value);
+			return;
+		}
+		this.used[i] = true;
+		System.arraycopy(key, offset, this.keys, i * this.keyLength, this.keyLength);
+		this.values[i] = value;
+		this.size++;
+		if (2 * this.size > this.values.length) {
+			this.rehash();
+		}
+	}
+	
+	/**
+	 * Returns the value associated with a key, or 0 if the key is not present.
+	 */
+	long get(final long[] key, final int offset) {
+		final int i = this.find(key, offset);
+		return this.used[i] ? this.values[i] : 0;
+	}
+	
+	/*
+	 * Returns the slot of a key, or the empty slot where it would be inserted.
+	 */
+	private int find(final long[] key, final int offset) {
+		final int mask = this.values.length - 1;
+		int i = this.hash(key, offset) & mask;
+		while (this.used[i] && !this.equalKeys(i, key, offset)) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+	
+	private boolean equalKeys(final int slot, final long[] key, final int offset) {
+		for (int k = 0; k < this.keyLength; k++) {
+			if (this.keys[slot * this.keyLength + k] != key[offset + k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void rehash() {
+		final long[] oldKeys = this.keys;
+		final long[] oldValues = this.values;
+		final boolean[] oldUsed = this.used;
+		this.allocate(2 * oldValues.length);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldUsed[i]) {
+				this.add(oldKeys, i * this.keyLength, oldValues[i]);
+			}
+		}
+	}
+	
+	/*
+	 * Mixes the bits of the key (the finalizer of MurmurHash3), since the
+	 * low bits of packed monomials are often equal.
+	 */
+	private int hash(final long[] key, final int offset) {
+		long h = 0;
+		for (int k = 0; k < this.keyLength; k++) {
+			h = 31 * h + key[offset + k];
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+	
+	/**
+	 * @return the number of entries
+	 */
+	int size() {
+		return this.size;
+	}
+	
+	/**
+	 * @return the number of slots, which can be iterated with the following methods
+	 */
+	int capacity() {
+		return this.values.length;
+	}
+	
+	boolean isUsed(final int slot) {
+		return this.used[slot];
+	}
+	
+	/**
+	 * Copies the key of a slot to an array.
+	 */
+	void keyAt(final int slot, final long[] target, final int offset) {
+		System.arraycopy(this.keys, slot * this.keyLength, target, offset, this.keyLength);
+	}
+	
+	long valueAt(final int slot) {
+		return this.values[slot];
+	}
+}
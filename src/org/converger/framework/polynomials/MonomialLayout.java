@@ -0,0 +1,141 @@
+package org.converger.framework.polynomials;
+
+/**
+ * Describes how the exponents of a monomial are packed into longs (words).
+ * Each variable has a field which is wide enough for its maximum degree, and
+ * the fields are assigned to the words in order, the first variable being in the
+ * most significant position: thus comparing two packed monomials word by word is
+ * the same as comparing them lexicographically. Most monomials fit in a single word.
+ * The product of two monomials is the sum of the packed values: the top bit of
+ * every field is kept free, so that an overflow of an exponent is detected
+ * instead of corrupting the next field. The top bit of every word is also free,
+ * thus the words are never negative.
+ * @author Dario Pavllo
+ */
+final class MonomialLayout {
+	
+	/** The usable bits of a word */
+	private static final int WORD_BITS = Long.SIZE - 1;
+	
+	private final int variables;
+	private final int words;
+	/** The word of each variable */
+	private final int[] wordIndices;
+	private final int[] shifts;
+	private final int[] bits;
+	/** The top bit of every field, for each word */
+	private final long[] guards;
+	
+	/**
+	 * Builds the layout of the monomials with the given maximum degrees.
+	 * @param maxDegrees the maximum degree of each variable
+	 * @throws ArithmeticException if a degree does not fit in a word
+	 */
+	MonomialLayout(final long[] maxDegrees) {
+		this.variables = maxDegrees.length;
+		this.wordIndices = new int[this.variables];
+		this.shifts = new int[this.variables];
+		this.bits = new int[this.variables];
+		int word = 0;
+		int used = 0;
+		for (int v = 0; v < this.variables; v++) {
+			//The exponent and the guard bit
+			this.bits[v] = Long.SIZE - Long.numberOfLeadingZeros(maxDegrees[v]) + 1;
+			if (this.bits[v] > WORD_BITS) {
+				throw new ArithmeticException("The exponent is too high");
+			}
+			if (used + this.bits[v] > WORD_BITS) {
+				word++;
+				used = 0;
+			}
+			this.wordIndices[v] = word;
+			used += this.bits[v];
+			//The temporary shift is the end of the field, from the top of the word
+			this.shifts[v] = used;
+		}
+		this.words = word + 1;
+		
+		//The fields of each word are aligned to its least significant bit
+		final int[] lengths = new int[this.words];
+		for (int v = 0; v < this.variables; v++) {
+			lengths[this.wordIndices[v]] = this.shifts[v];
+		}
+		this.guards = new long[this.words];
+		for (int v = 0; v < this.variables; v++) {
+			this.shifts[v] = lengths[this.wordIndices[v]] - this.shifts[v];
+			this.guards[this.wordIndices[v]] |= 1L << (this.shifts[v] + this.bits[v] - 1);
+		}
+	}
+	
+	/**
+	 * @return the number of variables
+	 */
+	int getVariables() {
+		return this.variables;
+	}
+	
+	/**
+	 * @return the number of words of a monomial
+	 */
+	int getWords() {
+		return this.words;
+	}
+	
+	/**
+	 * Returns the index of the word which contains the exponent of a variable.
+	 */
+	int word(final int variable) {
+		return this.wordIndices[variable];
+	}
+	
+	/**
+	 * Packs the monomial v^exponent in the word of the variable.
+	 * @throws ArithmeticException if the exponent does not fit in a field
+	 */
+	long pack(final int variable, final long exponent) {
+		if (exponent >>> (this.bits[variable] - 1) != 0) {
+			throw new ArithmeticException("The exponent is too high");
+		}
+		return exponent << this.shifts[variable];
+	}
+	
+	/**
+	 * Returns the exponent of a variable, given the word which contains it.
+	 */
+	long exponent(final long word, final int variable) {
+		return (word >>> this.shifts[variable]) & ((1L << (this.bits[variable] - 1)) - 1);
+	}
+	
+	/**
+	 * Tells whether the monomial b divides a, in one of their words, i.e. a - b is valid.
+	 * Every field of the difference is non-negative if and only if no guard bit is set.
+	 */
+	boolean divides(final long a, final long b, final int word) {
+		return ((a - b) & this.guards[word]) == 0;
+	}
+	
+	/**
+	 * Multiplies one of the words of two packed monomials.
+	 * @throws ArithmeticException if an exponent overflows
+	 */
+	long multiply(final long a, final long b, final int word) {
+		final long product = a + b;
+		if ((product & this.guards[word]) != 0) {
+			throw new ArithmeticException("The exponent is too high");
+		}
+		return product;
+	}
+	
+	/**
+	 * Compares two packed monomials, stored in arrays at the given offsets.
+	 */
+	int compare(final long[] a, final int offsetA, final long[] b, final int offsetB) {
+		for (int w = 0; w < this.words; w++) {
+			final int c = Long.compare(a[offsetA + w], b[offsetB + w]);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,276 @@
+package org.converger.framework.polynomials;
+
+/**
+ * Multiplication of dense polynomials with integer coefficients.
+ * Small products use the schoolbook algorithm, medium ones Karatsuba's algorithm,
+ * and large ones the number theoretic transform (NTT) modulo three primes, whose
+ * results are combined with the Chinese remainder theorem (Garner's algorithm).
+ * The fast algorithms work in the ring of the integers modulo 2^64 (the usual
+ * overflowing arithmetic of longs), which gives the exact result when it fits in a long:
+ * they are used only if a bound on the coefficients of the product proves that it fits.
+ * Otherwise the schoolbook algorithm checks every operation, and throws an
+ * ArithmeticException if the product cannot be represented.
+ * @author Dario Pavllo
+ */
+final class Multiplication {
+	
+	/** The minimum length of the factors for Karatsuba's algorithm */
+	private static final int KARATSUBA_THRESHOLD = 32;
+	/** The minimum length of the factors for the NTT */
+	private static final int NTT_THRESHOLD = 256;
+	
+	/* The NTT primes, which are c*2^k + 1 (up to 2^23 points), with primitive root 3 */
+	private static final long P1 = 998244353;
+	private static final long P2 = 167772161;
+	private static final long P3 = 469762049;
+	private static final long ROOT = 3;
+	private static final long P1_INVERSE_MOD_P2 = Multiplication.inverse(P1 % P2, P2);
+	private static final long P1P2_INVERSE_MOD_P3 = Multiplication.inverse(P1 * P2 % P3, P3);
+	
+	private Multiplication() {
+	}
+	
+	/**
+	 * Multiplies two polynomials.
+	 * @param a the coefficients of the first factor, in increasing order of degree
+	 * @param b the coefficients of the second factor, in increasing order of degree
+	 * @return the coefficients of the product
+	 * @throws ArithmeticException if a coefficient of the product does not fit in a long
+	 */
+	static long[] multiply(final long[] a, final long[] b) {
+		final int shorter = Math.min(a.length, b.length);
+		if (shorter >= KARATSUBA_THRESHOLD && Multiplication.fits(a, b)) {
+			return shorter >= NTT_THRESHOLD ? Multiplication.ntt(a, b) : Multiplication.karatsuba(a, b);
+		}
+		return Multiplication.schoolbook(a, b);
+	}
+	
+	/*
+	 * Tells whether the coefficients of the product are surely less than 2^63 in absolute value:
+	 * each one is the sum of at most min(n, m) products.
+	 */
+	private static boolean fits(final long[] a, final long[] b) {
+		try {
+			final long bound = Math.multiplyExact(Multiplication.maxAbs(a), Multiplication.maxAbs(b));
+			Math.multiplyExact(bound, (long) Math.min(a.length, b.length));
+			return true;
+		} catch (final ArithmeticException ex) {
+			return false;
+		}
+	}
+	
+	private static long maxAbs(final long[] a) {
+		long max = 0;
+		for (final long c : a) {
+			if (c == Long.MIN_VALUE) {
+				throw new ArithmeticException("Overflow");
+			}
+			max = Math.max(max, Math.abs(c));
+		}
+		return max;
+	}
+	
+	/*
+	 * The exact quadratic algorithm.
+	 */
+	private static long[] schoolbook(final long[] a, final long[] b) {
+		final long[] c = new long[a.length + b.length - 1];
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != 0) {
+				for (int j = 0; j < b.length; j++) {
+					c[i + j] = Math.addExact(c[i + j], Math.multiplyExact(a[i], b[j]));
+				}
+			}
+		}
+		return c;
+	}
+	
+	/*
+	 * Karatsuba's algorithm (modulo 2^64): with a = a0 + x^h*a1 and b = b0 + x^h*b1,
+	 * a*b = a0*b0 + x^h*((a0 + a1)*(b0 + b1) - a0*b0 - a1*b1) + x^2h*a1*b1.
+	 */
+	private static long[] karatsuba(final long[] a, final long[] b) {
+		if (Math.min(a.length, b.length) < KARATSUBA_THRESHOLD) {
+			final long[] c = new long[a.length + b.length - 1];
+			for (int i = 0; i < a.length; i++) {
+				for (int j = 0; j < b.length; j++) {
+					c[i + j] += a[i] * b[j];
+				}
+			}
+			return c;
+		}
+		final int h = Math.max(a.length, b.length) / 2;
+		final long[] c = new long[a.length + b.length - 1];
+		if (a.length <= h || b.length <= h) {
+			//One factor is much shorter: the longer one is split
+			final long[] shortFactor = a.length <= h ? a : b;
+			final long[] longFactor = a.length <= h ? b : a;
+			Multiplication.addTo(c, Multiplication.karatsuba(shortFactor,
+				Multiplication.slice(longFactor, 0, h)), 0);
+			Multiplication.addTo(c, Multiplication.karatsuba(shortFactor,
+				Multiplication.slice(longFactor, h, longFactor.length)), h);
+			return c;
+		}
+		final long[] a0 = Multiplication.slice(a, 0, h);
+		final long[] a1 = Multiplication.slice(a, h, a.length);
+		final long[] b0 = Multiplication.slice(b, 0, h);
+		final long[] b1 = Multiplication.slice(b, h, b.length);
+		final long[] z0 = Multiplication.karatsuba(a0, b0);
+		final long[] z2 = Multiplication.karatsuba(a1, b1);
+		final long[] z1 = Multiplication.karatsuba(Multiplication.sum(a0, a1), Multiplication.sum(b0, b1));
+		for (int i = 0; i < z0.length; i++) {
+			z1[i] -= z0[i];
+		}
+		for (int i = 0; i < z2.length; i++) {
+			z1[i] -= z2[i];
+		}
+		Multiplication.addTo(c, z0, 0);
+		Multiplication.addTo(c, z1, h);
+		Multiplication.addTo(c, z2, 2 * h);
+		return c;
+	}
+	
+	private static long[] slice(final long[] a, final int from, final int to) {
+		final long[] c = new long[to - from];
+		System.arraycopy(a, from, c, 0, c.length);
+		return c;
+	}
+	
+	private static long[] sum(final long[] a, final long[] b) {
+		final long[] c = new long[Math.max(a.length, b.length)];
+		Multiplication.addTo(c, a, 0);
+		Multiplication.addTo(c, b, 0);
+		return c;
+	}
+	
+	/*
+	 * Adds x^offset*b to a (modulo 2^64); the terms beyond the length of a are zero.
+	 */
+	private static void addTo(final long[] a, final long[] b, final int offset) {
+		final int end = Math.min(b.length, a.length - offset);
+		for (int i = 0; i < end; i++) {
+			a[i + offset] += b[i];
+		}
+	}
+	
+	/*
+	 * Multiplication with the NTT modulo three primes. The result is reconstructed
+	 * modulo their product M (about 2^86), thus the coefficients which are less
+	 * than 2^63 in absolute value are exact.
+	 */
+	private static long[] ntt(final long[] a, final long[] b) {
+		final int length = a.length + b.length - 1;
+		int size = 1;
+		while (size < length) {
+			size <<= 1;
+		}
+		final long[] r1 = Multiplication.cyclicProduct(a, b, size, P1);
+		final long[] r2 = Multiplication.cyclicProduct(a, b, size, P2);
+		final long[] r3 = Multiplication.cyclicProduct(a, b, size, P3);
+		
+		final long[] c = new long[length];
+		for (int i = 0; i < length; i++) {
+			//Garner's algorithm: x = r1 + P1*k2 + P1*P2*k3
+			final long k2 = Multiplication.reduce(r2[i] - r1[i], P2) * P1_INVERSE_MOD_P2 % P2;
+			final long x12 = r1[i] + P1 * k2;
+			final long k3 = Multiplication.reduce(r3[i] - x12 % P3, P3) * P1P2_INVERSE_MOD_P3 % P3;
+			//The values above M/2 are negative (the product P1*P2*k3 may overflow, but
+			//the final result fits in a long)
+			c[i] = x12 + P1 * P2 * (k3 <= P3 / 2 ? k3 : k3 - P3);
+		}
+		return c;
+	}
+	
+	private static long reduce(final long value, final long modulus) {
+		final long r = value % modulus;
+		return r < 0 ? r + modulus : r;
+	}
+	
+	/*
+	 * Returns a*b modulo x^size - 1 and modulo the given prime.
+	 */
+	private static long[] cyclicProduct(final long[] a, final long[] b, final int size,
+			final long modulus) {
+		final long[] fa = new long[size];
+		final long[] fb = new long[size];
+		for (int i = 0; i < a.length; i++) {
+			fa[i] = Multiplication.reduce(a[i], modulus);
+		}
+		for (int i = 0; i < b.length; i++) {
+			fb[i] = Multiplication.reduce(b[i], modulus);
+		}
+		Multiplication.transform(fa, modulus, false);
+		Multiplication.transform(fb, modulus, false);
+		for (int i = 0; i < size; i++) {
+			fa[i] = fa[i] * fb[i] % modulus;
+		}
+		Multiplication.transform(fa, modulus, true);
+		return fa;
+	}
+	
+	/*
+	 * The in-place iterative NTT (Cooley-Tukey, with bit-reversal permutation).
+	 * The moduli are less than 2^30, thus products of residues fit in a long.
+	 */
+	private static void transform(final long[] a, final long modulus, final boolean inverse) {
+		final int n = a.length;
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				final long t = a[i];
+				a[i] = a[j];
+				a[j] = t;
+			}
+		}
+		for (int length = 2; length <= n; length <<= 1) {
+			long w = Multiplication.power(ROOT, (modulus - 1) / length, modulus);
+			if (inverse) {
+				w = Multiplication.inverse(w, modulus);
+			}
+			final int half = length >> 1;
+			//The powers of w for this level
+			final long[] powers = new long[half];
+			powers[0] = 1;
+			for (int k = 1; k < half; k++) {
+				powers[k] = powers[k - 1] * w % modulus;
+			}
+			for (int i = 0; i < n; i += length) {
+				for (int k = 0; k < half; k++) {
+					final long u = a[i + k];
+					final long v = a[i + k + half] * powers[k] % modulus;
+					a[i + k] = u + v < modulus ? u + v : u + v - modulus;
+					a[i + k + half] = u - v >= 0 ? u - v : u - v + modulus;
+				}
+			}
+		}
+		if (inverse) {
+			final long scale = Multiplication.inverse(n, modulus);
+			for (int i = 0; i < n; i++) {
+				a[i] = a[i] * scale % modulus;
+			}
+		}
+	}
+	
+	private static long power(final long base, final long exponent, final long modulus) {
+		long result = 1;
+		long square = base % modulus;
+		for (long e = exponent; e > 0; e >>= 1) {
+			if ((e & 1) != 0) {
+				result = result * square % modulus;
+			}
+			square = square * square % modulus;
+		}
+		return result;
+	}
+	
+	/*
+	 * The inverse modulo a prime, by Fermat's little theorem.
+	 */
+	private static long inverse(final long value, final long modulus) {
+		return Multiplication.power(value, modulus - 2, modulus);
+	}
+}
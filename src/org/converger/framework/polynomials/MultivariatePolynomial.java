@@ -0,0 +1,404 @@
+package org.converger.framework.polynomials;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.ExpressionFactory;
+import org.converger.framework.core.MathUtils;
+import org.converger.framework.core.NAryOperator;
+
+/**
+ * A sparse multivariate polynomial with rational coefficients.
+ * Each term is a packed monomial (see {@link MonomialLayout}) with an integer numerator,
+ * and the terms are sorted by decreasing monomial; the denominator is common to all the terms.
+ * The monomials are stored one after another in an array of words.
+ * Sums are collected in a {@link LongLongMap}, while products are computed with
+ * a heap which merges the partial products in order (Johnson's algorithm).
+ * The arithmetic is exact: an ArithmeticException is thrown on overflow.
+ * @author Dario Pavllo
+ */
+final class MultivariatePolynomial {
+	
+	/** The minimum number of terms of a univariate factor for the dense multiplication */
+	private static final int DENSE_TERMS = 32;
+	/** A factor is dense if at least 1/DENSE_RATIO of its coefficients are not zero */
+	private static final int DENSE_RATIO = 4;
+	
+	private final MonomialLayout layout;
+	/** The number of words of a monomial */
+	private final int words;
+	private final long[] monomials;
+	private final long[] numerators;
+	private final long denominator;
+	
+	private MultivariatePolynomial(final MonomialLayout monomialLayout, final long[] terms,
+			final long[] termNumerators, final int count, final long commonDenominator) {
+		this.layout = monomialLayout;
+		this.words = monomialLayout.getWords();
+		//Reduces the fraction; the denominator is positive
+		long gcd = commonDenominator;
+		for (int i = 0; i < count; i++) {
+			gcd = MathUtils.gcd(gcd, termNumerators[i]);
+		}
+		if (commonDenominator < 0) {
+			gcd = Math.negateExact(gcd);
+		}
+		this.monomials = Arrays.copyOf(terms, count * this.words);
+		this.numerators = new long[count];
+		for (int i = 0; i < count; i++) {
+			this.numerators[i] = termNumerators[i] / gcd;
+		}
+		this.denominator = count == 0 ? 1 : commonDenominator / gcd;
+	}
+	
+	/**
+	 * Builds a constant polynomial.
+	 * @throws ArithmeticException if the denominator is zero
+	 */
+	static MultivariatePolynomial constant(final MonomialLayout layout,
+			final long numerator, final long denominator) {
+		if (denominator == 0) {
+			throw new ArithmeticException("Division by zero");
+		}
+		return new MultivariatePolynomial(layout, new long[layout.getWords()],
+			new long[] {numerator}, numerator == 0 ? 0 : 1, denominator);
+	}
+	
+	/**
+	 * Builds a polynomial from its terms, which must be sorted by decreasing monomial.
+	 * @param monomials the words of the monomials, one monomial after another
+	 */
+	static MultivariatePolynomial fromTerms(final MonomialLayout layout, final long[] monomials,
+			final long[] numerators, final int count, final long denominator) {
+		return new MultivariatePolynomial(layout, monomials, numerators, count, denominator);
+	}
+	
+	/**
+	 * Builds the polynomial made of a single variable.
+	 */
+	static MultivariatePolynomial variable(final MonomialLayout layout, final int variable) {
+		final long[] monomial = new long[layout.getWords()];
+		monomial[layout.word(variable)] = layout.pack(variable, 1);
+		return new MultivariatePolynomial(layout, monomial, new long[] {1}, 1, 1);
+	}
+	
+	/**
+	 * Adds a list of polynomials, collecting the terms in a hash map.
+	 */
+	static MultivariatePolynomial sum(final MonomialLayout layout,
+			final List<MultivariatePolynomial> addends) {
+		long denominator = 1;
+		int count = 0;
+		for (final MultivariatePolynomial p : addends) {
+			denominator = Math.multiplyExact(denominator / MathUtils.gcd(denominator, p.denominator),
+				p.denominator);
+			count += p.numerators.length;
+		}
+		final int words = layout.getWords();
+		final LongLongMap terms = new LongLongMap(count, words);
+		for (final MultivariatePolynomial p : addends) {
+			final long scale = denominator / p.denominator;
+			for (int i = 0; i < p.numerators.length; i++) {
+				terms.add(p.monomials, i * words, Math.multiplyExact(p.numerators[i], scale));
+			}
+		}
+		
+		//The monomials are sorted in decreasing order
+		final long[] keys = new long[terms.size() * words];
+		final List<Integer> order = new ArrayList<>();
+		for (int slot = 0; slot < terms.capacity(); slot++) {
+			if (terms.isUsed(slot) && terms.valueAt(slot) != 0) {
+				terms.keyAt(slot, keys, order.size() * words);
+				order.add(order.size());
+			}
+		}
+		order.sort((i, j) -> layout.compare(keys, j * words, keys, i * words));
+		final int k = order.size();
+		final long[] monomials = new long[k * words];
+		final long[] numerators = new long[k];
+		for (int i = 0; i < k; i++) {
+			System.arraycopy(keys, order.get(i) * words, monomials, i * words, words);
+			numerators[i] = terms.get(monomials, i * words);
+		}
+		return new MultivariatePolynomial(layout, monomials, numerators, k, denominator);
+	}
+	
+	/**
+	 * Multiplies this polynomial by another one.
+	 * The heap contains at most one partial product for each term of the shorter
+	 * polynomial: the products come out in decreasing order, thus the equal
+	 * monomials are consecutive and they are added immediately.
+	 */
+	MultivariatePolynomial multiply(final MultivariatePolynomial other) {
+		final MultivariatePolynomial a = this.numerators.length <= other.numerators.length ? this : other;
+		final MultivariatePolynomial b = a == this ? other : this;
+		final long denominator = Math.multiplyExact(a.denominator, b.denominator);
+		final int n = a.numerators.length;
+		final int m = b.numerators.length;
+		final int w = this.words;
+		if (n == 0) {
+			return new MultivariatePolynomial(this.layout, a.monomials, a.numerators, 0, 1);
+		}
+		if (a.isDenseUnivariate() && b.isDenseUnivariate()) {
+			return a.multiplyDense(b, denominator);
+		}
+		
+		final Heap heap = new Heap(this.layout, n);
+		heap.push(a.monomials, 0, b.monomials, 0, 0, 0);
+		long[] monomials = new long[Math.max(n, m) * w];
+		long[] numerators = new long[Math.max(n, m)];
+		final long[] monomial = new long[w];
+		int count = 0;
+		while (heap.size > 0) {
+			System.arraycopy(heap.keys, 0, monomial, 0, w);
+			long sum = 0;
+			while (heap.size > 0 && this.layout.compare(heap.keys, 0, monomial, 0) == 0) {
+				final int i = heap.rows[0];
+				final int j = heap.columns[0];
+				heap.pop();
+				sum = Math.addExact(sum, Math.multiplyExact(a.numerators[i], b.numerators[j]));
+				//The next products of the same row, and the first product of the next row
+				if (j == 0 && i + 1 < n) {
+					heap.push(a.monomials, (i + 1) * w, b.monomials, 0, i + 1, 0);
+				}
+				if (j + 1 < m) {
+					heap.push(a.monomials, i * w, b.monomials, (j + 1) * w, i, j + 1);
+				}
+			}
+			if (sum != 0) {
+				if (count == numerators.length) {
+					monomials = Arrays.copyOf(monomials, 2 * count * w);
+					numerators = Arrays.copyOf(numerators, 2 * count);
+				}
+				System.arraycopy(monomial, 0, monomials, count * w, w);
+				numerators[count++] = sum;
+			}
+		}
+		return new MultivariatePolynomial(this.layout, monomials, numerators, count, denominator);
+	}
+	
+	/*
+	 * Tells whether this polynomial has a single variable and enough terms to be
+	 * multiplied faster as an array of coefficients.
+	 */
+	private boolean isDenseUnivariate() {
+		return this.layout.getVariables() == 1 && this.numerators.length >= DENSE_TERMS
+			&& this.monomials[0] < DENSE_RATIO * this.numerators.length;
+	}
+	
+	/*
+	 * Multiplies two univariate polynomials with the dense algorithms (see {@link Multiplication}).
+	 */
+	private MultivariatePolynomial multiplyDense(final MultivariatePolynomial other,
+			final long denominator) {
+		final long[] c = Multiplication.multiply(this.toDenseArray(), other.toDenseArray());
+		final long[] monomials = new long[c.length];
+		final long[] numerators = new long[c.length];
+		int count = 0;
+		for (int i = c.length - 1; i >= 0; i--) {
+			if (c[i] != 0) {
+				monomials[count] = this.layout.pack(0, i);
+				numerators[count++] = c[i];
+			}
+		}
+		return new MultivariatePolynomial(this.layout, monomials, numerators, count, denominator);
+	}
+	
+	private long[] toDenseArray() {
+		//With a single variable, the packed monomial is the exponent
+		final long[] c = new long[(int) this.monomials[0] + 1];
+		for (int i = 0; i < this.numerators.length; i++) {
+			c[(int) this.monomials[i]] = this.numerators[i];
+		}
+		return c;
+	}
+	
+	/**
+	 * Raises this polynomial to a natural power. A single term is raised directly,
+	 * otherwise the polynomial is multiplied repeatedly by itself: since the factor
+	 * is short, this is faster than squaring for sparse polynomials.
+	 */
+	MultivariatePolynomial pow(final long exponent) {
+		if (exponent == 0) {
+			return MultivariatePolynomial.constant(this.layout, 1, 1);
+		}
+		if (this.numerators.length == 0) {
+			return this;
+		}
+		if (this.numerators.length == 1) {
+			final long[] monomial = new long[this.words];
+			for (int v = 0; v < this.layout.getVariables(); v++) {
+				final int w = this.layout.word(v);
+				monomial[w] |= this.layout.pack(v,
+					Math.multiplyExact(this.layout.exponent(this.monomials[w], v), exponent));
+			}
+			return new MultivariatePolynomial(this.layout, monomial,
+				new long[] {MultivariatePolynomial.power(this.numerators[0], exponent)}, 1,
+				MultivariatePolynomial.power(this.denominator, exponent));
+		}
+		MultivariatePolynomial result = this;
+		for (long i = 1; i < exponent; i++) {
+			result = result.multiply(this);
+		}
+		return result;
+	}
+	
+	private static long power(final long base, final long exponent) {
+		//Exponentiation by squaring
+		long result = 1;
+		long square = base;
+		for (long e = exponent; e > 0; e >>= 1) {
+			if ((e & 1) != 0) {
+				result = Math.multiplyExact(result, square);
+			}
+			if (e > 1) {
+				square = Math.multiplyExact(square, square);
+			}
+		}
+		return result;
+	}
+	
+	MonomialLayout getLayout() {
+		return this.layout;
+	}
+	
+	/**
+	 * @return the number of terms
+	 */
+	int getTermCount() {
+		return this.numerators.length;
+	}
+	
+	/**
+	 * Returns a word of the monomial of a term; the terms are sorted by decreasing monomial.
+	 */
+	long getMonomial(final int term, final int word) {
+		return this.monomials[term * this.words + word];
+	}
+	
+	/**
+	 * Returns the numerator of the coefficient of a term.
+	 */
+	long getNumerator(final int term) {
+		return this.numerators[term];
+	}
+	
+	/**
+	 * @return the common denominator of the coefficients
+	 */
+	long getDenominator() {
+		return this.denominator;
+	}
+	
+	/**
+	 * @return whether this polynomial is a constant
+	 */
+	boolean isConstant() {
+		for (final long word : this.monomials) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return this.numerators.length <= 1;
+	}
+	
+	/**
+	 * Converts this polynomial to an expression, whose terms are sorted by
+	 * decreasing monomial.
+	 * @param variables the expressions of the variables
+	 */
+	Expression toExpression(final List<Expression> variables) {
+		final List<Expression> terms = new ArrayList<>();
+		for (int i = 0; i < this.numerators.length; i++) {
+			final List<Expression> factors = new ArrayList<>();
+			for (int v = 0; v < variables.size(); v++) {
+				final long word = this.monomials[i * this.words + this.layout.word(v)];
+				final long e = this.layout.exponent(word, v);
+				if (e > 0) {
+					factors.add(Polynomial.makePower(variables.get(v), e));
+				}
+			}
+			terms.add(Polynomial.makeTerm(this.numerators[i], this.denominator, factors));
+		}
+		return ExpressionFactory.implode(NAryOperator.ADDITION, terms);
+	}
+	
+	/**
+	 * A binary max-heap of partial products, keyed by monomial.
+	 */
+	private static final class Heap {
+		
+		private final MonomialLayout layout;
+		private final int words;
+		/** The monomials, one after another, and a free slot at the end */
+		private final long[] keys;
+		private final int[] rows;
+		private final int[] columns;
+		private int size;
+		
+		Heap(final MonomialLayout monomialLayout, final int capacity) {
+			this.layout = monomialLayout;
+			this.words = monomialLayout.getWords();
+			this.keys = new long[(capacity + 1) * this.words];
+			this.rows = new int[capacity];
+			this.columns = new int[capacity];
+		}
+		
+		/**
+		 * Pushes the product of two monomials.
+		 * @throws ArithmeticException if an exponent overflows
+		 */
+		void push(final long[] a, final int offsetA, final long[] b, final int offsetB,
+				final int row, final int column) {
+			//The product is computed in the free slot
+			final int free = this.keys.length - this.words;
+			for (int w = 0; w < this.words; w++) {
+				this.keys[free + w] = this.layout.multiply(a[offsetA + w], b[offsetB + w], w);
+			}
+			int i = this.size++;
+			while (i > 0) {
+				final int parent = (i - 1) >>> 1;
+				if (this.layout.compare(this.keys, parent * this.words, this.keys, free) >= 0) {
+					break;
+				}
+				this.move(parent, i);
+				i = parent;
+			}
+			System.arraycopy(this.keys, free, this.keys, i * this.words, this.words);
+			this.rows[i] = row;
+			this.columns[i] = column;
+		}
+		
+		void pop() {
+			final int last = --this.size;
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= last) {
+					break;
+				}
+				if (child + 1 < last && this.compare(child + 1, child) > 0) {
+					child++;
+				}
+				if (this.compare(child, last) <= 0) {
+					break;
+				}
+				this.move(child, i);
+				i = child;
+			}
+			this.move(last, i);
+		}
+		
+		private int compare(final int i, final int j) {
+			return this.layout.compare(this.keys, i * this.words, this.keys, j * this.words);
+		}
+		
+		private void move(final int from, final int to) {
+			System.arraycopy(this.keys, from * this.words, this.keys, to * this.words, this.words);
+			this.rows[to] = this.rows[from];
+			this.columns[to] = this.columns[from];
+		}
+	}
+}
@@ -0,0 +1,437 @@
+package org.converger.framework.polynomials;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.ExpressionFactory;
+import org.converger.framework.core.MathUtils;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+
+/**
+ * Represents a univariate polynomial with rational coefficients, as an array
+ * of integer numerators over a common positive denominator.
+ * The representation is always reduced: the denominator is coprime with the numerators.
+ * Low-degree polynomials are stored densely ({@link DensePolynomial}), while
+ * high-degree polynomials with few terms are stored sparsely ({@link SparsePolynomial}).
+ * The arithmetic is exact: if a coefficient does not fit in a long,
+ * an ArithmeticException is thrown.
+ * @author Dario Pavllo
+ */
+public abstract class Polynomial {
+	
+	/** The maximum degree of a polynomial */
+	public static final int MAX_DEGREE = 1 << 20;
+	/** The minimum degree of a sparse polynomial */
+	private static final int SPARSE_DEGREE = 64;
+	/** A polynomial is sparse if less than 1/SPARSE_RATIO of its coefficients are not zero */
+	private static final int SPARSE_RATIO = 4;
+	
+	/**
+	 * Converts an expression to a polynomial in the given variable.
+	 * Only sums, products, divisions by constants and powers with constant
+	 * natural exponents are allowed.
+	 * @param e the expression to convert
+	 * @param variable the variable of the polynomial
+	 * @return the polynomial, or an empty optional if the expression is not a polynomial
+	 * or if its coefficients cannot be represented
+	 */
+	public static Optional<Polynomial> fromExpression(final Expression e, final String variable) {
+		try {
+			return Optional.ofNullable(new PolynomialConverter(variable).visit(e));
+		} catch (final ArithmeticException ex) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Builds a polynomial from its coefficients.
+	 * @param numerators the numerators of the coefficients, where the i-th one
+	 * is the coefficient of x^i
+	 * @param denominator the common denominator
+	 * @return the reduced polynomial
+	 * @throws ArithmeticException if the denominator is zero
+	 */
+	public static Polynomial of(final long[] numerators, final long denominator) {
+		final int[] exponents = new int[numerators.length];
+		for (int i = 0; i < exponents.length; i++) {
+			exponents[i] = i;
+		}
+		return Polynomial.fromTerms(exponents, numerators.clone(), numerators.length, denominator);
+	}
+	
+	/**
+	 * Builds a constant polynomial.
+	 * @param numerator the numerator of the constant
+	 * @param denominator the denominator of the constant
+	 * @return the reduced polynomial
+	 * @throws ArithmeticException if the denominator is zero
+	 */
+	public static Polynomial constant(final long numerator, final long denominator) {
+		return Polynomial.of(new long[] {numerator}, denominator);
+	}
+	
+	/**
+	 * Builds the monomial x^exponent.
+	 * @param exponent the degree of the monomial
+	 * @return the polynomial
+	 */
+	public static Polynomial monomial(final int exponent) {
+		return Polynomial.fromTerms(new int[] {exponent}, new long[] {1}, 1, 1);
+	}
+	
+	/**
+	 * Builds a reduced polynomial from a list of terms, in any order.
+	 * Terms with the same exponent are added. The arrays are modified.
+	 */
+	static Polynomial fromTerms(final int[] exponents, final long[] numerators,
+			final int count, final long denominator) {
+		if (denominator == 0) {
+			throw new ArithmeticException("Division by zero");
+		}
+		//The terms are sorted by exponent (the index is packed in the low bits)
+		final long[] keys = new long[count];
+		boolean sorted = true;
+		for (int i = 0; i < count; i++) {
+			if (exponents[i] > MAX_DEGREE) {
+				throw new ArithmeticException("The degree is too high");
+			}
+			keys[i] = (long) exponents[i] << 32 | i;
+			sorted &= i == 0 || exponents[i] > exponents[i - 1];
+		}
+		if (!sorted) {
+			Arrays.sort(keys);
+		}
+		
+		//Merges the terms with the same exponent and drops the zeros
+		final int[] exps = new int[count];
+		final long[] nums = new long[count];
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			final int index = (int) keys[i];
+			final int exponent = (int) (keys[i] >>> 32);
+			if (size > 0 && exps[size - 1] == exponent) {
+				nums[size - 1] = Math.addExact(nums[size - 1], numerators[index]);
+			} else {
+				if (size > 0 && nums[size - 1] == 0) {
+					size--;
+				}
+				exps[size] = exponent;
+				nums[size++] = numerators[index];
+			}
+		}
+		if (size > 0 && nums[size - 1] == 0) {
+			size--;
+		}
+		
+		//Reduces the fraction; the denominator is positive
+		long gcd = denominator;
+		for (int i = 0; i < size; i++) {
+			gcd = MathUtils.gcd(gcd, nums[i]);
+		}
+		if (denominator < 0) {
+			gcd = Math.negateExact(Math.abs(gcd));
+		}
+		final long d = size == 0 ? 1 : denominator / gcd;
+		for (int i = 0; i < size; i++) {
+			nums[i] /= gcd;
+		}
+		
+		final int degree = size == 0 ? -1 : exps[size - 1];
+		if (degree >= SPARSE_DEGREE && size < (degree + 1) / SPARSE_RATIO) {
+			return new SparsePolynomial(Arrays.copyOf(exps, size), Arrays.copyOf(nums, size), d);
+		}
+		final long[] dense = new long[degree + 1];
+		for (int i = 0; i < size; i++) {
+			dense[exps[i]] = nums[i];
+		}
+		return new DensePolynomial(dense, d);
+	}
+	
+	/**
+	 * Returns the degree of this polynomial.
+	 * @return the degree, or -1 if this is the zero polynomial
+	 */
+	public abstract int getDegree();
+	
+	/**
+	 * Returns the numerator of a coefficient.
+	 * @param exponent the exponent of the term
+	 * @return the numerator of the coefficient of x^exponent
+	 */
+	public abstract long getNumerator(int exponent);
+	
+	/**
+	 * Returns the common denominator of the coefficients.
+	 * @return a positive number
+	 */
+	public abstract long getDenominator();
+	
+	/**
+	 * Returns the number of terms whose coefficient is not zero.
+	 * @return the number of terms
+	 */
+	public abstract int getTermCount();
+	
+	/**
+	 * Returns the exponent of a term whose coefficient is not zero.
+	 * @param term the index of the term, where terms are sorted by increasing exponent
+	 * @return the exponent of the term
+	 */
+	public abstract int getTermExponent(int term);
+	
+	/**
+	 * Returns the numerator of a term whose coefficient is not zero.
+	 * @param term the index of the term, where terms are sorted by increasing exponent
+	 * @return the numerator of the coefficient of the term
+	 */
+	public abstract long getTermNumerator(int term);
+	
+	/**
+	 * Evaluates this polynomial with Horner's method.
+	 * @param x the value of the variable
+	 * @return the value of the polynomial
+	 */
+	public abstract double evaluate(double x);
+	
+	/**
+	 * Calculates the derivative of this polynomial.
+	 * @return the derivative
+	 * @throws ArithmeticException if a coefficient cannot be represented
+	 */
+	public abstract Polynomial derivative();
+	
+	/**
+	 * Returns the numerators of the coefficients.
+	 * @return an array of length degree+1, where the i-th element is the numerator
+	 * of the coefficient of x^i
+	 */
+	public long[] toLongArray() {
+		final long[] c = new long[this.getDegree() + 1];
+		for (int i = 0; i < this.getTermCount(); i++) {
+			c[this.getTermExponent(i)] = this.getTermNumerator(i);
+		}
+		return c;
+	}
+	
+	/**
+	 * Returns the approximate coefficients.
+	 * @return an array of length degree+1, where the i-th element is the coefficient of x^i
+	 */
+	public double[] toDoubleArray() {
+		final double[] c = new double[this.getDegree() + 1];
+		final double d = this.getDenominator();
+		for (int i = 0; i < this.getTermCount(); i++) {
+			c[this.getTermExponent(i)] = this.getTermNumerator(i) / d;
+		}
+		return c;
+	}
+	
+	/**
+	 * Adds a polynomial to this one.
+	 * @param other the other addend
+	 * @return the sum
+	 * @throws ArithmeticException if a coefficient cannot be represented
+	 */
+	public Polynomial add(final Polynomial other) {
+		//a/b + c/d = (a*(l/b) + c*(l/d))/l, where l = lcm(b, d)
+		final long gcd = MathUtils.gcd(this.getDenominator(), other.getDenominator());
+		final long scaleThis = other.getDenominator() / gcd;
+		final long scaleOther = this.getDenominator() / gcd;
+		final int count = this.getTermCount() + other.getTermCount();
+		final int[] exponents = new int[count];
+		final long[] numerators = new long[count];
+		int k = 0;
+		for (int i = 0; i < this.getTermCount(); i++) {
+			exponents[k] = this.getTermExponent(i);
+			numerators[k++] = Math.multiplyExact(this.getTermNumerator(i), scaleThis);
+		}
+		for (int i = 0; i < other.getTermCount(); i++) {
+			exponents[k] = other.getTermExponent(i);
+			numerators[k++] = Math.multiplyExact(other.getTermNumerator(i), scaleOther);
+		}
+		return Polynomial.fromTerms(exponents, numerators, count,
+			Math.multiplyExact(this.getDenominator(), scaleThis));
+	}
+	
+	/**
+	 * Multiplies this polynomial by another one.
+	 * @param other the other factor
+	 * @return the product
+	 * @throws ArithmeticException if a coefficient cannot be represented
+	 */
+	public Polynomial multiply(final Polynomial other) {
+		final long denominator = Math.multiplyExact(this.getDenominator(), other.getDenominator());
+		if (this.getDegree() < 0 || other.getDegree() < 0) {
+			return Polynomial.constant(0, 1);
+		}
+		if (this.getDegree() + other.getDegree() > MAX_DEGREE) {
+			throw new ArithmeticException("The degree is too high");
+		}
+		if (this instanceof DensePolynomial && other instanceof DensePolynomial) {
+			return Polynomial.of(Multiplication.multiply(this.toLongArray(), other.toLongArray()),
+				denominator);
+		}
+		
+		//Sparse product: every pair of terms, then the terms are merged
+		final int count = Math.multiplyExact(this.getTermCount(), other.getTermCount());
+		final int[] exponents = new int[count];
+		final long[] numerators = new long[count];
+		int k = 0;
+		for (int i = 0; i < this.getTermCount(); i++) {
+			for (int j = 0; j < other.getTermCount(); j++) {
+				exponents[k] = this.getTermExponent(i) + other.getTermExponent(j);
+				numerators[k++] = Math.multiplyExact(this.getTermNumerator(i),
+					other.getTermNumerator(j));
+			}
+		}
+		return Polynomial.fromTerms(exponents, numerators, count, denominator);
+	}
+	
+	/**
+	 * Raises this polynomial to a natural power, by squaring.
+	 * @param exponent the exponent
+	 * @return the power
+	 * @throws ArithmeticException if a coefficient cannot be represented
+	 * @throws IllegalArgumentException if the exponent is negative
+	 */
+	public Polynomial pow(final int exponent) {
+		if (exponent < 0) {
+			throw new IllegalArgumentException("The exponent must not be negative");
+		}
+		if (this.getDegree() > 0 && exponent > MAX_DEGREE / this.getDegree()) {
+			throw new ArithmeticException("The degree is too high");
+		}
+		Polynomial result = Polynomial.constant(1, 1);
+		Polynomial base = this;
+		for (int e = exponent; e > 0; e >>= 1) {
+			if ((e & 1) != 0) {
+				result = result.multiply(base);
+			}
+			if (e > 1) {
+				base = base.multiply(base);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Converts this polynomial to an expression, whose terms are sorted by decreasing degree.
+	 * @param variable the name of the variable
+	 * @return the expression
+	 */
+	public Expression toExpression(final String variable) {
+		final List<Expression> terms = new ArrayList<>();
+		for (int i = this.getTermCount() - 1; i >= 0; i--) {
+			final int exponent = this.getTermExponent(i);
+			final List<Expression> factors = new ArrayList<>();
+			if (exponent > 0) {
+				factors.add(Polynomial.makePower(new Variable(variable), exponent));
+			}
+			terms.add(Polynomial.makeTerm(this.getTermNumerator(i), this.getDenominator(), factors));
+		}
+		return ExpressionFactory.implode(NAryOperator.ADDITION, terms);
+	}
+	
+	/**
+	 * Builds the expression base^exponent, or base if the exponent is 1.
+	 */
+	static Expression makePower(final Expression base, final long exponent) {
+		return exponent == 1 ? base
+			: new BinaryOperation(BinaryOperator.POWER, base, Constant.valueOf(exponent));
+	}
+	
+	/**
+	 * Builds the expression of a term: (n*factors)/d, negated if the numerator is negative.
+	 * @param numerator the numerator of the coefficient
+	 * @param denominator the denominator of the coefficient
+	 * @param factors the factors of the monomial (empty for a constant term)
+	 * @return the expression
+	 */
+	static Expression makeTerm(final long numerator, final long denominator,
+			final List<Expression> factors) {
+		final long gcd = MathUtils.gcd(numerator, denominator);
+		final long n = Math.abs(numerator / gcd);
+		final long d = denominator / gcd;
+		
+		Expression term;
+		if (factors.isEmpty()) {
+			term = ExpressionFactory.makeRational(n, d);
+		} else {
+			final List<Expression> operands = new ArrayList<>();
+			if (n != 1) {
+				operands.add(Constant.valueOf(n));
+			}
+			operands.addAll(factors);
+			term = ExpressionFactory.implode(NAryOperator.PRODUCT, operands);
+			if (d != 1) {
+				term = new BinaryOperation(BinaryOperator.DIVISION, term, Constant.valueOf(d));
+			}
+		}
+		return numerator < 0 ? ExpressionFactory.negate(term) : term;
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Polynomial)) {
+			return false;
+		}
+		final Polynomial other = (Polynomial) obj;
+		if (this.getDenominator() != other.getDenominator()
+				|| this.getTermCount() != other.getTermCount()) {
+			return false;
+		}
+		for (int i = 0; i < this.getTermCount(); i++) {
+			if (this.getTermExponent(i) != other.getTermExponent(i)
+					|| this.getTermNumerator(i) != other.getTermNumerator(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = Long.hashCode(this.getDenominator());
+		for (int i = 0; i < this.getTermCount(); i++) {
+			hash = hash * 31 + this.getTermExponent(i);
+			hash = hash * 31 + Long.hashCode(this.getTermNumerator(i));
+		}
+		return hash;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = this.getTermCount() - 1; i >= 0; i--) {
+			final long numerator = this.getTermNumerator(i);
+			if (sb.length() > 0) {
+				sb.append(numerator < 0 ? " - " : " + ");
+			} else if (numerator < 0) {
+				sb.append('-');
+			}
+			sb.append(Math.abs(numerator));
+			if (this.getTermExponent(i) == 1) {
+				sb.append('x');
+			} else if (this.getTermExponent(i) > 1) {
+				sb.append("x^").append(this.getTermExponent(i));
+			}
+		}
+		if (sb.length() == 0) {
+			sb.append('0');
+		}
+		if (this.getDenominator() != 1) {
+			sb.insert(0, '(').append(")/").append(this.getDenominator());
+		}
+		return sb.toString();
+	}
+}
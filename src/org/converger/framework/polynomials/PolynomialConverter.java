@@ -0,0 +1,95 @@
+package org.converger.framework.polynomials;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+
+/**
+ * This visitor converts an expression to a polynomial in the given variable.
+ * It returns null if the expression is not a polynomial: other variables, functions,
+ * divisions by non-constant terms and non-natural exponents are not allowed.
+ * @author Dario Pavllo
+ */
+class PolynomialConverter implements Expression.Visitor<Polynomial> {
+	
+	private final String variable;
+	
+	/**
+	 * Initializes this converter.
+	 * @param variableName the variable of the polynomial
+	 */
+	PolynomialConverter(final String variableName) {
+		this.variable = variableName;
+	}
+	
+	@Override
+	public Polynomial visit(final Variable v) {
+		//Mathematical constants like e and pi are not rational
+		return v.getName().equals(this.variable) ? Polynomial.monomial(1) : null;
+	}
+	
+	@Override
+	public Polynomial visit(final Constant v) {
+		return Polynomial.constant(v.getValue(), 1);
+	}
+	
+	@Override
+	public Polynomial visit(final BinaryOperation v) {
+		final Polynomial a = this.visit(v.getFirstOperand());
+		final Polynomial b = a == null ? null : this.visit(v.getSecondOperand());
+		if (b == null || b.getDegree() > 0) {
+			return null;
+		}
+		switch (v.getOperator()) {
+		case DIVISION:
+			//Division by a non-zero constant
+			if (b.getDegree() < 0) {
+				return null;
+			}
+			return a.multiply(Polynomial.constant(b.getDenominator(), b.getNumerator(0)));
+		case POWER:
+			//The exponent must be a natural number
+			final long exponent = b.getNumerator(0);
+			if (b.getDenominator() != 1 || exponent < 0 || exponent > Polynomial.MAX_DEGREE) {
+				return null;
+			}
+			return a.pow((int) exponent);
+		default:
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	@Override
+	public Polynomial visit(final FunctionOperation v) {
+		return null;
+	}
+	
+	@Override
+	public Polynomial visit(final NAryOperation v) {
+		Polynomial result = null;
+		for (final Expression operand : v.getOperands()) {
+			final Polynomial p = this.visit(operand);
+			if (p == null) {
+				return null;
+			}
+			if (result == null) {
+				result = p;
+			} else if (v.getOperator() == NAryOperator.ADDITION) {
+				result = result.add(p);
+			} else {
+				result = result.multiply(p);
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public Polynomial visit(final Equation v) {
+		return null;
+	}
+}
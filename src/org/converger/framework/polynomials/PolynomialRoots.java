@@ -0,0 +1,270 @@
+package org.converger.framework.polynomials;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Finds the roots of polynomials. All the complex roots are approximated at once
+ * by the Aberth-Ehrlich simultaneous iteration, applied to the square-free part of
+ * the polynomial (so that every root is simple), while the number of real roots
+ * is determined exactly by the Sturm sequence. The approximations of the real roots
+ * are accepted only if the exact polynomial changes sign around each of them.
+ * @author Dario Pavllo
+ */
+public final class PolynomialRoots {
+	
+	/** The maximum iteration count of the Aberth-Ehrlich method. */
+	private static final int MAX_ITERATIONS = 1000;
+	/** The maximum iteration count of Newton's method, used to polish the real roots */
+	private static final int MAX_POLISH_ITERATIONS = 50;
+	/** The relative stop condition of the iterations */
+	private static final double TOLERANCE = 1e-15;
+	/** The angular offset of the starting points, which breaks the symmetries */
+	private static final double ANGLE_OFFSET = 0.4;
+	/** The relative half-width of the interval which must isolate each real root */
+	private static final double ISOLATION_TOLERANCE = 1e-9;
+	
+	private PolynomialRoots() {
+	}
+	
+	/**
+	 * Returns the number of distinct real roots of a polynomial.
+	 * @param p a polynomial of positive degree
+	 * @return the number of real roots, not counting multiplicities
+	 * @throws IllegalArgumentException if the polynomial is constant
+	 */
+	public static int countRealRoots(final Polynomial p) {
+		PolynomialRoots.checkDegree(p);
+		return new SturmSequence(p.toLongArray()).countRealRoots();
+	}
+	
+	/**
+	 * Approximates the distinct real roots of a polynomial.
+	 * @param p a polynomial of positive degree
+	 * @return the real roots, in increasing order, or nothing if they
+	 * could not be approximated reliably
+	 * @throws IllegalArgumentException if the polynomial is constant
+	 */
+	public static Optional<double[]> realRoots(final Polynomial p) {
+		return PolynomialRoots.realRoots(p, () -> { });
+	}
+	
+	/**
+	 * Approximates the distinct real roots of a polynomial.
+	 * @param p a polynomial of positive degree
+	 * @param interruptionCheck called between the iterations, it may abort
+	 * the computation by throwing an exception
+	 * @return the real roots, in increasing order, or nothing if they
+	 * could not be approximated reliably
+	 * @throws IllegalArgumentException if the polynomial is constant
+	 */
+	public static Optional<double[]> realRoots(final Polynomial p,
+			final Runnable interruptionCheck) {
+		PolynomialRoots.checkDegree(p);
+		final SturmSequence sturm = new SturmSequence(p.toLongArray());
+		final int count = sturm.countRealRoots();
+		final BigInteger[] exact = sturm.squareFreePart();
+		double[] a = new double[exact.length];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = exact[i].doubleValue();
+		}
+		
+		//Zero is factored out (it appears at most once in the square-free part)
+		final double[] roots = new double[count];
+		int found = 0;
+		if (a[0] == 0) {
+			roots[found++] = 0;
+			a = Arrays.copyOfRange(a, 1, a.length);
+		}
+		if (found < count) {
+			final double[][] z = PolynomialRoots.aberth(a, interruptionCheck);
+			if (z == null) {
+				return Optional.empty();
+			}
+			
+			//The real roots are the ones which are closest to the real axis
+			final Integer[] order = new Integer[z[0].length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (i, j) -> Double.compare(
+				Math.abs(z[1][i]) / Math.max(1, Math.abs(z[0][i])),
+				Math.abs(z[1][j]) / Math.max(1, Math.abs(z[0][j]))));
+			for (int i = 0; found < count; i++) {
+				roots[found++] = PolynomialRoots.polish(a, z[0][order[i]]);
+			}
+		}
+		Arrays.sort(roots);
+		return PolynomialRoots.isolates(exact, roots) ? Optional.of(roots) : Optional.empty();
+	}
+	
+	/*
+	 * Tells whether the exact polynomial changes sign in a small interval around each
+	 * root, and the intervals are disjoint: then each of them contains a distinct root,
+	 * and since there are as many intervals as real roots, none is missed.
+	 */
+	private static boolean isolates(final BigInteger[] p, final double[] roots) {
+		double previous = Double.NEGATIVE_INFINITY;
+		for (final double root : roots) {
+			final double delta = ISOLATION_TOLERANCE * Math.max(1, Math.abs(root));
+			final double lower = root - delta;
+			final double upper = root + delta;
+			//The comparison is false if the root is not a number
+			if (!(lower > previous) || Double.isInfinite(upper)
+					|| PolynomialRoots.signAt(p, lower) * PolynomialRoots.signAt(p, upper) >= 0) {
+				return false;
+			}
+			previous = upper;
+		}
+		return true;
+	}
+	
+	/*
+	 * Returns the exact sign of a polynomial with integer coefficients at a point.
+	 */
+	private static int signAt(final BigInteger[] p, final double x) {
+		if (x == 0) {
+			return p[0].signum();
+		}
+		//x = m*2^e exactly, where m is an odd integer
+		final int exponent = Math.getExponent(x) - 52;
+		final long significand = (long) Math.scalb(x, -exponent);
+		final int zeros = Long.numberOfTrailingZeros(significand);
+		final BigInteger m = BigInteger.valueOf(significand >> zeros);
+		final int e = exponent + zeros;
+		final int n = p.length - 1;
+		BigInteger value = p[n];
+		if (e >= 0) {
+			final BigInteger point = m.shiftLeft(e);
+			for (int i = n - 1; i >= 0; i--) {
+				value = value.multiply(point).add(p[i]);
+			}
+		} else {
+			//The value is multiplied by 2^(-e*n), which has no effect on the sign:
+			//the sum of p[i]*m^i*2^(-e*(n-i)) is computed by Horner's method
+			for (int i = n - 1; i >= 0; i--) {
+				value = value.multiply(m).add(p[i].shiftLeft(-e * (n - i)));
+			}
+		}
+		return value.signum();
+	}
+	
+	private static void checkDegree(final Polynomial p) {
+		if (p.getDegree() < 1) {
+			throw new IllegalArgumentException("The polynomial must not be constant");
+		}
+	}
+	
+	/**
+	 * Approximates all the complex roots of a polynomial, whose roots are simple
+	 * and different from zero, with the Aberth-Ehrlich method.
+	 * @param a the coefficients, in increasing order of degree
+	 * @param interruptionCheck called after every iteration
+	 * @return the real parts and the imaginary parts of the roots, or null
+	 * if the iteration did not converge
+	 */
+	private static double[][] aberth(final double[] a, final Runnable interruptionCheck) { //NOPMD
+		final int n = a.length - 1;
+		final double[] re = new double[n];
+		final double[] im = new double[n];
+		
+		//The starting points lie on a circle whose radius is the geometric mean of the roots
+		final double radius = Math.pow(Math.abs(a[0] / a[n]), 1.0 / n);
+		for (int k = 0; k < n; k++) {
+			final double angle = 2 * Math.PI * k / n + ANGLE_OFFSET;
+			re[k] = radius * Math.cos(angle);
+			im[k] = radius * Math.sin(angle);
+		}
+		
+		final double[] value = new double[4];
+		for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+			boolean converged = true;
+			for (int k = 0; k < n; k++) {
+				//w = p(z)/p'(z), by Horner's method in complex arithmetic
+				PolynomialRoots.horner(a, re[k], im[k], value);
+				final double dNorm = value[2] * value[2] + value[3] * value[3];
+				final double wRe = (value[0] * value[2] + value[1] * value[3]) / dNorm;
+				final double wIm = (value[1] * value[2] - value[0] * value[3]) / dNorm;
+				
+				//s = sum of 1/(z_k - z_j), for every j != k
+				double sRe = 0;
+				double sIm = 0;
+				for (int j = 0; j < n; j++) {
+					if (j != k) {
+						//1/d = conj(d)/|d|^2
+						final double dRe = re[k] - re[j];
+						final double dIm = im[k] - im[j];
+						final double norm = dRe * dRe + dIm * dIm;
+						sRe += dRe / norm;
+						sIm -= dIm / norm;
+					}
+				}
+				
+				//The correction is w/(1 - w*s)
+				final double bRe = 1 - (wRe * sRe - wIm * sIm);
+				final double bIm = -(wRe * sIm + wIm * sRe);
+				final double bNorm = bRe * bRe + bIm * bIm;
+				final double cRe = (wRe * bRe + wIm * bIm) / bNorm;
+				final double cIm = (wIm * bRe - wRe * bIm) / bNorm;
+				if (Double.isNaN(cRe) || Double.isNaN(cIm)) {
+					//The root is exact
+					continue;
+				}
+				re[k] -= cRe;
+				im[k] -= cIm;
+				if (Math.hypot(cRe, cIm) > TOLERANCE * Math.hypot(re[k], im[k])) {
+					converged = false;
+				}
+			}
+			if (converged) {
+				return new double[][] {re, im};
+			}
+			interruptionCheck.run();
+		}
+		return null;
+	}
+	
+	/*
+	 * Evaluates the polynomial and its derivative at a complex point.
+	 * The result is stored as {Re p, Im p, Re p', Im p'}.
+	 */
+	private static void horner(final double[] a, final double re, final double im,
+			final double[] result) {
+		double pRe = a[a.length - 1];
+		double pIm = 0;
+		double dRe = 0;
+		double dIm = 0;
+		for (int i = a.length - 2; i >= 0; i--) {
+			//d = d*z + p, p = p*z + a[i]
+			final double nextDRe = dRe * re - dIm * im + pRe;
+			dIm = dRe * im + dIm * re + pIm;
+			dRe = nextDRe;
+			final double nextPRe = pRe * re - pIm * im + a[i];
+			pIm = pRe * im + pIm * re;
+			pRe = nextPRe;
+		}
+		result[0] = pRe;
+		result[1] = pIm;
+		result[2] = dRe;
+		result[3] = dIm;
+	}
+	
+	/*
+	 * Refines a real root with Newton's method.
+	 */
+	private static double polish(final double[] a, final double start) {
+		double x = start;
+		final double[] value = new double[4];
+		for (int i = 0; i < MAX_POLISH_ITERATIONS; i++) {
+			PolynomialRoots.horner(a, x, 0, value);
+			final double step = value[0] / value[2];
+			if (!(Math.abs(step) > TOLERANCE * Math.abs(x))) {
+				//The step is negligible (or not defined, if x is exact)
+				break;
+			}
+			x -= step;
+		}
+		return x;
+	}
+}
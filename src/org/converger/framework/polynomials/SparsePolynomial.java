@@ -0,0 +1,81 @@
+package org.converger.framework.polynomials;
+
+import java.util.Arrays;
+
+/**
+ * A polynomial stored as the list of its terms whose coefficient is not zero.
+ * It is used for high degrees, when most of the coefficients are zero.
+ * @author Dario Pavllo
+ */
+final class SparsePolynomial extends Polynomial {
+	
+	/** The exponents, in increasing order */
+	private final int[] exponents;
+	private final long[] numerators;
+	private final long denominator;
+	
+	SparsePolynomial(final int[] termExponents, final long[] termNumerators,
+			final long commonDenominator) {
+		super();
+		this.exponents = termExponents;
+		this.numerators = termNumerators;
+		this.denominator = commonDenominator;
+	}
+	
+	@Override
+	public int getDegree() {
+		return this.exponents[this.exponents.length - 1];
+	}
+	
+	@Override
+	public long getNumerator(final int exponent) {
+		final int i = Arrays.binarySearch(this.exponents, exponent);
+		return i >= 0 ? this.numerators[i] : 0;
+	}
+	
+	@Override
+	public long getDenominator() {
+		return this.denominator;
+	}
+	
+	@Override
+	public int getTermCount() {
+		return this.exponents.length;
+	}
+	
+	@Override
+	public int getTermExponent(final int term) {
+		return this.exponents[term];
+	}
+	
+	@Override
+	public long getTermNumerator(final int term) {
+		return this.numerators[term];
+	}
+	
+	@Override
+	public double evaluate(final double x) {
+		//Horner's method, skipping the missing terms: the gaps become powers of x
+		final int last = this.exponents.length - 1;
+		double result = this.numerators[last];
+		for (int i = last - 1; i >= 0; i--) {
+			result = result * Math.pow(x, this.exponents[i + 1] - this.exponents[i])
+				+ this.numerators[i];
+		}
+		return result * Math.pow(x, this.exponents[0]) / this.denominator;
+	}
+	
+	@Override
+	public Polynomial derivative() {
+		final int[] e = new int[this.exponents.length];
+		final long[] c = new long[this.exponents.length];
+		int count = 0;
+		for (int i = 0; i < this.exponents.length; i++) {
+			if (this.exponents[i] > 0) {
+				e[count] = this.exponents[i] - 1;
+				c[count++] = Math.multiplyExact(this.numerators[i], this.exponents[i]);
+			}
+		}
+		return Polynomial.fromTerms(e, c, count, this.denominator);
+	}
+}
@@ -0,0 +1,153 @@
+package org.converger.framework.polynomials;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Sturm sequence of a polynomial with integer coefficients: p, p', and then
+ * the negated remainders of the Euclidean algorithm, down to the greatest common divisor
+ * of p and p'. The number of distinct real roots in an interval is the
+ * difference between the sign variations of the sequence at its bounds.
+ * The sequence is computed exactly: each element is the primitive part of a
+ * positive multiple of the true remainder, which has the same signs.
+ * @author Dario Pavllo
+ */
+final class SturmSequence {
+	
+	/* The elements of the sequence; the coefficients are in increasing order of degree */
+	private final List<BigInteger[]> sequence;
+	
+	/**
+	 * Builds the Sturm sequence of a non-constant polynomial.
+	 * @param numerators the integer coefficients, in increasing order of degree
+	 */
+	SturmSequence(final long[] numerators) {
+		final BigInteger[] p = new BigInteger[numerators.length];
+		for (int i = 0; i < p.length; i++) {
+			p[i] = BigInteger.valueOf(numerators[i]);
+		}
+		this.sequence = new ArrayList<>();
+		BigInteger[] a = SturmSequence.primitivePart(p);
+		BigInteger[] b = SturmSequence.primitivePart(SturmSequence.derivative(a));
+		this.sequence.add(a);
+		while (b.length > 0) {
+			this.sequence.add(b);
+			final BigInteger[] r = SturmSequence.negate(SturmSequence.remainder(a, b));
+			a = b;
+			b = SturmSequence.primitivePart(r);
+		}
+	}
+	
+	/**
+	 * Returns the number of distinct real roots of the polynomial.
+	 * @return the number of real roots, not counting multiplicities
+	 */
+	int countRealRoots() {
+		int negative = 0;
+		int positive = 0;
+		int signNegative = 0;
+		int signPositive = 0;
+		for (final BigInteger[] q : this.sequence) {
+			//At infinity, the sign is given by the leading coefficient and the degree
+			final int s = q[q.length - 1].signum();
+			final int sn = q.length % 2 == 0 ? -s : s;
+			if (signPositive != 0 && s != signPositive) {
+				positive++;
+			}
+			if (signNegative != 0 && sn != signNegative) {
+				negative++;
+			}
+			signPositive = s;
+			signNegative = sn;
+		}
+		return negative - positive;
+	}
+	
+	/**
+	 * Returns the square-free part of the polynomial: the product of its
+	 * irreducible factors, each taken once. It has the same roots, all simple.
+	 * @return the coefficients of the square-free part, in increasing order of degree
+	 */
+	BigInteger[] squareFreePart() {
+		final BigInteger[] p = this.sequence.get(0);
+		final BigInteger[] gcd = this.sequence.get(this.sequence.size() - 1);
+		return SturmSequence.primitivePart(SturmSequence.quotient(p, gcd));
+	}
+	
+	private static BigInteger[] derivative(final BigInteger[] a) {
+		final BigInteger[] c = new BigInteger[a.length - 1];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = a[i + 1].multiply(BigInteger.valueOf(i + 1));
+		}
+		return c;
+	}
+	
+	private static BigInteger[] negate(final BigInteger[] a) {
+		final BigInteger[] c = new BigInteger[a.length];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = a[i].negate();
+		}
+		return c;
+	}
+	
+	/*
+	 * Divides the coefficients by their (positive) greatest common divisor
+	 * and removes the leading zeros.
+	 */
+	private static BigInteger[] primitivePart(final BigInteger[] a) {
+		int length = a.length;
+		while (length > 0 && a[length - 1].signum() == 0) {
+			length--;
+		}
+		BigInteger gcd = BigInteger.ZERO;
+		for (int i = 0; i < length; i++) {
+			gcd = gcd.gcd(a[i]);
+		}
+		final BigInteger[] c = Arrays.copyOf(a, length);
+		for (int i = 0; i < length; i++) {
+			c[i] = c[i].divide(gcd);
+		}
+		return c;
+	}
+	
+	/*
+	 * Returns a positive multiple of the remainder of a/b (pseudo-division).
+	 */
+	private static BigInteger[] remainder(final BigInteger[] a, final BigInteger[] b) {
+		return SturmSequence.divide(a, b, false);
+	}
+	
+	/*
+	 * Returns a positive multiple of the quotient of a/b, when b divides a.
+	 */
+	private static BigInteger[] quotient(final BigInteger[] a, final BigInteger[] b) {
+		return SturmSequence.divide(a, b, true);
+	}
+	
+	private static BigInteger[] divide(final BigInteger[] a, final BigInteger[] b,
+			final boolean quotient) {
+		final int n = b.length - 1;
+		final BigInteger lead = b[n];
+		final BigInteger scale = lead.abs();
+		final BigInteger[] r = a.clone();
+		final BigInteger[] q = new BigInteger[Math.max(a.length - n, 0)];
+		Arrays.fill(q, BigInteger.ZERO);
+		for (int d = a.length - 1; d >= n; d--) {
+			//r = |lead|*r - sign(lead)*r[d]*x^(d-n)*b, which cancels the term of degree d
+			final BigInteger c = lead.signum() > 0 ? r[d] : r[d].negate();
+			for (int i = 0; i < r.length; i++) {
+				r[i] = r[i].multiply(scale);
+			}
+			for (int i = 0; i < q.length; i++) {
+				q[i] = q[i].multiply(scale);
+			}
+			for (int j = 0; j <= n; j++) {
+				r[j + d - n] = r[j + d - n].subtract(c.multiply(b[j]));
+			}
+			q[d - n] = q[d - n].add(c);
+		}
+		return quotient ? q : Arrays.copyOf(r, n);
+	}
+}
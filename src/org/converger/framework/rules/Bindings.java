@@ -0,0 +1,100 @@
+package org.converger.framework.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Variable;
+
+/**
+ * The subexpressions matched by the wildcards of a pattern.
+ * @author Dario Pavllo
+ */
+public final class Bindings {
+	
+	//Patterns have few wildcards: a linear search is faster than hashing
+	private final List<String> names = new ArrayList<>();
+	private final List<Expression> values = new ArrayList<>();
+	
+	Bindings() {
+	}
+	
+	/**
+	 * Returns the subexpression bound to a wildcard.
+	 * @param name the name of the wildcard
+	 * @return the matched subexpression, or null if the wildcard is not bound
+	 */
+	public Expression get(final String name) {
+		final int i = this.names.indexOf(name);
+		return i < 0 ? null : this.values.get(i);
+	}
+	
+	/**
+	 * Returns true if the subexpressions bound to the given wildcards are all constants.
+	 * @param wildcards the names of the wildcards
+	 * @return true if all of them are bound to constants
+	 */
+	public boolean areConstants(final String... wildcards) {
+		for (final String n : wildcards) {
+			if (!(this.get(n) instanceof Constant)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the value of a wildcard bound to a constant.
+	 * @param name the name of the wildcard
+	 * @return the value of the constant
+	 * @throws ClassCastException if the wildcard is not bound to a constant
+	 */
+	public long getConstant(final String name) {
+		return ((Constant) this.get(name)).getValue();
+	}
+	
+	/**
+	 * Binds a wildcard. A wildcard which appears more than once in a pattern
+	 * must always match the same subexpression.
+	 * @param name the name of the wildcard
+	 * @param e the matched subexpression
+	 * @return false if the wildcard is already bound to a different subexpression
+	 */
+	boolean bind(final String name, final Expression e) {
+		final Expression previous = this.get(name);
+		if (previous == null) {
+			this.names.add(name);
+			this.values.add(e);
+			return true;
+		}
+		return previous.equals(e);
+	}
+	
+	/**
+	 * Returns the current state, which can be restored with {@link #reset(int)}.
+	 * @return the number of bound wildcards
+	 */
+	int mark() {
+		return this.names.size();
+	}
+	
+	/**
+	 * Unbinds the wildcards which have been bound after a mark.
+	 * @param mark the value returned by {@link #mark()}
+	 */
+	void reset(final int mark) {
+		this.names.subList(mark, this.names.size()).clear();
+		this.values.subList(mark, this.values.size()).clear();
+	}
+	
+	Map<Variable, Expression> toSubstitution() {
+		final Map<Variable, Expression> result = new HashMap<>();
+		for (int i = 0; i < this.names.size(); i++) {
+			result.put(new Variable(this.names.get(i)), this.values.get(i));
+		}
+		return result;
+	}
+}
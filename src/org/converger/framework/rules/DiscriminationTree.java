@@ -0,0 +1,174 @@
+package org.converger.framework.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.Variable;
+
+/**
+ * An index of patterns. Each pattern is stored as the sequence of its symbols
+ * in preorder, and the common prefixes are shared, so that the candidate patterns
+ * of an expression are retrieved with a single walk, whose cost depends on the depth
+ * of the patterns rather than on their number.
+ * A wildcard skips a whole subexpression. The operands of the n-ary operations are
+ * not indexed, since they can match in any order.
+ * @author Dario Pavllo
+ */
+final class DiscriminationTree {
+	
+	/** The symbol of the wildcards */
+	private static final Object WILDCARD = new Object();
+	private static final SymbolVisitor SYMBOLS = new SymbolVisitor();
+	
+	private final Node root = new Node();
+	
+	/**
+	 * Adds a pattern.
+	 * @param pattern the pattern
+	 * @param id the identifier of the pattern
+	 */
+	void insert(final Expression pattern, final int id) {
+		Node current = this.root;
+		final List<Expression> pending = new ArrayList<>();
+		pending.add(pattern);
+		while (!pending.isEmpty()) {
+			final Expression p = pending.remove(pending.size() - 1);
+			if (PatternMatcher.isWildcard(p)) {
+				current = current.child(WILDCARD);
+			} else {
+				final Symbol s = p.accept(SYMBOLS);
+				current = current.child(s.key);
+				//The operands are pushed in reverse order, so that they are popped in order
+				for (int i = s.operands.size() - 1; i >= 0; i--) {
+					pending.add(s.operands.get(i));
+				}
+			}
+		}
+		current.ids.add(id);
+	}
+	
+	/**
+	 * Returns the patterns which can match an expression.
+	 * @param e the expression
+	 * @return the set of the identifiers of the candidate patterns
+	 */
+	BitSet getCandidates(final Expression e) {
+		final BitSet result = new BitSet();
+		this.search(this.root, new Terms(e, null), result);
+		return result;
+	}
+	
+	private void search(final Node node, final Terms pending, final BitSet result) {
+		if (pending == null) {
+			node.ids.forEach(result::set);
+			return;
+		}
+		final Node wildcard = node.children.get(WILDCARD);
+		if (wildcard != null) {
+			this.search(wildcard, pending.tail, result);
+		}
+		final Symbol s = pending.head.accept(SYMBOLS);
+		final Node exact = node.children.get(s.key);
+		if (exact != null) {
+			Terms next = pending.tail;
+			for (int i = s.operands.size() - 1; i >= 0; i--) {
+				next = new Terms(s.operands.get(i), next);
+			}
+			this.search(exact, next, result);
+		}
+	}
+	
+	/**
+	 * A node of the tree: its children are indexed by symbol.
+	 */
+	private static final class Node {
+		private final Map<Object, Node> children = new HashMap<>();
+		private final List<Integer> ids = new ArrayList<>();
+		
+		Node child(final Object key) {
+			return this.children.computeIfAbsent(key, k -> new Node());
+		}
+	}
+	
+	/**
+	 * The subexpressions which remain to be visited (an immutable stack).
+	 */
+	private static final class Terms {
+		private final Expression head;
+		private final Terms tail;
+		
+		Terms(final Expression first, final Terms rest) {
+			this.head = first;
+			this.tail = rest;
+		}
+	}
+	
+	/**
+	 * The symbol of a node, and the operands which follow it in preorder.
+	 */
+	private static final class Symbol {
+		private final Object key;
+		private final List<Expression> operands;
+		
+		Symbol(final Object symbolKey, final List<Expression> indexedOperands) {
+			this.key = symbolKey;
+			this.operands = indexedOperands;
+		}
+	}
+	
+	/**
+	 * Computes the symbol of a node.
+	 * The keys are the values of the constants (Long), the names of the variables (String)
+	 * and the operators (enumerations), which never collide.
+	 */
+	private static final class SymbolVisitor implements Expression.Visitor<Symbol> {
+		
+		@Override
+		public Symbol visit(final Variable v) {
+			return new Symbol(v.getName(), Collections.emptyList());
+		}
+		
+		@Override
+		public Symbol visit(final Constant v) {
+			return new Symbol(v.getValue(), Collections.emptyList());
+		}
+		
+		@Override
+		public Symbol visit(final BinaryOperation v) {
+			final List<Expression> operands = new ArrayList<>();
+			operands.add(v.getFirstOperand());
+			operands.add(v.getSecondOperand());
+			return new Symbol(v.getOperator(), operands);
+		}
+		
+		@Override
+		public Symbol visit(final NAryOperation v) {
+			return new Symbol(v.getOperator(), Collections.emptyList());
+		}
+		
+		@Override
+		public Symbol visit(final FunctionOperation v) {
+			final List<Expression> operands = new ArrayList<>();
+			operands.add(v.getArgument());
+			return new Symbol(v.getFunction(), operands);
+		}
+		
+		@Override
+		public Symbol visit(final Equation v) {
+			final List<Expression> operands = new ArrayList<>();
+			operands.add(v.getFirstMember());
+			operands.add(v.getSecondMember());
+			return new Symbol(Equation.class, operands);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.converger.framework.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.converger.framework.Environment;
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.ExpressionFactory;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.Variable;
+
+/**
+ * This visitor matches a pattern (the visited expression) against a subject.
+ * The variables of a pattern are wildcards, except for the special constants
+ * (like e or pi), which match only themselves.
+ * An n-ary pattern having exactly one wildcard among its operands, like x*0,
+ * matches any operation of the same type which contains the other operands
+ * (in any position); the wildcard is bound to the remaining operands.
+ * Any other n-ary pattern matches the operands one by one.
+ * @author Dario Pavllo
+ */
+final class PatternMatcher implements Expression.Visitor<Boolean> {
+	
+	private Expression subject;
+	private Bindings bindings;
+	
+	/**
+	 * Matches a pattern against an expression.
+	 * @param pattern the pattern
+	 * @param e the expression to match
+	 * @return the bindings of the wildcards, or null if the expression does not match
+	 */
+	Bindings match(final Expression pattern, final Expression e) {
+		this.bindings = new Bindings();
+		return this.matches(pattern, e) ? this.bindings : null;
+	}
+	
+	private boolean matches(final Expression pattern, final Expression e) {
+		final Expression previous = this.subject;
+		this.subject = e;
+		final boolean result = this.visit(pattern);
+		this.subject = previous;
+		return result;
+	}
+	
+	/**
+	 * Returns true if a pattern variable is a wildcard.
+	 * @param v the variable
+	 * @return false for the special constants
+	 */
+	static boolean isWildcard(final Expression v) {
+		return v instanceof Variable && !Environment.getSingleton().hasConstant(((Variable) v).getName());
+	}
+	
+	@Override
+	public Boolean visit(final Variable v) {
+		if (isWildcard(v)) {
+			return this.bindings.bind(v.getName(), this.subject);
+		}
+		return v.equals(this.subject);
+	}
+	
+	@Override
+	public Boolean visit(final Constant v) {
+		return v.equals(this.subject);
+	}
+	
+	@Override
+	public Boolean visit(final BinaryOperation v) {
+		if (!(this.subject instanceof BinaryOperation)) {
+			return false;
+		}
+		final BinaryOperation s = (BinaryOperation) this.subject;
+		return s.getOperator() == v.getOperator()
+			&& this.matches(v.getFirstOperand(), s.getFirstOperand())
+			&& this.matches(v.getSecondOperand(), s.getSecondOperand());
+	}
+	
+	@Override
+	public Boolean visit(final NAryOperation v) {
+		if (!(this.subject instanceof NAryOperation)
+				|| ((NAryOperation) this.subject).getOperator() != v.getOperator()) {
+			return false;
+		}
+		final List<Expression> operands = ((NAryOperation) this.subject).getOperands();
+		final List<Expression> patterns = v.getOperands();
+		final List<Expression> wildcards = new ArrayList<>();
+		patterns.stream().filter(PatternMatcher::isWildcard).forEach(wildcards::add);
+		if (wildcards.size() != 1) {
+			//Positional matching
+			if (patterns.size() != operands.size()) {
+				return false;
+			}
+			for (int i = 0; i < patterns.size(); i++) {
+				if (!this.matches(patterns.get(i), operands.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		//Each operand of the pattern is matched with the first suitable operand
+		final List<Expression> remaining = new ArrayList<>(operands);
+		for (final Expression p : patterns) {
+			if (p == wildcards.get(0)) {
+				continue;
+			}
+			boolean found = false;
+			for (int i = 0; i < remaining.size() && !found; i++) {
+				final int mark = this.bindings.mark();
+				if (this.matches(p, remaining.get(i))) {
+					remaining.remove(i);
+					found = true;
+				} else {
+					this.bindings.reset(mark);
+				}
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return !remaining.isEmpty() && this.bindings.bind(((Variable) wildcards.get(0)).getName(),
+			ExpressionFactory.implode(v.getOperator(), remaining));
+	}
+	
+	@Override
+	public Boolean visit(final FunctionOperation v) {
+		if (!(this.subject instanceof FunctionOperation)) {
+			return false;
+		}
+		final FunctionOperation s = (FunctionOperation) this.subject;
+		return s.getFunction() == v.getFunction() && this.matches(v.getArgument(), s.getArgument());
+	}
+	
+	@Override
+	public Boolean visit(final Equation v) {
+		if (!(this.subject instanceof Equation)) {
+			return false;
+		}
+		final Equation s = (Equation) this.subject;
+		return this.matches(v.getFirstMember(), s.getFirstMember())
+			&& this.matches(v.getSecondMember(), s.getSecondMember());
+	}
+}
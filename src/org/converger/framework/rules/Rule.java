@@ -0,0 +1,93 @@
+package org.converger.framework.rules;
+
+import java.util.function.Predicate;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.ExpressionFactory;
+import org.converger.framework.visitors.Substitutor;
+
+/**
+ * A rewrite rule: a pattern, an optional condition, and a template.
+ * Patterns and templates are written in the usual syntax, where the variables
+ * are wildcards (see {@link PatternMatcher}), e.g. "(x^y)^z" and "x^(y*z)".
+ * Rules are immutable.
+ * @author Dario Pavllo
+ */
+public final class Rule {
+	
+	private final Expression pattern;
+	private final Predicate<Bindings> condition;
+	private final Template template;
+	private final boolean resimplified;
+	
+	private Rule(final Expression lhs, final Predicate<Bindings> when,
+			final Template rhs, final boolean again) {
+		this.pattern = lhs;
+		this.condition = when;
+		this.template = rhs;
+		this.resimplified = again;
+	}
+	
+	/**
+	 * Builds a rule whose replacement is the template with the wildcards substituted.
+	 * @param pattern the left-hand side
+	 * @param template the right-hand side
+	 * @return a new rule
+	 * @throws IllegalArgumentException if the pattern or the template are invalid
+	 */
+	public static Rule of(final String pattern, final String template) {
+		final Expression rhs = ExpressionFactory.build(template);
+		return new Rule(ExpressionFactory.build(pattern), b -> true,
+			b -> new Substitutor(b.toSubstitution()).visit(rhs), false);
+	}
+	
+	/**
+	 * Builds a rule whose replacement is computed.
+	 * @param pattern the left-hand side
+	 * @param template the function which computes the right-hand side
+	 * @return a new rule
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public static Rule computed(final String pattern, final Template template) {
+		return new Rule(ExpressionFactory.build(pattern), b -> true, template, false);
+	}
+	
+	/**
+	 * Returns a copy of this rule which applies only if the given condition holds.
+	 * @param c the condition on the matched subexpressions
+	 * @return a new rule
+	 */
+	public Rule when(final Predicate<Bindings> c) {
+		return new Rule(this.pattern, this.condition.and(c), this.template, this.resimplified);
+	}
+	
+	/**
+	 * Returns a copy of this rule whose replacement is simplified again
+	 * (for the rules which can expose further simplifications).
+	 * @return a new rule
+	 */
+	public Rule resimplified() {
+		return new Rule(this.pattern, this.condition, this.template, true);
+	}
+	
+	/**
+	 * @return the left-hand side of this rule
+	 */
+	public Expression getPattern() {
+		return this.pattern;
+	}
+	
+	boolean isResimplified() {
+		return this.resimplified;
+	}
+	
+	/**
+	 * Applies this rule to an expression.
+	 * @param e the expression to rewrite
+	 * @return the replacement, or null if the rule is not applicable
+	 */
+	Expression apply(final Expression e) {
+		final Bindings b = new PatternMatcher().match(this.pattern, e);
+		return b != null && this.condition.test(b) ? this.template.apply(b) : null;
+	}
+}
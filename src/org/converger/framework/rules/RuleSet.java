@@ -0,0 +1,68 @@
+package org.converger.framework.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.converger.framework.Expression;
+
+/**
+ * An ordered set of rewrite rules, indexed by a discrimination tree.
+ * An expression is matched only against the rules whose pattern can match it,
+ * and the first applicable rule (in the order of declaration) is applied.
+ * @author Dario Pavllo
+ */
+public final class RuleSet {
+	
+	private final List<Rule> rules;
+	private final DiscriminationTree index = new DiscriminationTree();
+	
+	/**
+	 * @param ruleList the rules, in decreasing order of priority
+	 */
+	public RuleSet(final List<Rule> ruleList) {
+		this.rules = Collections.unmodifiableList(new ArrayList<>(ruleList));
+		for (int i = 0; i < this.rules.size(); i++) {
+			this.index.insert(this.rules.get(i).getPattern(), i);
+		}
+	}
+	
+	/**
+	 * Rewrites the root of an expression with the first applicable rule.
+	 * @param e the expression to rewrite
+	 * @param simplifier the function applied to the replacements of the resimplified rules
+	 * @return the replacement, or the expression itself if no rule is applicable
+	 */
+	public Expression rewrite(final Expression e, final UnaryOperator<Expression> simplifier) {
+		final BitSet candidates = this.index.getCandidates(e);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			final Rule r = this.rules.get(i);
+			final Expression result = r.apply(e);
+			if (result != null) {
+				return r.isResimplified() ? simplifier.apply(result) : result;
+			}
+		}
+		return e;
+	}
+	
+	/**
+	 * Returns the rules whose pattern can match an expression (without checking
+	 * the repeated wildcards and the conditions).
+	 * @param e the expression
+	 * @return the candidate rules, in order of priority
+	 */
+	public List<Rule> getCandidates(final Expression e) {
+		final List<Rule> result = new ArrayList<>();
+		this.index.getCandidates(e).stream().forEach(i -> result.add(this.rules.get(i)));
+		return result;
+	}
+	
+	/**
+	 * @return the rules of this set, in order of priority
+	 */
+	public List<Rule> getRules() {
+		return this.rules;
+	}
+}
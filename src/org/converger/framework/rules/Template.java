@@ -0,0 +1,18 @@
+package org.converger.framework.rules;
+
+import org.converger.framework.Expression;
+
+/**
+ * The right-hand side of a rule, computed from the bindings of its pattern.
+ * @author Dario Pavllo
+ */
+@FunctionalInterface
+public interface Template {
+	
+	/**
+	 * Builds the replacement of a matched expression.
+	 * @param bindings the subexpressions matched by the wildcards
+	 * @return the replacement, or null if the rule turns out not to be applicable
+	 */
+	Expression apply(Bindings bindings);
+}
@@ -0,0 +1,337 @@
+package org.converger.framework.saturation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Function;
+import org.converger.framework.core.MathUtils;
+import org.converger.framework.core.NAryOperator;
+
+/**
+ * An e-graph: a compact representation of many equivalent expressions.
+ * The nodes are grouped in equivalence classes, which are kept in a union-find structure.
+ * Each node is stored once (hash-consing), and after the classes are merged,
+ * {@link #rebuild()} restores the congruence invariant: nodes with the same operator
+ * and equivalent children belong to the same class.
+ * @author Dario Pavllo
+ */
+final class EGraph {
+	
+	private static final int INITIAL_CAPACITY = 64;
+	/** The weight of the size in the cost (the lower bits count the variables) */
+	private static final long SIZE_UNIT = 1L << 20;
+	
+	private int[] parents = new int[INITIAL_CAPACITY];
+	private int classCount;
+	private Map<ENode, Integer> memo = new HashMap<>();
+	/** The nodes of each class, indexed by the canonical identifier (valid after a rebuild) */
+	private final Map<Integer, List<ENode>> classes = new TreeMap<>();
+	private boolean dirty;
+	/** The cost of the smallest expression of each class, and its root node */
+	private long[] costs = new long[0];
+	private ENode[] best = new ENode[0];
+	
+	/**
+	 * Returns the canonical identifier of a class.
+	 * @param id a class identifier
+	 * @return the representative of the class
+	 */
+	int find(final int id) {
+		int x = id;
+		while (this.parents[x] != x) {
+			//Path halving
+			this.parents[x] = this.parents[this.parents[x]];
+			x = this.parents[x];
+		}
+		return x;
+	}
+	
+	/**
+	 * Adds a node, unless an equal node is already present.
+	 * @param node the node to add
+	 * @return the class of the node
+	 */
+	int add(final ENode node) {
+		final ENode n = node.canonical(this::find);
+		final Integer existing = this.memo.get(n);
+		if (existing != null) {
+			return this.find(existing);
+		}
+		if (this.classCount == this.parents.length) {
+			this.parents = Arrays.copyOf(this.parents, this.parents.length * 2);
+		}
+		final int id = this.classCount++;
+		this.parents[id] = id;
+		this.memo.put(n, id);
+		final List<ENode> nodes = new ArrayList<>();
+		nodes.add(n);
+		this.classes.put(id, nodes);
+		return id;
+	}
+	
+	int addConstant(final long value) {
+		return this.add(new ENode(ENode.Kind.CONSTANT, value));
+	}
+	
+	int addBinary(final BinaryOperator operator, final int first, final int second) {
+		return this.add(new ENode(ENode.Kind.BINARY, operator, first, second));
+	}
+	
+	int addFunction(final Function function, final int argument) {
+		return this.add(new ENode(ENode.Kind.FUNCTION, function, argument));
+	}
+	
+	/**
+	 * Adds an n-ary operation. If there are less than two operands,
+	 * the operand itself (or the identity element) is returned.
+	 * @param operator the operator
+	 * @param operands the classes of the operands
+	 * @return the class of the operation
+	 */
+	int addNAry(final NAryOperator operator, final List<Integer> operands) {
+		switch (operands.size()) {
+		case 0:
+			return this.addConstant(operator == NAryOperator.ADDITION ? 0 : 1);
+		case 1:
+			return this.find(operands.get(0));
+		default:
+			return this.add(new ENode(ENode.Kind.NARY, operator,
+				operands.stream().mapToInt(x -> x).toArray()));
+		}
+	}
+	
+	/**
+	 * Merges two classes.
+	 * @param a the first class
+	 * @param b the second class
+	 * @return false if they were already the same class
+	 */
+	boolean union(final int a, final int b) {
+		int x = this.find(a);
+		int y = this.find(b);
+		if (x == y) {
+			return false;
+		}
+		if (y < x) {
+			//The oldest class is kept as the representative
+			final int t = x;
+			x = y;
+			y = t;
+		}
+		this.parents[y] = x;
+		this.classes.get(x).addAll(this.classes.remove(y));
+		this.dirty = true;
+		return true;
+	}
+	
+	/**
+	 * Restores the invariants after some classes have been merged:
+	 * the nodes are canonicalized, and congruent nodes are merged as well.
+	 */
+	void rebuild() {
+		while (this.dirty) {
+			this.dirty = false;
+			final Map<ENode, Integer> canonical = new HashMap<>(this.memo.size() * 2);
+			for (final Map.Entry<ENode, Integer> e : this.memo.entrySet()) {
+				final ENode n = e.getKey().canonical(this::find);
+				final int c = this.find(e.getValue());
+				final Integer other = canonical.putIfAbsent(n, c);
+				if (other != null) {
+					//Congruence: same operator, equivalent children
+					this.union(other, c);
+				}
+			}
+			this.memo = canonical;
+		}
+		this.classes.clear();
+		this.memo.forEach((n, c) -> this.classes
+			.computeIfAbsent(this.find(c), x -> new ArrayList<>())
+			.add(n));
+		this.updateCosts();
+	}
+	
+	/*
+	 * The cost of an expression is its size: the number of leaves and operators
+	 * (each one counts twice, except for the numbers, which are simpler than the symbols),
+	 * where an n-ary operation counts as n - 1 operators plus a half (so that x^2 is preferred
+	 * to x*x), and a division counts as two (so that nested fractions are avoided).
+	 * Among the expressions of the same size, the one with the fewest occurrences
+	 * of the variables is preferred (e.g. 1 + 2*x to 1 + x + x).
+	 * The costs are propagated from the leaves, until they no longer decrease.
+	 */
+	private void updateCosts() {
+		this.costs = new long[this.classCount];
+		this.best = new ENode[this.classCount];
+		Arrays.fill(this.costs, Long.MAX_VALUE);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (final Map.Entry<Integer, List<ENode>> e : this.classes.entrySet()) {
+				final int c = e.getKey();
+				for (final ENode n : e.getValue()) {
+					final long cost = this.cost(n);
+					if (cost < this.costs[c]) {
+						this.costs[c] = cost;
+						this.best[c] = n;
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+	
+	private long cost(final ENode n) {
+		long total;
+		if (n.getKind() == ENode.Kind.CONSTANT) {
+			total = SIZE_UNIT;
+		} else if (n.getKind() == ENode.Kind.VARIABLE) {
+			total = 2 * SIZE_UNIT + 1;
+		} else if (n.getKind() == ENode.Kind.NARY) {
+			total = (2 * n.getArity() - 1) * SIZE_UNIT;
+		} else if (n.getLabel() == BinaryOperator.DIVISION) {
+			//Unreduced or negative fractions (like 2/4 or (-1)/2) are more expensive
+			//than the others, so that x/2 is preferred to x*(1/2) and -x/2 to x*((-1)/2)
+			total = (this.isIrregularFraction(n) ? 6 : 4) * SIZE_UNIT;
+		} else {
+			total = 2 * SIZE_UNIT;
+		}
+		for (int i = 0; i < n.getArity(); i++) {
+			final long c = this.costs[this.find(n.getChild(i))];
+			if (c == Long.MAX_VALUE) {
+				return Long.MAX_VALUE;
+			}
+			total += c;
+		}
+		return total;
+	}
+	
+	private boolean isIrregularFraction(final ENode division) {
+		final Long numerator = this.getConstant(division.getChild(0));
+		final Long denominator = this.getConstant(division.getChild(1));
+		return numerator != null && denominator != null
+			&& (numerator < 0 || denominator < 0 || MathUtils.gcd(numerator, denominator) != 1);
+	}
+	
+	/**
+	 * Returns the root of the smallest expression of a class (valid after a rebuild).
+	 * @param id a class identifier
+	 * @return a node of the class
+	 */
+	ENode getBest(final int id) {
+		return this.best[this.find(id)];
+	}
+	
+	/**
+	 * Returns the smallest expression of a class, if its root has the given operator
+	 * (valid after a rebuild).
+	 * @param id a class identifier
+	 * @param label the operator
+	 * @return a node, or null
+	 */
+	ENode getBest(final int id, final Object label) {
+		final int c = this.find(id);
+		return c < this.best.length && this.best[c] != null && this.best[c].getLabel().equals(label)
+			? this.best[c]
+			: null;
+	}
+	
+	/**
+	 * Returns the number of distinct nodes.
+	 * @return the size of this e-graph
+	 */
+	int size() {
+		return this.memo.size();
+	}
+	
+	/**
+	 * Returns the canonical classes (valid after a rebuild).
+	 * @return the set of class identifiers
+	 */
+	Set<Integer> getClasses() {
+		return this.classes.keySet();
+	}
+	
+	/**
+	 * Returns the nodes of a class (valid after a rebuild).
+	 * @param id a class identifier
+	 * @return the nodes which belong to the class
+	 */
+	List<ENode> getNodes(final int id) {
+		return this.classes.get(this.find(id));
+	}
+	
+	/**
+	 * Returns true if a node of a class has the class itself among its children,
+	 * like x*1 in the class of x. Such nodes are produced by the identities,
+	 * and they are never matched by the rules, since they would be expanded endlessly.
+	 * @param id the class of the node
+	 * @param n the node
+	 * @return true if the node refers to its own class
+	 */
+	boolean isCyclic(final int id, final ENode n) {
+		final int c = this.find(id);
+		for (int i = 0; i < n.getArity(); i++) {
+			if (this.find(n.getChild(i)) == c) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the first (non-cyclic) node of a class having the given operator, if any.
+	 * @param id a class identifier
+	 * @param label the operator
+	 * @return a node, or null
+	 */
+	ENode findNode(final int id, final Object label) {
+		for (final ENode n : this.getNodes(id)) {
+			if (n.getLabel().equals(label) && !this.isCyclic(id, n)) {
+				return n;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the rational value of a class, if it contains a constant
+	 * or a quotient of two constants.
+	 * @param id a class identifier
+	 * @return the numerator and the (positive) denominator, or null
+	 */
+	long[] getRational(final int id) {
+		for (final ENode n : this.getNodes(id)) {
+			if (n.getKind() == ENode.Kind.CONSTANT) {
+				return new long[] {(Long) n.getLabel(), 1};
+			}
+		}
+		for (final ENode n : this.getNodes(id)) {
+			if (n.getLabel() == BinaryOperator.DIVISION) {
+				final Long numerator = this.getConstant(n.getChild(0));
+				final Long denominator = this.getConstant(n.getChild(1));
+				if (numerator != null && denominator != null && denominator != 0
+						&& numerator != Long.MIN_VALUE && denominator != Long.MIN_VALUE) {
+					return denominator > 0
+						? new long[] {numerator, denominator}
+						: new long[] {-numerator, -denominator};
+				}
+			}
+		}
+		return null;
+	}
+	
+	private Long getConstant(final int id) {
+		for (final ENode n : this.getNodes(id)) {
+			if (n.getKind() == ENode.Kind.CONSTANT) {
+				return (Long) n.getLabel();
+			}
+		}
+		return null;
+	}
+}
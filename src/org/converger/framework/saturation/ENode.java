@@ -0,0 +1,119 @@
+package org.converger.framework.saturation;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A node of an e-graph: an operator applied to equivalence classes
+ * (instead of applied to expressions), or a leaf.
+ * Nodes are immutable, and they are compared by value.
+ * @author Dario Pavllo
+ */
+final class ENode {
+	
+	/**
+	 * The type of a node.
+	 */
+	enum Kind {
+		/** A numeric constant (label: Long). */
+		CONSTANT,
+		/** A variable (label: String). */
+		VARIABLE,
+		/** A binary operation (label: BinaryOperator). */
+		BINARY,
+		/** An n-ary operation (label: NAryOperator). */
+		NARY,
+		/** A function (label: Function). */
+		FUNCTION
+	}
+	
+	private static final int HASH_MULTIPLIER = 31;
+	
+	private final Kind kind;
+	private final Object label;
+	private final int[] children;
+	private final int hash;
+	
+	/**
+	 * @param nodeKind the type of the node
+	 * @param nodeLabel the constant value, the variable name or the operator
+	 * @param childClasses the equivalence classes of the children
+	 */
+	ENode(final Kind nodeKind, final Object nodeLabel, final int... childClasses) {
+		this.kind = nodeKind;
+		this.label = nodeLabel;
+		this.children = childClasses;
+		//The ordinals are used for enumerations, so that the order of the nodes in the
+		//hash tables (and thus the extracted expression) is the same across runs
+		final int labelHash = nodeLabel instanceof Enum
+			? ((Enum<?>) nodeLabel).ordinal()
+			: nodeLabel.hashCode();
+		this.hash = (nodeKind.ordinal() * HASH_MULTIPLIER + labelHash) * HASH_MULTIPLIER
+			+ Arrays.hashCode(childClasses);
+	}
+	
+	Kind getKind() {
+		return this.kind;
+	}
+	
+	Object getLabel() {
+		return this.label;
+	}
+	
+	int getArity() {
+		return this.children.length;
+	}
+	
+	int getChild(final int index) {
+		return this.children[index];
+	}
+	
+	/**
+	 * Returns a copy of the children classes.
+	 * @return an array of class identifiers
+	 */
+	int[] getChildren() {
+		return this.children.clone();
+	}
+	
+	/**
+	 * Returns this node with the children replaced by their canonical classes.
+	 * @param find the canonicalization function
+	 * @return a canonical node (this node itself, if it is already canonical)
+	 */
+	ENode canonical(final IntUnaryOperator find) {
+		int[] canonicalChildren = null;
+		for (int i = 0; i < this.children.length; i++) {
+			final int c = find.applyAsInt(this.children[i]);
+			if (c != this.children[i]) {
+				if (canonicalChildren == null) {
+					canonicalChildren = this.children.clone();
+				}
+				canonicalChildren[i] = c;
+			}
+		}
+		return canonicalChildren == null ? this : new ENode(this.kind, this.label, canonicalChildren);
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if (obj instanceof ENode) {
+			final ENode o = (ENode) obj;
+			return this.hash == o.hash
+				&& this.kind == o.kind
+				&& this.label.equals(o.label)
+				&& Arrays.equals(this.children, o.children);
+		}
+		return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+	
+	@Override
+	public String toString() {
+		return this.label + Arrays.toString(this.children);
+	}
+}
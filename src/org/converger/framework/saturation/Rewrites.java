@@ -0,0 +1,619 @@
+package org.converger.framework.saturation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Function;
+import org.converger.framework.core.MathUtils;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.SpecialConstant;
+
+/**
+ * The rewrite rules of the saturation engine.
+ * The rules never modify the e-graph while it is searched: each match
+ * is recorded along with a builder of its right-hand side, and the matches are applied
+ * (i.e. the right-hand side is added and merged with the matched class) only after
+ * the search is complete.
+ * Numeric constants are handled with exact rational arithmetic,
+ * and a rule is not applied if its result would overflow.
+ * @author Dario Pavllo
+ */
+final class Rewrites {
+	
+	private final EGraph graph;
+	private final List<Match> matches = new ArrayList<>();
+	private int current;
+	private int one;
+	
+	/**
+	 * @param target the e-graph to rewrite
+	 */
+	Rewrites(final EGraph target) {
+		this.graph = target;
+	}
+	
+	/**
+	 * Searches all the rules on all the classes of the e-graph.
+	 * @return the matches, in a deterministic order
+	 */
+	List<Match> search() {
+		this.matches.clear();
+		//The constant 1 is added in advance, since the e-graph must not change during the search
+		this.one = this.graph.addConstant(1);
+		for (final int c : new ArrayList<>(this.graph.getClasses())) {
+			this.current = c;
+			for (final ENode n : this.graph.getNodes(c)) {
+				if (this.graph.isCyclic(c, n)) {
+					continue;
+				}
+				switch (n.getKind()) {
+				case BINARY:
+					this.searchBinary((BinaryOperator) n.getLabel(), n.getChild(0), n.getChild(1));
+					break;
+				case NARY:
+					this.searchNAry((NAryOperator) n.getLabel(), n);
+					break;
+				case FUNCTION:
+					this.searchFunction((Function) n.getLabel(), n.getChild(0));
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return new ArrayList<>(this.matches);
+	}
+	
+	/**
+	 * Applies a match: its right-hand side is added to the e-graph,
+	 * and it is merged with the matched class.
+	 * @param m the match to apply
+	 * @return true if two classes have been merged
+	 */
+	boolean apply(final Match m) {
+		return this.graph.union(m.target, m.rightHandSide.applyAsInt(this.graph));
+	}
+	
+	private void rewrite(final ToIntFunction<EGraph> rightHandSide) {
+		this.matches.add(new Match(this.current, rightHandSide));
+	}
+	
+	/*------------------
+	 * Binary operators
+	 *-----------------*/
+	
+	private void searchBinary(final BinaryOperator op, final int a, final int b) {
+		final long[] ra = this.graph.getRational(a);
+		final long[] rb = this.graph.getRational(b);
+		switch (op) {
+		case SUBTRACTION:
+			//a - b = a + (-1)*b
+			this.rewrite(g -> g.addNAry(NAryOperator.ADDITION, list(a,
+				g.addNAry(NAryOperator.PRODUCT, list(g.addConstant(-1), b)))));
+			break;
+			
+		case DIVISION:
+			this.searchDivision(a, b, ra, rb);
+			break;
+			
+		case POWER:
+		default:
+			this.searchPower(a, b, ra, rb);
+			break;
+		}
+	}
+	
+	private void searchDivision(final int a, final int b, final long[] ra, final long[] rb) {
+		final boolean nonZeroDenominator = rb == null || rb[0] != 0;
+		if (rb != null && rb[0] == rb[1]) {
+			//a/1 = a
+			this.rewrite(g -> a);
+		}
+		if (ra != null && ra[0] == 0 && nonZeroDenominator) {
+			//0/a = 0
+			this.rewrite(g -> g.addConstant(0));
+		}
+		if (a == b && nonZeroDenominator) {
+			//a/a = 1
+			this.rewrite(g -> g.addConstant(1));
+		}
+		if (ra != null && rb != null && rb[0] != 0 && (ra[1] != 1 || rb[1] != 1 || !isReduced(ra[0], rb[0]))) {
+			//Constant folding
+			final long[] q = divide(ra, rb);
+			if (q != null) {
+				this.rewrite(g -> addRational(g, q));
+			}
+		}
+		if (ra == null && rb != null && rb[0] != 0) {
+			//a/k = (1/k)*a, so that the coefficients of the terms can be collected
+			final long[] k = divide(new long[] {1, 1}, rb);
+			if (k != null) {
+				this.rewrite(g -> g.addNAry(NAryOperator.PRODUCT, list(addRational(g, k), a)));
+			}
+		}
+		final ENode innerNumerator = this.graph.getBest(a, BinaryOperator.DIVISION);
+		if (innerNumerator != null) {
+			//(p/q)/b = p/(q*b)
+			final int p = innerNumerator.getChild(0);
+			final int q = innerNumerator.getChild(1);
+			this.rewrite(g -> g.addBinary(BinaryOperator.DIVISION, p,
+				g.addNAry(NAryOperator.PRODUCT, flatten(g, NAryOperator.PRODUCT, list(q, b)))));
+		}
+		final ENode innerDenominator = this.graph.getBest(b, BinaryOperator.DIVISION);
+		if (innerDenominator != null) {
+			//a/(p/q) = (a*q)/p
+			final int p = innerDenominator.getChild(0);
+			final int q = innerDenominator.getChild(1);
+			this.rewrite(g -> g.addBinary(BinaryOperator.DIVISION,
+				g.addNAry(NAryOperator.PRODUCT, flatten(g, NAryOperator.PRODUCT, list(a, q))), p));
+		}
+		
+		if (nonZeroDenominator) {
+			this.searchCancellation(a, b);
+		}
+	}
+	
+	/*
+	 * Cancels the common factors of a numerator and a denominator,
+	 * e.g. (x*y)/x = y and x^3/(x*y) = x^2/y.
+	 */
+	private void searchCancellation(final int a, final int b) {
+		for (final List<Integer> numerator : this.factorizations(a)) {
+			for (final List<Integer> denominator : this.factorizations(b)) {
+				final Map<Integer, Long> num = this.powers(numerator);
+				final Map<Integer, Long> den = this.powers(denominator);
+				boolean cancelled = false;
+				for (final Map.Entry<Integer, Long> e : num.entrySet()) {
+					final Long d = den.get(e.getKey());
+					if (d != null) {
+						final long common = Math.min(e.getValue(), d);
+						e.setValue(e.getValue() - common);
+						den.put(e.getKey(), d - common);
+						cancelled = true;
+					}
+				}
+				if (cancelled) {
+					this.rewrite(g -> {
+						final int n = g.addNAry(NAryOperator.PRODUCT, buildPowers(g, num));
+						final List<Integer> remaining = buildPowers(g, den);
+						return remaining.isEmpty()
+							? n
+							: g.addBinary(BinaryOperator.DIVISION, n, g.addNAry(NAryOperator.PRODUCT, remaining));
+					});
+				}
+			}
+		}
+	}
+	
+	/*
+	 * The ways in which a class can be written as a product of factors
+	 * (the class itself is a trivial factorization).
+	 */
+	private List<List<Integer>> factorizations(final int c) {
+		final List<List<Integer>> result = new ArrayList<>();
+		result.add(list(c));
+		for (final ENode n : this.graph.getNodes(c)) {
+			if (n.getLabel() == NAryOperator.PRODUCT && !this.graph.isCyclic(c, n)) {
+				final List<Integer> factors = new ArrayList<>();
+				for (final int f : n.getChildren()) {
+					factors.add(f);
+				}
+				result.add(factors);
+			}
+		}
+		return result;
+	}
+	
+	/*
+	 * Groups factors by base: x*x^2*y is {x: 3, y: 1}.
+	 * Only positive integer exponents are extracted.
+	 */
+	private Map<Integer, Long> powers(final List<Integer> factors) {
+		final Map<Integer, Long> result = new LinkedHashMap<>();
+		for (final int f : factors) {
+			int base = f;
+			long exponent = 1;
+			final ENode power = this.graph.getBest(f, BinaryOperator.POWER);
+			if (power != null) {
+				final long[] k = this.graph.getRational(power.getChild(1));
+				if (k != null && k[1] == 1 && k[0] > 0) {
+					base = power.getChild(0);
+					exponent = k[0];
+				}
+			}
+			final Long previous = result.get(base);
+			if (previous != null) {
+				if (previous + exponent < 0) {
+					//Overflow
+					return new LinkedHashMap<>();
+				}
+				exponent += previous;
+			}
+			result.put(base, exponent);
+		}
+		return result;
+	}
+	
+	private static List<Integer> buildPowers(final EGraph g, final Map<Integer, Long> powers) {
+		final List<Integer> result = new ArrayList<>();
+		powers.forEach((base, exponent) -> {
+			if (exponent == 1) {
+				result.add(base);
+			} else if (exponent > 1) {
+				result.add(g.addBinary(BinaryOperator.POWER, base, g.addConstant(exponent)));
+			}
+		});
+		return result;
+	}
+	
+	private void searchPower(final int a, final int b, final long[] ra, final long[] rb) {
+		if (rb != null && rb[0] == 0 && (ra == null || ra[0] != 0)) {
+			//a^0 = 1
+			this.rewrite(g -> g.addConstant(1));
+		}
+		if (rb != null && rb[0] == 1 && rb[1] == 1) {
+			//a^1 = a
+			this.rewrite(g -> a);
+		}
+		if (ra != null && ra[0] == 1 && ra[1] == 1) {
+			//1^b = 1
+			this.rewrite(g -> g.addConstant(1));
+		}
+		if (ra != null && rb != null && rb[1] == 1 && (ra[0] != 0 || rb[0] > 0)) {
+			//Constant folding
+			final long[] base = rb[0] >= 0 ? ra : divide(new long[] {1, 1}, ra);
+			final long[] power = base == null ? null : power(base, Math.abs(rb[0]));
+			if (power != null) {
+				this.rewrite(g -> addRational(g, power));
+			}
+		}
+		final ENode inner = this.graph.getBest(a, BinaryOperator.POWER);
+		if (inner != null && rb != null && rb[1] == 1) {
+			//(x^p)^n = x^(p*n), for integer n
+			final int x = inner.getChild(0);
+			final int p = inner.getChild(1);
+			this.rewrite(g -> g.addBinary(BinaryOperator.POWER, x,
+				g.addNAry(NAryOperator.PRODUCT, list(p, b))));
+		}
+	}
+	
+	/*-----------------
+	 * N-ary operators
+	 *-----------------*/
+	
+	private void searchNAry(final NAryOperator op, final ENode node) {
+		final int[] operands = node.getChildren();
+		
+		//Flattening: a+(b+c) = a+b+c
+		final List<Integer> flat = flatten(this.graph, op, asList(operands));
+		if (flat.size() != operands.length) {
+			this.rewrite(g -> g.addNAry(op, flat));
+		}
+		
+		//Constant folding: the constants are replaced by their sum (or product)
+		final long identity = op == NAryOperator.ADDITION ? 0 : 1;
+		long[] total = {identity, 1};
+		final List<Integer> others = new ArrayList<>();
+		int constantCount = 0;
+		boolean trivial = false;
+		for (final int c : operands) {
+			final long[] r = this.graph.getRational(c);
+			if (r == null) {
+				others.add(c);
+			} else {
+				constantCount++;
+				trivial |= r[0] == identity && r[1] == 1;
+				if (op == NAryOperator.PRODUCT && r[0] == 0) {
+					//a*0 = 0
+					this.rewrite(g -> g.addConstant(0));
+				}
+				total = total == null ? null
+					: op == NAryOperator.ADDITION ? add(total, r) : multiply(total, r);
+			}
+		}
+		if (total != null && (constantCount > 1 || trivial)) {
+			final long[] folded = total;
+			this.rewrite(g -> {
+				final List<Integer> result = new ArrayList<>(others);
+				if (folded[0] != identity || folded[1] != 1) {
+					result.add(0, addRational(g, folded));
+				}
+				return g.addNAry(op, result);
+			});
+		}
+		
+		if (op == NAryOperator.ADDITION) {
+			this.searchLikeTerms(operands);
+		} else {
+			this.searchLikeFactors(operands);
+			this.searchQuotients(operands);
+		}
+	}
+	
+	/*
+	 * Collects the terms which differ only by a coefficient: 2x + 3x = (2+3)*x.
+	 */
+	private void searchLikeTerms(final int... operands) {
+		//Term -> coefficients
+		final Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		boolean found = false;
+		for (final int c : operands) {
+			final int[] split = this.splitCoefficient(c);
+			final List<Integer> coefficients = groups.computeIfAbsent(split[1], x -> new ArrayList<>());
+			coefficients.add(split[0]);
+			found |= coefficients.size() > 1;
+		}
+		if (found) {
+			this.rewrite(g -> {
+				final List<Integer> terms = new ArrayList<>();
+				groups.forEach((term, coefficients) -> terms.add(
+					g.addNAry(NAryOperator.PRODUCT, list(g.addNAry(NAryOperator.ADDITION, coefficients), term))));
+				return g.addNAry(NAryOperator.ADDITION, terms);
+			});
+		}
+	}
+	
+	/*
+	 * Splits a term into a coefficient and the rest: a numeric coefficient is preferred
+	 * (even if the term is not a product in its smallest form, like x/3 = (1/3)*x).
+	 */
+	private int[] splitCoefficient(final int c) {
+		for (final ENode n : this.graph.getNodes(c)) {
+			if (n.getLabel() == NAryOperator.PRODUCT && n.getArity() == 2 && !this.graph.isCyclic(c, n)) {
+				for (int k = 0; k < 2; k++) {
+					if (this.graph.getRational(n.getChild(k)) != null) {
+						return new int[] {n.getChild(k), n.getChild(1 - k)};
+					}
+				}
+			}
+		}
+		final ENode product = this.graph.getBest(c, NAryOperator.PRODUCT);
+		if (product != null && product.getArity() == 2) {
+			return new int[] {product.getChild(0), product.getChild(1)};
+		}
+		return new int[] {this.one, c};
+	}
+	
+	/*
+	 * Collects the factors having the same base: x^2 * x^3 = x^(2+3).
+	 */
+	private void searchLikeFactors(final int... operands) {
+		//Base -> exponents
+		final Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		final int one = this.one;
+		boolean found = false;
+		for (final int c : operands) {
+			int base = c;
+			int exponent = one;
+			final ENode power = this.graph.getBest(c, BinaryOperator.POWER);
+			if (power != null) {
+				base = power.getChild(0);
+				exponent = power.getChild(1);
+			}
+			if (this.graph.getRational(base) != null) {
+				//Numeric factors are left to the constant folding
+				base = c;
+				exponent = one;
+			}
+			final List<Integer> exponents = groups.computeIfAbsent(base, x -> new ArrayList<>());
+			exponents.add(exponent);
+			found |= exponents.size() > 1;
+		}
+		if (found) {
+			this.rewrite(g -> {
+				final List<Integer> factors = new ArrayList<>();
+				groups.forEach((base, exponents) -> factors.add(exponents.size() == 1 && exponents.get(0) == one
+					? base
+					: g.addBinary(BinaryOperator.POWER, base, g.addNAry(NAryOperator.ADDITION, exponents))));
+				return g.addNAry(NAryOperator.PRODUCT, factors);
+			});
+		}
+	}
+	
+	/*
+	 * Moves a quotient outside of a product: a*(b/c) = (a*b)/c.
+	 */
+	private void searchQuotients(final int... operands) {
+		for (int i = 0; i < operands.length; i++) {
+			final ENode quotient = this.graph.getBest(operands[i], BinaryOperator.DIVISION);
+			if (quotient != null) {
+				final List<Integer> numerator = new ArrayList<>();
+				for (int j = 0; j < operands.length; j++) {
+					numerator.add(i == j ? quotient.getChild(0) : operands[j]);
+				}
+				this.rewrite(g -> g.addBinary(BinaryOperator.DIVISION,
+					g.addNAry(NAryOperator.PRODUCT, flatten(g, NAryOperator.PRODUCT, numerator)),
+					quotient.getChild(1)));
+				return;
+			}
+		}
+	}
+	
+	/*-----------
+	 * Functions
+	 *-----------*/
+	
+	private void searchFunction(final Function f, final int a) {
+		final long[] r = this.graph.getRational(a);
+		final boolean zero = r != null && r[0] == 0;
+		final boolean one = r != null && r[0] == 1 && r[1] == 1;
+		switch (f) {
+		case SIN:
+		case ARCSIN:
+		case TAN:
+		case ARCTAN:
+			if (zero) {
+				this.rewrite(g -> g.addConstant(0));
+			}
+			break;
+		case COS:
+			if (zero) {
+				this.rewrite(g -> g.addConstant(1));
+			}
+			break;
+		case ARCCOS:
+			if (one) {
+				this.rewrite(g -> g.addConstant(0));
+			}
+			break;
+		case LN:
+			if (one) {
+				this.rewrite(g -> g.addConstant(0));
+			}
+			if (this.graph.findNode(a, SpecialConstant.E.getName()) != null) {
+				this.rewrite(g -> g.addConstant(1));
+			}
+			final ENode power = this.graph.getBest(a, BinaryOperator.POWER);
+			if (power != null && this.graph.findNode(power.getChild(0), SpecialConstant.E.getName()) != null) {
+				//ln(e^x) = x
+				this.rewrite(g -> power.getChild(1));
+			}
+			break;
+		case ABS:
+			if (r != null) {
+				this.rewrite(g -> addRational(g, new long[] {Math.abs(r[0]), r[1]}));
+			}
+			if (this.graph.getBest(a, Function.ABS) != null) {
+				//abs(abs(x)) = abs(x)
+				this.rewrite(g -> a);
+			}
+			break;
+		case SQRT:
+		default:
+			if (r != null && r[0] >= 0) {
+				final long n = exactSqrt(r[0]);
+				final long d = exactSqrt(r[1]);
+				if (n >= 0 && d >= 0) {
+					this.rewrite(g -> addRational(g, new long[] {n, d}));
+				}
+			}
+			break;
+		}
+	}
+	
+	/*-------
+	 * Utils
+	 *-------*/
+	
+	private static List<Integer> list(final int... values) {
+		return asList(values);
+	}
+	
+	private static List<Integer> asList(final int... values) {
+		final List<Integer> result = new ArrayList<>(values.length);
+		for (final int v : values) {
+			result.add(v);
+		}
+		return result;
+	}
+	
+	/*
+	 * Replaces the operands which are operations of the same type with their operands.
+	 */
+	private static List<Integer> flatten(final EGraph g, final NAryOperator op, final List<Integer> operands) {
+		final List<Integer> result = new ArrayList<>();
+		for (final int c : operands) {
+			final ENode inner = g.getBest(c, op);
+			if (inner == null) {
+				result.add(c);
+			} else {
+				for (final int x : inner.getChildren()) {
+					result.add(x);
+				}
+			}
+		}
+		return result;
+	}
+	
+	private static int addRational(final EGraph g, final long[] r) {
+		return r[1] == 1
+			? g.addConstant(r[0])
+			: g.addBinary(BinaryOperator.DIVISION, g.addConstant(r[0]), g.addConstant(r[1]));
+	}
+	
+	private static boolean isReduced(final long n, final long d) {
+		return d > 0 && MathUtils.gcd(Math.abs(n), d) == 1;
+	}
+	
+	/*
+	 * Exact rational arithmetic: the results are reduced, and null is returned on overflow.
+	 */
+	
+	private static long[] reduce(final long n, final long d) {
+		if (d == 0 || n == Long.MIN_VALUE || d == Long.MIN_VALUE) {
+			return null;
+		}
+		final long gcd = MathUtils.gcd(Math.abs(n), Math.abs(d));
+		final long sign = d < 0 ? -1 : 1;
+		return new long[] {sign * n / gcd, sign * d / gcd};
+	}
+	
+	private static long[] add(final long[] a, final long[] b) {
+		try {
+			return reduce(Math.addExact(Math.multiplyExact(a[0], b[1]), Math.multiplyExact(b[0], a[1])),
+				Math.multiplyExact(a[1], b[1]));
+		} catch (final ArithmeticException e) {
+			return null;
+		}
+	}
+	
+	private static long[] multiply(final long[] a, final long[] b) {
+		try {
+			return reduce(Math.multiplyExact(a[0], b[0]), Math.multiplyExact(a[1], b[1]));
+		} catch (final ArithmeticException e) {
+			return null;
+		}
+	}
+	
+	private static long[] divide(final long[] a, final long[] b) {
+		return b[0] == 0 ? null : multiply(a, new long[] {b[1], b[0]});
+	}
+	
+	private static long[] power(final long[] base, final long exponent) {
+		//Exponentiation by squaring
+		long[] result = {1, 1};
+		long[] square = base;
+		for (long e = exponent; e > 0 && result != null; e >>= 1) {
+			if ((e & 1) != 0) {
+				result = multiply(result, square);
+			}
+			if (e > 1) {
+				square = square == null ? null : multiply(square, square);
+				if (square == null) {
+					return null;
+				}
+			}
+		}
+		return result;
+	}
+	
+	/*
+	 * Returns the integer square root, or -1 if the argument is not a perfect square.
+	 */
+	private static long exactSqrt(final long x) {
+		final long s = (long) Math.sqrt(x);
+		for (long c = Math.max(0, s - 1); c <= s + 1; c++) {
+			if (c * c == x) {
+				return c;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * A match of a rule: the matched class, and the builder of the equivalent expression.
+	 */
+	static final class Match {
+		private final int target;
+		private final ToIntFunction<EGraph> rightHandSide;
+		
+		private Match(final int matchedClass, final ToIntFunction<EGraph> builder) {
+			this.target = matchedClass;
+			this.rightHandSide = builder;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package org.converger.framework.saturation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.converger.framework.Expression;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.Equation;
+import org.converger.framework.core.Function;
+import org.converger.framework.core.FunctionOperation;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.core.NAryOperator;
+import org.converger.framework.core.Variable;
+import org.converger.framework.visitors.TreeLeveler;
+import org.converger.framework.visitors.TreeSorter;
+
+/**
+ * Simplification by equality saturation.
+ * The expression is loaded into an e-graph, and the rewrite rules are applied without
+ * discarding the original forms, until no rule adds anything new (saturation)
+ * or a budget is exhausted. Then, the smallest equivalent expression is extracted.
+ * Unlike the destructive passes, the result does not depend on the order of the rules:
+ * for instance, x*(y/x) is simplified to y.
+ * @author Dario Pavllo
+ */
+public final class SaturationSimplifier {
+	
+	private static final long NANOS_PER_MILLI = 1000000L;
+	
+	private final int nodeBudget;
+	private final long timeBudget;
+	private boolean saturated;
+	private int size;
+	
+	/**
+	 * @param maxNodes the maximum number of nodes of the e-graph
+	 * @param maxMillis the maximum duration of each simplification, in milliseconds
+	 * @throws IllegalArgumentException if a budget is not positive
+	 */
+	public SaturationSimplifier(final int maxNodes, final long maxMillis) {
+		if (maxNodes <= 0 || maxMillis <= 0) {
+			throw new IllegalArgumentException("The budgets must be positive");
+		}
+		this.nodeBudget = maxNodes;
+		this.timeBudget = maxMillis;
+	}
+	
+	/**
+	 * Simplifies an expression. The members of an equation are simplified separately.
+	 * @param input the expression to simplify
+	 * @return the smallest equivalent expression which has been found
+	 */
+	public Expression simplify(final Expression input) {
+		if (input instanceof Equation) {
+			final Equation eq = (Equation) input;
+			return new Equation(this.simplify(eq.getFirstMember()), this.simplify(eq.getSecondMember()));
+		}
+		final EGraph graph = new EGraph();
+		final int root = new Loader(graph).visit(input);
+		graph.rebuild();
+
+		final Rewrites rules = new Rewrites(graph);
+		final long deadline = System.nanoTime() + this.timeBudget * NANOS_PER_MILLI;
+		
+		this.saturated = false;
+		while (graph.size() < this.nodeBudget && System.nanoTime() < deadline) {
+			final int previousSize = graph.size();
+			boolean merged = false;
+			for (final Rewrites.Match m : rules.search()) {
+				merged |= rules.apply(m);
+				if (graph.size() >= this.nodeBudget || System.nanoTime() >= deadline) {
+					break;
+				}
+			}
+
+			graph.rebuild();
+			if (!merged && graph.size() == previousSize) {
+				this.saturated = true;
+				break;
+			}
+		}
+		this.size = graph.size();
+		
+		final Expression result = new Extractor(graph).extract(root);
+		return new TreeSorter().visit(new TreeLeveler().visit(result));
+	}
+	
+	/**
+	 * Returns true if the last simplification has reached saturation,
+	 * i.e. if it has not been stopped by a budget.
+	 * @return true if all the rewrite rules have been fully applied
+	 */
+	public boolean isSaturated() {
+		return this.saturated;
+	}
+	
+	/**
+	 * Returns the number of nodes of the e-graph of the last simplification.
+	 * @return the final size of the e-graph
+	 */
+	public int getGraphSize() {
+		return this.size;
+	}
+	
+	/**
+	 * Adds the nodes of an expression tree to an e-graph.
+	 */
+	private static final class Loader implements Expression.Visitor<Integer> {
+		
+		private final EGraph graph;
+		
+		Loader(final EGraph target) {
+			this.graph = target;
+		}
+		
+		@Override
+		public Integer visit(final Variable v) {
+			return this.graph.add(new ENode(ENode.Kind.VARIABLE, v.getName()));
+		}
+		
+		@Override
+		public Integer visit(final Constant v) {
+			return this.graph.addConstant(v.getValue());
+		}
+		
+		@Override
+		public Integer visit(final BinaryOperation v) {
+			return this.graph.addBinary(v.getOperator(),
+				this.visit(v.getFirstOperand()),
+				this.visit(v.getSecondOperand()));
+		}
+		
+		@Override
+		public Integer visit(final NAryOperation v) {
+			final List<Integer> operands = new ArrayList<>();
+			v.getOperands().forEach(x -> operands.add(this.visit(x)));
+			return this.graph.addNAry(v.getOperator(), operands);
+		}
+		
+		@Override
+		public Integer visit(final FunctionOperation v) {
+			return this.graph.addFunction(v.getFunction(), this.visit(v.getArgument()));
+		}
+		
+		@Override
+		public Integer visit(final Equation v) {
+			throw new UnsupportedOperationException("Equations cannot be nested");
+		}
+	}
+	
+	/**
+	 * Extracts the expression of minimum cost from an e-graph
+	 * (see {@link EGraph#getBest(int)}).
+	 */
+	private static final class Extractor {
+		
+		private final EGraph graph;
+		
+		Extractor(final EGraph source) {
+			this.graph = source;
+		}
+		
+		Expression extract(final int id) {
+			final ENode n = this.graph.getBest(id);
+			switch (n.getKind()) {
+			case CONSTANT:
+				return Constant.valueOf((Long) n.getLabel());
+			case VARIABLE:
+				return new Variable((String) n.getLabel());
+			case BINARY:
+				return new BinaryOperation((BinaryOperator) n.getLabel(),
+					this.extract(n.getChild(0)), this.extract(n.getChild(1)));
+			case NARY:
+				final List<Expression> operands = new ArrayList<>();
+				for (int i = 0; i < n.getArity(); i++) {
+					operands.add(this.extract(n.getChild(i)));
+				}
+				return new NAryOperation((NAryOperator) n.getLabel(), operands);
+			case FUNCTION:
+			default:
+				return new FunctionOperation((Function) n.getLabel(), this.extract(n.getChild(0)));
+			}
+		}
+	}
+}
@@ -8,6 +8,8 @@ import org.converger.framework.CasFramework;
 import org.converger.framework.CasManager;
 import org.converger.framework.Expression;
 import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.polynomials.Polynomial;
+import org.converger.framework.polynomials.PolynomialRoots;
 import org.junit.Test;
 import org.junit.Assert;
 
@@ -64,6 +66,9 @@ public class EquationTest {
 			final String equation = a + "x^2 + (" + b + ")x + (" + c + ") = 0";
 			if (Double.isNaN(x1) && Double.isNaN(x2)) {
 				this.run(equation);
+			} else if (x1 == x2) {
+				//A double root is a single solution
+				this.run(equation, x1);
 			} else if (!Double.isNaN(x1) && !Double.isNaN(x2)) { //NOPMD
 				this.run(equation, x1, x2);
 			} else {
@@ -79,5 +84,71 @@ public class EquationTest {
 		this.run("sin(x) + x = cos(x)", 0.4566247045);
 	}
 	
+	@Test
+	public void testPolynomials() throws SyntaxErrorException {
+		//Wilkinson's polynomial: all the roots are found, up to degree 20
+		final StringBuilder wilkinson = new StringBuilder("1");
+		final double[] expected = new double[20];
+		for (int k = 1; k <= 20; k++) {
+			wilkinson.append("*(x - ").append(k).append(')');
+			expected[k - 1] = k;
+		}
+		this.run(wilkinson + " = 0", expected);
+		
+		//Multiple roots are returned once, and complex roots are discarded
+		this.run("(x^2 + 1)^2*(x - 3)^3*(x + 2) = 0", -2, 3);
+		this.run("x^7*(x - 1)^2 = 0", 0, 1);
+		this.run("(x - 1/3)^4*(x^2 - 2) = 0", -Math.sqrt(2), 1/3.0, Math.sqrt(2));
+		this.run("x^20 = 1", -1, 1);
+		//The coefficients are not exact as doubles: the wrong approximations are rejected
+		this.run("(x + 1)^60 = 3", -1 - Math.pow(3, 1 / 60.0), Math.pow(3, 1 / 60.0) - 1);
+		this.run("(x + 1)^40 = 3", -1 - Math.pow(3, 1 / 40.0), Math.pow(3, 1 / 40.0) - 1);
+		this.run("x^4 + 1 = 0");
+		
+		final Polynomial p = cas.toPolynomial(cas.parse("(x^3 - 2x + 5)^2*(x - 1)*x"), "x").get();
+		Assert.assertEquals(3, PolynomialRoots.countRealRoots(p));
+	}
+	
+	@Test(timeout = 10000)
+	public void testHighDegree() throws SyntaxErrorException {
+		//The polynomials of very high degree are left to Newton's method
+		for (final double root : cas.solveNumerically(cas.parse("x^20000 = 1"))) {
+			Assert.assertEquals(1, Math.abs(root), EquationTest.EPSILON);
+		}
+		this.run("x^999 - x + 1 = 0", -1.0006944295282);
+	}
+	
+	@Test
+	public void testBracketing() throws SyntaxErrorException {
+		final double[] expected = {-2.377202853, -1.273890554, 1.651093408};
+		Set<Double> result = cas.solveNumerically(cas.parse("x^3 + 2x^2 - 3x - 5 = 0"), -10, 10);
+		Assert.assertEquals(expected.length, result.size());
+		int k = 0;
+		for (final double root : result) {
+			Assert.assertEquals(expected[k++], root, EPSILON);
+		}
+		
+		//Every root in the interval is found, with no starting point
+		result = cas.solveNumerically(cas.parse("sin(x) = 0"), -10, 10);
+		Assert.assertEquals(7, result.size());
+		k = -3;
+		for (final double root : result) {
+			Assert.assertEquals(k++ * Math.PI, root, 1e-12);
+		}
+		
+		//Poles are not roots
+		Assert.assertTrue(cas.solveNumerically(cas.parse("1/x = 0"), -1, 1).isEmpty());
+		result = cas.solveNumerically(cas.parse("tan(x) = 0"), -2, 2);
+		Assert.assertEquals(1, result.size());
+		Assert.assertEquals(0, result.iterator().next(), 1e-12);
+		
+		try {
+			cas.solveNumerically(cas.parse("x = 1"), 0, Double.POSITIVE_INFINITY);
+			Assert.fail();
+		} catch (final IllegalArgumentException ex) { //NOPMD
+			//Expected
+		}
+	}
+	
 	//CHECKSTYLE:ON
 }
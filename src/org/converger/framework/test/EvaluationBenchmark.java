@@ -0,0 +1,139 @@
+package org.converger.framework.test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.CasManager;
+import org.converger.framework.EvaluationBackend;
+import org.converger.framework.Expression;
+import org.converger.framework.PreparedExpression;
+import org.converger.framework.SyntaxErrorException;
+
+/**
+ * Benchmark of the evaluation strategies, on workloads similar to
+ * those of the integrator and of the plot window.
+ * @author Dario Pavllo
+ */
+public final class EvaluationBenchmark {
+	
+	private static final String[] FUNCTIONS = {
+		"x*e^(-x^2)",
+		"sin(x)^3 + cos(x)^2/(1 + x^2)",
+		"ln(1 + x^2)*sqrt(abs(x)) - atan(x)/(2 + sin(3x))",
+	};
+	/** Number of points of an integration (step 1e-4 on a unit interval) */
+	private static final int INTEGRATION_POINTS = 10000;
+	/** Number of points of a plot (as in the plot window) */
+	private static final int PLOT_POINTS = 300;
+	private static final int INTEGRATION_ROUNDS = 30;
+	private static final int PLOT_ROUNDS = 1000;
+	private static final int WARMUP_ROUNDS = 3;
+	
+	private EvaluationBenchmark() {
+	}
+	
+	/**
+	 * Entry point.
+	 * @param args not used
+	 * @throws SyntaxErrorException if a benchmark function is invalid
+	 */
+	public static void main(final String... args) throws SyntaxErrorException {
+		final CasFramework cas = CasManager.getSingleton().createFramework();
+		final List<String> variables = Collections.singletonList("x");
+		for (final String input : FUNCTIONS) {
+			final Expression e = cas.simplify(cas.parse(input));
+			System.out.println("----" + input + "----");
+			
+			final Map<String, Double> values = new HashMap<>();
+			final DoubleUnaryOperator evaluator = x -> {
+				values.put("x", x);
+				return cas.evaluate(e, values);
+			};
+			final PreparedExpression closures = cas.prepare(e, variables, EvaluationBackend.CLOSURES);
+			final PreparedExpression bytecode = cas.prepare(e, variables, EvaluationBackend.BYTECODE);
+			final PreparedExpression program = cas.prepare(e, variables, EvaluationBackend.PROGRAM);
+			final double[] point = new double[1];
+			
+			run("Evaluator", evaluator);
+			run("Closures", x -> {
+				point[0] = x;
+				return closures.apply(point);
+			});
+			run("Bytecode", (DoubleUnaryOperator) bytecode);
+			run("Program", x -> {
+				point[0] = x;
+				return program.apply(point);
+			});
+			runBatch("Batch", program);
+		}
+	}
+	
+	private static void runBatch(final String label, final PreparedExpression f) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			sweepBatch(f, INTEGRATION_POINTS, INTEGRATION_ROUNDS);
+			sweepBatch(f, PLOT_POINTS, PLOT_ROUNDS);
+		}
+		System.out.printf("%-10s integration: %8.1f ns/eval   plot: %8.1f ns/eval%n", label,
+			sweepBatch(f, INTEGRATION_POINTS, INTEGRATION_ROUNDS),
+			sweepBatch(f, PLOT_POINTS, PLOT_ROUNDS));
+	}
+	
+	/*
+	 * Same as sweep, but all the points of a round are evaluated with a single batch.
+	 */
+	private static double sweepBatch(final PreparedExpression f, final int points, final int rounds) {
+		double checksum = 0;
+		final long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			final double[] xs = new double[points + 1];
+			final double[] out = new double[points + 1];
+			for (int i = 0; i <= points; i++) {
+				xs[i] = (double) i / points;
+			}
+			f.applyBatch(new double[][] {xs}, out);
+			for (final double y : out) {
+				checksum += y;
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+		if (Double.isNaN(checksum)) {
+			//Prevents dead code elimination
+			System.out.println("NaN");
+		}
+		return (double) elapsed / ((double) rounds * (points + 1));
+	}
+	
+	private static void run(final String label, final DoubleUnaryOperator f) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			sweep(f, INTEGRATION_POINTS, INTEGRATION_ROUNDS);
+			sweep(f, PLOT_POINTS, PLOT_ROUNDS);
+		}
+		System.out.printf("%-10s integration: %8.1f ns/eval   plot: %8.1f ns/eval%n", label,
+			sweep(f, INTEGRATION_POINTS, INTEGRATION_ROUNDS),
+			sweep(f, PLOT_POINTS, PLOT_ROUNDS));
+	}
+	
+	/*
+	 * Evaluates the function on the given number of equally spaced points
+	 * of the unit interval, and returns the average time per evaluation (in nanoseconds).
+	 */
+	private static double sweep(final DoubleUnaryOperator f, final int points, final int rounds) {
+		double checksum = 0;
+		final long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			for (int i = 0; i <= points; i++) {
+				checksum += f.applyAsDouble((double) i / points);
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+		if (Double.isNaN(checksum)) {
+			//Prevents dead code elimination
+			System.out.println("NaN");
+		}
+		return (double) elapsed / ((double) rounds * (points + 1));
+	}
+}
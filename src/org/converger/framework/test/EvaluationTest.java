@@ -1,13 +1,23 @@
 package org.converger.framework.test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.converger.framework.CasFramework;
 import org.converger.framework.CasManager;
+import org.converger.framework.DualNumber;
+import org.converger.framework.EvaluationBackend;
 import org.converger.framework.Expression;
+import org.converger.framework.Gradient;
+import org.converger.framework.PreparedExpression;
 import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.compiler.Program;
+import org.converger.framework.compiler.ProgramCompiler;
 import org.junit.Test;
 import org.junit.Assert;
 
@@ -30,6 +40,22 @@ public class EvaluationTest {
 			final Expression e = cas.parse(input);
 			final double result = cas.evaluate(e, map);
 			Assert.assertEquals(expected, result, EvaluationTest.EPSILON);			
+			
+			//The prepared handle must yield the same result
+			final List<String> order = new ArrayList<>(map.keySet());
+			final double[] values = order.stream().mapToDouble(map::get).toArray();
+			for (final EvaluationBackend backend : EvaluationBackend.values()) {
+				final double prepared = cas.prepare(e, order, backend).apply(values);
+				Assert.assertEquals(expected, prepared, EvaluationTest.EPSILON);
+			}
+			
+			//Batch evaluation of a single row
+			final double[][] columns = Arrays.stream(values)
+				.mapToObj(x -> new double[] {x})
+				.toArray(double[][]::new);
+			final double[] out = new double[1];
+			cas.evaluateBatch(e, order, columns, out);
+			Assert.assertEquals(expected, out[0], EvaluationTest.EPSILON);
 		} catch (SyntaxErrorException e) {
 			Assert.fail(e.getMessage());
 		}
@@ -68,6 +94,220 @@ public class EvaluationTest {
 		this.run("x + pi + e", 10 + Math.PI + Math.E, values);
 	}
 	
+	@Test
+	public void testProgramSerialization() throws SyntaxErrorException {
+		final Expression e = cas.parse("sin(x)^2 + 3x*y/(1 + ln(y)) - sqrt(abs(x - pi))");
+		final Program program = new ProgramCompiler(Arrays.asList("x", "y")).compile(e);
+		final Program restored = Program.fromBytes(program.toBytes());
+		Assert.assertEquals(program.getVariables(), restored.getVariables());
+		Assert.assertEquals(program.apply(1.5, 2.5), restored.apply(1.5, 2.5), 0);
+		
+		//Malformed programs are rejected
+		final byte[] bytes = program.toBytes();
+		try {
+			Program.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+			Assert.fail();
+		} catch (final IllegalArgumentException ex) { //NOPMD
+			//Expected
+		}
+	}
+	
+	@Test
+	public void testBatchEvaluation() throws SyntaxErrorException {
+		final Expression e = cas.parse("x^3 - 2x*y + sin(y)/(1 + x^2) + atan(x*y)");
+		final List<String> order = Arrays.asList("x", "y");
+		
+		//More rows than a single block, and a column longer than the output
+		final int rows = 1000;
+		final double[][] columns = new double[2][rows + 1];
+		for (int i = 0; i < rows; i++) {
+			columns[0][i] = -5 + i * 0.01;
+			columns[1][i] = Math.cos(i);
+		}
+		for (final EvaluationBackend backend : EvaluationBackend.values()) {
+			final double[] out = new double[rows];
+			cas.prepare(e, order, backend).applyBatch(columns, out);
+			for (int i = 0; i < rows; i++) {
+				final double expected = cas.prepare(e, order).apply(columns[0][i], columns[1][i]);
+				Assert.assertEquals(expected, out[i], EvaluationTest.EPSILON);
+			}
+		}
+		
+		final double[] xs = {0, 1, 2, 3};
+		final double[] out = new double[xs.length];
+		final Expression square = cas.parse("x^2 + 1");
+		cas.evaluateBatch(square, "x", xs, out);
+		Assert.assertArrayEquals(new double[] {1, 2, 5, 10}, out, 0);
+		//The compiled program is reused by the next calls
+		cas.evaluateBatch(square, "x", new double[] {4, 5, 6, 7}, out);
+		Assert.assertArrayEquals(new double[] {17, 26, 37, 50}, out, 0);
+		
+		//Columns shorter than the output are rejected
+		try {
+			cas.evaluateBatch(e, order, columns, new double[rows + 2]);
+			Assert.fail();
+		} catch (final IllegalArgumentException ex) { //NOPMD
+			//Expected
+		}
+	}
+	
+	@Test
+	public void testSharedSubexpressions() throws SyntaxErrorException {
+		final Map<String, Double> values = new HashMap<>();
+		values.put("x", 0.5);
+		values.put("y", 2.0);
+		this.run("sin(x^2 + 1)/(x^2 + 1) + (x^2 + 1)^(x^2 + 1)",
+			Math.sin(1.25) / 1.25 + Math.pow(1.25, 1.25), values);
+		final double l = Math.log(2.5);
+		this.run("ln(x + y)*(ln(x + y) + ln(x + y)^2) - sqrt(ln(x + y)^2)",
+			l * (l + l * l) - l, values);
+		
+		//Derivatives contain many repeated subtrees
+		final Expression f = cas.differentiate(cas.parse("x^sin(x)/(1 + x^2)"), "x");
+		final double expected = cas.evaluate(f, values);
+		for (final EvaluationBackend backend : EvaluationBackend.values()) {
+			Assert.assertEquals(expected, cas.prepare(f, Arrays.asList("x", "y"), backend)
+				.apply(0.5, 2.0), EvaluationTest.EPSILON);
+		}
+	}
+	
+	@Test
+	public void testSharedSubexpressionsFrame() throws SyntaxErrorException {
+		//The values of the shared subtrees are kept in a frame, reused by every call of a thread
+		final Expression e = cas.parse("sin(x^2 + y)*(x^2 + y) + cos(x^2 + y)/(1 + (x^2 + y)^2)");
+		final PreparedExpression prepared = cas.prepare(e, Arrays.asList("x", "y"));
+		IntStream.range(0, 1000).parallel().forEach(i -> {
+			final Map<String, Double> values = new HashMap<>();
+			values.put("x", i / 100.0);
+			values.put("y", -i / 300.0);
+			Assert.assertEquals(cas.evaluate(e, values), prepared.apply(i / 100.0, -i / 300.0),
+				EvaluationTest.EPSILON);
+		});
+	}
+	
+	@Test
+	public void testDerivativeEvaluation() throws SyntaxErrorException {
+		final Map<String, Double> values = new HashMap<>();
+		values.put("x", 0.7);
+		values.put("y", -1.3);
+		final String[] inputs = {
+			"x^3 - 2x*y + sin(y)/(1 + x^2)",
+			"x^sin(x)/(1 + x^2)*ln(x^2 + 1)",
+			"asin(x/2) + acos(x*y/3) - atan(x)*tan(x)",
+			"sqrt(abs(x*y - pi)) + e^(x*y) + y^4",
+			"(x^2 + 1)^(x^2 + 1) + cos(x^2 + 1)*y",
+		};
+		for (final String input : inputs) {
+			final Expression f = cas.parse(input);
+			for (final String variable : values.keySet()) {
+				//Compares the numerical derivative with the symbolic one
+				final DualNumber y = cas.evaluateWithDerivative(f, variable, values);
+				Assert.assertEquals(cas.evaluate(f, values), y.getValue(), EvaluationTest.EPSILON);
+				Assert.assertEquals(cas.evaluate(cas.differentiate(f, variable), values),
+					y.getDerivative(), EvaluationTest.EPSILON);
+			}
+		}
+		
+		//Negative bases with a constant exponent are allowed
+		final DualNumber cube = cas.evaluateWithDerivative(cas.parse("x^3"), "x",
+			Collections.singletonMap("x", -2.0));
+		Assert.assertEquals(new DualNumber(-8, 12), cube);
+	}
+	
+	@Test
+	public void testRepeatedDerivativeEvaluation() throws SyntaxErrorException {
+		//The compiled programs are reused by the next calls, even by concurrent ones
+		final Expression f = cas.parse("x^sin(x)/(1 + x^2)*y + cos(x*y)");
+		final Expression df = cas.differentiate(f, "x");
+		IntStream.range(1, 500).parallel().forEach(i -> {
+			final Map<String, Double> values = new HashMap<>();
+			values.put("x", i / 100.0);
+			values.put("y", -i / 300.0);
+			final DualNumber y = cas.evaluateWithDerivative(f, "x", values);
+			Assert.assertEquals(cas.evaluate(f, values), y.getValue(), EvaluationTest.EPSILON);
+			Assert.assertEquals(cas.evaluate(df, values), y.getDerivative(), EvaluationTest.EPSILON);
+		});
+	}
+	
+	@Test
+	public void testGradientEvaluation() throws SyntaxErrorException {
+		final List<String> order = Arrays.asList("x", "y", "z");
+		final double[] point = {0.7, -1.3, 2.1};
+		final Map<String, Double> values = new HashMap<>();
+		for (int i = 0; i < point.length; i++) {
+			values.put(order.get(i), point[i]);
+		}
+		final String[] inputs = {
+			"x^3 - 2x*y*z + sin(y)/(1 + x^2)",
+			"x^sin(z)/(1 + x^2)*ln(x^2 + z)",
+			"asin(x/2) + acos(x*y/3) - atan(z)*tan(x)",
+			"sqrt(abs(x*y - pi)) + e^(x*y*z) + (-2)^z*y^4",
+			"(x^2 + y)^(x^2 + y) + cos(x^2 + y)*z",
+		};
+		for (final String input : inputs) {
+			//The gradient must match the symbolic partial derivatives
+			final Expression f = cas.parse(input);
+			final Gradient g = cas.gradient(f, order, point);
+			Assert.assertEquals(cas.evaluate(f, values), g.getValue(), EvaluationTest.EPSILON);
+			for (int i = 0; i < point.length; i++) {
+				Assert.assertEquals(cas.evaluate(cas.differentiate(f, order.get(i)), values),
+					g.getDerivative(i), EvaluationTest.EPSILON);
+			}
+		}
+		
+		//Products with a zero factor, and a reused program
+		final Program program = new ProgramCompiler(order).compile(cas.parse("x*y*z + y"));
+		final double[] gradient = new double[3];
+		Assert.assertEquals(1, program.applyWithGradient(new double[] {0, 1, 2}, gradient), 0);
+		Assert.assertArrayEquals(new double[] {2, 1, 0}, gradient, 0);
+		Assert.assertEquals(8, program.applyWithGradient(new double[] {1, 2, 3}, gradient), 0);
+		Assert.assertArrayEquals(new double[] {6, 4, 2}, gradient, 0);
+		
+		//The framework reuses its compiled program of the same expression
+		final Expression f = cas.parse("x*y*z + y");
+		Assert.assertEquals(1, cas.gradient(f, order, new double[] {0, 1, 2}).getValue(), 0);
+		final Gradient g = cas.gradient(f, order, new double[] {1, 2, 3});
+		Assert.assertEquals(8, g.getValue(), 0);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(gradient[i], g.getDerivative(i), 0);
+		}
+	}
+	
+	@Test
+	public void testTaylorCoefficients() throws SyntaxErrorException {
+		//e^x = sum of x^k/k!, ln(1 + x) = sum of (-1)^(k+1)*x^k/k
+		final double[] exp = cas.taylorCoefficients(cas.parse("e^x"), "x", 0, 100);
+		final double[] ln = cas.taylorCoefficients(cas.parse("ln(1 + x)"), "x", 0, 50);
+		double factorial = 1;
+		for (int k = 0; k <= 100; k++) {
+			factorial *= Math.max(k, 1);
+			Assert.assertEquals(1 / factorial, exp[k], EvaluationTest.EPSILON / factorial);
+			if (k > 0 && k <= 50) {
+				Assert.assertEquals((k % 2 == 0 ? -1.0 : 1.0) / k, ln[k], EvaluationTest.EPSILON);
+			}
+		}
+		Assert.assertArrayEquals(new double[] {0, 0, 0, 1, 0},
+			cas.taylorCoefficients(cas.parse("x^3"), "x", 0, 4), 0);
+		
+		//The first coefficients must match the symbolic derivatives
+		final String[] inputs = {
+			"x^sin(x)/(1 + x^2)*ln(x^2 + 1)",
+			"asin(x/2) + acos(x/3) - atan(x)*tan(x)",
+			"sqrt(abs(x - pi)) + e^(2x)*cos(x^2) + 2^x",
+		};
+		final Map<String, Double> values = Collections.singletonMap("x", 0.7);
+		for (final String input : inputs) {
+			Expression f = cas.parse(input);
+			final double[] coefficients = cas.taylorCoefficients(f, "x", 0.7, 4);
+			factorial = 1;
+			for (int k = 0; k <= 4; k++) {
+				factorial *= Math.max(k, 1);
+				Assert.assertEquals(cas.evaluate(f, values) / factorial, coefficients[k], 1e-6);
+				f = cas.differentiate(f, "x");
+			}
+		}
+	}
+	
 	@Test
 	public void testImplicitMultiplication() {
 		final Map<String, Double> values = new HashMap<>();
@@ -1,8 +1,15 @@
 package org.converger.framework.test;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.converger.framework.AbortedException;
 import org.converger.framework.CasFramework;
 import org.converger.framework.CasManager;
 import org.converger.framework.Expression;
+import org.converger.framework.IntegrationMethod;
+import org.converger.framework.IntegrationResult;
 import org.converger.framework.SyntaxErrorException;
 import org.junit.Test;
 import org.junit.Assert;
@@ -49,5 +56,125 @@ public class IntegrationTest {
 		this.run("x*e^(-x^2)", 0, 1, 0.5 - 1/(2*Math.E));
 	}
 	
+	@Test
+	public void testGaussKronrod() throws SyntaxErrorException {
+		//Polynomials up to degree 22 are integrated exactly by the Kronrod rule
+		IntegrationResult r = cas.integrateNumerically(cas.parse("x^2"), 0, 5,
+			IntegrationMethod.GAUSS_KRONROD, 1e-12, 0);
+		Assert.assertEquals(125/3.0, r.getValue(), 1e-12);
+		Assert.assertEquals(15, r.getEvaluations());
+		
+		//A long interval needs a few subdivisions, not millions of evaluations
+		r = cas.integrateNumerically(cas.parse("sin(x)^2"), 0, 1000,
+			IntegrationMethod.GAUSS_KRONROD, 1e-10, 1e-10);
+		Assert.assertEquals(500 - Math.sin(2000)/4, r.getValue(), 1e-8);
+		Assert.assertTrue(r.getErrorEstimate() <= 1e-10 * 500);
+		Assert.assertTrue(r.getEvaluations() < 20000);
+		
+		//Reversed bounds
+		r = cas.integrateNumerically(cas.parse("e^x"), 1, 0,
+			IntegrationMethod.GAUSS_KRONROD, 1e-12, 0);
+		Assert.assertEquals(1 - Math.E, r.getValue(), 1e-12);
+		
+		//The trapezoidal rule is still available
+		r = cas.integrateNumerically(cas.parse("x^2"), 0, 5, IntegrationMethod.TRAPEZOID, 0, 0);
+		Assert.assertEquals(125/3.0, r.getValue(), EPSILON);
+		Assert.assertTrue(Double.isNaN(r.getErrorEstimate()));
+	}
+	
+	@Test
+	public void testDoubleExponential() throws SyntaxErrorException {
+		//Singularities at the bounds
+		this.run("1/sqrt(x)", 0, 1, 2);
+		this.run("ln(x)", 0, 1, -1);
+		this.run("1/sqrt(1 - x^2)", -1, 1, Math.PI);
+		
+		//Infinite ranges
+		final double inf = Double.POSITIVE_INFINITY;
+		this.run("e^(-x)", 0, inf, 1);
+		this.run("1/(1 + x^2)", -inf, inf, Math.PI);
+		this.run("e^(-x^2)", -inf, inf, Math.sqrt(Math.PI));
+		this.run("e^x", -inf, 0, 1);
+		this.run("1/(1 + x^2)", 1, inf, Math.PI / 4);
+		
+		final IntegrationResult r = cas.integrateNumerically(cas.parse("1/sqrt(x)"), 0, 1,
+			IntegrationMethod.DOUBLE_EXPONENTIAL, 1e-12, 1e-12);
+		Assert.assertEquals(2, r.getValue(), 1e-12);
+		Assert.assertTrue(r.getEvaluations() < 1000);
+		
+		//The other algorithms need finite bounds
+		try {
+			cas.integrateNumerically(cas.parse("e^(-x)"), 0, inf, IntegrationMethod.GAUSS_KRONROD, 0, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException ex) { //NOPMD
+			//Expected
+		}
+	}
+	
+	@Test
+	public void testRomberg() throws SyntaxErrorException {
+		//Smooth functions converge after a few levels
+		IntegrationResult r = cas.integrateNumerically(cas.parse("e^x"), 0, 1,
+			IntegrationMethod.ROMBERG, 1e-12, 0);
+		Assert.assertEquals(Math.E - 1, r.getValue(), 1e-12);
+		Assert.assertTrue(r.getErrorEstimate() <= 1e-12);
+		Assert.assertTrue(r.getEvaluations() <= 65);
+		
+		//Every level reuses the previous points: 2^k + 1 evaluations in total
+		r = cas.integrateNumerically(cas.parse("x^3"), 0, 2, IntegrationMethod.ROMBERG, 1e-12, 0);
+		Assert.assertEquals(4, r.getValue(), 1e-12);
+		Assert.assertEquals(17, r.getEvaluations());
+		
+		r = cas.integrateNumerically(cas.parse("sin(x)"), Math.PI, 0,
+			IntegrationMethod.ROMBERG, 1e-10, 1e-10);
+		Assert.assertEquals(-2, r.getValue(), 1e-10);
+		
+		try {
+			cas.integrateNumerically(cas.parse("e^(-x)"), 0, Double.POSITIVE_INFINITY,
+				IntegrationMethod.ROMBERG, 0, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException ex) { //NOPMD
+			//Expected
+		}
+	}
+	
+	@Test
+	public void testParallelIntegration() throws SyntaxErrorException {
+		final Expression e = cas.parse("sin(x)^2 + sqrt(x)*e^(-x/100)");
+		final IntegrationResult sequential = cas.integrateNumerically(e, 0, 100,
+			IntegrationMethod.GAUSS_KRONROD, 1e-9, 0);
+		for (final IntegrationMethod method : IntegrationMethod.values()) {
+			final IntegrationResult first = cas.integrateInParallel(e, 0, 100, method, 1e-9, 0, 13);
+			Assert.assertEquals(sequential.getValue(), first.getValue(), 1e-6);
+			
+			//The result must be the same on every run
+			for (int i = 0; i < 5; i++) {
+				final IntegrationResult other = cas.integrateInParallel(e, 0, 100, method, 1e-9, 0, 13);
+				Assert.assertEquals(first.getValue(), other.getValue(), 0);
+				Assert.assertEquals(first.getEvaluations(), other.getEvaluations());
+			}
+		}
+		
+		//A single chunk is the same as the sequential algorithm
+		Assert.assertEquals(sequential.getValue(), cas.integrateInParallel(e, 0, 100,
+			IntegrationMethod.GAUSS_KRONROD, 1e-9, 0, 1).getValue(), 0);
+	}
+	
+	@Test(timeout = 10000)
+	public void testAbort() throws SyntaxErrorException {
+		final Expression e = cas.parse("sin(x)^2");
+		final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+		try {
+			timer.schedule(cas::abort, 100, TimeUnit.MILLISECONDS);
+			//About 10^9 points, which would take much longer than the timeout
+			cas.integrateNumerically(e, 0, 1e5, IntegrationMethod.TRAPEZOID, 0, 0);
+			Assert.fail();
+		} catch (final AbortedException ex) { //NOPMD
+			//Expected
+		} finally {
+			timer.shutdown();
+		}
+	}
+	
 	//CHECKSTYLE:ON
 }
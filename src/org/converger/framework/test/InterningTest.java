@@ -0,0 +1,74 @@
+package org.converger.framework.test;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.CasManager;
+import org.converger.framework.Expression;
+import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.ExpressionInterner;
+import org.converger.framework.core.NAryOperation;
+import org.junit.Test;
+import org.junit.Assert;
+
+/**
+ * Automatic test for the hash-consing and the fingerprints of expressions.
+ * @author Dario Pavllo
+ */
+public class InterningTest {
+	
+	private final CasFramework cas = CasManager.getSingleton().createFramework();
+	private final ExpressionInterner interner = ExpressionInterner.getSingleton();
+	
+	//CHECKSTYLE:OFF
+	
+	@Test
+	public void testInterning() throws SyntaxErrorException {
+		final Expression a = interner.intern(cas.parse("sin(x + 1)^2 / (x*y + 3)"));
+		final Expression b = interner.intern(cas.parse("sin(x + 1)^2 / (x*y + 3)"));
+		Assert.assertSame(a, b);
+		
+		//The children of a canonical tree are canonical as well
+		final Expression c = interner.intern(cas.parse("x*y + 3"));
+		Assert.assertSame(c, ((BinaryOperation) a).getSecondOperand());
+		
+		//Different trees stay different
+		final Expression d = interner.intern(cas.parse("sin(x + 1)^2 / (x*y + 4)"));
+		Assert.assertNotEquals(a, d);
+		Assert.assertSame(((NAryOperation) c).getOperands().get(0),
+			((NAryOperation) ((BinaryOperation) d).getSecondOperand()).getOperands().get(0));
+	}
+	
+	@Test
+	public void testFingerprints() throws SyntaxErrorException {
+		Assert.assertEquals(cas.parse("sin(x)/(y + 2)").getFingerprint(),
+			cas.parse("sin(x)/(y + 2)").getFingerprint());
+		
+		//The order of the operands matters
+		Assert.assertNotEquals(cas.parse("a/b").getFingerprint(), cas.parse("b/a").getFingerprint());
+		Assert.assertNotEquals(cas.parse("x^y").getFingerprint(), cas.parse("y^x").getFingerprint());
+		Assert.assertNotEquals(cas.parse("x + y + z").getFingerprint(),
+			cas.parse("x + z + y").getFingerprint());
+		
+		//Nodes with equal operands do not collide
+		Assert.assertNotEquals(cas.parse("x/x").getFingerprint(), cas.parse("y/y").getFingerprint());
+		Assert.assertNotEquals(cas.parse("x/x").getFingerprint(), cas.parse("x^x").getFingerprint());
+		Assert.assertNotEquals(cas.parse("2").getFingerprint(), cas.parse("ln(2)").getFingerprint());
+	}
+	
+	@Test
+	public void testSmallConstants() {
+		Assert.assertSame(Constant.valueOf(2), Constant.valueOf(2));
+		Assert.assertSame(Constant.ZERO, Constant.valueOf(0));
+		Assert.assertEquals(Constant.valueOf(1L << 40), Constant.valueOf(1L << 40));
+	}
+	
+	@Test
+	public void testSimplifiedTreesAreShared() throws SyntaxErrorException {
+		final Expression a = cas.simplify(cas.parse("2x + 3x + y^2*y"));
+		final Expression b = cas.simplify(cas.parse("y^3 + 5x"));
+		Assert.assertSame(a, b);
+	}
+	
+	//CHECKSTYLE:ON
+}
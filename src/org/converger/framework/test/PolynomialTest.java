@@ -0,0 +1,214 @@
+package org.converger.framework.test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.CasManager;
+import org.converger.framework.Expression;
+import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.core.NAryOperation;
+import org.converger.framework.polynomials.Polynomial;
+import org.junit.Test;
+import org.junit.Assert;
+
+/**
+ * Automatic test for the polynomial representation.
+ * @author Dario Pavllo
+ */
+public class PolynomialTest {
+	
+	private static final double EPSILON = 1e-9;
+	
+	private final CasFramework cas = CasManager.getSingleton().createFramework();
+	
+	private Polynomial convert(final String input) throws SyntaxErrorException {
+		return cas.toPolynomial(cas.parse(input), "x").orElse(null);
+	}
+	
+	private double evaluate(final Expression e, final double x) {
+		return cas.evaluate(e, Collections.singletonMap("x", x));
+	}
+	
+	//CHECKSTYLE:OFF
+	
+	@Test
+	public void testConversion() throws SyntaxErrorException {
+		Polynomial p = this.convert("x^4/3 - 2x/5 + 7");
+		Assert.assertEquals(4, p.getDegree());
+		Assert.assertEquals(15, p.getDenominator());
+		Assert.assertArrayEquals(new long[] {105, -6, 0, 0, 5}, p.toLongArray());
+		
+		//The same polynomial, written differently
+		Assert.assertEquals(p, this.convert("(5x^4 - 6x + 105)/15"));
+		Assert.assertEquals(this.convert("x^2 + 2x + 1"), this.convert("(x + 1)*(1 + x)"));
+		Assert.assertEquals(this.convert("0"), this.convert("x - x"));
+		Assert.assertEquals(-1, this.convert("x - x").getDegree());
+		
+		//Not polynomials
+		Assert.assertNull(this.convert("1/x"));
+		Assert.assertNull(this.convert("x^(1/2)"));
+		Assert.assertNull(this.convert("x^(-1)"));
+		Assert.assertNull(this.convert("sin(x)"));
+		Assert.assertNull(this.convert("x*y"));
+		Assert.assertNull(this.convert("pi*x"));
+		Assert.assertNull(this.convert("x/0"));
+		
+		//The coefficients of (x+1)^70 do not fit in a long
+		Assert.assertNotNull(this.convert("(x + 1)^60"));
+		Assert.assertNull(this.convert("(x + 1)^70"));
+	}
+	
+	@Test
+	public void testOperations() throws SyntaxErrorException {
+		final String[] inputs = {"x^4/3 - 2x/5 + 7", "(x - 2)^5*(3x + 1)", "-x^2", "5", "(2x - 1)^3/4"};
+		for (final String input : inputs) {
+			final Expression e = cas.parse(input);
+			final Polynomial p = this.convert(input);
+			final Expression back = p.toExpression("x");
+			final Expression derivative = cas.differentiate(e, "x");
+			for (double x = -3; x <= 3; x += 0.25) {
+				Assert.assertEquals(this.evaluate(e, x), p.evaluate(x), EPSILON);
+				Assert.assertEquals(this.evaluate(e, x), this.evaluate(back, x), EPSILON);
+				Assert.assertEquals(this.evaluate(derivative, x), p.derivative().evaluate(x), EPSILON);
+			}
+			Assert.assertEquals(p, cas.toPolynomial(back, "x").get());
+		}
+		Assert.assertEquals("x^4/3 - (2*x)/5 + 7", cas.toPlainText(this.convert("7 + x^4/3 - 2x/5").toExpression("x")));
+		Assert.assertEquals("(4*x^3)/3 - 2/5", cas.toPlainText(this.convert("x^4/3 - 2x/5").derivative().toExpression("x")));
+	}
+	
+	@Test
+	public void testSparse() throws SyntaxErrorException {
+		//High degrees with few terms are stored sparsely
+		final Polynomial p = this.convert("x^100000 - 3x^500 + 2");
+		Assert.assertEquals(100000, p.getDegree());
+		Assert.assertEquals(3, p.getTermCount());
+		Assert.assertEquals(-3, p.getNumerator(500));
+		Assert.assertEquals(0, p.getNumerator(501));
+		Assert.assertEquals(0, p.evaluate(1), 0);
+		Assert.assertEquals(2, p.evaluate(0), 0);
+		Assert.assertEquals(Math.pow(1.00001, 100000) - 3 * Math.pow(1.00001, 500) + 2,
+			p.evaluate(1.00001), EPSILON);
+		
+		final Polynomial d = p.derivative();
+		Assert.assertEquals(99999, d.getDegree());
+		Assert.assertEquals(100000, d.getNumerator(99999));
+		Assert.assertEquals(-1500, d.getNumerator(499));
+		Assert.assertEquals(p, cas.toPolynomial(p.toExpression("x"), "x").get());
+		
+		//The product of sparse polynomials
+		Assert.assertEquals(this.convert("x^200000 - 1"), this.convert("(x^100000 - 1)*(x^100000 + 1)"));
+	}
+	
+	private String expand(final String input) throws SyntaxErrorException {
+		return cas.toPlainText(cas.expand(cas.parse(input)));
+	}
+	
+	@Test
+	public void testExpand() throws SyntaxErrorException {
+		Assert.assertEquals("x^2 + 2*x*y + 2*x + y^2 + 2*y + 1", this.expand("(x + y + 1)^2"));
+		Assert.assertEquals("x^2 - 1", this.expand("(x + 1)*(x - 1)"));
+		Assert.assertEquals("-x^2 + 2*x*y - y^2", this.expand("-(x - y)^2"));
+		Assert.assertEquals("(3*a^2*b)/2 + (3*a*b^2)/2 + b^3/2", this.expand("(a + b)^3/2 - a^3/2"));
+		Assert.assertEquals("0", this.expand("(x + y)^2 - x^2 - 2x*y - y^2"));
+		
+		//The other subexpressions are symbols, whose operands are expanded
+		Assert.assertEquals("x^2 + 2*x + sin(x^2 + 2*x + 1) + 1", this.expand("sin((x + 1)^2) + (x + 1)^2"));
+		Assert.assertEquals("(x^2 + 2*x + 1)/(x + y)", this.expand("(x + 1)^2/(x + y)"));
+		Assert.assertEquals("x^2 + 2*x + 1 = x^2 - 2*x + 1", this.expand("(x + 1)^2 = (x - 1)^2"));
+		
+		//Coefficients which do not fit in a long
+		Assert.assertEquals("(x + 1)^70", this.expand("(x + 1)^70"));
+		
+		//All the 455 monomials of degree up to 12 in 3 variables
+		final Expression e = cas.parse("(x + y + z + 1)^12");
+		final Expression expanded = cas.expand(e);
+		Assert.assertEquals(455, ((NAryOperation) expanded).getOperands().size());
+		final Map<String, Double> values = new HashMap<>();
+		values.put("x", 0.3);
+		values.put("y", -0.7);
+		values.put("z", 1.1);
+		Assert.assertEquals(cas.evaluate(e, values), cas.evaluate(expanded, values), EPSILON);
+		
+		//Many atoms: the monomials take more than one word
+		final String sum = "a + b + c + d + f + g + h + i + j + k + l + m + n + o + p + q + r";
+		Assert.assertEquals(4845, ((NAryOperation) cas.expand(cas.parse("(" + sum + ")^4"))).getOperands().size());
+		final Expression high = cas.expand(cas.parse("(a + b + c + d + f + g + h + i + j + k)^2*a^70"));
+		Assert.assertEquals(55, ((NAryOperation) high).getOperands().size());
+		Assert.assertEquals("a^72", cas.toPlainText(((NAryOperation) high).getOperands().get(0)));
+	}
+	
+	private static long[] randomCoefficients(final Random random, final int length, final int bound) {
+		final long[] c = new long[length];
+		for (int i = 0; i < length; i++) {
+			c[i] = random.nextInt(2 * bound + 1) - bound;
+		}
+		c[length - 1] = bound;
+		return c;
+	}
+	
+	private static BigInteger[] schoolbook(final long[] a, final long[] b) {
+		final BigInteger[] c = new BigInteger[a.length + b.length - 1];
+		Arrays.fill(c, BigInteger.ZERO);
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < b.length; j++) {
+				c[i + j] = c[i + j].add(BigInteger.valueOf(a[i]).multiply(BigInteger.valueOf(b[j])));
+			}
+		}
+		return c;
+	}
+	
+	@Test
+	public void testFastMultiplication() throws SyntaxErrorException {
+		final Random random = new Random(42);
+		//Karatsuba's algorithm and the NTT
+		for (final int length : new int[] {100, 3000}) {
+			final long[] a = randomCoefficients(random, length, 1000000);
+			final long[] b = randomCoefficients(random, length + 7, 1000000);
+			final long[] c = Polynomial.of(a, 1).multiply(Polynomial.of(b, 1)).toLongArray();
+			final BigInteger[] expected = schoolbook(a, b);
+			Assert.assertEquals(expected.length, c.length);
+			for (int i = 0; i < c.length; i++) {
+				Assert.assertEquals(expected[i].longValue(), c[i]);
+			}
+		}
+		
+		//The coefficients of the product are exact even near the limit of a long
+		final long[] big = new long[300];
+		Arrays.fill(big, 1L << 27);
+		Assert.assertEquals(300L << 54, Polynomial.of(big, 1).pow(2).getNumerator(299));
+		
+		//The bound fails, but the product fits: (x^299 + ... + 1)*(x - 1)
+		final long[] ones = new long[300];
+		Arrays.fill(ones, 1L << 62);
+		final long[] binomial = new long[300];
+		binomial[0] = -1;
+		binomial[1] = 1;
+		final Polynomial p = Polynomial.of(ones, 1).multiply(Polynomial.of(binomial, 1));
+		Assert.assertEquals(2, p.getTermCount());
+		Assert.assertEquals(1L << 62, p.getNumerator(300));
+		
+		//Overflow
+		try {
+			Polynomial.of(ones, 1).pow(2);
+			Assert.fail();
+		} catch (final ArithmeticException ex) {
+			//Expected
+		}
+		Assert.assertFalse(cas.toPolynomial(cas.parse("(x + 1)^70"), "x").isPresent());
+		
+		//Dense univariate expansions
+		final Expression e = cas.parse("(x + 1)^31*(x - 1)^31");
+		final Expression expanded = cas.expand(e);
+		Assert.assertEquals(32, ((NAryOperation) expanded).getOperands().size());
+		final Map<String, Double> values = Collections.singletonMap("x", 3.0);
+		Assert.assertEquals(1, cas.evaluate(expanded, values) / cas.evaluate(e, values), EPSILON);
+	}
+	
+	//CHECKSTYLE:ON
+}
@@ -0,0 +1,78 @@
+package org.converger.framework.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.CasManager;
+import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.rules.Rule;
+import org.converger.framework.rules.RuleSet;
+import org.junit.Test;
+import org.junit.Assert;
+
+/**
+ * Automatic test for the rewrite rule engine.
+ * @author Dario Pavllo
+ */
+public class RuleTest {
+	
+	private final CasFramework cas = CasManager.getSingleton().createFramework();
+	
+	private String rewrite(final RuleSet rules, final String input) throws SyntaxErrorException {
+		return cas.toPlainText(rules.rewrite(cas.parse(input), x -> x));
+	}
+	
+	//CHECKSTYLE:OFF
+	
+	@Test
+	public void testMatching() throws SyntaxErrorException {
+		final List<Rule> list = new ArrayList<>();
+		list.add(Rule.of("x/x", "1"));
+		list.add(Rule.of("ln(e^x)", "x"));
+		list.add(Rule.of("x*0", "0"));
+		list.add(Rule.of("sin(x)^2 + cos(x)^2", "1"));
+		list.add(Rule.computed("abs(a)", b -> b.get("a")).when(b -> b.areConstants("a")));
+		final RuleSet rules = new RuleSet(list);
+		
+		//A repeated wildcard must match equal subexpressions
+		Assert.assertEquals("1", rewrite(rules, "(a + b)/(a + b)"));
+		Assert.assertEquals("(a + b)/(a + c)", rewrite(rules, "(a + b)/(a + c)"));
+		//The special constants are not wildcards
+		Assert.assertEquals("2*y", rewrite(rules, "ln(e^(2*y))"));
+		Assert.assertEquals("ln(pi^y)", rewrite(rules, "ln(pi^y)"));
+		//A single wildcard matches the remaining operands, in any position
+		Assert.assertEquals("0", rewrite(rules, "a*0*b"));
+		Assert.assertEquals("a*b", rewrite(rules, "a*b"));
+		Assert.assertEquals("1", rewrite(rules, "sin(t)^2 + cos(t)^2"));
+		Assert.assertEquals("sin(t)^2 + cos(u)^2", rewrite(rules, "sin(t)^2 + cos(u)^2"));
+		//Conditions
+		Assert.assertEquals("3", rewrite(rules, "abs(3)"));
+		Assert.assertEquals("abs(x)", rewrite(rules, "abs(x)"));
+	}
+	
+	@Test
+	public void testIndex() throws SyntaxErrorException {
+		final List<Rule> list = new ArrayList<>();
+		final int count = 300;
+		for (int i = 0; i < count; i++) {
+			list.add(Rule.of("x^" + i, "x"));
+		}
+		list.add(Rule.of("sin(x)^y", "x"));
+		final RuleSet rules = new RuleSet(list);
+		Assert.assertEquals(count + 1, rules.getRules().size());
+		
+		//Only the rules whose pattern can match are tried
+		Assert.assertEquals(1, rules.getCandidates(cas.parse("y^123")).size());
+		Assert.assertEquals(2, rules.getCandidates(cas.parse("sin(y)^7")).size());
+		Assert.assertEquals(1, rules.getCandidates(cas.parse("sin(y)^z")).size());
+		Assert.assertEquals(0, rules.getCandidates(cas.parse("y^z")).size());
+		Assert.assertEquals(0, rules.getCandidates(cas.parse("sin(y)")).size());
+		
+		//The first applicable rule wins
+		Assert.assertEquals("sin(y)", rewrite(rules, "sin(y)^7"));
+		Assert.assertEquals("x", rewrite(rules, "sin(x)^z"));
+	}
+	
+	//CHECKSTYLE:ON
+}
@@ -0,0 +1,77 @@
+package org.converger.framework.test;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.CasManager;
+import org.converger.framework.Expression;
+import org.converger.framework.SimplificationMode;
+import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.core.SimplificationCache;
+import org.converger.framework.core.Variable;
+import org.converger.framework.visitors.Differentiator;
+
+/**
+ * Benchmark of the simplification strategies, on derivatives
+ * (which contain many redundant and repeated subtrees).
+ * @author Dario Pavllo
+ */
+public final class SimplificationBenchmark {
+	
+	private static final String[] FUNCTIONS = {
+		"x^sin(x)/(1 + x^2)*ln(x^2 + 1)",
+		"sin(x)*cos(y)/(x^2 + y^2 + 1) + e^(x*y) - sqrt(x^4 + 3x^2 + 2)/(x + y)",
+		"(3x^3 - 2x^2 + x - 7)^4*atan(x/2)",
+	};
+	private static final int ROUNDS = 20;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int SATURATION_NODES = 20000;
+	private static final long SATURATION_MILLIS = 1000;
+	
+	private SimplificationBenchmark() {
+	}
+	
+	/**
+	 * Entry point.
+	 * @param args not used
+	 * @throws SyntaxErrorException if a benchmark function is invalid
+	 */
+	public static void main(final String... args) throws SyntaxErrorException {
+		final CasFramework cas = CasManager.getSingleton().createFramework();
+		final SimplificationCache cache = CasManager.getSingleton().getSimplificationCache();
+		final Differentiator d = new Differentiator(new Variable("x"));
+		for (final String input : FUNCTIONS) {
+			//Unsimplified second derivative
+			final Expression e = d.visit(d.visit(cas.parse(input)));
+			System.out.println("----" + input + "----");
+			for (final SimplificationMode mode : SimplificationMode.values()) {
+				//The cache is cleared, so that each simplification is performed from scratch
+				for (int i = 0; i < WARMUP_ROUNDS; i++) {
+					cache.clear();
+					cas.simplify(e, mode);
+				}
+				final long start = System.nanoTime();
+				Expression result = e;
+				for (int i = 0; i < ROUNDS; i++) {
+					cache.clear();
+					result = cas.simplify(e, mode);
+				}
+				final long elapsed = System.nanoTime() - start;
+				System.out.printf("%-10s %10.1f us/simplification   (result: %d characters)%n", mode,
+					elapsed / 1e3 / ROUNDS, cas.toPlainText(result).length());
+			}
+			
+			//The saturation starts from the fused result (it is not cached)
+			final Expression simplified = cas.simplify(e);
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				cas.simplifyBySaturation(simplified, SATURATION_NODES, SATURATION_MILLIS);
+			}
+			final long start = System.nanoTime();
+			Expression result = simplified;
+			for (int i = 0; i < ROUNDS; i++) {
+				result = cas.simplifyBySaturation(simplified, SATURATION_NODES, SATURATION_MILLIS);
+			}
+			final long elapsed = System.nanoTime() - start;
+			System.out.printf("%-10s %10.1f us/simplification   (result: %d characters)%n", "SATURATION",
+				elapsed / 1e3 / ROUNDS, cas.toPlainText(result).length());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package org.converger.framework.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.converger.framework.CasFramework;
+import org.converger.framework.CasManager;
+import org.converger.framework.Expression;
+import org.converger.framework.SimplificationMode;
+import org.converger.framework.SyntaxErrorException;
+import org.converger.framework.core.BinaryOperation;
+import org.converger.framework.core.Constant;
+import org.converger.framework.core.SimplificationCache;
+import org.converger.framework.core.Variable;
+import org.converger.framework.saturation.SaturationSimplifier;
+import org.junit.Test;
+import org.junit.Assert;
+
+/**
+ * Automatic test for the simplification strategies.
+ * @author Dario Pavllo
+ */
+public class SimplificationTest {
+	
+	private static final double EPSILON = 1e-9;
+	private final CasFramework cas = CasManager.getSingleton().createFramework();
+	
+	private void run(final String input, final String expected) {
+		try {
+			final Expression e = cas.parse(input);
+			final Expression pipeline = cas.simplify(e, SimplificationMode.PIPELINE);
+			final Expression fused = cas.simplify(e, SimplificationMode.FUSED);
+			Assert.assertEquals(expected, cas.toPlainText(pipeline));
+			Assert.assertEquals(expected, cas.toPlainText(fused));
+			
+			//Both strategies must yield equivalent expressions
+			final Map<String, Double> values = new HashMap<>();
+			values.put("x", 0.7);
+			values.put("y", 1.3);
+			Assert.assertEquals(cas.evaluate(e, values), cas.evaluate(fused, values), EPSILON);
+			Assert.assertEquals(cas.evaluate(e, values), cas.evaluate(pipeline, values), EPSILON);
+		} catch (SyntaxErrorException e) {
+			Assert.fail(e.getMessage());
+		}
+	}
+	
+	//CHECKSTYLE:OFF
+	
+	@Test
+	public void testSimplification() {
+		this.run("2x + 3x + y^2*y", "5*x + y^3");
+		this.run("x*(y/x)", "y");
+
+		this.run("(x/y)/(y/x)", "x^2/y^2");
+		this.run("sin(x)^2*sin(x)^3 + 0*y", "sin(x)^5");
+		this.run("((1 + 1)*(2 + 3))/((3*x)*(y*1))", "10/(3*x*y)");
+		this.run("ln(e) + cos(0) + x^1", "2 + x");
+	}
+	
+	@Test
+	public void testCancellation() throws SyntaxErrorException {
+		this.run("(x^2 - 1)/(x - 1)", "1 + x");
+		this.run("(x^2 - y^2)/(x + y)", "x - y");
+		this.run("(x^3 - 1)/(x^2 - 1)", "(1 + x + x^2)/(1 + x)");
+		this.run("(x^2*y)/(x*y^2)", "x/y");
+		this.run("(2x + 2)/(4x + 4)", "1/2");
+		this.run("(1 - x)/(x - 1)", "(-1)");
+		this.run("(sin(x)^2 - 1)/(sin(x) + 1)", "-1 + sin(x)");
+		this.run("(x + 1)/(x + 2)", "(1 + x)/(2 + x)");
+		
+		//The repeated derivatives of a rational function stay reduced
+		Expression e = cas.parse("x/(x + 1)");
+		for (int i = 0; i < 8; i++) {
+			e = cas.differentiate(e, "x");
+		}
+		Assert.assertTrue(((BinaryOperation) e).getFirstOperand() instanceof Constant);
+		final Map<String, Double> values = new HashMap<>();
+		values.put("x", 0.5);
+		Assert.assertEquals(-40320 / Math.pow(1.5, 9), cas.evaluate(e, values), EPSILON);
+	}
+	
+	@Test
+	public void testSaturation() throws SyntaxErrorException {
+		final String[][] cases = {
+			{"x*(y/x)", "y"},
+			{"(x^2*y)/(x*y^2)", "x/y"},
+			{"1/3 + 2/3*x + x/3", "x + 1/3"},
+			{"2x + 3x + y^2*y", "5*x + y^3"},
+			{"ln(e^(2x))", "2*x"},
+			{"x = x*(y/x)", "x = y"},
+		};
+		for (final String[] c : cases) {
+			Assert.assertEquals(c[1], cas.toPlainText(cas.simplifyBySaturation(cas.parse(c[0]), 5000, 10000)));
+		}
+		
+		//A tight budget stops the rewriting early, but the result is still equivalent
+		final Expression e = cas.parse("((x + y)^3*(x - y))/((x + y)^2*(x - y)) + (2*x)/(x*4)");
+		final SaturationSimplifier limited = new SaturationSimplifier(20, 10000);
+		final Expression partial = limited.simplify(e);
+		Assert.assertFalse(limited.isSaturated());
+		final Map<String, Double> values = new HashMap<>();
+		values.put("x", 0.7);
+		values.put("y", 1.3);
+		Assert.assertEquals(cas.evaluate(e, values), cas.evaluate(partial, values), EPSILON);
+		
+		final SaturationSimplifier unlimited = new SaturationSimplifier(5000, 10000);
+		Assert.assertEquals("x + y + 1/2", cas.toPlainText(unlimited.simplify(e)));
+		Assert.assertTrue(unlimited.isSaturated());
+		Assert.assertTrue(unlimited.getGraphSize() > limited.getGraphSize());
+	}
+	
+	@Test
+	public void testCache() throws SyntaxErrorException {
+		final SimplificationCache shared = CasManager.getSingleton().getSimplificationCache();
+		final Expression e = cas.parse("x*y^2 + 3x*y^2 - cos(0)");
+		final Expression first = cas.simplify(e);
+		final long hits = shared.getHits();
+		//The cache is shared by all the framework instances
+		final CasFramework other = CasManager.getSingleton().createFramework();
+		Assert.assertSame(first, other.simplify(cas.parse("x*y^2 + 3x*y^2 - cos(0)")));
+
+		Assert.assertEquals(hits + 1, shared.getHits());
+		
+		//The least recently used entry is evicted
+		final SimplificationCache cache = new SimplificationCache(2);
+		final Expression a = cas.parse("a");
+		final Expression b = cas.parse("b");
+		cache.put(a, SimplificationMode.FUSED, a);
+		cache.put(b, SimplificationMode.FUSED, b);
+		Assert.assertTrue(cache.get(a, SimplificationMode.FUSED).isPresent());
+		Assert.assertFalse(cache.get(a, SimplificationMode.PIPELINE).isPresent());
+		cache.put(cas.parse("c"), SimplificationMode.FUSED, a);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertTrue(cache.get(a, SimplificationMode.FUSED).isPresent());
+		Assert.assertFalse(cache.get(b, SimplificationMode.FUSED).isPresent());
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(2, cache.getMisses());
+		
+		//Concurrent lookups and insertions in a segmented cache
+		final SimplificationCache large = new SimplificationCache(1024);
+		IntStream.range(0, 4000).parallel().forEach(i -> {
+			final Expression v = new Variable("v" + (i % 2000));
+			if (!large.get(v, SimplificationMode.PIPELINE).isPresent()) {
+				large.put(v, SimplificationMode.PIPELINE, v);
+			}
+		});
+		Assert.assertEquals(4000, large.getHits() + large.getMisses());
+		Assert.assertTrue(large.size() <= 1024);
+		Assert.assertTrue(large.size() > 512);
+	}
+	
+	//CHECKSTYLE:ON
+}
@@ -1,6 +1,7 @@
 package org.converger.framework.visitors;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.converger.framework.Expression;
@@ -13,11 +14,53 @@ import org.converger.framework.core.Variable;
 
 /**
  * This abstract class is a template for visitors returning an expression.
- * The tree is traversed recursively.
+ * The tree is traversed recursively. If the children of a node are left unchanged,
+ * the node itself is returned instead of a copy.
+ * A visitor can be given a set of fixed points: the subtrees which are known to be
+ * left unchanged by it. They are returned immediately, without being traversed,
+ * and the set is updated with the new fixed points found during the visit.
+ * This is correct only if the result of a visit depends on the visited subtree alone
+ * (and not on its context), as it happens for all the simplifiers.
  * @author Dario Pavllo
  */
 public abstract class AbstractExpressionVisitor implements Expression.Visitor<Expression> {
 	
+	private final Set<Expression> fixedPoints;
+	
+	/**
+	 * Builds a visitor which does not keep track of fixed points.
+	 */
+	public AbstractExpressionVisitor() {
+		this.fixedPoints = null;
+	}
+	
+	/**
+	 * Builds a visitor which keeps track of its fixed points.
+	 * The same set can be reused by different instances of the same visitor.
+	 * @param knownFixedPoints the subtrees which are known to be left unchanged
+	 * by this visitor; it is updated during the visits
+	 */
+	public AbstractExpressionVisitor(final Set<Expression> knownFixedPoints) {
+		this.fixedPoints = knownFixedPoints;
+	}
+	
+	@Override
+	public Expression visit(final Expression v) {
+		if (this.fixedPoints == null) {
+			return v.accept(this);
+		}
+		if (this.fixedPoints.contains(v)) {
+			return v;
+		}
+		final Expression result = v.accept(this);
+		if (result.equals(v)) {
+			//Returning the original tree preserves the sharing of its unchanged subtrees
+			this.fixedPoints.add(v);
+			return v;
+		}
+		return result;
+	}
+	
 	@Override
 	public Expression visit(final Variable v) {
 		return v;
@@ -30,14 +73,21 @@ public abstract class AbstractExpressionVisitor implements Expression.Visitor<Ex
 
 	@Override
 	public Expression visit(final BinaryOperation v) {
-		return new BinaryOperation(v.getOperator(),
-			this.visit(v.getFirstOperand()),
-			this.visit(v.getSecondOperand()));
+		final Expression first = this.visit(v.getFirstOperand());
+		final Expression second = this.visit(v.getSecondOperand());
+		if (first == v.getFirstOperand() && second == v.getSecondOperand()) {
+			return v;
+		}
+		return new BinaryOperation(v.getOperator(), first, second);
 	}
 
 	@Override
 	public Expression visit(final FunctionOperation v) {
-		return new FunctionOperation(v.getFunction(), this.visit(v.getArgument()));
+		final Expression argument = this.visit(v.getArgument());
+		if (argument == v.getArgument()) {
+			return v;
+		}
+		return new FunctionOperation(v.getFunction(), argument);
 	}
 
 	@Override
@@ -48,14 +98,22 @@ public abstract class AbstractExpressionVisitor implements Expression.Visitor<Ex
 			.map(e -> this.visit(e))
 			.collect(Collectors.toList());
 		
-		return new NAryOperation(v.getOperator(), visited);
+		for (int i = 0; i < visited.size(); i++) {
+			if (visited.get(i) != v.getOperands().get(i)) {
+				return new NAryOperation(v.getOperator(), visited);
+			}
+		}
+		return v;
 	}
 	
 	@Override
 	public Expression visit(final Equation v) {
-		return new Equation(
-			this.visit(v.getFirstMember()),
-			this.visit(v.getSecondMember()));
+		final Expression first = this.visit(v.getFirstMember());
+		final Expression second = this.visit(v.getSecondMember());
+		if (first == v.getFirstMember() && second == v.getSecondMember()) {
+			return v;
+		}
+		return new Equation(first, second);
 	}
 	
 }
@@ -1,238 +1,132 @@
 package org.converger.framework.visitors;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.Set;
 
 import org.converger.framework.Expression;
 import org.converger.framework.core.BinaryOperation;
 import org.converger.framework.core.BinaryOperator;
 import org.converger.framework.core.Constant;
 import org.converger.framework.core.ExpressionFactory;
-import org.converger.framework.core.Function;
 import org.converger.framework.core.FunctionOperation;
 import org.converger.framework.core.MathUtils;
 import org.converger.framework.core.NAryOperation;
-import org.converger.framework.core.NAryOperator;
-import org.converger.framework.core.SpecialConstant;
+import org.converger.framework.rules.Bindings;
+import org.converger.framework.rules.Rule;
+import org.converger.framework.rules.RuleSet;
 
 /**
  * This visitor simplifies algebraically the supplied expression.
  * It uses a series of algebraic rules and properties to transform
  * an expression to another equivalent expression with less complexity.
+ * The rules are declared as patterns and templates (see {@link Rule}),
+ * and each node is rewritten with the first applicable rule, after its children.
  * @author Dario Pavllo
  */
-public class AlgebraicSimplifier extends AbstractExpressionVisitor implements
-	Expression.Visitor<Expression>,
-	BinaryOperator.Visitor<Expression>,
-	NAryOperator.Visitor<Expression>,
-	Function.Visitor<Expression> {
-
-	@Override
-	public Expression visit(final BinaryOperation v) {
-		return v.getOperator().accept(this,
-				this.visit(v.getFirstOperand()),
-				this.visit(v.getSecondOperand()));
-	}
-	
-	@Override
-	public Expression visit(final NAryOperation v) {
-		final List<Expression> simplified = v.getOperands()
-			.stream()
-			.map(x -> this.visit(x))
-			.collect(Collectors.toList());
-		
-		return v.getOperator().accept(this, simplified);
-	}
-	
-	@Override
-	public Expression visit(final FunctionOperation v) {
-		return v.getFunction().accept(this, this.visit(v.getArgument()));
-	}
-	
-	/*------------------
-	 * Binary operators
-	 *-----------------*/
-	
-	@Override
-	public Expression visitDivision(final Expression o1, final Expression o2) {
-		// x/1 = x
-		if (o2.equals(Constant.ONE)) {
-			return o1;
-		}
-		
-		// 0/x = 0 (if x != 0)
-		if (o1.equals(Constant.ZERO) && !o2.equals(Constant.ZERO)) {
-			return Constant.ZERO;
-		}
-		
-		// x/x = 1 (if x != 0)
-		if (o1.equals(o2) && !o2.equals(Constant.ZERO)) {
-			return Constant.ONE;
-		}
-		
-		return new BinaryOperation(BinaryOperator.DIVISION, o1, o2);
-	}
-
-	@Override
-	public Expression visitPower(final Expression o1, final Expression o2) {
-		//x^0 = 1
-		if (o2.equals(Constant.ZERO)) {
-			return Constant.ONE;
-		}
-		//x^1 = x
-		if (o2.equals(Constant.ONE)) {
-			return visit(o1);
-		}
-		//1^x = 1
-		if (o1.equals(Constant.ONE)) {
-			return Constant.ONE;
-		}
-		
-		//(x^y)^z = x^(yz)
-		if (o1 instanceof BinaryOperation) {
-			final BinaryOperation child = (BinaryOperation) o1;
-			if (child.getOperator() == BinaryOperator.POWER) {
-				return new BinaryOperation(
-						BinaryOperator.POWER,
-						child.getFirstOperand(),
-						new NAryOperation(
-							NAryOperator.PRODUCT,
-							child.getSecondOperand(),
-							o2
-						)
-					);
-			}
-		}
-		
+public class AlgebraicSimplifier extends AbstractExpressionVisitor {
+	
+	private static final RuleSet RULES = new RuleSet(Arrays.asList(
+		/*------------------
+		 * Binary operators
+		 *-----------------*/
+		Rule.of("x/1", "x"),
+		Rule.of("0/x", "0").when(AlgebraicSimplifier::isNonZero),
+		Rule.of("x/x", "1").when(AlgebraicSimplifier::isNonZero),
+		Rule.of("x^0", "1"),
+		Rule.of("x^1", "x").resimplified(),
+		Rule.of("1^x", "1"),
+		Rule.of("(x^y)^z", "x^(y*z)"),
 		//If the operands are constants, the result can be calculated
-		if (o1 instanceof Constant && o2 instanceof Constant) {
-			final long base = ((Constant) o1).getValue();
-			final long exponent = ((Constant) o2).getValue();
-			if (exponent >= 0) {
-				final long result = MathUtils.integerPower(base, exponent);
-				return Constant.valueOf(result);
-			} else {
-				//a^(-b) = 1/(a^b)
-				final long result = MathUtils.integerPower(base, -exponent);
-				return new BinaryOperation(
-					BinaryOperator.DIVISION,
-					Constant.ONE,
-					Constant.valueOf(result)
-				);
-			}
-		}
-		return new BinaryOperation(BinaryOperator.POWER, o1, o2);
-	}
-	
-	/*-----------------
-	 * N-ary operators
-	 *-----------------*/
-	
-	@Override
-	public Expression visitAddition(final List<Expression> operands) {
-		//Identity
-		return new NAryOperation(NAryOperator.ADDITION, operands);
-	}
-
-	@Override
-	public Expression visitProduct(final List<Expression> operands) {
+		Rule.computed("a^b", AlgebraicSimplifier::power).when(b -> b.areConstants("a", "b")),
+		
+		/*-----------------
+		 * N-ary operators
+		 *-----------------*/
 		//Zero property: any term multiplied by zero is zero
-		for (final Expression o : operands) {
-			if (o.equals(Constant.ZERO)) {
-				return Constant.ZERO;
-			}
-		}
+		Rule.of("x*0", "0"),
 		
-		return new NAryOperation(NAryOperator.PRODUCT, operands);
-	}
-	
-	/*------------
-	 * Functions
-	 *------------*/
-	
-	@Override
-	public Expression visitSin(final Expression arg) {
-		if (arg.equals(Constant.ZERO)) {
-			return Constant.ZERO;
-		}
-		return new FunctionOperation(Function.SIN, arg);
+		/*-----------
+		 * Functions
+		 *-----------*/
+		Rule.of("sin(0)", "0"),
+		Rule.of("asin(0)", "0"),
+		Rule.of("cos(0)", "1"),
+		Rule.of("acos(1)", "0"),
+		Rule.of("tan(0)", "0"),
+		Rule.of("atan(0)", "0"),
+		Rule.of("ln(1)", "0"),
+		Rule.of("ln(e)", "1"),
+		Rule.computed("abs(a)", AlgebraicSimplifier::abs).when(b -> b.areConstants("a")),
+		Rule.computed("sqrt(a)", AlgebraicSimplifier::sqrt).when(b -> b.areConstants("a"))
+	));
+	
+	/**
+	 * Builds a simplifier which does not keep track of fixed points.
+	 */
+	public AlgebraicSimplifier() {
+		super();
+	}
+	
+	/**
+	 * Builds a simplifier which keeps track of its fixed points.
+	 * @param fixedPoints the subtrees which are known to be left unchanged
+	 * by this simplifier; it is updated during the visits
+	 */
+	public AlgebraicSimplifier(final Set<Expression> fixedPoints) {
+		super(fixedPoints);
 	}
 	
 	@Override
-	public Expression visitArcsin(final Expression arg) {
-		if (arg.equals(Constant.ZERO)) {
-			return Constant.ZERO;
-		}
-		return new FunctionOperation(Function.ARCSIN, arg);
+	public Expression visit(final BinaryOperation v) {
+		return RULES.rewrite(super.visit(v), this::visit);
 	}
 	
 	@Override
-	public Expression visitCos(final Expression arg) {
-		if (arg.equals(Constant.ZERO)) {
-			return Constant.ONE;
-		}
-		return new FunctionOperation(Function.COS, arg);
+	public Expression visit(final NAryOperation v) {
+		return RULES.rewrite(super.visit(v), this::visit);
 	}
 	
 	@Override
-	public Expression visitArccos(final Expression arg) {
-		if (arg.equals(Constant.ONE)) {
-			return Constant.ZERO;
-		}
-		return new FunctionOperation(Function.ARCCOS, arg);
+	public Expression visit(final FunctionOperation v) {
+		return RULES.rewrite(super.visit(v), this::visit);
 	}
 	
-	@Override
-	public Expression visitTan(final Expression arg) {
-		if (arg.equals(Constant.ZERO)) {
-			return Constant.ZERO;
-		}
-		return new FunctionOperation(Function.TAN, arg);
-	}
+	/*------------------
+	 * Computed rules
+	 *-----------------*/
 	
-	@Override
-	public Expression visitArctan(final Expression arg) {
-		if (arg.equals(Constant.ZERO)) {
-			return Constant.ZERO;
-		}
-		return new FunctionOperation(Function.ARCTAN, arg);
+	private static boolean isNonZero(final Bindings b) {
+		return !b.get("x").equals(Constant.ZERO);
 	}
 	
-	@Override
-	public Expression visitLn(final Expression arg) {
-		if (arg.equals(Constant.ONE)) {
-			//ln(1) = 0
-			return Constant.ZERO;
-		}
-		if (arg.equals(SpecialConstant.E.getAsVariable())) {
-			//ln(e) = 1
-			return Constant.ONE;
+	private static Expression power(final Bindings b) {
+		final long base = b.getConstant("a");
+		final long exponent = b.getConstant("b");
+		if (exponent >= 0) {
+			return Constant.valueOf(MathUtils.integerPower(base, exponent));
 		}
-		return new FunctionOperation(Function.LN, arg);
+		//a^(-b) = 1/(a^b)
+		return new BinaryOperation(
+			BinaryOperator.DIVISION,
+			Constant.ONE,
+			Constant.valueOf(MathUtils.integerPower(base, -exponent))
+		);
 	}
 	
-	@Override
-	public Expression visitAbs(final Expression arg) {
-		if (arg instanceof Constant) {
-			//If the argument is a constant, its absolute value can be calculated
-			final Constant c = (Constant) arg;
-			return c.getValue() >= 0 ? c : ExpressionFactory.negate(c);
-		}
-		return new FunctionOperation(Function.ABS, arg);
+	private static Expression abs(final Bindings b) {
+		//If the argument is a constant, its absolute value can be calculated
+		final Expression c = b.get("a");
+		return b.getConstant("a") >= 0 ? c : ExpressionFactory.negate(c);
 	}
 	
-	@Override
-	public Expression visitSqrt(final Expression arg) {
-		if (arg instanceof Constant) {
-			//Tries to compute the integer square root
-			final Constant c = (Constant) arg;
-			final long squareRoot = (long) Math.sqrt(c.getValue());
-			if (squareRoot * squareRoot == c.getValue()) {
-				//Eureka!
-				return Constant.valueOf(squareRoot);
-			}
+	private static Expression sqrt(final Bindings b) {
+		//Tries to compute the integer square root
+		final long value = b.getConstant("a");
+		final long squareRoot = (long) Math.sqrt(value);
+		if (squareRoot * squareRoot == value) {
+			//Eureka!
+			return Constant.valueOf(squareRoot);
 		}
-		return new FunctionOperation(Function.SQRT, arg);
+		return null;
 	}
-		
 }
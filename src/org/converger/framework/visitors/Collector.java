@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.converger.framework.Expression;
 import org.converger.framework.core.BinaryOperation;
@@ -21,6 +22,22 @@ import org.converger.framework.core.BinaryOperator;
 public class Collector extends AbstractExpressionVisitor
 	implements NAryOperator.Visitor<Expression>, BinaryOperator.Visitor<Expression> {
 
+	/**
+	 * Builds a collector which does not keep track of fixed points.
+	 */
+	public Collector() {
+		super();
+	}
+	
+	/**
+	 * Builds a collector which keeps track of its fixed points.
+	 * @param fixedPoints the subtrees which are known to be left unchanged
+	 * by this collector; it is updated during the visits
+	 */
+	public Collector(final Set<Expression> fixedPoints) {
+		super(fixedPoints);
+	}
+	
 	@Override
 	public Expression visit(final BinaryOperation v) {
 		final BinaryOperation sv = (BinaryOperation) super.visit(v); //Simplified
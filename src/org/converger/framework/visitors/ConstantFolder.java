@@ -2,6 +2,7 @@ package org.converger.framework.visitors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.converger.framework.Expression;
 import org.converger.framework.core.BinaryOperation;
@@ -20,6 +21,22 @@ import org.converger.framework.core.BinaryOperator;
 public class ConstantFolder extends AbstractExpressionVisitor
 	implements NAryOperator.Visitor<Expression>, BinaryOperator.Visitor<Expression> {
 	
+	/**
+	 * Builds a folder which does not keep track of fixed points.
+	 */
+	public ConstantFolder() {
+		super();
+	}
+	
+	/**
+	 * Builds a folder which keeps track of its fixed points.
+	 * @param fixedPoints the subtrees which are known to be left unchanged
+	 * by this folder; it is updated during the visits
+	 */
+	public ConstantFolder(final Set<Expression> fixedPoints) {
+		super(fixedPoints);
+	}
+	
 	@Override
 	public Expression visit(final BinaryOperation v) {
 		final BinaryOperation sv = (BinaryOperation) super.visit(v); //Simplified
@@ -0,0 +1,73 @@
+package org.converger.framework.visitors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.converger.framework.Expression;
+
+/**
+ * This visitor simplifies an expression in a single bottom-up traversal.
+ * Each node is normalized once, after its children have been normalized:
+ * the rules of the simplification passes (leveling, algebraic simplification,
+ * rational restructuring, collection of like terms, constant folding and sorting)
+ * are applied to the node, while its children are usually skipped, since each pass
+ * remembers the subtrees which it leaves unchanged. If the node is rewritten,
+ * the new parts of the tree are normalized in the same way, until nothing changes.
+ * A normal form is a fixed point of the composition of the passes, but not necessarily
+ * of each one of them: thus it is remembered only by the passes which confirm it.
+ * The normal forms are remembered, thus repeated subtrees are normalized only once.
+ * @author Dario Pavllo
+ */
+public class Normalizer extends AbstractExpressionVisitor {
+	
+	private final Map<Expression, Expression> normalForms = new HashMap<>();
+	private final List<AbstractExpressionVisitor> passes;
+	
+	/**
+	 * Builds a normalizer. Its memory of normal forms lasts as long as the instance.
+	 */
+	public Normalizer() {
+		super();
+		//The same order of the simplification pipeline, each pass with its own fixed points
+		this.passes = Arrays.asList(
+			new TreeLeveler(new HashSet<>()),
+			new AlgebraicSimplifier(new HashSet<>()),
+			new RationalSimplifier(new HashSet<>()),
+			new Collector(new HashSet<>()),
+			new ConstantFolder(new HashSet<>()),
+			new TreeSorter(new HashSet<>()));
+	}
+	
+	@Override
+	public Expression visit(final Expression v) {
+		final Expression known = this.normalForms.get(v);
+		if (known != null) {
+			return known;
+		}
+		//The children are normalized first (by the template methods)
+		final Expression withNormalChildren = v.accept(this);
+		final Expression rewritten = this.rewrite(withNormalChildren);
+		final Expression result = rewritten.equals(withNormalChildren)
+			? withNormalChildren
+			: this.visit(rewritten);
+		
+		this.normalForms.put(v, result);
+		this.normalForms.put(result, result);
+		return result;
+	}
+	
+	/*
+	 * Applies every pass to a node whose children are in normal form.
+	 * A pass which leaves the node unchanged records it as one of its fixed points.
+	 */
+	private Expression rewrite(final Expression e) {
+		Expression current = e;
+		for (final AbstractExpressionVisitor pass : this.passes) {
+			current = pass.visit(current);
+		}
+		return current;
+	}
+}
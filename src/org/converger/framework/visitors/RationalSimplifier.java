@@ -2,6 +2,7 @@ package org.converger.framework.visitors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.converger.framework.Expression;
 import org.converger.framework.core.BinaryOperation;
@@ -9,17 +10,36 @@ import org.converger.framework.core.ExpressionFactory;
 import org.converger.framework.core.NAryOperation;
 import org.converger.framework.core.NAryOperator;
 import org.converger.framework.core.BinaryOperator;
+import org.converger.framework.polynomials.Canceller;
 
 /**
  * This is a specific type of simplifier that reorders multiplication
  * and division nodes to satisfy some rational rules.
  * (x/y)/z becomes x/(yz), x/(y/z) becomes (xz)/y,
  * x * (y/z) becomes (xy)/z.
+ * The common factors of the numerator and the denominator of polynomial
+ * fractions are cancelled (see {@link Canceller}).
  * @author Dario Pavllo
  */
 public class RationalSimplifier extends AbstractExpressionVisitor
 	implements NAryOperator.Visitor<Expression>, BinaryOperator.Visitor<Expression> {
 
+	/**
+	 * Builds a simplifier which does not keep track of fixed points.
+	 */
+	public RationalSimplifier() {
+		super();
+	}
+	
+	/**
+	 * Builds a simplifier which keeps track of its fixed points.
+	 * @param fixedPoints the subtrees which are known to be left unchanged
+	 * by this simplifier; it is updated during the visits
+	 */
+	public RationalSimplifier(final Set<Expression> fixedPoints) {
+		super(fixedPoints);
+	}
+	
 	@Override
 	public Expression visit(final BinaryOperation v) {
 		final BinaryOperation sv = (BinaryOperation) super.visit(v); //Simplified
@@ -78,7 +98,8 @@ public class RationalSimplifier extends AbstractExpressionVisitor
 				);
 			}
 		}
-		return new BinaryOperation(BinaryOperator.DIVISION, o1, o2);
+		// (x^2 - 1)/(x - 1) = x + 1
+		return Canceller.cancel(o1, o2).orElse(new BinaryOperation(BinaryOperator.DIVISION, o1, o2));
 	}
 
 	/*-----------------
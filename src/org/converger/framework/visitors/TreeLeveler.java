@@ -2,6 +2,7 @@ package org.converger.framework.visitors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.converger.framework.Expression;
 import org.converger.framework.core.NAryOperation;
@@ -15,6 +16,22 @@ import org.converger.framework.core.NAryOperation;
  */
 public class TreeLeveler extends AbstractExpressionVisitor {
 
+	/**
+	 * Builds a leveler which does not keep track of fixed points.
+	 */
+	public TreeLeveler() {
+		super();
+	}
+	
+	/**
+	 * Builds a leveler which keeps track of its fixed points.
+	 * @param fixedPoints the subtrees which are known to be left unchanged
+	 * by this leveler; it is updated during the visits
+	 */
+	public TreeLeveler(final Set<Expression> fixedPoints) {
+		super(fixedPoints);
+	}
+	
 	@Override
 	public Expression visit(final NAryOperation v) {
 		final List<Expression> leveled = new ArrayList<>();
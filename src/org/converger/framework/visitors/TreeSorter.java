@@ -2,6 +2,7 @@ package org.converger.framework.visitors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.converger.framework.Expression;
 import org.converger.framework.core.BinaryOperation;
@@ -16,6 +17,22 @@ import org.converger.framework.core.Variable;
  */
 public class TreeSorter extends AbstractExpressionVisitor {
 
+	/**
+	 * Builds a sorter which does not keep track of fixed points.
+	 */
+	public TreeSorter() {
+		super();
+	}
+	
+	/**
+	 * Builds a sorter which keeps track of its fixed points.
+	 * @param fixedPoints the subtrees which are known to be left unchanged
+	 * by this sorter; it is updated during the visits
+	 */
+	public TreeSorter(final Set<Expression> fixedPoints) {
+		super(fixedPoints);
+	}
+	
 	@Override
 	public Expression visit(final NAryOperation v) {
 		final NAryOperation children = (NAryOperation) super.visit(v);
@@ -2,7 +2,7 @@ package org.converger.plot;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
-import java.util.function.DoubleFunction;
+import java.util.function.UnaryOperator;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -25,9 +25,10 @@ public class Graph {
 	
 	/**
 	 * Constructs the graph window.
-	 * @param function the function to be plotted.
+	 * @param function the function to be plotted; it maps an array of abscissas
+	 * to the array of the corresponding ordinates.
 	 */
-	public Graph(final DoubleFunction<Double> function) {
+	public Graph(final UnaryOperator<double[]> function) {
 		this.frame = new JFrame("Plot window");
 		this.frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 		this.frame.setSize(GUIConstants.PREFERRED_WIDTH, GUIConstants.PREFERRED_HEIGHT);
@@ -14,7 +14,7 @@ import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.text.NumberFormat;
-import java.util.function.DoubleFunction;
+import java.util.function.UnaryOperator;
 
 import javax.swing.JPanel;
 
@@ -29,16 +29,16 @@ public class PlotWindow extends JPanel {
 
 	private final NumberFormat labelFormat;
 	private final Path2D path;
-	private final DoubleFunction<Double> function;
+	private final UnaryOperator<double[]> function;
 	
 	private Rectangle2D graphBounds;
 
 	/**
 	 * Constructs the panwl where the graph of the given function will be plotted.
-	 * @param func the function to be plotted.
+	 * @param func the function to be plotted; it maps an array of abscissas
+	 * to the array of the corresponding ordinates.
 	 */
-	public PlotWindow(final DoubleFunction<Double> func) {
-
+	public PlotWindow(final UnaryOperator<double[]> func) {
 		this.setScale(PlotConstants.INITIAL_SCALE, PlotConstants.INITIAL_SCALE);
 
 		this.labelFormat = NumberFormat.getNumberInstance();
@@ -86,9 +86,15 @@ public class PlotWindow extends JPanel {
 		this.path.reset();
 		final double h = this.graphBounds.getWidth() / PlotConstants.SUBDIVISIONS;
 		
+		//All the points are evaluated at once
+		final double[] xs = new double[PlotConstants.SUBDIVISIONS + 1];
+		for (int i = 0; i <= PlotConstants.SUBDIVISIONS; i++) {
+			xs[i] = this.graphBounds.getMinX() + h * i;
+		}
+		final double[] ys = this.function.apply(xs);
+		
 		for (int i = 0; i <= PlotConstants.SUBDIVISIONS; i++) {
-			final double x = this.graphBounds.getMinX() + h * i;
-			final Point2D point = new Point2D.Double(x, this.function.apply(x));
+			final Point2D point = new Point2D.Double(xs[i], ys[i]);
 			if (this.path.getCurrentPoint() == null) {
 				this.path.moveTo(point.getX(), point.getY());
 			} else {
@@ -2,7 +2,7 @@ package org.converger.userinterface;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.function.DoubleFunction;
+import java.util.function.UnaryOperator;
 
 import org.converger.controller.Field;
 import org.converger.controller.FrameworkOperation;
@@ -92,7 +92,8 @@ public interface UserInterface {
 	
 	/**
 	 * Show the graph window.
-	 * @param function the function to be plotted in the graph.
+	 * @param function the function to be plotted in the graph; it maps an array
+	 * of abscissas to the array of the corresponding ordinates.
 	 */
-	void showGraph(DoubleFunction<Double> function);
+	void showGraph(UnaryOperator<double[]> function);
 }
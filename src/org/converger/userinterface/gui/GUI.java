@@ -8,7 +8,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.DoubleFunction;
+import java.util.function.UnaryOperator;
 
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
@@ -130,7 +130,7 @@ public class GUI implements UserInterface {
 	
 
 	@Override
-	public void showGraph(final DoubleFunction<Double> function) {
+	public void showGraph(final UnaryOperator<double[]> function) {
 		new Graph(function).show();
 	}
 	